@@ -0,0 +1,122 @@
+package org.cpsolver.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.model.Model;
+import org.cpsolver.ifs.model.Value;
+import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.perturbations.DefaultPerturbationsCounter;
+import org.cpsolver.ifs.solution.Solution;
+import org.cpsolver.ifs.solver.Solver;
+import org.cpsolver.ifs.util.DataProperties;
+
+/**
+ * Common methods used by the synthetic model generators of the benchmarks.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class BenchmarkUtils {
+
+    /**
+     * Random element of a list
+     * @param list a list
+     * @param random random number generator
+     * @return random element of the list, null if the list is empty
+     */
+    public static <E> E random(List<E> list, Random random) {
+        if (list == null || list.isEmpty()) return null;
+        return list.get(random.nextInt(list.size()));
+    }
+
+    /**
+     * Random value of a variable
+     * @param assignment current assignment
+     * @param variable a variable
+     * @param random random number generator
+     * @return random value from the domain of the variable, null if the domain is empty
+     */
+    public static <V extends Variable<V, T>, T extends Value<V, T>> T randomValue(Assignment<V, T> assignment, V variable, Random random) {
+        return random(variable.values(assignment), random);
+    }
+
+    /**
+     * Initialize the model (and its criteria) as if it was loaded into a solver with the given configuration.
+     * Only the perturbations counter is set on the solver (criteria like perturbations need it), no other solver components are created.
+     * @param model problem model
+     * @param assignment current assignment
+     * @param config solver configuration
+     * @return the solver into which the model was loaded (it is not started)
+     */
+    public static <V extends Variable<V, T>, T extends Value<V, T>> Solver<V, T> init(Model<V, T> model, Assignment<V, T> assignment, DataProperties config) {
+        Solver<V, T> solver = new Solver<V, T>(config);
+        solver.setInitalSolution(new Solution<V, T>(model, assignment));
+        solver.setPerturbationsCounter(new DefaultPerturbationsCounter<V, T>(config));
+        model.init(solver);
+        return solver;
+    }
+
+    /**
+     * Create a (partial) initial assignment: for each variable (in the order of the model), up to the given number of random values are tried
+     * and the first value that is not in a hard conflict with the current assignment is assigned.
+     * @param model problem model
+     * @param assignment assignment to be populated
+     * @param random random number generator
+     * @param attempts number of values to try for each variable
+     * @return number of assigned variables
+     */
+    public static <V extends Variable<V, T>, T extends Value<V, T>> int assignGreedy(Model<V, T> model, Assignment<V, T> assignment, Random random, int attempts) {
+        int assigned = 0;
+        long iteration = 0;
+        for (V variable: model.variables()) {
+            for (int i = 0; i < attempts; i++) {
+                T value = randomValue(assignment, variable, random);
+                if (value == null) break;
+                Set<T> conflicts = model.conflictValues(assignment, value);
+                if (conflicts.isEmpty()) {
+                    assignment.assign(iteration++, value);
+                    assigned++;
+                    break;
+                }
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Pick a number of random values (of random variables) that will be used as the input of a benchmark.
+     * @param model problem model
+     * @param assignment current assignment
+     * @param random random number generator
+     * @param size number of values to pick
+     * @return list of random values
+     */
+    public static <V extends Variable<V, T>, T extends Value<V, T>> List<T> randomValues(Model<V, T> model, Assignment<V, T> assignment, Random random, int size) {
+        List<T> values = new ArrayList<T>(size);
+        while (values.size() < size) {
+            T value = randomValue(assignment, random(model.variables(), random), random);
+            if (value != null) values.add(value);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,212 @@
+package org.cpsolver.benchmark.coursett;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.cpsolver.benchmark.BenchmarkUtils;
+import org.cpsolver.coursett.constraint.GroupConstraint;
+import org.cpsolver.coursett.constraint.InstructorConstraint;
+import org.cpsolver.coursett.model.Lecture;
+import org.cpsolver.coursett.model.Placement;
+import org.cpsolver.coursett.model.TimeLocation;
+import org.cpsolver.coursett.model.TimetableModel;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.criteria.Criterion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Course timetabling hot paths: {@link TimetableModel#conflictValues(Assignment, Placement)} (and {@link TimetableModel#countConflicts(Assignment, Placement)}),
+ * computation of conflicts of the room, distribution (group) and instructor constraints,
+ * the change in the value of all the criteria when a placement is assigned, and
+ * the overlap check between two times ({@link TimeLocation#hasIntersection(TimeLocation)}, compared with the check done on the date pattern bit sets).
+ * The model is generated by {@link TimetableModelGenerator}, its size can be changed by the benchmark parameters.
+ *
+ * @version CourseTT 1.3 (University Course Timetabling)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CourseTimetablingBenchmark {
+    private static final int sNrSamples = 1024;
+
+    @Param({ "1000" })
+    public int nrClasses;
+    @Param({ "100" })
+    public int nrRooms;
+    @Param({ "300" })
+    public int nrInstructors;
+    @Param({ "2000" })
+    public int nrStudents;
+    @Param({ "1" })
+    public long seed;
+
+    private TimetableModel iModel;
+    private Assignment<Lecture, Placement> iAssignment;
+    private List<Placement> iPlacements;
+    private List<GroupConstraint> iGroupConstraints;
+    private List<Placement> iGroupPlacements;
+    private List<InstructorConstraint> iInstructorConstraints;
+    private List<Placement> iInstructorPlacements;
+    private List<Set<Placement>> iPlacementConflicts;
+    private List<TimeLocation> iTimes;
+    private Set<Placement> iConflicts = new HashSet<Placement>();
+    private int iIndex = 0;
+
+    @Setup
+    public void setup() {
+        TimetableModelGenerator generator = new TimetableModelGenerator(nrClasses, nrRooms, nrInstructors, nrStudents, seed).generate();
+        iModel = generator.getModel();
+        iAssignment = generator.getAssignment();
+        Random rnd = new Random(seed);
+        iPlacements = BenchmarkUtils.randomValues(iModel, iAssignment, rnd, sNrSamples);
+        iPlacementConflicts = new ArrayList<Set<Placement>>(sNrSamples);
+        for (Placement placement: iPlacements)
+            iPlacementConflicts.add(iModel.conflictValues(iAssignment, placement));
+
+        iGroupConstraints = new ArrayList<GroupConstraint>(sNrSamples);
+        iGroupPlacements = new ArrayList<Placement>(sNrSamples);
+        while (iGroupPlacements.size() < sNrSamples) {
+            GroupConstraint gc = BenchmarkUtils.random(iModel.getGroupConstraints(), rnd);
+            Placement placement = BenchmarkUtils.randomValue(iAssignment, BenchmarkUtils.random(gc.variables(), rnd), rnd);
+            if (placement == null) continue;
+            iGroupConstraints.add(gc);
+            iGroupPlacements.add(placement);
+        }
+
+        iInstructorConstraints = new ArrayList<InstructorConstraint>(sNrSamples);
+        iInstructorPlacements = new ArrayList<Placement>(sNrSamples);
+        for (Placement placement: iPlacements) {
+            for (InstructorConstraint ic: placement.variable().getInstructorConstraints()) {
+                iInstructorConstraints.add(ic);
+                iInstructorPlacements.add(placement);
+            }
+        }
+
+        iTimes = new ArrayList<TimeLocation>(sNrSamples + 1);
+        for (Placement placement: iPlacements)
+            iTimes.add(placement.getTimeLocation());
+        iTimes.add(iTimes.get(0));
+    }
+
+    private int next(int size) {
+        iIndex = (iIndex + 1) % size;
+        return iIndex;
+    }
+
+    /**
+     * Hard conflicts of a placement (all constraints)
+     */
+    @Benchmark
+    public int conflictValues() {
+        return iModel.conflictValues(iAssignment, iPlacements.get(next(iPlacements.size()))).size();
+    }
+
+    /**
+     * Number of hard conflicts of a placement (all constraints), computed into a reused conflict buffer
+     */
+    @Benchmark
+    public int countConflicts() {
+        return iModel.countConflicts(iAssignment, iPlacements.get(next(iPlacements.size())));
+    }
+
+    /**
+     * Hard conflicts of a placement computed by its room constraint
+     */
+    @Benchmark
+    public int roomConstraintConflicts() {
+        Placement placement = iPlacements.get(next(iPlacements.size()));
+        iConflicts.clear();
+        if (placement.getRoomLocation() != null)
+            placement.getRoomLocation().getRoomConstraint().computeConflicts(iAssignment, placement, iConflicts);
+        return iConflicts.size();
+    }
+
+    /**
+     * Hard conflicts of a placement computed by a distribution constraint
+     */
+    @Benchmark
+    public int groupConstraintConflicts() {
+        int idx = next(iGroupPlacements.size());
+        iConflicts.clear();
+        iGroupConstraints.get(idx).computeConflicts(iAssignment, iGroupPlacements.get(idx), iConflicts);
+        return iConflicts.size();
+    }
+
+    /**
+     * Hard conflicts of a placement computed by an instructor constraint
+     */
+    @Benchmark
+    public int instructorConstraintConflicts() {
+        int idx = next(iInstructorPlacements.size());
+        iConflicts.clear();
+        iInstructorConstraints.get(idx).computeConflicts(iAssignment, iInstructorPlacements.get(idx), iConflicts);
+        return iConflicts.size();
+    }
+
+    /**
+     * Change in the (weighted) values of all criteria if a placement is assigned (conflicts are precomputed)
+     */
+    @Benchmark
+    public double criteriaDelta() {
+        int idx = next(iPlacements.size());
+        Placement placement = iPlacements.get(idx);
+        Set<Placement> conflicts = iPlacementConflicts.get(idx);
+        double value = 0.0;
+        for (Criterion<Lecture, Placement> criterion: iModel.getCriteria())
+            value += criterion.getWeightedValue(iAssignment, placement, conflicts);
+        return value;
+    }
+
+    /**
+     * Time overlap check
+     */
+    @Benchmark
+    public boolean timeOverlap() {
+        int idx = next(sNrSamples);
+        return iTimes.get(idx).hasIntersection(iTimes.get(idx + 1));
+    }
+
+    /**
+     * Time overlap check using the date pattern bit sets (as it was done before the date patterns were packed into words)
+     */
+    @Benchmark
+    public boolean timeOverlapBitSet() {
+        int idx = next(sNrSamples);
+        TimeLocation t1 = iTimes.get(idx), t2 = iTimes.get(idx + 1);
+        return t1.shareDays(t2) && t1.shareHours(t2) && t1.getWeekCode().intersects(t2.getWeekCode());
+    }
+}
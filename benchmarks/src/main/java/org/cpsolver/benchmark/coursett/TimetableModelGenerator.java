@@ -0,0 +1,225 @@
+package org.cpsolver.benchmark.coursett;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.cpsolver.benchmark.BenchmarkUtils;
+import org.cpsolver.coursett.Constants;
+import org.cpsolver.coursett.constraint.GroupConstraint;
+import org.cpsolver.coursett.constraint.InstructorConstraint;
+import org.cpsolver.coursett.constraint.JenrlConstraint;
+import org.cpsolver.coursett.constraint.RoomConstraint;
+import org.cpsolver.coursett.model.Lecture;
+import org.cpsolver.coursett.model.Placement;
+import org.cpsolver.coursett.model.RoomLocation;
+import org.cpsolver.coursett.model.Student;
+import org.cpsolver.coursett.model.TimeLocation;
+import org.cpsolver.coursett.model.TimetableModel;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.util.DataProperties;
+
+/**
+ * Synthetic course timetabling problem generator. The problem has the given number of classes, rooms, instructors and students.
+ * Each class can use a few random time patterns (MWF 50 minutes, TTh 75 minutes, or MW 75 minutes) and a few random rooms that are
+ * big enough. Classes are taught by random instructors, some pairs of classes are linked by a distribution constraint (group constraint)
+ * of a random type, and each student attends a few random classes (joint enrollment constraints are created accordingly).
+ * The generated model is populated with a greedy initial assignment.
+ *
+ * @version CourseTT 1.3 (University Course Timetabling)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class TimetableModelGenerator {
+    private static final GroupConstraint.ConstraintType[] sGroupTypes = new GroupConstraint.ConstraintType[] {
+        GroupConstraint.ConstraintType.SAME_DAYS, GroupConstraint.ConstraintType.DIFF_TIME, GroupConstraint.ConstraintType.BTB_TIME,
+        GroupConstraint.ConstraintType.SAME_ROOM, GroupConstraint.ConstraintType.SAME_START, GroupConstraint.ConstraintType.PRECEDENCE
+    };
+    private static final String[] sGroupPreferences = new String[] {
+        Constants.sPreferenceRequired, Constants.sPreferenceStronglyPreferred, Constants.sPreferencePreferred, Constants.sPreferenceDiscouraged
+    };
+
+    private int iNrClasses = 1000;
+    private int iNrRooms = 100;
+    private int iNrInstructors = 300;
+    private int iNrStudents = 2000;
+    private int iNrGroupConstraints = 300;
+    private int iClassesPerStudent = 5;
+    private int iRoomsPerClass = 5;
+    private int iTimesPerClass = 20;
+    private long iSeed = 1;
+
+    private TimetableModel iModel;
+    private Assignment<Lecture, Placement> iAssignment;
+
+    /**
+     * Constructor
+     * @param nrClasses number of classes
+     * @param nrRooms number of rooms
+     * @param nrInstructors number of instructors
+     * @param nrStudents number of students
+     * @param seed random seed
+     */
+    public TimetableModelGenerator(int nrClasses, int nrRooms, int nrInstructors, int nrStudents, long seed) {
+        iNrClasses = nrClasses;
+        iNrRooms = nrRooms;
+        iNrInstructors = nrInstructors;
+        iNrStudents = nrStudents;
+        iNrGroupConstraints = nrClasses / 3;
+        iSeed = seed;
+    }
+
+    /** Generated model
+     * @return generated problem
+     **/
+    public TimetableModel getModel() { return iModel; }
+
+    /** Initial assignment
+     * @return greedy initial assignment of the generated problem
+     **/
+    public Assignment<Lecture, Placement> getAssignment() { return iAssignment; }
+
+    /**
+     * Generate the problem
+     * @return this generator
+     */
+    public TimetableModelGenerator generate() {
+        Random rnd = new Random(iSeed);
+        DataProperties config = new DataProperties();
+        config.setProperty("Distances.Ellipsoid", "WGS84");
+        iModel = new TimetableModel(config);
+        iAssignment = new DefaultSingleAssignment<Lecture, Placement>();
+
+        List<RoomConstraint> rooms = new ArrayList<RoomConstraint>();
+        for (int i = 0; i < iNrRooms; i++) {
+            RoomConstraint room = new RoomConstraint((long)i, "R" + i, (long)(i / 5), 20 + 10 * rnd.nextInt(20), null,
+                    40.42 + rnd.nextDouble() / 100.0, -86.91 + rnd.nextDouble() / 100.0, false, true);
+            iModel.addConstraint(room);
+            rooms.add(room);
+        }
+
+        List<InstructorConstraint> instructors = new ArrayList<InstructorConstraint>();
+        for (int i = 0; i < iNrInstructors; i++) {
+            InstructorConstraint instructor = new InstructorConstraint((long)i, null, "I" + i, false);
+            iModel.addConstraint(instructor);
+            instructors.add(instructor);
+        }
+
+        List<Lecture> lectures = new ArrayList<Lecture>();
+        List<Lecture> sameSubpart = null;
+        for (int i = 0; i < iNrClasses; i++) {
+            int limit = 10 + rnd.nextInt(100);
+            List<RoomLocation> roomLocations = new ArrayList<RoomLocation>();
+            List<RoomConstraint> roomConstraints = new ArrayList<RoomConstraint>();
+            for (int j = 0; j < 10 * iRoomsPerClass && roomLocations.size() < iRoomsPerClass; j++) {
+                RoomConstraint room = BenchmarkUtils.random(rooms, rnd);
+                if (room.getCapacity() < limit || roomConstraints.contains(room)) continue;
+                roomConstraints.add(room);
+                roomLocations.add(new RoomLocation(room.getResourceId(), room.getName(), room.getBuildingId(), rnd.nextInt(3) - 1, room.getCapacity(),
+                        room.getPosX(), room.getPosY(), room.getIgnoreTooFar(), room));
+            }
+            if (roomLocations.isEmpty()) {
+                RoomConstraint room = rooms.get(0);
+                for (RoomConstraint r: rooms)
+                    if (r.getCapacity() > room.getCapacity()) room = r;
+                roomConstraints.add(room);
+                roomLocations.add(new RoomLocation(room.getResourceId(), room.getName(), room.getBuildingId(), 0, room.getCapacity(),
+                        room.getPosX(), room.getPosY(), room.getIgnoreTooFar(), room));
+                limit = Math.min(limit, room.getCapacity());
+            }
+            List<TimeLocation> timeLocations = new ArrayList<TimeLocation>();
+            int pattern = rnd.nextInt(3);
+            for (int start = Constants.DAY_SLOTS_FIRST; start < Constants.DAY_SLOTS_LAST; start += 12) {
+                if (timeLocations.size() >= iTimesPerClass) break;
+                switch (pattern) {
+                    case 0: // MWF 50 minutes, 10 minutes break
+                        timeLocations.add(new TimeLocation(Constants.DAY_CODES[0] + Constants.DAY_CODES[2] + Constants.DAY_CODES[4], start, 12, rnd.nextInt(3) - 1, 0.0, null, null, null, 10));
+                        break;
+                    case 1: // TTh 75 minutes, 15 minutes break
+                        timeLocations.add(new TimeLocation(Constants.DAY_CODES[1] + Constants.DAY_CODES[3], start, 18, rnd.nextInt(3) - 1, 0.0, null, null, null, 15));
+                        break;
+                    default: // MW 75 minutes, 15 minutes break
+                        timeLocations.add(new TimeLocation(Constants.DAY_CODES[0] + Constants.DAY_CODES[2], start, 18, rnd.nextInt(3) - 1, 0.0, null, null, null, 15));
+                }
+            }
+            Lecture lecture = new Lecture((long)i, null, (long)(i / 3), "C" + i, timeLocations, roomLocations, 1, null, limit, limit, 1.0);
+            lecture.setOrd(i);
+            if (i % 3 == 0) sameSubpart = new ArrayList<Lecture>();
+            sameSubpart.add(lecture);
+            lecture.setSameSubpartLectures(sameSubpart);
+            iModel.addVariable(lecture);
+            for (RoomConstraint room: roomConstraints)
+                room.addVariable(lecture);
+            BenchmarkUtils.random(instructors, rnd).addVariable(lecture);
+            lectures.add(lecture);
+        }
+
+        for (int i = 0; i < iNrGroupConstraints; i++) {
+            GroupConstraint gc = new GroupConstraint((long)i, sGroupTypes[rnd.nextInt(sGroupTypes.length)], sGroupPreferences[rnd.nextInt(sGroupPreferences.length)]);
+            iModel.addConstraint(gc);
+            int nrClasses = 2 + rnd.nextInt(2);
+            while (gc.variables().size() < nrClasses) {
+                Lecture lecture = BenchmarkUtils.random(lectures, rnd);
+                if (!gc.variables().contains(lecture)) gc.addVariable(lecture);
+            }
+        }
+
+        List<Student> students = new ArrayList<Student>();
+        for (int i = 0; i < iNrStudents; i++) {
+            Student student = new Student((long)i);
+            for (int j = 0; j < iClassesPerStudent; j++) {
+                Lecture lecture = BenchmarkUtils.random(lectures, rnd);
+                if (student.getLectures().contains(lecture)) continue;
+                student.addLecture(lecture);
+                lecture.addStudent(iAssignment, student);
+            }
+            iModel.addStudent(student);
+            students.add(student);
+        }
+
+        Map<Lecture, Map<Lecture, JenrlConstraint>> jenrls = new HashMap<Lecture, Map<Lecture, JenrlConstraint>>();
+        for (Student student: students) {
+            for (Lecture l1: student.getLectures()) {
+                for (Lecture l2: student.getLectures()) {
+                    if (l1.getId() >= l2.getId()) continue;
+                    Map<Lecture, JenrlConstraint> x = jenrls.get(l1);
+                    if (x == null) {
+                        x = new HashMap<Lecture, JenrlConstraint>();
+                        jenrls.put(l1, x);
+                    }
+                    JenrlConstraint jenrl = x.get(l2);
+                    if (jenrl == null) {
+                        jenrl = new JenrlConstraint();
+                        jenrl.addVariable(l1);
+                        jenrl.addVariable(l2);
+                        iModel.addConstraint(jenrl);
+                        x.put(l2, jenrl);
+                    }
+                    jenrl.incJenrl(iAssignment, student);
+                }
+            }
+        }
+
+        BenchmarkUtils.init(iModel, iAssignment, config);
+        BenchmarkUtils.assignGreedy(iModel, iAssignment, rnd, 10);
+        return this;
+    }
+}
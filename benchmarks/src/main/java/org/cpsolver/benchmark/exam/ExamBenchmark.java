@@ -0,0 +1,148 @@
+package org.cpsolver.benchmark.exam;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.cpsolver.benchmark.BenchmarkUtils;
+import org.cpsolver.exam.model.Exam;
+import org.cpsolver.exam.model.ExamModel;
+import org.cpsolver.exam.model.ExamPlacement;
+import org.cpsolver.exam.model.ExamStudent;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.criteria.Criterion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Examination timetabling hot paths: {@link ExamModel#conflictValues(Assignment, ExamPlacement)},
+ * computation of conflicts of a student constraint, the change in the value of all the criteria when a placement is assigned,
+ * and the best available rooms lookup ({@link Exam#findBestAvailableRooms(Assignment, org.cpsolver.exam.model.ExamPeriodPlacement)}).
+ * The model is generated by {@link ExamModelGenerator}, its size can be changed by the benchmark parameters.
+ *
+ * @version ExamTT 1.3 (Examination Timetabling)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExamBenchmark {
+    private static final int sNrSamples = 1024;
+
+    @Param({ "1000" })
+    public int nrExams;
+    @Param({ "50" })
+    public int nrRooms;
+    @Param({ "5000" })
+    public int nrStudents;
+    @Param({ "1" })
+    public long seed;
+
+    private ExamModel iModel;
+    private Assignment<Exam, ExamPlacement> iAssignment;
+    private List<ExamPlacement> iPlacements;
+    private List<Set<ExamPlacement>> iPlacementConflicts;
+    private List<ExamStudent> iStudents;
+    private List<ExamPlacement> iStudentPlacements;
+    private Set<ExamPlacement> iConflicts = new HashSet<ExamPlacement>();
+    private int iIndex = 0;
+
+    @Setup
+    public void setup() {
+        ExamModelGenerator generator = new ExamModelGenerator(nrExams, nrRooms, nrStudents, seed).generate();
+        iModel = generator.getModel();
+        iAssignment = generator.getAssignment();
+        Random rnd = new Random(seed);
+        iPlacements = BenchmarkUtils.randomValues(iModel, iAssignment, rnd, sNrSamples);
+        iPlacementConflicts = new ArrayList<Set<ExamPlacement>>(sNrSamples);
+        for (ExamPlacement placement: iPlacements)
+            iPlacementConflicts.add(iModel.conflictValues(iAssignment, placement));
+        iStudents = new ArrayList<ExamStudent>(sNrSamples);
+        iStudentPlacements = new ArrayList<ExamPlacement>(sNrSamples);
+        for (ExamPlacement placement: iPlacements) {
+            ExamStudent student = BenchmarkUtils.random(placement.variable().getStudents(), rnd);
+            if (student == null) continue;
+            iStudents.add(student);
+            iStudentPlacements.add(placement);
+        }
+    }
+
+    private int next(int size) {
+        iIndex = (iIndex + 1) % size;
+        return iIndex;
+    }
+
+    /**
+     * Hard conflicts of a placement (all constraints)
+     */
+    @Benchmark
+    public int conflictValues() {
+        return iModel.conflictValues(iAssignment, iPlacements.get(next(iPlacements.size()))).size();
+    }
+
+    /**
+     * Hard conflicts of a placement computed by a student constraint
+     */
+    @Benchmark
+    public int studentConflicts() {
+        int idx = next(iStudentPlacements.size());
+        iConflicts.clear();
+        iStudents.get(idx).computeConflicts(iAssignment, iStudentPlacements.get(idx), iConflicts);
+        return iConflicts.size();
+    }
+
+    /**
+     * Change in the (weighted) values of all criteria if a placement is assigned (conflicts are precomputed)
+     */
+    @Benchmark
+    public double criteriaDelta() {
+        int idx = next(iPlacements.size());
+        ExamPlacement placement = iPlacements.get(idx);
+        Set<ExamPlacement> conflicts = iPlacementConflicts.get(idx);
+        double value = 0.0;
+        for (Criterion<Exam, ExamPlacement> criterion: iModel.getCriteria())
+            value += criterion.getWeightedValue(iAssignment, placement, conflicts);
+        return value;
+    }
+
+    /**
+     * Best available rooms of an exam in a period
+     */
+    @Benchmark
+    public int findBestAvailableRooms() {
+        ExamPlacement placement = iPlacements.get(next(iPlacements.size()));
+        Set<?> rooms = placement.variable().findBestAvailableRooms(iAssignment, placement.getPeriodPlacement());
+        return rooms == null ? -1 : rooms.size();
+    }
+}
@@ -0,0 +1,160 @@
+package org.cpsolver.benchmark.exam;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.cpsolver.benchmark.BenchmarkUtils;
+import org.cpsolver.exam.model.Exam;
+import org.cpsolver.exam.model.ExamInstructor;
+import org.cpsolver.exam.model.ExamModel;
+import org.cpsolver.exam.model.ExamPeriod;
+import org.cpsolver.exam.model.ExamPeriodPlacement;
+import org.cpsolver.exam.model.ExamPlacement;
+import org.cpsolver.exam.model.ExamRoom;
+import org.cpsolver.exam.model.ExamRoomPlacement;
+import org.cpsolver.exam.model.ExamStudent;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.util.DataProperties;
+
+/**
+ * Synthetic examination timetabling problem generator. The problem has the given number of exams, rooms, and students.
+ * There are 5 two-hour periods a day for two weeks (weekdays only), each exam can be placed in any period and in a few random rooms
+ * that are big enough (with a random penalty). Each student takes a few random exams, each instructor teaches a few random exams.
+ * The generated model is populated with a greedy initial assignment.
+ *
+ * @version ExamTT 1.3 (Examination Timetabling)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class ExamModelGenerator {
+    private static final String[] sTimes = new String[] { "8:00a", "10:30a", "1:00p", "3:30p", "7:00p" };
+    private int iNrExams = 1000;
+    private int iNrRooms = 50;
+    private int iNrStudents = 5000;
+    private int iNrInstructors = 300;
+    private int iExamsPerStudent = 5;
+    private int iExamsPerInstructor = 3;
+    private int iRoomsPerExam = 10;
+    private int iNrDays = 10;
+    private long iSeed = 1;
+
+    private ExamModel iModel;
+    private Assignment<Exam, ExamPlacement> iAssignment;
+
+    /**
+     * Constructor
+     * @param nrExams number of exams
+     * @param nrRooms number of rooms
+     * @param nrStudents number of students
+     * @param seed random seed
+     */
+    public ExamModelGenerator(int nrExams, int nrRooms, int nrStudents, long seed) {
+        iNrExams = nrExams;
+        iNrRooms = nrRooms;
+        iNrStudents = nrStudents;
+        iNrInstructors = nrExams / 3;
+        iSeed = seed;
+    }
+
+    /** Generated model
+     * @return generated problem
+     **/
+    public ExamModel getModel() { return iModel; }
+
+    /** Initial assignment
+     * @return greedy initial assignment of the generated problem
+     **/
+    public Assignment<Exam, ExamPlacement> getAssignment() { return iAssignment; }
+
+    /**
+     * Generate the problem
+     * @return this generator
+     */
+    public ExamModelGenerator generate() {
+        Random rnd = new Random(iSeed);
+        DataProperties config = new DataProperties();
+        config.setProperty("Distances.Ellipsoid", "WGS84");
+        iModel = new ExamModel(config);
+        iAssignment = new DefaultSingleAssignment<Exam, ExamPlacement>();
+
+        long periodId = 0;
+        for (int d = 0; d < iNrDays; d++)
+            for (int t = 0; t < sTimes.length; t++)
+                iModel.addPeriod(periodId++, "D" + (d + 1), sTimes[t], 120, t == sTimes.length - 1 ? 1 : 0);
+
+        List<ExamRoom> rooms = new ArrayList<ExamRoom>();
+        int maxSize = 0;
+        for (int i = 0; i < iNrRooms; i++) {
+            int size = 20 + 10 * rnd.nextInt(20);
+            ExamRoom room = new ExamRoom(iModel, i, "R" + i, size, size / 2,
+                    40.42 + rnd.nextDouble() / 100.0, -86.91 + rnd.nextDouble() / 100.0);
+            iModel.addConstraint(room);
+            iModel.getRooms().add(room);
+            rooms.add(room);
+            maxSize = Math.max(maxSize, size);
+        }
+
+        List<Exam> exams = new ArrayList<Exam>();
+        for (int i = 0; i < iNrExams; i++) {
+            List<ExamPeriodPlacement> periods = new ArrayList<ExamPeriodPlacement>();
+            for (ExamPeriod period: iModel.getPeriods())
+                periods.add(new ExamPeriodPlacement(period, rnd.nextInt(3) == 0 ? rnd.nextInt(3) - 1 : 0));
+            int minSize = 10 + rnd.nextInt(maxSize - 10);
+            List<ExamRoomPlacement> roomPlacements = new ArrayList<ExamRoomPlacement>();
+            for (int j = 0; j < 10 * iRoomsPerExam && roomPlacements.size() < iRoomsPerExam; j++) {
+                ExamRoom room = BenchmarkUtils.random(rooms, rnd);
+                if (room.getSize() < minSize) continue;
+                boolean contains = false;
+                for (ExamRoomPlacement p: roomPlacements)
+                    if (p.getRoom().equals(room)) { contains = true; break; }
+                if (!contains)
+                    roomPlacements.add(new ExamRoomPlacement(room, rnd.nextInt(3) - 1));
+            }
+            Exam exam = new Exam(i, "E" + i, 120, false, 1, minSize, periods, roomPlacements);
+            iModel.addVariable(exam);
+            exams.add(exam);
+        }
+
+        for (int i = 0; i < iNrStudents; i++) {
+            ExamStudent student = new ExamStudent(iModel, i);
+            while (student.variables().size() < iExamsPerStudent) {
+                Exam exam = BenchmarkUtils.random(exams, rnd);
+                if (!student.variables().contains(exam)) student.addVariable(exam);
+            }
+            iModel.addConstraint(student);
+            iModel.getStudents().add(student);
+        }
+
+        for (int i = 0; i < iNrInstructors; i++) {
+            ExamInstructor instructor = new ExamInstructor(iModel, i, "I" + i);
+            while (instructor.variables().size() < iExamsPerInstructor) {
+                Exam exam = BenchmarkUtils.random(exams, rnd);
+                if (!instructor.variables().contains(exam)) instructor.addVariable(exam);
+            }
+            iModel.addConstraint(instructor);
+            iModel.getInstructors().add(instructor);
+        }
+
+        iModel.init();
+        BenchmarkUtils.init(iModel, iAssignment, config);
+        BenchmarkUtils.assignGreedy(iModel, iAssignment, rnd, 10);
+        return this;
+    }
+}
@@ -0,0 +1,130 @@
+package org.cpsolver.benchmark.instructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.cpsolver.benchmark.BenchmarkUtils;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.criteria.Criterion;
+import org.cpsolver.instructor.model.Instructor;
+import org.cpsolver.instructor.model.InstructorSchedulingModel;
+import org.cpsolver.instructor.model.TeachingAssignment;
+import org.cpsolver.instructor.model.TeachingRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Instructor scheduling hot paths: {@link InstructorSchedulingModel#conflictValues(Assignment, TeachingAssignment)},
+ * the change in the value of all the criteria when a teaching assignment is assigned, and the instructor / teaching request
+ * compatibility check ({@link Instructor#canTeach(TeachingRequest)}) that is used when the domains are computed.
+ * The model is generated by {@link InstructorSchedulingModelGenerator}, its size can be changed by the benchmark parameters.
+ *
+ * @version IFS 1.3 (Instructor Sectioning)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstructorSchedulingBenchmark {
+    private static final int sNrSamples = 1024;
+
+    @Param({ "200" })
+    public int nrInstructors;
+    @Param({ "100" })
+    public int nrCourses;
+    @Param({ "1" })
+    public long seed;
+
+    private InstructorSchedulingModel iModel;
+    private Assignment<TeachingRequest.Variable, TeachingAssignment> iAssignment;
+    private List<TeachingAssignment> iValues;
+    private List<Set<TeachingAssignment>> iValueConflicts;
+    private List<Instructor> iInstructors;
+    private List<TeachingRequest> iRequests;
+    private int iIndex = 0;
+
+    @Setup
+    public void setup() {
+        InstructorSchedulingModelGenerator generator = new InstructorSchedulingModelGenerator(nrInstructors, nrCourses, seed).generate();
+        iModel = generator.getModel();
+        iAssignment = generator.getAssignment();
+        Random rnd = new Random(seed);
+        iValues = BenchmarkUtils.randomValues(iModel, iAssignment, rnd, sNrSamples);
+        iValueConflicts = new ArrayList<Set<TeachingAssignment>>(sNrSamples);
+        for (TeachingAssignment value: iValues)
+            iValueConflicts.add(iModel.conflictValues(iAssignment, value));
+        iInstructors = new ArrayList<Instructor>(sNrSamples);
+        iRequests = new ArrayList<TeachingRequest>(sNrSamples);
+        for (int i = 0; i < sNrSamples; i++) {
+            iInstructors.add(BenchmarkUtils.random(iModel.getInstructors(), rnd));
+            iRequests.add(BenchmarkUtils.random(iModel.getRequests(), rnd));
+        }
+    }
+
+    private int next(int size) {
+        iIndex = (iIndex + 1) % size;
+        return iIndex;
+    }
+
+    /**
+     * Hard conflicts of a teaching assignment (all constraints)
+     */
+    @Benchmark
+    public int conflictValues() {
+        return iModel.conflictValues(iAssignment, iValues.get(next(iValues.size()))).size();
+    }
+
+    /**
+     * Change in the (weighted) values of all criteria if a teaching assignment is assigned (conflicts are precomputed)
+     */
+    @Benchmark
+    public double criteriaDelta() {
+        int idx = next(iValues.size());
+        TeachingAssignment value = iValues.get(idx);
+        Set<TeachingAssignment> conflicts = iValueConflicts.get(idx);
+        double total = 0.0;
+        for (Criterion<TeachingRequest.Variable, TeachingAssignment> criterion: iModel.getCriteria())
+            total += criterion.getWeightedValue(iAssignment, value, conflicts);
+        return total;
+    }
+
+    /**
+     * Can the given instructor teach the given request
+     */
+    @Benchmark
+    public boolean canTeach() {
+        int idx = next(sNrSamples);
+        return iInstructors.get(idx).canTeach(iRequests.get(idx));
+    }
+}
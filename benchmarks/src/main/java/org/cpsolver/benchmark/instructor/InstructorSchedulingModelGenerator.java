@@ -0,0 +1,145 @@
+package org.cpsolver.benchmark.instructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.cpsolver.benchmark.BenchmarkUtils;
+import org.cpsolver.coursett.Constants;
+import org.cpsolver.coursett.model.TimeLocation;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.instructor.model.Attribute;
+import org.cpsolver.instructor.model.Course;
+import org.cpsolver.instructor.model.Instructor;
+import org.cpsolver.instructor.model.InstructorSchedulingModel;
+import org.cpsolver.instructor.model.Preference;
+import org.cpsolver.instructor.model.Section;
+import org.cpsolver.instructor.model.TeachingAssignment;
+import org.cpsolver.instructor.model.TeachingRequest;
+
+/**
+ * Synthetic instructor scheduling problem generator. The problem has the given number of instructors and courses.
+ * Each course has a few teaching requests (a lecture and a recitation at random times), each request may prefer or require an attribute.
+ * Instructors have a random maximal load, a few random attributes, a few random time preferences (some of them prohibited)
+ * and a few random course preferences. The generated model is populated with a greedy initial assignment.
+ *
+ * @version IFS 1.3 (Instructor Sectioning)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class InstructorSchedulingModelGenerator {
+    private int iNrInstructors = 200;
+    private int iNrCourses = 100;
+    private int iRequestsPerCourse = 3;
+    private int iNrAttributes = 20;
+    private int iAttributesPerInstructor = 3;
+    private int iTimePreferencesPerInstructor = 3;
+    private int iCoursePreferencesPerInstructor = 2;
+    private long iSeed = 1;
+
+    private InstructorSchedulingModel iModel;
+    private Assignment<TeachingRequest.Variable, TeachingAssignment> iAssignment;
+
+    /**
+     * Constructor
+     * @param nrInstructors number of instructors
+     * @param nrCourses number of courses
+     * @param seed random seed
+     */
+    public InstructorSchedulingModelGenerator(int nrInstructors, int nrCourses, long seed) {
+        iNrInstructors = nrInstructors;
+        iNrCourses = nrCourses;
+        iSeed = seed;
+    }
+
+    /** Generated model
+     * @return generated problem
+     **/
+    public InstructorSchedulingModel getModel() { return iModel; }
+
+    /** Initial assignment
+     * @return greedy initial assignment of the generated problem
+     **/
+    public Assignment<TeachingRequest.Variable, TeachingAssignment> getAssignment() { return iAssignment; }
+
+    private static TimeLocation randomTime(Random rnd) {
+        if (rnd.nextBoolean()) {
+            // MWF 50 minutes, 10 minutes break
+            int start = Constants.DAY_SLOTS_FIRST + 12 * rnd.nextInt(10);
+            return new TimeLocation(Constants.DAY_CODES[0] + Constants.DAY_CODES[2] + Constants.DAY_CODES[4], start, 12, 0, 0.0, null, null, null, 10);
+        } else {
+            // TTh 75 minutes, 15 minutes break
+            int start = Constants.DAY_SLOTS_FIRST + 18 * rnd.nextInt(6);
+            return new TimeLocation(Constants.DAY_CODES[1] + Constants.DAY_CODES[3], start, 18, 0, 0.0, null, null, null, 15);
+        }
+    }
+
+    /**
+     * Generate the problem
+     * @return this generator
+     */
+    public InstructorSchedulingModelGenerator generate() {
+        Random rnd = new Random(iSeed);
+        DataProperties config = new DataProperties();
+        iModel = new InstructorSchedulingModel(config);
+        iAssignment = new DefaultSingleAssignment<TeachingRequest.Variable, TeachingAssignment>();
+
+        Attribute.Type type = new Attribute.Type(0, "Skill", false, false);
+        iModel.addAttributeType(type);
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        for (int i = 0; i < iNrAttributes; i++)
+            attributes.add(new Attribute(i, "A" + i, type));
+
+        List<Course> courses = new ArrayList<Course>();
+        for (int i = 0; i < iNrCourses; i++)
+            courses.add(new Course(i, "C" + i));
+
+        for (int i = 0; i < iNrInstructors; i++) {
+            Instructor instructor = new Instructor(i, null, "I" + i, rnd.nextInt(3) - 1, 4 + rnd.nextInt(3) * 2);
+            for (int j = 0; j < iAttributesPerInstructor; j++) {
+                Attribute attribute = BenchmarkUtils.random(attributes, rnd);
+                if (!instructor.getAttributes().contains(attribute)) instructor.addAttribute(attribute);
+            }
+            for (int j = 0; j < iTimePreferencesPerInstructor; j++)
+                instructor.addTimePreference(new Preference<TimeLocation>(randomTime(rnd), rnd.nextInt(4) == 0 ? Constants.sPreferenceLevelProhibited : rnd.nextInt(5) - 2));
+            for (int j = 0; j < iCoursePreferencesPerInstructor; j++)
+                instructor.addCoursePreference(new Preference<Course>(BenchmarkUtils.random(courses, rnd), rnd.nextInt(5) - 2));
+            iModel.addInstructor(instructor);
+        }
+
+        long requestId = 0, sectionId = 0;
+        for (Course course: courses) {
+            for (int i = 0; i < iRequestsPerCourse; i++) {
+                List<Section> sections = new ArrayList<Section>();
+                sections.add(new Section(sectionId++, null, "Lec", "Lec " + (i + 1), randomTime(rnd), "R" + rnd.nextInt(50), false, false));
+                sections.add(new Section(sectionId++, null, "Rec", "Rec " + (i + 1), randomTime(rnd), "R" + rnd.nextInt(50), false, false));
+                TeachingRequest request = new TeachingRequest(requestId++, 1 + rnd.nextInt(2), course, 2.0f, sections, 0, 0);
+                if (rnd.nextBoolean())
+                    request.addAttributePreference(new Preference<Attribute>(BenchmarkUtils.random(attributes, rnd),
+                            rnd.nextInt(4) == 0 ? Constants.sPreferenceLevelRequired : Constants.sPreferenceLevelPreferred));
+                iModel.addRequest(request);
+            }
+        }
+
+        BenchmarkUtils.init(iModel, iAssignment, config);
+        BenchmarkUtils.assignGreedy(iModel, iAssignment, rnd, 10);
+        return this;
+    }
+}
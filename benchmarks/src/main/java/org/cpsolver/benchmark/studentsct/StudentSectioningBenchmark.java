@@ -0,0 +1,122 @@
+package org.cpsolver.benchmark.studentsct;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cpsolver.benchmark.BenchmarkUtils;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.studentsct.StudentSectioningModel;
+import org.cpsolver.studentsct.heuristics.selection.BranchBoundSelection;
+import org.cpsolver.studentsct.heuristics.selection.BranchBoundSelection.BranchBoundNeighbour;
+import org.cpsolver.studentsct.model.Enrollment;
+import org.cpsolver.studentsct.model.Request;
+import org.cpsolver.studentsct.model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Student sectioning hot paths: the branch &amp; bound search for a single student ({@link BranchBoundSelection}, i.e., the latency of
+ * sectioning one student), {@link StudentSectioningModel#conflictValues(Assignment, Enrollment)}, and the overlap check between two
+ * enrollments ({@link Enrollment#isOverlapping(Enrollment)}).
+ * The model is generated by {@link StudentSectioningModelGenerator}, its size can be changed by the benchmark parameters.
+ *
+ * @version StudentSct 1.3 (Student Sectioning)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentSectioningBenchmark {
+    private static final int sNrSamples = 1024;
+
+    @Param({ "200" })
+    public int nrCourses;
+    @Param({ "2000" })
+    public int nrStudents;
+    @Param({ "1" })
+    public long seed;
+
+    private StudentSectioningModel iModel;
+    private Assignment<Request, Enrollment> iAssignment;
+    private BranchBoundSelection iSelection;
+    private List<Student> iStudents;
+    private List<Enrollment> iEnrollments;
+    private int iIndex = 0;
+
+    @Setup
+    public void setup() {
+        StudentSectioningModelGenerator generator = new StudentSectioningModelGenerator(nrCourses, nrStudents, seed).generate();
+        iModel = generator.getModel();
+        iAssignment = generator.getAssignment();
+        Random rnd = new Random(seed);
+        iSelection = new BranchBoundSelection(new DataProperties());
+        iSelection.setModel(iModel);
+        iStudents = new ArrayList<Student>(sNrSamples);
+        while (iStudents.size() < sNrSamples)
+            iStudents.add(BenchmarkUtils.random(iModel.getStudents(), rnd));
+        iEnrollments = BenchmarkUtils.randomValues(iModel, iAssignment, rnd, sNrSamples + 1);
+    }
+
+    private int next(int size) {
+        iIndex = (iIndex + 1) % size;
+        return iIndex;
+    }
+
+    /**
+     * Branch &amp; bound search for the best schedule of a student (the found schedule is not assigned)
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double branchAndBound() {
+        BranchBoundNeighbour neighbour = iSelection.getSelection(iAssignment, iStudents.get(next(iStudents.size()))).select();
+        return neighbour == null ? 0.0 : neighbour.value(iAssignment);
+    }
+
+    /**
+     * Hard conflicts of an enrollment (all constraints)
+     */
+    @Benchmark
+    public int conflictValues() {
+        return iModel.conflictValues(iAssignment, iEnrollments.get(next(sNrSamples))).size();
+    }
+
+    /**
+     * Overlap check between two enrollments
+     */
+    @Benchmark
+    public boolean enrollmentOverlap() {
+        int idx = next(sNrSamples);
+        return iEnrollments.get(idx).isOverlapping(iEnrollments.get(idx + 1));
+    }
+}
@@ -0,0 +1,170 @@
+package org.cpsolver.benchmark.studentsct;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.cpsolver.benchmark.BenchmarkUtils;
+import org.cpsolver.coursett.Constants;
+import org.cpsolver.coursett.model.Placement;
+import org.cpsolver.coursett.model.RoomLocation;
+import org.cpsolver.coursett.model.TimeLocation;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.solver.Solver;
+import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.studentsct.StudentSectioningModel;
+import org.cpsolver.studentsct.extension.DistanceConflict;
+import org.cpsolver.studentsct.extension.TimeOverlapsCounter;
+import org.cpsolver.studentsct.model.Config;
+import org.cpsolver.studentsct.model.Course;
+import org.cpsolver.studentsct.model.CourseRequest;
+import org.cpsolver.studentsct.model.Enrollment;
+import org.cpsolver.studentsct.model.Offering;
+import org.cpsolver.studentsct.model.Request;
+import org.cpsolver.studentsct.model.Section;
+import org.cpsolver.studentsct.model.Student;
+import org.cpsolver.studentsct.model.Subpart;
+
+/**
+ * Synthetic student sectioning problem generator. The problem has the given number of courses and students.
+ * Each course has a single configuration with a lecture subpart and a recitation subpart (each recitation has a parent lecture),
+ * sections have random times (MWF 50 minutes or TTh 75 minutes) and random rooms (with coordinates, so that distance conflicts can
+ * be computed). Each student requests a few random courses, the last one of them is an alternative course request.
+ * Distance conflicts and time overlaps extensions are registered and the generated model is populated with a greedy initial assignment.
+ *
+ * @version StudentSct 1.3 (Student Sectioning)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class StudentSectioningModelGenerator {
+    private int iNrCourses = 200;
+    private int iNrStudents = 2000;
+    private int iNrRooms = 50;
+    private int iCoursesPerStudent = 5;
+    private int iLecturesPerCourse = 3;
+    private int iRecitationsPerLecture = 3;
+    private long iSeed = 1;
+
+    private StudentSectioningModel iModel;
+    private Assignment<Request, Enrollment> iAssignment;
+    private Solver<Request, Enrollment> iSolver;
+
+    /**
+     * Constructor
+     * @param nrCourses number of courses
+     * @param nrStudents number of students
+     * @param seed random seed
+     */
+    public StudentSectioningModelGenerator(int nrCourses, int nrStudents, long seed) {
+        iNrCourses = nrCourses;
+        iNrStudents = nrStudents;
+        iNrRooms = Math.max(1, nrCourses / 4);
+        iSeed = seed;
+    }
+
+    /** Generated model
+     * @return generated problem
+     **/
+    public StudentSectioningModel getModel() { return iModel; }
+
+    /** Initial assignment
+     * @return greedy initial assignment of the generated problem
+     **/
+    public Assignment<Request, Enrollment> getAssignment() { return iAssignment; }
+
+    /** Solver into which the generated model is loaded (it is not started)
+     * @return solver
+     **/
+    public Solver<Request, Enrollment> getSolver() { return iSolver; }
+
+    private static TimeLocation randomTime(Random rnd) {
+        if (rnd.nextBoolean()) {
+            // MWF 50 minutes, 10 minutes break
+            int start = Constants.DAY_SLOTS_FIRST + 12 * rnd.nextInt(10);
+            return new TimeLocation(Constants.DAY_CODES[0] + Constants.DAY_CODES[2] + Constants.DAY_CODES[4], start, 12, 0, 0.0, null, null, null, 10);
+        } else {
+            // TTh 75 minutes, 15 minutes break
+            int start = Constants.DAY_SLOTS_FIRST + 18 * rnd.nextInt(6);
+            return new TimeLocation(Constants.DAY_CODES[1] + Constants.DAY_CODES[3], start, 18, 0, 0.0, null, null, null, 15);
+        }
+    }
+
+    /**
+     * Generate the problem
+     * @return this generator
+     */
+    public StudentSectioningModelGenerator generate() {
+        Random rnd = new Random(iSeed);
+        DataProperties config = new DataProperties();
+        config.setProperty("Distances.Ellipsoid", "WGS84");
+        iModel = new StudentSectioningModel(config);
+        iAssignment = new DefaultSingleAssignment<Request, Enrollment>();
+
+        List<RoomLocation> rooms = new ArrayList<RoomLocation>();
+        for (int i = 0; i < iNrRooms; i++)
+            rooms.add(new RoomLocation((long)i, "R" + i, (long)(i / 5), 0, 50 + 10 * rnd.nextInt(20),
+                    40.42 + rnd.nextDouble() / 100.0, -86.91 + rnd.nextDouble() / 100.0, false, null));
+
+        List<Course> courses = new ArrayList<Course>();
+        long sectionId = 0;
+        for (int i = 0; i < iNrCourses; i++) {
+            int limit = iLecturesPerCourse * iRecitationsPerLecture * 30;
+            Offering offering = new Offering(i, "C" + i);
+            Course course = new Course(i, "S" + (i / 10), String.valueOf(100 + i), offering, limit, 0);
+            Config cfg = new Config(i, limit, "C" + i, offering);
+            Subpart lec = new Subpart(2 * i, "Lec", "Lec", cfg, null);
+            Subpart rec = new Subpart(2 * i + 1, "Rec", "Rec", cfg, lec);
+            for (int j = 0; j < iLecturesPerCourse; j++) {
+                Section lecture = new Section(sectionId++, iRecitationsPerLecture * 30, "L" + j, lec,
+                        new Placement(null, randomTime(rnd), BenchmarkUtils.random(rooms, rnd)), null);
+                for (int k = 0; k < iRecitationsPerLecture; k++)
+                    new Section(sectionId++, 30, "R" + j + "" + k, rec,
+                            new Placement(null, randomTime(rnd), BenchmarkUtils.random(rooms, rnd)), lecture);
+            }
+            iModel.addOffering(offering);
+            courses.add(course);
+        }
+
+        long requestId = 0;
+        for (int i = 0; i < iNrStudents; i++) {
+            Student student = new Student(i);
+            List<Course> requested = new ArrayList<Course>();
+            while (requested.size() < iCoursesPerStudent + 1) {
+                Course course = BenchmarkUtils.random(courses, rnd);
+                if (!requested.contains(course)) requested.add(course);
+            }
+            for (int j = 0; j < requested.size(); j++) {
+                List<Course> alternatives = new ArrayList<Course>();
+                alternatives.add(requested.get(j));
+                new CourseRequest(requestId++, j, j == iCoursesPerStudent, student, alternatives, false, null);
+            }
+            iModel.addStudent(student);
+        }
+
+        iSolver = BenchmarkUtils.init(iModel, iAssignment, config);
+        DistanceConflict dc = new DistanceConflict(iSolver, config);
+        dc.register(iModel);
+        iSolver.addExtension(dc);
+        TimeOverlapsCounter toc = new TimeOverlapsCounter(iSolver, config);
+        toc.register(iModel);
+        iSolver.addExtension(toc);
+        BenchmarkUtils.assignGreedy(iModel, iAssignment, rnd, 10);
+        return this;
+    }
+}
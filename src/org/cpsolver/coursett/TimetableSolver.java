@@ -124,7 +124,7 @@ public class TimetableSolver extends Solver<Lecture, Placement> {
                 for (Placement value : variable.values()) {
                     if (value.equals(currentValue))
                         continue;
-                    if (model.conflictValues(assignment, value).isEmpty()) {
+                    if (model.countConflicts(assignment, value) == 0) {
                         double val = value.toDouble(assignment);
                         if (bestValue == null || val < bestVal) {
                             bestValue = value;
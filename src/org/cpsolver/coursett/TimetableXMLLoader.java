@@ -44,7 +44,10 @@ import org.cpsolver.ifs.solver.Solver;
 import org.cpsolver.ifs.util.Progress;
 import org.cpsolver.ifs.util.ToolBox;
 import org.dom4j.Document;
+import org.dom4j.DocumentException;
 import org.dom4j.Element;
+import org.dom4j.ElementHandler;
+import org.dom4j.ElementPath;
 import org.dom4j.io.SAXReader;
 
 /**
@@ -83,6 +86,12 @@ import org.dom4j.io.SAXReader;
  * <td>{@link Boolean}</td>
  * <td>Consider distances between buildings</td>
  * </tr>
+ * <tr>
+ * <td>Xml.Streaming</td>
+ * <td>{@link Boolean}</td>
+ * <td>If true, the input file is not read into a document first, but each room, class, constraint, and student
+ * is loaded as soon as it is parsed (see {@link TimetableXMLLoader#loadStreaming(Solution)})</td>
+ * </tr>
  * </table>
  * 
  * @version CourseTT 1.3 (University Course Timetabling)<br>
@@ -114,9 +123,27 @@ public class TimetableXMLLoader extends TimetableLoader {
 
     private boolean iInteractiveMode = false;
     private File iInputFile;
+    private boolean iStreaming = false;
 
     private Progress iProgress = null;
 
+    private boolean iSectionWholeCourse = true;
+    private Map<Long, TimeLocation> iPerturbations = null;
+    private Map<String, Element> iRoomElements = null;
+    private Map<String, RoomConstraint> iRoomConstraints = null;
+    private Map<Long, List<Lecture>> iSameLectures = null;
+    private Map<String, InstructorConstraint> iInstructorConstraints = null;
+    private Map<Long, String> iDepartments = null;
+    private Map<Long, Configuration> iConfigurations = null;
+    private Map<Long, List<Configuration>> iAlternativeConfigurations = null;
+    private Map<String, Lecture> iLectures = null;
+    private Map<Lecture, Placement> iAssignedPlacements = null;
+    private Map<Lecture, String> iParents = null;
+    private int iOrd = 0;
+    private boolean iInitialSectioning = true;
+    private Map<Long, Student> iStudents = null;
+    private Map<Long, Set<Student>> iOffering2Students = null;
+
     public TimetableXMLLoader(TimetableModel model, Assignment<Lecture, Placement> assignment) {
         super(model, assignment);
         iProgress = Progress.getInstance(getModel());
@@ -125,6 +152,7 @@ public class TimetableXMLLoader extends TimetableLoader {
         iForcedPerturbances = getModel().getProperties().getPropertyInt("General.ForcedPerturbances", 0);
         iDeptBalancing = getModel().getProperties().getPropertyBoolean("General.DeptBalancing", true);
         iInteractiveMode = getModel().getProperties().getPropertyBoolean("General.InteractiveMode", iInteractiveMode);
+        iStreaming = getModel().getProperties().getPropertyBoolean("Xml.Streaming", iStreaming);
     }
 
     private Solver<Lecture, Placement> iSolver = null;
@@ -140,6 +168,13 @@ public class TimetableXMLLoader extends TimetableLoader {
     public void setInputFile(File inputFile) {
         iInputFile = inputFile;
     }
+    
+    /** Set whether to load the input file in a streaming way (see {@link TimetableXMLLoader#loadStreaming(Solution)})
+     * @param streaming true if rooms, classes, constraints, and students are to be loaded as they are parsed
+     **/
+    public void setStreaming(boolean streaming) {
+        iStreaming = streaming;
+    }
 
     @Override
     public void load() throws Exception {
@@ -149,6 +184,12 @@ public class TimetableXMLLoader extends TimetableLoader {
     public void load(Solution<Lecture, Placement> currentSolution) throws Exception {
         sLogger.debug("Reading XML data from " + iInputFile);
         iProgress.setPhase("Reading " + iInputFile.getName() + " ...");
+        
+        // perturbations are stored at the end of the file, but they are needed before the classes are loaded
+        if (iStreaming && getModel().getProperties().getPropertyInt("MPP.TimePert", 0) == 0) {
+            loadStreaming(currentSolution);
+            return;
+        }
 
         Document document = (new SAXReader()).read(iInputFile);
         Element root = document.getRootElement();
@@ -166,10 +207,57 @@ public class TimetableXMLLoader extends TimetableLoader {
 
         doLoad(currentSolution, root);
 
+        loadSolver(root);
+
+        iProgress.setPhase("Done", 1);
+        iProgress.incProgress();
+
+        sLogger.debug("Model successfully loaded.");
+        iProgress.info("Model successfully loaded.");
+    }
+    
+    /** Let the solver load its own data (if it has a load(Element) method) from the root element */
+    private void loadSolver(Element root) {
         try {
-            getSolver().getClass().getMethod("load", new Class[] { Element.class }).invoke(getSolver(), new Object[] { root });
+            getSolver().getClass().getMethod("load", new Class<?>[] { Element.class }).invoke(getSolver(), new Object[] { root });
         } catch (Exception e) {
         }
+    }
+    
+    /**
+     * Load the input file in a streaming way. Unlike {@link TimetableXMLLoader#load(Solution)}, the whole document is not
+     * read into the memory first. Each room, instructor, class, group constraint, student, and student group is loaded
+     * as soon as it has been parsed and its element is then detached from the document, so that only the root and the
+     * elements that are not part of the problem (e.g., the log) are kept in the memory. The rest of the loading (see
+     * {@link TimetableXMLLoader#finishLoad(Solution)}) is done when the whole file has been read, so the resultant
+     * model is the same as when the file is loaded using {@link TimetableXMLLoader#doLoad(Solution, Element)}.
+     * The sections of the file must be in the order in which they are written by {@link TimetableXMLSaver}.
+     * @param currentSolution current solution (best assignment is saved into it), can be null
+     * @throws DocumentException when the file cannot be parsed
+     */
+    protected void loadStreaming(Solution<Lecture, Placement> currentSolution) throws DocumentException {
+        StreamingHandler handler = new StreamingHandler();
+        SAXReader reader = new SAXReader();
+        for (String root: new String[] { "/llrt", "/timetable", "/llrt/input", "/timetable/input" }) {
+            for (String[] section: sSections) {
+                reader.addHandler(root + "/" + section[0], handler);
+                reader.addHandler(root + "/" + section[0] + "/" + section[1], handler);
+            }
+        }
+        Document document = reader.read(iInputFile);
+        Element root = document.getRootElement();
+
+        sLogger.debug("Root element: " + root.getName());
+        if (!"llrt".equals(root.getName()) && !"timetable".equals(root.getName())) {
+            throw new IllegalArgumentException("Given XML file is not large lecture room timetabling problem.");
+        }
+
+        if (root.element("input") != null)
+            root = root.element("input");
+
+        handler.finish(currentSolution, root);
+
+        loadSolver(root);
 
         iProgress.setPhase("Done", 1);
         iProgress.incProgress();
@@ -178,6 +266,100 @@ public class TimetableXMLLoader extends TimetableLoader {
         iProgress.info("Model successfully loaded.");
     }
     
+    /** Sections of the input file (section element, item element, progress phase) in the order in which they are loaded */
+    private static String[][] sSections = new String[][] {
+        { "rooms", "room", "Creating rooms ..." },
+        { "instructors", "instructor", null },
+        { "departments", "department", null },
+        { "configurations", "config", null },
+        { "classes", "class", "Creating variables ..." },
+        { "groupConstraints", "constraint", "Creating constraints ..." },
+        { "students", "student", "Loading students ..." },
+        { "groups", "group", "Loading student groups ..." }
+    };
+    
+    /**
+     * Element handler used by {@link TimetableXMLLoader#loadStreaming(Solution)}. Items of each section are loaded as
+     * they are parsed and detached afterwards. The loading is started when the first section is reached, the sections
+     * are expected to be in the order given by {@link TimetableXMLLoader#sSections}.
+     */
+    private class StreamingHandler implements ElementHandler {
+        private int iSection = -1;
+        private boolean iStarted = false;
+        private boolean iLogLoaded = false;
+        
+        /** Index of the section with the given element name, -1 if the element is not a section */
+        private int section(String name) {
+            for (int i = 0; i < sSections.length; i++)
+                if (sSections[i][0].equals(name)) return i;
+            return -1;
+        }
+        
+        /** Start the loading, using the attributes of the given root (only attributes and preceding elements are available at this point) */
+        private void start(Element root) {
+            if (iStarted) return;
+            iStarted = true;
+            iLogLoaded = (root.element("log") != null);
+            iProgress.load(root, true);
+            iProgress.message(Progress.MSGLEVEL_STAGE, "Restoring from backup ...");
+            startLoad(root);
+        }
+
+        @Override
+        public void onStart(ElementPath path) {
+            Element element = path.getCurrent();
+            int section = section(element.getName());
+            if (section < 0) return;
+            start(element.getParent());
+            if (section < iSection)
+                throw new IllegalArgumentException("Element " + element.getName() + " is not expected after " + sSections[iSection][0] + ", use Xml.Streaming=false to load this file.");
+            iSection = section;
+            if (sSections[section][2] != null)
+                iProgress.setPhase(sSections[section][2]);
+        }
+
+        @Override
+        public void onEnd(ElementPath path) {
+            Element element = path.getCurrent();
+            String name = element.getName();
+            if (section(name) >= 0) {
+                // all the classes have been loaded
+                if ("classes".equals(name)) setParents();
+            } else if ("room".equals(name)) {
+                loadRoom(element);
+                // only the attributes are needed when the room locations are created
+                element.clearContent();
+            } else if ("instructor".equals(name)) {
+                loadInstructor(element);
+            } else if ("department".equals(name)) {
+                loadDepartment(element);
+            } else if ("config".equals(name)) {
+                loadConfiguration(element);
+            } else if ("class".equals(name)) {
+                loadClass(element);
+            } else if ("constraint".equals(name)) {
+                loadGroupConstraint(element);
+            } else if ("student".equals(name)) {
+                loadStudent(element);
+            } else if ("group".equals(name)) {
+                loadStudentGroup(element);
+            }
+            element.detach();
+        }
+        
+        /**
+         * Called when the whole document has been read: load the log and finish the loading
+         * @param currentSolution current solution (best assignment is saved into it), can be null
+         * @param root document root (or its input element)
+         */
+        private void finish(Solution<Lecture, Placement> currentSolution, Element root) {
+            start(root);
+            if (!iLogLoaded)
+                iProgress.load(root, false);
+            finishLoad(currentSolution);
+        }
+    }
+    
     public void load(Solution<Lecture, Placement> currentSolution, Document document) {
         iProgress.setPhase("Reading solution file ...");
 
@@ -203,6 +385,52 @@ public class TimetableXMLLoader extends TimetableLoader {
     }
     
     protected void doLoad(Solution<Lecture, Placement> currentSolution, Element root) {
+        startLoad(root);
+
+        iProgress.setPhase("Creating rooms ...", root.element("rooms").elements("room").size());
+        for (Iterator<?> i = root.element("rooms").elementIterator("room"); i.hasNext();)
+            loadRoom((Element) i.next());
+
+        if (root.element("instructors") != null) {
+            for (Iterator<?> i = root.element("instructors").elementIterator("instructor"); i.hasNext();)
+                loadInstructor((Element) i.next());
+        }
+        if (root.element("departments") != null) {
+            for (Iterator<?> i = root.element("departments").elementIterator("department"); i.hasNext();)
+                loadDepartment((Element) i.next());
+        }
+        if (root.element("configurations") != null) {
+            for (Iterator<?> i = root.element("configurations").elementIterator("config"); i.hasNext();)
+                loadConfiguration((Element) i.next());
+        }
+
+        iProgress.setPhase("Creating variables ...", root.element("classes").elements("class").size());
+        for (Iterator<?> i = root.element("classes").elementIterator("class"); i.hasNext();)
+            loadClass((Element) i.next());
+        setParents();
+
+        iProgress.setPhase("Creating constraints ...", root.element("groupConstraints").elements("constraint").size());
+        for (Iterator<?> i = root.element("groupConstraints").elementIterator("constraint"); i.hasNext();)
+            loadGroupConstraint((Element) i.next());
+
+        iProgress.setPhase("Loading students ...", root.element("students").elements("student").size());
+        for (Iterator<?> i = root.element("students").elementIterator("student"); i.hasNext();)
+            loadStudent((Element) i.next());
+        
+        if (root.element("groups") != null) {
+            iProgress.setPhase("Loading student groups ...", root.element("groups").elements("group").size());
+            for (Iterator<?> i = root.element("groups").elementIterator("group"); i.hasNext();)
+                loadStudentGroup((Element) i.next());
+        }
+
+        finishLoad(currentSolution);
+    }
+
+    /**
+     * Read the attributes of the given XML root and initialize the loading, see {@link TimetableXMLLoader#doLoad(Solution, Element)}
+     * @param root document root (or its input element)
+     */
+    protected void startLoad(Element root) {
         if (root.attributeValue("term") != null)
             getModel().getProperties().setProperty("Data.Term", root.attributeValue("term"));
         if (root.attributeValue("year") != null)
@@ -221,16 +449,16 @@ public class TimetableXMLLoader extends TimetableLoader {
         String version = root.attributeValue("version");
        
         // Student sectioning considers the whole course (including committed classes), since 2.5
-        boolean sectionWholeCourse = true;
+        iSectionWholeCourse = true;
         
         if (version != null && version.indexOf('.') >= 0) {
             int majorVersion = Integer.parseInt(version.substring(0, version.indexOf('.')));
             int minorVersion = Integer.parseInt(version.substring(1 + version.indexOf('.')));
             
-            sectionWholeCourse = (majorVersion == 2 && minorVersion >= 5) || majorVersion > 2;
+            iSectionWholeCourse = (majorVersion == 2 && minorVersion >= 5) || majorVersion > 2;
         }
         
-        HashMap<Long, TimeLocation> perts = new HashMap<Long, TimeLocation>();
+        iPerturbations = new HashMap<Long, TimeLocation>();
         if (getModel().getProperties().getPropertyInt("MPP.TimePert", 0) > 0) {
             int nrChanges = getModel().getProperties().getPropertyInt("MPP.TimePert", 0);
             int idx = 0;
@@ -240,577 +468,593 @@ public class TimetableXMLLoader extends TimetableLoader {
                 TimeLocation tl = new TimeLocation(Integer.parseInt(pertEl.attributeValue("days"), 2), Integer
                         .parseInt(pertEl.attributeValue("start")), Integer.parseInt(pertEl.attributeValue("length")),
                         0, 0.0, 0, null, null, null, 0);
-                perts.put(classId, tl);
+                iPerturbations.put(classId, tl);
             }
         }
+        
+        iRoomElements = new HashMap<String, Element>();
+        iRoomConstraints = new HashMap<String, RoomConstraint>();
+        iSameLectures = new HashMap<Long, List<Lecture>>();
+        iInstructorConstraints = new HashMap<String, InstructorConstraint>();
+        iDepartments = new HashMap<Long, String>();
+        iConfigurations = new HashMap<Long, Configuration>();
+        iAlternativeConfigurations = new HashMap<Long, List<Configuration>>();
+        iLectures = new HashMap<String, Lecture>();
+        iAssignedPlacements = new HashMap<Lecture, Placement>();
+        iParents = new HashMap<Lecture, String>();
+        iOrd = 0;
+        iInitialSectioning = true;
+        iStudents = new HashMap<Long, Student>();
+        iOffering2Students = new HashMap<Long, Set<Student>>();
+    }
 
-        iProgress.setPhase("Creating rooms ...", root.element("rooms").elements("room").size());
-        HashMap<String, Element> roomElements = new HashMap<String, Element>();
-        HashMap<String, RoomConstraint> roomConstraints = new HashMap<String, RoomConstraint>();
-        HashMap<Long, List<Lecture>> sameLectures = new HashMap<Long, List<Lecture>>();
-        for (Iterator<?> i = root.element("rooms").elementIterator("room"); i.hasNext();) {
-            Element roomEl = (Element) i.next();
-            iProgress.incProgress();
-            roomElements.put(roomEl.attributeValue("id"), roomEl);
-            if ("false".equals(roomEl.attributeValue("constraint")))
-                continue;
-            RoomSharingModel sharingModel = null;
-            Element sharingEl = roomEl.element("sharing");
-            if (sharingEl != null) {
-                Character freeForAllPrefChar = null;
-                Element freeForAllEl = sharingEl.element("freeForAll");
-                if (freeForAllEl != null)
-                    freeForAllPrefChar = freeForAllEl.attributeValue("value", "F").charAt(0);
-                Character notAvailablePrefChar = null;
-                Element notAvailableEl = sharingEl.element("notAvailable");
-                if (notAvailableEl != null)
-                    notAvailablePrefChar = notAvailableEl.attributeValue("value", "X").charAt(0);
-                String pattern = sharingEl.element("pattern").getText();
-                int unit = Integer.parseInt(sharingEl.element("pattern").attributeValue("unit", "1"));
-                Map<Character, Long> departments = new HashMap<Character, Long>();
-                for (Iterator<?> j = sharingEl.elementIterator("department"); j.hasNext(); ) {
-                    Element deptEl = (Element)j.next();
-                    char value = deptEl.attributeValue("value", String.valueOf((char)('0' + departments.size()))).charAt(0);
-                    Long id = Long.valueOf(deptEl.attributeValue("id")); 
-                    departments.put(value, id);
-                }
-                sharingModel = new RoomSharingModel(unit, departments, pattern, freeForAllPrefChar, notAvailablePrefChar);
-            }
-            boolean ignoreTooFar = false;
-            if ("true".equals(roomEl.attributeValue("ignoreTooFar")))
-                ignoreTooFar = true;
-            boolean fake = false;
-            if ("true".equals(roomEl.attributeValue("fake")))
-                fake = true;
-            Double posX = null, posY = null;
-            if (roomEl.attributeValue("location") != null) {
-                String loc = roomEl.attributeValue("location");
-                posX = Double.valueOf(loc.substring(0, loc.indexOf(',')));
-                posY = Double.valueOf(loc.substring(loc.indexOf(',') + 1));
-            }
-            boolean discouraged = "true".equals(roomEl.attributeValue("discouraged"));
-            RoomConstraint constraint = (discouraged ? new DiscouragedRoomConstraint(
-                    getModel().getProperties(),
-                    Long.valueOf(roomEl.attributeValue("id")),
-                    (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
-                            + roomEl.attributeValue("id")),
-                    (roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl.attributeValue("building"))),
-                    Integer.parseInt(roomEl.attributeValue("capacity")), sharingModel, posX, posY, ignoreTooFar, !fake)
-                    : new RoomConstraint(Long.valueOf(roomEl.attributeValue("id")),
-                            (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
-                                    + roomEl.attributeValue("id")), (roomEl.attributeValue("building") == null ? null
-                                    : Long.valueOf(roomEl.attributeValue("building"))), Integer.parseInt(roomEl
-                                    .attributeValue("capacity")), sharingModel, posX, posY, ignoreTooFar, !fake));
-            if (roomEl.attributeValue("type") != null)
-                constraint.setType(Long.valueOf(roomEl.attributeValue("type")));
-            getModel().addConstraint(constraint);
-            roomConstraints.put(roomEl.attributeValue("id"), constraint);
-            
-            for (Iterator<?> j = roomEl.elementIterator("travel-time"); j.hasNext();) {
-                Element travelTimeEl = (Element)j.next();
-                getModel().getDistanceMetric().addTravelTime(constraint.getResourceId(),
-                        Long.valueOf(travelTimeEl.attributeValue("id")),
-                        Integer.valueOf(travelTimeEl.attributeValue("minutes")));
+    /**
+     * Load a room (room constraint is created unless the room has constraint attribute set to false)
+     * @param roomEl room element
+     */
+    protected void loadRoom(Element roomEl) {
+        iProgress.incProgress();
+        iRoomElements.put(roomEl.attributeValue("id"), roomEl);
+        if ("false".equals(roomEl.attributeValue("constraint")))
+            return;
+        RoomSharingModel sharingModel = null;
+        Element sharingEl = roomEl.element("sharing");
+        if (sharingEl != null) {
+            Character freeForAllPrefChar = null;
+            Element freeForAllEl = sharingEl.element("freeForAll");
+            if (freeForAllEl != null)
+                freeForAllPrefChar = freeForAllEl.attributeValue("value", "F").charAt(0);
+            Character notAvailablePrefChar = null;
+            Element notAvailableEl = sharingEl.element("notAvailable");
+            if (notAvailableEl != null)
+                notAvailablePrefChar = notAvailableEl.attributeValue("value", "X").charAt(0);
+            String pattern = sharingEl.element("pattern").getText();
+            int unit = Integer.parseInt(sharingEl.element("pattern").attributeValue("unit", "1"));
+            Map<Character, Long> departments = new HashMap<Character, Long>();
+            for (Iterator<?> j = sharingEl.elementIterator("department"); j.hasNext(); ) {
+                Element deptEl = (Element)j.next();
+                char value = deptEl.attributeValue("value", String.valueOf((char)('0' + departments.size()))).charAt(0);
+                Long id = Long.valueOf(deptEl.attributeValue("id")); 
+                departments.put(value, id);
             }
+            sharingModel = new RoomSharingModel(unit, departments, pattern, freeForAllPrefChar, notAvailablePrefChar);
         }
+        boolean ignoreTooFar = false;
+        if ("true".equals(roomEl.attributeValue("ignoreTooFar")))
+            ignoreTooFar = true;
+        boolean fake = false;
+        if ("true".equals(roomEl.attributeValue("fake")))
+            fake = true;
+        Double posX = null, posY = null;
+        if (roomEl.attributeValue("location") != null) {
+            String loc = roomEl.attributeValue("location");
+            posX = Double.valueOf(loc.substring(0, loc.indexOf(',')));
+            posY = Double.valueOf(loc.substring(loc.indexOf(',') + 1));
+        }
+        boolean discouraged = "true".equals(roomEl.attributeValue("discouraged"));
+        RoomConstraint constraint = (discouraged ? new DiscouragedRoomConstraint(
+                getModel().getProperties(),
+                Long.valueOf(roomEl.attributeValue("id")),
+                (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
+                        + roomEl.attributeValue("id")),
+                (roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl.attributeValue("building"))),
+                Integer.parseInt(roomEl.attributeValue("capacity")), sharingModel, posX, posY, ignoreTooFar, !fake)
+                : new RoomConstraint(Long.valueOf(roomEl.attributeValue("id")),
+                        (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
+                                + roomEl.attributeValue("id")), (roomEl.attributeValue("building") == null ? null
+                                : Long.valueOf(roomEl.attributeValue("building"))), Integer.parseInt(roomEl
+                                .attributeValue("capacity")), sharingModel, posX, posY, ignoreTooFar, !fake));
+        if (roomEl.attributeValue("type") != null)
+            constraint.setType(Long.valueOf(roomEl.attributeValue("type")));
+        getModel().addConstraint(constraint);
+        iRoomConstraints.put(roomEl.attributeValue("id"), constraint);
+        
+        for (Iterator<?> j = roomEl.elementIterator("travel-time"); j.hasNext();) {
+            Element travelTimeEl = (Element)j.next();
+            getModel().getDistanceMetric().addTravelTime(constraint.getResourceId(),
+                    Long.valueOf(travelTimeEl.attributeValue("id")),
+                    Integer.valueOf(travelTimeEl.attributeValue("minutes")));
+        }
+    }
 
-        HashMap<String, InstructorConstraint> instructorConstraints = new HashMap<String, InstructorConstraint>();
-        if (root.element("instructors") != null) {
-            for (Iterator<?> i = root.element("instructors").elementIterator("instructor"); i.hasNext();) {
-                Element instructorEl = (Element) i.next();
-                InstructorConstraint instructorConstraint = new InstructorConstraint(Long.valueOf(instructorEl
-                        .attributeValue("id")), instructorEl.attributeValue("puid"), (instructorEl
-                        .attributeValue("name") != null ? instructorEl.attributeValue("name") : "i"
-                        + instructorEl.attributeValue("id")), "true".equals(instructorEl.attributeValue("ignDist")));
-                if (instructorEl.attributeValue("type") != null)
-                    instructorConstraint.setType(Long.valueOf(instructorEl.attributeValue("type")));
-                instructorConstraints.put(instructorEl.attributeValue("id"), instructorConstraint);
+    /**
+     * Load an instructor (instructor constraint)
+     * @param instructorEl instructor element
+     */
+    protected void loadInstructor(Element instructorEl) {
+        InstructorConstraint instructorConstraint = new InstructorConstraint(Long.valueOf(instructorEl
+                .attributeValue("id")), instructorEl.attributeValue("puid"), (instructorEl
+                .attributeValue("name") != null ? instructorEl.attributeValue("name") : "i"
+                + instructorEl.attributeValue("id")), "true".equals(instructorEl.attributeValue("ignDist")));
+        if (instructorEl.attributeValue("type") != null)
+            instructorConstraint.setType(Long.valueOf(instructorEl.attributeValue("type")));
+        iInstructorConstraints.put(instructorEl.attributeValue("id"), instructorConstraint);
+
+        getModel().addConstraint(instructorConstraint);
+    }
 
-                getModel().addConstraint(instructorConstraint);
-            }
-        }
-        HashMap<Long, String> depts = new HashMap<Long, String>();
-        if (root.element("departments") != null) {
-            for (Iterator<?> i = root.element("departments").elementIterator("department"); i.hasNext();) {
-                Element deptEl = (Element) i.next();
-                depts.put(Long.valueOf(deptEl.attributeValue("id")), (deptEl.attributeValue("name") != null ? deptEl
-                        .attributeValue("name") : "d" + deptEl.attributeValue("id")));
-            }
+    /**
+     * Load a department name
+     * @param deptEl department element
+     */
+    protected void loadDepartment(Element deptEl) {
+        iDepartments.put(Long.valueOf(deptEl.attributeValue("id")), (deptEl.attributeValue("name") != null ? deptEl
+                .attributeValue("name") : "d" + deptEl.attributeValue("id")));
+    }
+
+    /**
+     * Load a configuration
+     * @param configEl configuration element
+     */
+    protected void loadConfiguration(Element configEl) {
+        Long configId = Long.valueOf(configEl.attributeValue("id"));
+        int limit = Integer.parseInt(configEl.attributeValue("limit"));
+        Long offeringId = Long.valueOf(configEl.attributeValue("offering"));
+        Configuration config = new Configuration(offeringId, configId, limit);
+        iConfigurations.put(configId, config);
+        List<Configuration> altConfigs = iAlternativeConfigurations.get(offeringId);
+        if (altConfigs == null) {
+            altConfigs = new ArrayList<Configuration>();
+            iAlternativeConfigurations.put(offeringId, altConfigs);
         }
+        altConfigs.add(config);
+        config.setAltConfigurations(altConfigs);
+    }
 
-        HashMap<Long, Configuration> configs = new HashMap<Long, Configuration>();
-        HashMap<Long, List<Configuration>> alternativeConfigurations = new HashMap<Long, List<Configuration>>();
-        if (root.element("configurations") != null) {
-            for (Iterator<?> i = root.element("configurations").elementIterator("config"); i.hasNext();) {
-                Element configEl = (Element) i.next();
-                Long configId = Long.valueOf(configEl.attributeValue("id"));
-                int limit = Integer.parseInt(configEl.attributeValue("limit"));
-                Long offeringId = Long.valueOf(configEl.attributeValue("offering"));
-                Configuration config = new Configuration(offeringId, configId, limit);
-                configs.put(configId, config);
-                List<Configuration> altConfigs = alternativeConfigurations.get(offeringId);
-                if (altConfigs == null) {
-                    altConfigs = new ArrayList<Configuration>();
-                    alternativeConfigurations.put(offeringId, altConfigs);
+    /**
+     * Load a class (lecture), including its time and room locations and its initial, current, and best assignments
+     * @param classEl class element
+     */
+    protected void loadClass(Element classEl) {
+        Configuration config = null;
+        if (classEl.attributeValue("config") != null) {
+            config = iConfigurations.get(Long.valueOf(classEl.attributeValue("config")));
+        }
+        if (config == null && classEl.attributeValue("offering") != null) {
+            Long offeringId = Long.valueOf(classEl.attributeValue("offering"));
+            Long configId = Long.valueOf(classEl.attributeValue("config"));
+            List<Configuration> altConfigs = iAlternativeConfigurations.get(offeringId);
+            if (altConfigs == null) {
+                altConfigs = new ArrayList<Configuration>();
+                iAlternativeConfigurations.put(offeringId, altConfigs);
+            }
+            for (Configuration c : altConfigs) {
+                if (c.getConfigId().equals(configId)) {
+                    config = c;
+                    break;
                 }
+            }
+            if (config == null) {
+                config = new Configuration(offeringId, configId, -1);
                 altConfigs.add(config);
                 config.setAltConfigurations(altConfigs);
+                iConfigurations.put(config.getConfigId(), config);
             }
         }
 
-        iProgress.setPhase("Creating variables ...", root.element("classes").elements("class").size());
-
-        HashMap<String, Element> classElements = new HashMap<String, Element>();
-        HashMap<String, Lecture> lectures = new HashMap<String, Lecture>();
-        HashMap<Lecture, Placement> assignedPlacements = new HashMap<Lecture, Placement>();
-        HashMap<Lecture, String> parents = new HashMap<Lecture, String>();
-        int ord = 0;
-        for (Iterator<?> i1 = root.element("classes").elementIterator("class"); i1.hasNext();) {
-            Element classEl = (Element) i1.next();
-
-            Configuration config = null;
-            if (classEl.attributeValue("config") != null) {
-                config = configs.get(Long.valueOf(classEl.attributeValue("config")));
-            }
-            if (config == null && classEl.attributeValue("offering") != null) {
-                Long offeringId = Long.valueOf(classEl.attributeValue("offering"));
-                Long configId = Long.valueOf(classEl.attributeValue("config"));
-                List<Configuration> altConfigs = alternativeConfigurations.get(offeringId);
-                if (altConfigs == null) {
-                    altConfigs = new ArrayList<Configuration>();
-                    alternativeConfigurations.put(offeringId, altConfigs);
-                }
-                for (Configuration c : altConfigs) {
-                    if (c.getConfigId().equals(configId)) {
-                        config = c;
-                        break;
-                    }
-                }
-                if (config == null) {
-                    config = new Configuration(offeringId, configId, -1);
-                    altConfigs.add(config);
-                    config.setAltConfigurations(altConfigs);
-                    configs.put(config.getConfigId(), config);
-                }
+        DatePattern defaultDatePattern = new DatePattern();
+        if (classEl.attributeValue("dates") == null) {
+            int startDay = Integer.parseInt(classEl.attributeValue("startDay", "0"));
+            int endDay = Integer.parseInt(classEl.attributeValue("endDay", "1"));
+            defaultDatePattern.setPattern(startDay, endDay);
+            defaultDatePattern.setName(sDF.format(getDate(getModel().getYear(), startDay)) + "-" + sDF.format(getDate(getModel().getYear(), endDay)));
+        } else {
+            defaultDatePattern.setId(classEl.attributeValue("datePattern") == null ? null : Long.valueOf(classEl.attributeValue("datePattern")));
+            defaultDatePattern.setName(classEl.attributeValue("datePatternName"));
+            defaultDatePattern.setPattern(classEl.attributeValue("dates"));
+        }
+        Hashtable<Long, DatePattern> datePatterns = new Hashtable<Long, TimetableXMLLoader.DatePattern>();
+        for (Iterator<?> i2 = classEl.elementIterator("date"); i2.hasNext();) {
+            Element dateEl = (Element) i2.next();
+            Long id = Long.valueOf(dateEl.attributeValue("id"));
+            datePatterns.put(id, new DatePattern(
+                    id,
+                    dateEl.attributeValue("name"),
+                    dateEl.attributeValue("pattern")));
+        }
+        List<InstructorConstraint> ics = new ArrayList<InstructorConstraint>();
+        for (Iterator<?> i2 = classEl.elementIterator("instructor"); i2.hasNext();) {
+            Element instructorEl = (Element) i2.next();
+            InstructorConstraint instructorConstraint = iInstructorConstraints
+                    .get(instructorEl.attributeValue("id"));
+            if (instructorConstraint == null) {
+                instructorConstraint = new InstructorConstraint(Long.valueOf(instructorEl.attributeValue("id")),
+                        instructorEl.attributeValue("puid"),
+                        (instructorEl.attributeValue("name") != null ? instructorEl.attributeValue("name") : "i"
+                                + instructorEl.attributeValue("id")), "true".equals(instructorEl
+                                .attributeValue("ignDist")));
+                iInstructorConstraints.put(instructorEl.attributeValue("id"), instructorConstraint);
+                getModel().addConstraint(instructorConstraint);
             }
-
-            DatePattern defaultDatePattern = new DatePattern();
-            if (classEl.attributeValue("dates") == null) {
-                int startDay = Integer.parseInt(classEl.attributeValue("startDay", "0"));
-                int endDay = Integer.parseInt(classEl.attributeValue("endDay", "1"));
-                defaultDatePattern.setPattern(startDay, endDay);
-                defaultDatePattern.setName(sDF.format(getDate(getModel().getYear(), startDay)) + "-" + sDF.format(getDate(getModel().getYear(), endDay)));
+            ics.add(instructorConstraint);
+        }
+        List<RoomLocation> roomLocations = new ArrayList<RoomLocation>();
+        List<RoomConstraint> roomConstraintsThisClass = new ArrayList<RoomConstraint>();
+        List<RoomLocation> initialRoomLocations = new ArrayList<RoomLocation>();
+        List<RoomLocation> assignedRoomLocations = new ArrayList<RoomLocation>();
+        List<RoomLocation> bestRoomLocations = new ArrayList<RoomLocation>();
+        for (Iterator<?> i2 = classEl.elementIterator("room"); i2.hasNext();) {
+            Element roomLocationEl = (Element) i2.next();
+            Element roomEl = iRoomElements.get(roomLocationEl.attributeValue("id"));
+            RoomConstraint roomConstraint = iRoomConstraints.get(roomLocationEl.attributeValue("id"));
+
+            Long roomId = null;
+            String roomName = null;
+            Long bldgId = null;
+
+            if (roomConstraint != null) {
+                roomConstraintsThisClass.add(roomConstraint);
+                roomId = roomConstraint.getResourceId();
+                roomName = roomConstraint.getRoomName();
+                bldgId = roomConstraint.getBuildingId();
             } else {
-                defaultDatePattern.setId(classEl.attributeValue("datePattern") == null ? null : Long.valueOf(classEl.attributeValue("datePattern")));
-                defaultDatePattern.setName(classEl.attributeValue("datePatternName"));
-                defaultDatePattern.setPattern(classEl.attributeValue("dates"));
-            }
-            Hashtable<Long, DatePattern> datePatterns = new Hashtable<Long, TimetableXMLLoader.DatePattern>();
-            for (Iterator<?> i2 = classEl.elementIterator("date"); i2.hasNext();) {
-                Element dateEl = (Element) i2.next();
-                Long id = Long.valueOf(dateEl.attributeValue("id"));
-                datePatterns.put(id, new DatePattern(
-                        id,
-                        dateEl.attributeValue("name"),
-                        dateEl.attributeValue("pattern")));
-            }
-            classElements.put(classEl.attributeValue("id"), classEl);
-            List<InstructorConstraint> ics = new ArrayList<InstructorConstraint>();
-            for (Iterator<?> i2 = classEl.elementIterator("instructor"); i2.hasNext();) {
-                Element instructorEl = (Element) i2.next();
-                InstructorConstraint instructorConstraint = instructorConstraints
-                        .get(instructorEl.attributeValue("id"));
-                if (instructorConstraint == null) {
-                    instructorConstraint = new InstructorConstraint(Long.valueOf(instructorEl.attributeValue("id")),
-                            instructorEl.attributeValue("puid"),
-                            (instructorEl.attributeValue("name") != null ? instructorEl.attributeValue("name") : "i"
-                                    + instructorEl.attributeValue("id")), "true".equals(instructorEl
-                                    .attributeValue("ignDist")));
-                    instructorConstraints.put(instructorEl.attributeValue("id"), instructorConstraint);
-                    getModel().addConstraint(instructorConstraint);
-                }
-                ics.add(instructorConstraint);
+                roomId = Long.valueOf(roomEl.attributeValue("id"));
+                roomName = (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
+                        + roomEl.attributeValue("id"));
+                bldgId = (roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl
+                        .attributeValue("building")));
             }
-            List<RoomLocation> roomLocations = new ArrayList<RoomLocation>();
-            List<RoomConstraint> roomConstraintsThisClass = new ArrayList<RoomConstraint>();
-            List<RoomLocation> initialRoomLocations = new ArrayList<RoomLocation>();
-            List<RoomLocation> assignedRoomLocations = new ArrayList<RoomLocation>();
-            List<RoomLocation> bestRoomLocations = new ArrayList<RoomLocation>();
-            for (Iterator<?> i2 = classEl.elementIterator("room"); i2.hasNext();) {
-                Element roomLocationEl = (Element) i2.next();
-                Element roomEl = roomElements.get(roomLocationEl.attributeValue("id"));
-                RoomConstraint roomConstraint = roomConstraints.get(roomLocationEl.attributeValue("id"));
-
-                Long roomId = null;
-                String roomName = null;
-                Long bldgId = null;
-
-                if (roomConstraint != null) {
-                    roomConstraintsThisClass.add(roomConstraint);
-                    roomId = roomConstraint.getResourceId();
-                    roomName = roomConstraint.getRoomName();
-                    bldgId = roomConstraint.getBuildingId();
-                } else {
-                    roomId = Long.valueOf(roomEl.attributeValue("id"));
-                    roomName = (roomEl.attributeValue("name") != null ? roomEl.attributeValue("name") : "r"
-                            + roomEl.attributeValue("id"));
-                    bldgId = (roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl
-                            .attributeValue("building")));
-                }
 
-                boolean ignoreTooFar = false;
-                if ("true".equals(roomEl.attributeValue("ignoreTooFar")))
-                    ignoreTooFar = true;
-                Double posX = null, posY = null;
-                if (roomEl.attributeValue("location") != null) {
-                    String loc = roomEl.attributeValue("location");
-                    posX = Double.valueOf(loc.substring(0, loc.indexOf(',')));
-                    posY = Double.valueOf(loc.substring(loc.indexOf(',') + 1));
-                }
-                RoomLocation rl = new RoomLocation(roomId, roomName, bldgId, Integer.parseInt(roomLocationEl
-                        .attributeValue("pref")), Integer.parseInt(roomEl.attributeValue("capacity")), posX, posY,
-                        ignoreTooFar, roomConstraint);
-                if ("true".equals(roomLocationEl.attributeValue("initial")))
-                    initialRoomLocations.add(rl);
-                if ("true".equals(roomLocationEl.attributeValue("solution")))
-                    assignedRoomLocations.add(rl);
-                if ("true".equals(roomLocationEl.attributeValue("best")))
-                    bestRoomLocations.add(rl);
-                roomLocations.add(rl);
-            }
-            List<TimeLocation> timeLocations = new ArrayList<TimeLocation>();
-            TimeLocation initialTimeLocation = null;
-            TimeLocation assignedTimeLocation = null;
-            TimeLocation bestTimeLocation = null;
-            TimeLocation prohibitedTime = perts.get(Long.valueOf(classEl.attributeValue("id")));
-            
-            for (Iterator<?> i2 = classEl.elementIterator("time"); i2.hasNext();) {
-                Element timeLocationEl = (Element) i2.next();
-                DatePattern dp = defaultDatePattern;
-                if (timeLocationEl.attributeValue("date") != null)
-                    dp = datePatterns.get(Long.valueOf(timeLocationEl.attributeValue("date")));
-                TimeLocation tl = new TimeLocation(
-                        Integer.parseInt(timeLocationEl.attributeValue("days"), 2),
-                        Integer.parseInt(timeLocationEl.attributeValue("start")),
-                        Integer.parseInt(timeLocationEl.attributeValue("length")),
-                        (int) Double.parseDouble(timeLocationEl.attributeValue("pref")),
-                        Double.parseDouble(timeLocationEl.attributeValue("npref", timeLocationEl.attributeValue("pref"))),
-                        Integer.parseInt(timeLocationEl.attributeValue("datePref", "0")),
-                        dp.getId(), dp.getName(), dp.getPattern(),
-                        Integer.parseInt(timeLocationEl.attributeValue("breakTime") == null ? "-1" : timeLocationEl.attributeValue("breakTime")));
-                if (tl.getBreakTime() < 0) tl.setBreakTime(tl.getLength() == 18 ? 15 : 10);
-                if (timeLocationEl.attributeValue("pattern") != null)
-                    tl.setTimePatternId(Long.valueOf(timeLocationEl.attributeValue("pattern")));
-                /*
-                 * if (timePatternTransform) tl =
-                 * transformTimePattern(Long.valueOf
-                 * (classEl.attributeValue("id")),tl);
-                 */
-                if (prohibitedTime != null && prohibitedTime.getDayCode() == tl.getDayCode()
-                        && prohibitedTime.getStartSlot() == tl.getStartSlot()
-                        && prohibitedTime.getLength() == tl.getLength()) {
-                    sLogger.info("Time " + tl.getLongName(true) + " is prohibited for class " + classEl.attributeValue("id"));
-                    continue;
-                }
-                if ("true".equals(timeLocationEl.attributeValue("solution")))
-                    assignedTimeLocation = tl;
-                if ("true".equals(timeLocationEl.attributeValue("initial")))
-                    initialTimeLocation = tl;
-                if ("true".equals(timeLocationEl.attributeValue("best")))
-                    bestTimeLocation = tl;
-                timeLocations.add(tl);
+            boolean ignoreTooFar = false;
+            if ("true".equals(roomEl.attributeValue("ignoreTooFar")))
+                ignoreTooFar = true;
+            Double posX = null, posY = null;
+            if (roomEl.attributeValue("location") != null) {
+                String loc = roomEl.attributeValue("location");
+                posX = Double.valueOf(loc.substring(0, loc.indexOf(',')));
+                posY = Double.valueOf(loc.substring(loc.indexOf(',') + 1));
             }
-            if (timeLocations.isEmpty()) {
-                sLogger.error("  ERROR: No time.");
+            RoomLocation rl = new RoomLocation(roomId, roomName, bldgId, Integer.parseInt(roomLocationEl
+                    .attributeValue("pref")), Integer.parseInt(roomEl.attributeValue("capacity")), posX, posY,
+                    ignoreTooFar, roomConstraint);
+            if ("true".equals(roomLocationEl.attributeValue("initial")))
+                initialRoomLocations.add(rl);
+            if ("true".equals(roomLocationEl.attributeValue("solution")))
+                assignedRoomLocations.add(rl);
+            if ("true".equals(roomLocationEl.attributeValue("best")))
+                bestRoomLocations.add(rl);
+            roomLocations.add(rl);
+        }
+        List<TimeLocation> timeLocations = new ArrayList<TimeLocation>();
+        TimeLocation initialTimeLocation = null;
+        TimeLocation assignedTimeLocation = null;
+        TimeLocation bestTimeLocation = null;
+        TimeLocation prohibitedTime = iPerturbations.get(Long.valueOf(classEl.attributeValue("id")));
+        
+        for (Iterator<?> i2 = classEl.elementIterator("time"); i2.hasNext();) {
+            Element timeLocationEl = (Element) i2.next();
+            DatePattern dp = defaultDatePattern;
+            if (timeLocationEl.attributeValue("date") != null)
+                dp = datePatterns.get(Long.valueOf(timeLocationEl.attributeValue("date")));
+            TimeLocation tl = new TimeLocation(
+                    Integer.parseInt(timeLocationEl.attributeValue("days"), 2),
+                    Integer.parseInt(timeLocationEl.attributeValue("start")),
+                    Integer.parseInt(timeLocationEl.attributeValue("length")),
+                    (int) Double.parseDouble(timeLocationEl.attributeValue("pref")),
+                    Double.parseDouble(timeLocationEl.attributeValue("npref", timeLocationEl.attributeValue("pref"))),
+                    Integer.parseInt(timeLocationEl.attributeValue("datePref", "0")),
+                    dp.getId(), dp.getName(), dp.getPattern(),
+                    Integer.parseInt(timeLocationEl.attributeValue("breakTime") == null ? "-1" : timeLocationEl.attributeValue("breakTime")));
+            if (tl.getBreakTime() < 0) tl.setBreakTime(tl.getLength() == 18 ? 15 : 10);
+            if (timeLocationEl.attributeValue("pattern") != null)
+                tl.setTimePatternId(Long.valueOf(timeLocationEl.attributeValue("pattern")));
+            /*
+             * if (timePatternTransform) tl =
+             * transformTimePattern(Long.valueOf
+             * (classEl.attributeValue("id")),tl);
+             */
+            if (prohibitedTime != null && prohibitedTime.getDayCode() == tl.getDayCode()
+                    && prohibitedTime.getStartSlot() == tl.getStartSlot()
+                    && prohibitedTime.getLength() == tl.getLength()) {
+                sLogger.info("Time " + tl.getLongName(true) + " is prohibited for class " + classEl.attributeValue("id"));
                 continue;
             }
+            if ("true".equals(timeLocationEl.attributeValue("solution")))
+                assignedTimeLocation = tl;
+            if ("true".equals(timeLocationEl.attributeValue("initial")))
+                initialTimeLocation = tl;
+            if ("true".equals(timeLocationEl.attributeValue("best")))
+                bestTimeLocation = tl;
+            timeLocations.add(tl);
+        }
+        if (timeLocations.isEmpty()) {
+            sLogger.error("  ERROR: No time.");
+            return;
+        }
 
-            int minClassLimit = 0;
-            int maxClassLimit = 0;
-            float room2limitRatio = 1.0f;
-            if (!"true".equals(classEl.attributeValue("committed"))) {
-                if (classEl.attributeValue("expectedCapacity") != null) {
-                    minClassLimit = maxClassLimit = Integer.parseInt(classEl.attributeValue("expectedCapacity"));
-                    int roomCapacity = Integer.parseInt(classEl.attributeValue("roomCapacity", classEl
-                            .attributeValue("expectedCapacity")));
-                    if (minClassLimit == 0)
-                        minClassLimit = maxClassLimit = roomCapacity;
-                    room2limitRatio = (minClassLimit == 0 ? 1.0f : ((float) roomCapacity) / minClassLimit);
+        int minClassLimit = 0;
+        int maxClassLimit = 0;
+        float room2limitRatio = 1.0f;
+        if (!"true".equals(classEl.attributeValue("committed"))) {
+            if (classEl.attributeValue("expectedCapacity") != null) {
+                minClassLimit = maxClassLimit = Integer.parseInt(classEl.attributeValue("expectedCapacity"));
+                int roomCapacity = Integer.parseInt(classEl.attributeValue("roomCapacity", classEl
+                        .attributeValue("expectedCapacity")));
+                if (minClassLimit == 0)
+                    minClassLimit = maxClassLimit = roomCapacity;
+                room2limitRatio = (minClassLimit == 0 ? 1.0f : ((float) roomCapacity) / minClassLimit);
+            } else {
+                if (classEl.attribute("classLimit") != null) {
+                    minClassLimit = maxClassLimit = Integer.parseInt(classEl.attributeValue("classLimit"));
                 } else {
-                    if (classEl.attribute("classLimit") != null) {
-                        minClassLimit = maxClassLimit = Integer.parseInt(classEl.attributeValue("classLimit"));
-                    } else {
-                        minClassLimit = Integer.parseInt(classEl.attributeValue("minClassLimit"));
-                        maxClassLimit = Integer.parseInt(classEl.attributeValue("maxClassLimit"));
-                    }
-                    room2limitRatio = Float.parseFloat(classEl.attributeValue("roomToLimitRatio", "1.0"));
+                    minClassLimit = Integer.parseInt(classEl.attributeValue("minClassLimit"));
+                    maxClassLimit = Integer.parseInt(classEl.attributeValue("maxClassLimit"));
                 }
+                room2limitRatio = Float.parseFloat(classEl.attributeValue("roomToLimitRatio", "1.0"));
             }
+        }
 
-            Lecture lecture = new Lecture(Long.valueOf(classEl.attributeValue("id")),
-                    (classEl.attributeValue("solverGroup") != null ? Long
-                            .valueOf(classEl.attributeValue("solverGroup")) : null), Long.valueOf(classEl
-                            .attributeValue("subpart", classEl.attributeValue("course", "-1"))), (classEl
-                            .attributeValue("name") != null ? classEl.attributeValue("name") : "c"
-                            + classEl.attributeValue("id")), timeLocations, roomLocations, Integer.parseInt(classEl
-                            .attributeValue("nrRooms", roomLocations.isEmpty() ? "0" : "1")), null, minClassLimit, maxClassLimit, room2limitRatio);
-            lecture.setNote(classEl.attributeValue("note"));
-
-            if ("true".equals(classEl.attributeValue("committed")))
-                lecture.setCommitted(true);
-
-            if (!lecture.isCommitted() && classEl.attributeValue("ord") != null)
-                lecture.setOrd(Integer.parseInt(classEl.attributeValue("ord")));
-            else
-                lecture.setOrd(ord++);
+        Lecture lecture = new Lecture(Long.valueOf(classEl.attributeValue("id")),
+                (classEl.attributeValue("solverGroup") != null ? Long
+                        .valueOf(classEl.attributeValue("solverGroup")) : null), Long.valueOf(classEl
+                        .attributeValue("subpart", classEl.attributeValue("course", "-1"))), (classEl
+                        .attributeValue("name") != null ? classEl.attributeValue("name") : "c"
+                        + classEl.attributeValue("id")), timeLocations, roomLocations, Integer.parseInt(classEl
+                        .attributeValue("nrRooms", roomLocations.isEmpty() ? "0" : "1")), null, minClassLimit, maxClassLimit, room2limitRatio);
+        lecture.setNote(classEl.attributeValue("note"));
 
-            lecture.setWeight(Double.parseDouble(classEl.attributeValue("weight", "1.0")));
-            
-            if (lecture.getNrRooms() > 1)
-                lecture.setMaxRoomCombinations(Integer.parseInt(classEl.attributeValue("maxRoomCombinations", "-1")));
+        if ("true".equals(classEl.attributeValue("committed")))
+            lecture.setCommitted(true);
 
-            if (config != null)
-                lecture.setConfiguration(config);
+        if (!lecture.isCommitted() && classEl.attributeValue("ord") != null)
+            lecture.setOrd(Integer.parseInt(classEl.attributeValue("ord")));
+        else
+            lecture.setOrd(iOrd++);
 
-            if (initialTimeLocation != null && initialRoomLocations.size() == lecture.getNrRooms()) {
-                lecture.setInitialAssignment(new Placement(lecture, initialTimeLocation, initialRoomLocations));
-            }
-            if (assignedTimeLocation != null && assignedRoomLocations.size() == lecture.getNrRooms()) {
-                assignedPlacements.put(lecture, new Placement(lecture, assignedTimeLocation, assignedRoomLocations));
-            } else if (lecture.getInitialAssignment() != null) {
-                assignedPlacements.put(lecture, lecture.getInitialAssignment());
-            }
-            if (bestTimeLocation != null && bestRoomLocations.size() == lecture.getNrRooms()) {
-                lecture.setBestAssignment(new Placement(lecture, bestTimeLocation, bestRoomLocations), 0);
-            } else if (assignedTimeLocation != null && assignedRoomLocations.size() == lecture.getNrRooms()) {
-                lecture.setBestAssignment(assignedPlacements.get(lecture), 0);
-            }
+        lecture.setWeight(Double.parseDouble(classEl.attributeValue("weight", "1.0")));
+        
+        if (lecture.getNrRooms() > 1)
+            lecture.setMaxRoomCombinations(Integer.parseInt(classEl.attributeValue("maxRoomCombinations", "-1")));
 
-            lectures.put(classEl.attributeValue("id"), lecture);
-            if (classEl.attributeValue("department") != null)
-                lecture.setDepartment(Long.valueOf(classEl.attributeValue("department")));
-            if (classEl.attribute("scheduler") != null)
-                lecture.setScheduler(Long.valueOf(classEl.attributeValue("scheduler")));
-            if ((sectionWholeCourse || !lecture.isCommitted()) && classEl.attributeValue("subpart", classEl.attributeValue("course")) != null) {
-                Long subpartId = Long.valueOf(classEl.attributeValue("subpart", classEl.attributeValue("course")));
-                List<Lecture> sames = sameLectures.get(subpartId);
-                if (sames == null) {
-                    sames = new ArrayList<Lecture>();
-                    sameLectures.put(subpartId, sames);
-                }
-                sames.add(lecture);
-            }
-            String parent = classEl.attributeValue("parent");
-            if (parent != null)
-                parents.put(lecture, parent);
+        if (config != null)
+            lecture.setConfiguration(config);
 
-            getModel().addVariable(lecture);
+        if (initialTimeLocation != null && initialRoomLocations.size() == lecture.getNrRooms()) {
+            lecture.setInitialAssignment(new Placement(lecture, initialTimeLocation, initialRoomLocations));
+        }
+        if (assignedTimeLocation != null && assignedRoomLocations.size() == lecture.getNrRooms()) {
+            iAssignedPlacements.put(lecture, new Placement(lecture, assignedTimeLocation, assignedRoomLocations));
+        } else if (lecture.getInitialAssignment() != null) {
+            iAssignedPlacements.put(lecture, lecture.getInitialAssignment());
+        }
+        if (bestTimeLocation != null && bestRoomLocations.size() == lecture.getNrRooms()) {
+            lecture.setBestAssignment(new Placement(lecture, bestTimeLocation, bestRoomLocations), 0);
+        } else if (assignedTimeLocation != null && assignedRoomLocations.size() == lecture.getNrRooms()) {
+            lecture.setBestAssignment(iAssignedPlacements.get(lecture), 0);
+        }
 
-            if (lecture.isCommitted()) {
-                Placement placement = assignedPlacements.get(lecture);
-                if (classEl.attribute("assignment") != null)
-                    placement.setAssignmentId(Long.valueOf(classEl.attributeValue("assignment")));
-                for (InstructorConstraint ic : ics)
-                    ic.setNotAvailable(placement);
-                for (RoomConstraint rc : roomConstraintsThisClass)
-                    rc.setNotAvailable(placement);
-            } else {
-                for (InstructorConstraint ic : ics)
-                    ic.addVariable(lecture);
-                for (RoomConstraint rc : roomConstraintsThisClass)
-                    rc.addVariable(lecture);
+        iLectures.put(classEl.attributeValue("id"), lecture);
+        if (classEl.attributeValue("department") != null)
+            lecture.setDepartment(Long.valueOf(classEl.attributeValue("department")));
+        if (classEl.attribute("scheduler") != null)
+            lecture.setScheduler(Long.valueOf(classEl.attributeValue("scheduler")));
+        if ((iSectionWholeCourse || !lecture.isCommitted()) && classEl.attributeValue("subpart", classEl.attributeValue("course")) != null) {
+            Long subpartId = Long.valueOf(classEl.attributeValue("subpart", classEl.attributeValue("course")));
+            List<Lecture> sames = iSameLectures.get(subpartId);
+            if (sames == null) {
+                sames = new ArrayList<Lecture>();
+                iSameLectures.put(subpartId, sames);
             }
-
-            iProgress.incProgress();
+            sames.add(lecture);
         }
+        String parent = classEl.attributeValue("parent");
+        if (parent != null)
+            iParents.put(lecture, parent);
+
+        getModel().addVariable(lecture);
+
+        if (lecture.isCommitted()) {
+            Placement placement = iAssignedPlacements.get(lecture);
+            if (classEl.attribute("assignment") != null)
+                placement.setAssignmentId(Long.valueOf(classEl.attributeValue("assignment")));
+            for (InstructorConstraint ic : ics)
+                ic.setNotAvailable(placement);
+            for (RoomConstraint rc : roomConstraintsThisClass)
+                rc.setNotAvailable(placement);
+        } else {
+            for (InstructorConstraint ic : ics)
+                ic.addVariable(lecture);
+            for (RoomConstraint rc : roomConstraintsThisClass)
+                rc.addVariable(lecture);
+        }
+
+        iProgress.incProgress();
+    }
 
-        for (Map.Entry<Lecture, String> entry : parents.entrySet()) {
+    /**
+     * Link loaded classes with their parents, called when all the classes have been loaded
+     */
+    protected void setParents() {
+        for (Map.Entry<Lecture, String> entry : iParents.entrySet()) {
             Lecture lecture = entry.getKey();
-            Lecture parent = lectures.get(entry.getValue());
+            Lecture parent = iLectures.get(entry.getValue());
             if (parent == null) {
                 iProgress.warn("Parent class " + entry.getValue() + " does not exists.");
             } else {
                 lecture.setParent(parent);
             }
-        }
+    }
+    }
 
-        iProgress.setPhase("Creating constraints ...", root.element("groupConstraints").elements("constraint").size());
-        HashMap<String, Element> grConstraintElements = new HashMap<String, Element>();
-        HashMap<String, Constraint<Lecture, Placement>> groupConstraints = new HashMap<String, Constraint<Lecture, Placement>>();
-        for (Iterator<?> i1 = root.element("groupConstraints").elementIterator("constraint"); i1.hasNext();) {
-            Element grConstraintEl = (Element) i1.next();
-            Constraint<Lecture, Placement> c = null;
-            if ("SPREAD".equals(grConstraintEl.attributeValue("type"))) {
-                c = new SpreadConstraint(getModel().getProperties(), grConstraintEl.attributeValue("name", "spread"));
-            } else if ("MIN_ROOM_USE".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedRoomsConstraint(getModel().getProperties());
-            } else if ("CLASS_LIMIT".equals(grConstraintEl.attributeValue("type"))) {
-                if (grConstraintEl.element("parentClass") == null) {
-                    c = new ClassLimitConstraint(Integer.parseInt(grConstraintEl.attributeValue("courseLimit")),
-                            grConstraintEl.attributeValue("name", "class-limit"));
-                } else {
-                    String classId = grConstraintEl.element("parentClass").attributeValue("id");
-                    c = new ClassLimitConstraint(lectures.get(classId), grConstraintEl.attributeValue("name",
-                            "class-limit"));
-                }
-                if (grConstraintEl.attributeValue("delta") != null)
-                    ((ClassLimitConstraint) c).setClassLimitDelta(Integer.parseInt(grConstraintEl
-                            .attributeValue("delta")));
-            } else if ("MIN_GRUSE(10x1h)".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "10x1h",
-                        MinimizeNumberOfUsedGroupsOfTime.sGroups10of1h);
-            } else if ("MIN_GRUSE(5x2h)".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "5x2h",
-                        MinimizeNumberOfUsedGroupsOfTime.sGroups5of2h);
-            } else if ("MIN_GRUSE(3x3h)".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "3x3h",
-                        MinimizeNumberOfUsedGroupsOfTime.sGroups3of3h);
-            } else if ("MIN_GRUSE(2x5h)".equals(grConstraintEl.attributeValue("type"))) {
-                c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "2x5h",
-                        MinimizeNumberOfUsedGroupsOfTime.sGroups2of5h);
-            } else if (IgnoreStudentConflictsConstraint.REFERENCE.equals(grConstraintEl.attributeValue("type"))) {
-                c = new IgnoreStudentConflictsConstraint();
+    /**
+     * Load a group constraint
+     * @param grConstraintEl group constraint element
+     */
+    protected void loadGroupConstraint(Element grConstraintEl) {
+        Constraint<Lecture, Placement> c = null;
+        if ("SPREAD".equals(grConstraintEl.attributeValue("type"))) {
+            c = new SpreadConstraint(getModel().getProperties(), grConstraintEl.attributeValue("name", "spread"));
+        } else if ("MIN_ROOM_USE".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedRoomsConstraint(getModel().getProperties());
+        } else if ("CLASS_LIMIT".equals(grConstraintEl.attributeValue("type"))) {
+            if (grConstraintEl.element("parentClass") == null) {
+                c = new ClassLimitConstraint(Integer.parseInt(grConstraintEl.attributeValue("courseLimit")),
+                        grConstraintEl.attributeValue("name", "class-limit"));
             } else {
+                String classId = grConstraintEl.element("parentClass").attributeValue("id");
+                c = new ClassLimitConstraint(iLectures.get(classId), grConstraintEl.attributeValue("name",
+                        "class-limit"));
+            }
+            if (grConstraintEl.attributeValue("delta") != null)
+                ((ClassLimitConstraint) c).setClassLimitDelta(Integer.parseInt(grConstraintEl
+                        .attributeValue("delta")));
+        } else if ("MIN_GRUSE(10x1h)".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "10x1h",
+                    MinimizeNumberOfUsedGroupsOfTime.sGroups10of1h);
+        } else if ("MIN_GRUSE(5x2h)".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "5x2h",
+                    MinimizeNumberOfUsedGroupsOfTime.sGroups5of2h);
+        } else if ("MIN_GRUSE(3x3h)".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "3x3h",
+                    MinimizeNumberOfUsedGroupsOfTime.sGroups3of3h);
+        } else if ("MIN_GRUSE(2x5h)".equals(grConstraintEl.attributeValue("type"))) {
+            c = new MinimizeNumberOfUsedGroupsOfTime(getModel().getProperties(), "2x5h",
+                    MinimizeNumberOfUsedGroupsOfTime.sGroups2of5h);
+        } else if (IgnoreStudentConflictsConstraint.REFERENCE.equals(grConstraintEl.attributeValue("type"))) {
+            c = new IgnoreStudentConflictsConstraint();
+        } else {
+            try {
+                FlexibleConstraintType f = FlexibleConstraintType.valueOf(grConstraintEl.attributeValue("type"));
                 try {
-                    FlexibleConstraintType f = FlexibleConstraintType.valueOf(grConstraintEl.attributeValue("type"));
-                    try {
-                        c = f.create(
-                                Long.valueOf(grConstraintEl.attributeValue("id")),
-                                grConstraintEl.attributeValue("owner"),
-                                grConstraintEl.attributeValue("pref"),
-                                grConstraintEl.attributeValue("reference"));
-                    } catch (IllegalArgumentException e) {
-                            iProgress.warn("Failed to create flexible constraint " + grConstraintEl.attributeValue("type") + ": " + e.getMessage(), e);
-                            continue;
-                    }
-                } catch (IllegalArgumentException e) {
-                    // type did not match, continue with group constraint types
-                    c = new GroupConstraint(
+                    c = f.create(
                             Long.valueOf(grConstraintEl.attributeValue("id")),
-                            GroupConstraint.ConstraintType.get(grConstraintEl.attributeValue("type")),
-                            grConstraintEl.attributeValue("pref"));
+                            grConstraintEl.attributeValue("owner"),
+                            grConstraintEl.attributeValue("pref"),
+                            grConstraintEl.attributeValue("reference"));
+                } catch (IllegalArgumentException e) {
+                        iProgress.warn("Failed to create flexible constraint " + grConstraintEl.attributeValue("type") + ": " + e.getMessage(), e);
+                        return;
                 }
+            } catch (IllegalArgumentException e) {
+                // type did not match, continue with group constraint types
+                c = new GroupConstraint(
+                        Long.valueOf(grConstraintEl.attributeValue("id")),
+                        GroupConstraint.ConstraintType.get(grConstraintEl.attributeValue("type")),
+                        grConstraintEl.attributeValue("pref"));
             }
-            getModel().addConstraint(c);
-            for (Iterator<?> i2 = grConstraintEl.elementIterator("class"); i2.hasNext();) {
-                String classId = ((Element) i2.next()).attributeValue("id");
-                Lecture other = lectures.get(classId);
-                if (other != null)
-                    c.addVariable(other);
-                else
-                    iProgress.warn("Class " + classId + " does not exists, but it is referred from group constraint " + c.getId() + " (" + c.getName() + ")");
-            }
-            grConstraintElements.put(grConstraintEl.attributeValue("id"), grConstraintEl);
-            groupConstraints.put(grConstraintEl.attributeValue("id"), c);
-            iProgress.incProgress();
-        }   
+        }
+        getModel().addConstraint(c);
+        for (Iterator<?> i2 = grConstraintEl.elementIterator("class"); i2.hasNext();) {
+            String classId = ((Element) i2.next()).attributeValue("id");
+            Lecture other = iLectures.get(classId);
+            if (other != null)
+                c.addVariable(other);
+            else
+                iProgress.warn("Class " + classId + " does not exists, but it is referred from group constraint " + c.getId() + " (" + c.getName() + ")");
+        }
+        iProgress.incProgress();
+    }
 
-        iProgress.setPhase("Loading students ...", root.element("students").elements("student").size());
-        boolean initialSectioning = true;
-        HashMap<Long, Student> students = new HashMap<Long, Student>();
-        HashMap<Long, Set<Student>> offering2students = new HashMap<Long, Set<Student>>();
-        for (Iterator<?> i1 = root.element("students").elementIterator("student"); i1.hasNext();) {
-            Element studentEl = (Element) i1.next();
-            List<Lecture> lecturesThisStudent = new ArrayList<Lecture>();
-            Long studentId = Long.valueOf(studentEl.attributeValue("id"));
-            Student student = students.get(studentId);
-            if (student == null) {
-                student = new Student(studentId);
-                students.put(studentId, student);
-                getModel().addStudent(student);
+    /**
+     * Load a student, including its course demands (offerings) and class enrollments
+     * @param studentEl student element
+     */
+    protected void loadStudent(Element studentEl) {
+        List<Lecture> lecturesThisStudent = new ArrayList<Lecture>();
+        Long studentId = Long.valueOf(studentEl.attributeValue("id"));
+        Student student = iStudents.get(studentId);
+        if (student == null) {
+            student = new Student(studentId);
+            iStudents.put(studentId, student);
+            getModel().addStudent(student);
+        }
+        student.setAcademicArea(studentEl.attributeValue("area"));
+        student.setAcademicClassification(studentEl.attributeValue("classification"));
+        student.setMajor(studentEl.attributeValue("major"));
+        student.setCurriculum(studentEl.attributeValue("curriculum"));
+        for (Iterator<?> i2 = studentEl.elementIterator("offering"); i2.hasNext();) {
+            Element ofEl = (Element) i2.next();
+            Long offeringId = Long.valueOf(ofEl.attributeValue("id"));
+            String priority = ofEl.attributeValue("priority");
+            student.addOffering(offeringId, Double.parseDouble(ofEl.attributeValue("weight", "1.0")), priority == null ? null : Double.valueOf(priority));
+            Set<Student> studentsThisOffering = iOffering2Students.get(offeringId);
+            if (studentsThisOffering == null) {
+                studentsThisOffering = new HashSet<Student>();
+                iOffering2Students.put(offeringId, studentsThisOffering);
             }
-            student.setAcademicArea(studentEl.attributeValue("area"));
-            student.setAcademicClassification(studentEl.attributeValue("classification"));
-            student.setMajor(studentEl.attributeValue("major"));
-            student.setCurriculum(studentEl.attributeValue("curriculum"));
-            for (Iterator<?> i2 = studentEl.elementIterator("offering"); i2.hasNext();) {
-                Element ofEl = (Element) i2.next();
-                Long offeringId = Long.valueOf(ofEl.attributeValue("id"));
-                String priority = ofEl.attributeValue("priority");
-                student.addOffering(offeringId, Double.parseDouble(ofEl.attributeValue("weight", "1.0")), priority == null ? null : Double.valueOf(priority));
-                Set<Student> studentsThisOffering = offering2students.get(offeringId);
-                if (studentsThisOffering == null) {
-                    studentsThisOffering = new HashSet<Student>();
-                    offering2students.put(offeringId, studentsThisOffering);
-                }
-                studentsThisOffering.add(student);
+            studentsThisOffering.add(student);
+        }
+        for (Iterator<?> i2 = studentEl.elementIterator("class"); i2.hasNext();) {
+            String classId = ((Element) i2.next()).attributeValue("id");
+            Lecture lecture = iLectures.get(classId);
+            if (lecture == null) {
+                iProgress.warn("Class " + classId + " does not exists, but it is referred from student " + student.getId());
+                continue;
             }
-            for (Iterator<?> i2 = studentEl.elementIterator("class"); i2.hasNext();) {
-                String classId = ((Element) i2.next()).attributeValue("id");
-                Lecture lecture = lectures.get(classId);
-                if (lecture == null) {
-                    iProgress.warn("Class " + classId + " does not exists, but it is referred from student " + student.getId());
-                    continue;
-                }
-                if (lecture.isCommitted()) {
-                    if (sectionWholeCourse && (lecture.getParent() != null || lecture.getConfiguration() != null)) {
-                        // committed, but with course structure -- sectioning can be used
-                        student.addLecture(lecture);
-                        student.addConfiguration(lecture.getConfiguration());
-                        lecture.addStudent(getAssignment(), student);
-                        lecturesThisStudent.add(lecture);
-                        initialSectioning = false;
-                    } else {
-                        Placement placement = assignedPlacements.get(lecture);
-                        student.addCommitedPlacement(placement);
-                    }
-                } else {
+            if (lecture.isCommitted()) {
+                if (iSectionWholeCourse && (lecture.getParent() != null || lecture.getConfiguration() != null)) {
+                    // committed, but with course structure -- sectioning can be used
                     student.addLecture(lecture);
                     student.addConfiguration(lecture.getConfiguration());
                     lecture.addStudent(getAssignment(), student);
                     lecturesThisStudent.add(lecture);
-                    initialSectioning = false;
+                    iInitialSectioning = false;
+                } else {
+                    Placement placement = iAssignedPlacements.get(lecture);
+                    student.addCommitedPlacement(placement);
                 }
+            } else {
+                student.addLecture(lecture);
+                student.addConfiguration(lecture.getConfiguration());
+                lecture.addStudent(getAssignment(), student);
+                lecturesThisStudent.add(lecture);
+                iInitialSectioning = false;
             }
+        }
 
-            for (Iterator<?> i2 = studentEl.elementIterator("prohibited-class"); i2.hasNext();) {
-                String classId = ((Element) i2.next()).attributeValue("id");
-                Lecture lecture = lectures.get(classId);
-                if (lecture != null)
-                    student.addCanNotEnroll(lecture);
-                else
-                    iProgress.warn("Class " + classId + " does not exists, but it is referred from student " + student.getId());
-            }
-            
-            if (studentEl.attributeValue("instructor") != null)
-                student.setInstructor(instructorConstraints.get(studentEl.attributeValue("instructor")));
-
-            iProgress.incProgress();
+        for (Iterator<?> i2 = studentEl.elementIterator("prohibited-class"); i2.hasNext();) {
+            String classId = ((Element) i2.next()).attributeValue("id");
+            Lecture lecture = iLectures.get(classId);
+            if (lecture != null)
+                student.addCanNotEnroll(lecture);
+            else
+                iProgress.warn("Class " + classId + " does not exists, but it is referred from student " + student.getId());
         }
         
-        if (root.element("groups") != null) {
-            iProgress.setPhase("Loading student groups ...", root.element("groups").elements("group").size());
-            for (Iterator<?> i1 = root.element("groups").elementIterator("group"); i1.hasNext();) {
-                Element groupEl = (Element)i1.next();
-                long groupId = Long.parseLong(groupEl.attributeValue("id"));
-                StudentGroup group = new StudentGroup(groupId, Double.parseDouble(groupEl.attributeValue("weight", "1.0")), groupEl.attributeValue("name", "Group-" + groupId));
-                getModel().addStudentGroup(group);
-                for (Iterator<?> i2 = groupEl.elementIterator("student"); i2.hasNext();) {
-                    Element studentEl = (Element)i2.next();
-                    Student student = students.get(Long.valueOf(studentEl.attributeValue("id")));
-                    if (student != null) {
-                        group.addStudent(student); student.addGroup(group);
-                    }
-                }
+        if (studentEl.attributeValue("instructor") != null)
+            student.setInstructor(iInstructorConstraints.get(studentEl.attributeValue("instructor")));
+
+        iProgress.incProgress();
+    }
+
+    /**
+     * Load a student group
+     * @param groupEl student group element
+     */
+    protected void loadStudentGroup(Element groupEl) {
+        long groupId = Long.parseLong(groupEl.attributeValue("id"));
+        StudentGroup group = new StudentGroup(groupId, Double.parseDouble(groupEl.attributeValue("weight", "1.0")), groupEl.attributeValue("name", "Group-" + groupId));
+        getModel().addStudentGroup(group);
+        for (Iterator<?> i2 = groupEl.elementIterator("student"); i2.hasNext();) {
+            Element studentEl = (Element)i2.next();
+            Student student = iStudents.get(Long.valueOf(studentEl.attributeValue("id")));
+            if (student != null) {
+                group.addStudent(student); student.addGroup(group);
             }
         }
+    }
 
-        for (List<Lecture> sames: sameLectures.values()) {
+    /**
+     * Finish the loading: compute joint enrollments, create department spread constraints, and create the initial (and best) assignment
+     * @param currentSolution current solution (best assignment is saved into it), can be null
+     */
+    protected void finishLoad(Solution<Lecture, Placement> currentSolution) {
+        for (List<Lecture> sames: iSameLectures.values()) {
             for (Lecture lect : sames) {
                 lect.setSameSubpartLectures(sames);
             }
         }
 
-        if (initialSectioning) {
-            iProgress.setPhase("Initial sectioning ...", offering2students.size());
-            for (Map.Entry<Long, Set<Student>> entry : offering2students.entrySet()) {
+        if (iInitialSectioning) {
+            iProgress.setPhase("Initial sectioning ...", iOffering2Students.size());
+            for (Map.Entry<Long, Set<Student>> entry : iOffering2Students.entrySet()) {
                 Long offeringId = entry.getKey();
                 Set<Student> studentsThisOffering = entry.getValue();
-                List<Configuration> altConfigs = alternativeConfigurations.get(offeringId);
+                List<Configuration> altConfigs = iAlternativeConfigurations.get(offeringId);
                 getModel().getStudentSectioning().initialSectioning(getAssignment(), offeringId, String.valueOf(offeringId), studentsThisOffering, altConfigs);
                 iProgress.incProgress();
             }
-            for (Student student: students.values()) {
+            for (Student student: iStudents.values()) {
                 student.clearDistanceCache();
                 if (student.getInstructor() != null)
                     for (Lecture lecture: student.getInstructor().variables()) {
@@ -821,9 +1065,9 @@ public class TimetableXMLLoader extends TimetableLoader {
             }
         }
 
-        iProgress.setPhase("Computing jenrl ...", students.size());
+        iProgress.setPhase("Computing jenrl ...", iStudents.size());
         HashMap<Lecture, HashMap<Lecture, JenrlConstraint>> jenrls = new HashMap<Lecture, HashMap<Lecture, JenrlConstraint>>();
-        for (Iterator<Student> i1 = students.values().iterator(); i1.hasNext();) {
+        for (Iterator<Student> i1 = iStudents.values().iterator(); i1.hasNext();) {
             Student st = i1.next();
             for (Iterator<Lecture> i2 = st.getLectures().iterator(); i2.hasNext();) {
                 Lecture l1 = i2.next();
@@ -858,7 +1102,7 @@ public class TimetableXMLLoader extends TimetableLoader {
                     continue;
                 DepartmentSpreadConstraint deptConstr = depSpreadConstraints.get(lecture.getDepartment());
                 if (deptConstr == null) {
-                    String name = depts.get(lecture.getDepartment());
+                    String name = iDepartments.get(lecture.getDepartment());
                     deptConstr = new DepartmentSpreadConstraint(getModel().getProperties(), lecture.getDepartment(),
                             (name != null ? name : "d" + lecture.getDepartment()));
                     depSpreadConstraints.put(lecture.getDepartment(), deptConstr);
@@ -878,8 +1122,8 @@ public class TimetableXMLLoader extends TimetableLoader {
         }
         
         if (getModel().hasConstantVariables() && getModel().constantVariables().size() > 0) {
-            iProgress.setPhase("Assigning committed classes ...", assignedPlacements.size());
-            for (Map.Entry<Lecture, Placement> entry : assignedPlacements.entrySet()) {
+            iProgress.setPhase("Assigning committed classes ...", iAssignedPlacements.size());
+            for (Map.Entry<Lecture, Placement> entry : iAssignedPlacements.entrySet()) {
                 Lecture lecture = entry.getKey();
                 Placement placement = entry.getValue();
                 if (!lecture.isCommitted()) { iProgress.incProgress(); continue; }
@@ -920,8 +1164,8 @@ public class TimetableXMLLoader extends TimetableLoader {
             }
         }
 
-        iProgress.setPhase("Creating initial assignment ...", assignedPlacements.size());
-        for (Map.Entry<Lecture, Placement> entry : assignedPlacements.entrySet()) {
+        iProgress.setPhase("Creating initial assignment ...", iAssignedPlacements.size());
+        for (Map.Entry<Lecture, Placement> entry : iAssignedPlacements.entrySet()) {
             Lecture lecture = entry.getKey();
             Placement placement = entry.getValue();
             if (lecture.isCommitted()) { iProgress.incProgress(); continue; }
@@ -947,7 +1191,7 @@ public class TimetableXMLLoader extends TimetableLoader {
             iProgress.incProgress();
         }
 
-        if (initialSectioning && getAssignment().nrAssignedVariables() != 0 && !getModel().getProperties().getPropertyBoolean("Global.LoadStudentEnrlsFromSolution", false))
+        if (iInitialSectioning && getAssignment().nrAssignedVariables() != 0 && !getModel().getProperties().getPropertyBoolean("Global.LoadStudentEnrlsFromSolution", false))
             getModel().switchStudents(getAssignment());
 
         if (iForcedPerturbances > 0) {
@@ -962,6 +1206,9 @@ public class TimetableXMLLoader extends TimetableLoader {
             }
         }
 
+        // room elements are no longer needed
+        iRoomElements = null;
+
         /*
         for (Constraint<Lecture, Placement> c : getModel().constraints()) {
             if (c instanceof SpreadConstraint)
@@ -6,7 +6,9 @@ import java.util.HashSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.cpsolver.coursett.Constants;
 import org.cpsolver.coursett.criteria.DistributionPreferences;
@@ -121,6 +123,7 @@ public class GroupConstraint extends ConstraintWithContext<Lecture, Placement, G
     private boolean iMaxNHoursADayConsiderDatePatterns = true;
     private int iForwardCheckMaxDepth = 2;
     private int iForwardCheckMaxDomainSize = 1000;
+    private boolean iForwardCheckCache = true;
     private int iNrWorkDays = 5;
     
     /**
@@ -821,6 +824,7 @@ public class GroupConstraint extends ConstraintWithContext<Lecture, Placement, G
             iPrecedenceConsiderDatePatterns = config.getPropertyBoolean("Precedence.ConsiderDatePatterns", true);
             iForwardCheckMaxDepth = config.getPropertyInt("ForwardCheck.MaxDepth", iForwardCheckMaxDepth);
             iForwardCheckMaxDomainSize = config.getPropertyInt("ForwardCheck.MaxDomainSize", iForwardCheckMaxDomainSize);
+            iForwardCheckCache = config.getPropertyBoolean("ForwardCheck.Cache", iForwardCheckCache);
             iMaxNHoursADayConsiderDatePatterns = config.getPropertyBoolean("MaxNHoursADay.ConsiderDatePatterns", iMaxNHoursADayConsiderDatePatterns);
             iNrWorkDays = (config.getPropertyInt("General.LastWorkDay", 4) - config.getPropertyInt("General.FirstWorkDay", 0) + 1);
         }
@@ -1039,7 +1043,24 @@ public class GroupConstraint extends ConstraintWithContext<Lecture, Placement, G
         }
         
         // Forward checking
-        if (fwdCheck) forwardCheck(assignment, value, conflicts, new HashSet<GroupConstraint>(), iForwardCheckMaxDepth - 1);
+        if (fwdCheck) forwardCheck(assignment, value, conflicts);
+    }
+    
+    /**
+     * Forward checking of the given placement (see {@link GroupConstraint#forwardCheck(Assignment, Placement, Set, Set, int)}).
+     * When ForwardCheck.Cache is enabled and the placement is known to pass the forward checking (see {@link GroupConstraint#forwardCheck(Assignment, Placement)}),
+     * there is nothing to add to the conflicts and the domains of the other classes are not searched again.
+     * @param assignment current assignment
+     * @param value placement that is being considered
+     * @param conflicts conflicting placements, to be updated
+     */
+    public void forwardCheck(Assignment<Lecture, Placement> assignment, Placement value, Set<Placement> conflicts) {
+        if (iForwardCheckMaxDepth <= 0) return;
+        if (iForwardCheckCache) {
+            if (conflicts.contains(value)) return; // already conflicting
+            if (forwardCheck(assignment, value)) return; // no conflicts
+        }
+        forwardCheck(assignment, value, conflicts, new HashSet<GroupConstraint>(), iForwardCheckMaxDepth - 1);
     }
     
     public void forwardCheck(Assignment<Lecture, Placement> assignment, Placement value, Set<Placement> conflicts, Set<GroupConstraint> ignore, int depth) {
@@ -1170,11 +1191,35 @@ public class GroupConstraint extends ConstraintWithContext<Lecture, Placement, G
             }
         }
         
-        if (!forwardCheck(assignment, value, new HashSet<GroupConstraint>(), iForwardCheckMaxDepth - 1)) return true;
+        if (!forwardCheck(assignment, value)) return true;
         
         return false;
     }
     
+    /**
+     * Forward checking of the given placement (see {@link GroupConstraint#forwardCheck(Assignment, Placement, Set, int)}).
+     * When ForwardCheck.Cache is enabled (default), the result is kept in the assignment context of the constraint until the assignment
+     * changes (see {@link TimetableModel#getAssignmentVersion(Assignment)}), so that the supports are not searched for again when the same
+     * placement is checked multiple times (e.g., during the value selection). The cache can be used by multiple threads at once
+     * (e.g., when the placements are evaluated in parallel by the placement selection).
+     * @param assignment current assignment
+     * @param value placement that is being considered
+     * @return false if the placement does not pass the forward checking
+     */
+    public boolean forwardCheck(Assignment<Lecture, Placement> assignment, Placement value) {
+        if (iForwardCheckMaxDepth <= 0) return true;
+        if (!iForwardCheckCache || !(getModel() instanceof TimetableModel))
+            return forwardCheck(assignment, value, new HashSet<GroupConstraint>(), iForwardCheckMaxDepth - 1);
+        GroupConstraintContext context = getContext(assignment);
+        long version = ((TimetableModel)getModel()).getAssignmentVersion(assignment);
+        Boolean support = context.getForwardCheck(version, value);
+        if (support == null) {
+            support = forwardCheck(assignment, value, new HashSet<GroupConstraint>(), iForwardCheckMaxDepth - 1);
+            context.setForwardCheck(version, value, support);
+        }
+        return support;
+    }
+    
     public boolean forwardCheck(Assignment<Lecture, Placement> assignment, Placement value, Set<GroupConstraint> ignore, int depth) {
         try {
             if (depth < 0) return true;
@@ -1277,6 +1322,25 @@ public class GroupConstraint extends ConstraintWithContext<Lecture, Placement, G
      */
     public int getCurrentPreference(Assignment<Lecture, Placement> assignment) {
         if (isHard()) return 0; // no preference
+        return getCurrentPreference(assignment, isIncremental() ? getContext(assignment).getNrViolatedPairs() : -1);
+    }
+    
+    /**
+     * True if the violated pairs are tracked incrementally by {@link GroupConstraintContext}. This is the case for soft constraints that
+     * are not max hours a day constraints and whose pair check does not depend on the current assignment (see {@link PairCheck}).
+     * @return true if the number of violated pairs is kept in the assignment context
+     */
+    protected boolean isIncremental() {
+        return !isHard() && !getType().is(Flag.MAX_HRS_DAY) && getType().iAssignmentCheck == null;
+    }
+    
+    /**
+     * Current constraint preference
+     * @param assignment current assignment
+     * @param nrViolatedPairs number of violated pairs (if known, -1 if the pairs are to be checked)
+     * @return current preference
+     */
+    private int getCurrentPreference(Assignment<Lecture, Placement> assignment, int nrViolatedPairs) {
         if (countAssignedVariables(assignment) < 2) return - Math.abs(iPreference); // not enough variable
         if (getType().is(Flag.MAX_HRS_DAY)) { // max hours a day
             int over = 0;
@@ -1290,14 +1354,16 @@ public class GroupConstraint extends ConstraintWithContext<Lecture, Placement, G
             }
             return (over > 0 ? Math.abs(iPreference) * over / 12 : - Math.abs(iPreference));
         }
-        int nrViolatedPairs = 0;
-        for (Lecture v1 : variables()) {
-            Placement p1 = assignment.getValue(v1);
-            if (p1 == null) continue;
-            for (Lecture v2 : variables()) {
-                Placement p2 = assignment.getValue(v2);
-                if (p2 == null || v1.getId() >= v2.getId()) continue;
-                if (!isSatisfiedPair(assignment, p1, p2)) nrViolatedPairs++;
+        if (nrViolatedPairs < 0) {
+            nrViolatedPairs = 0;
+            for (Lecture v1 : variables()) {
+                Placement p1 = assignment.getValue(v1);
+                if (p1 == null) continue;
+                for (Lecture v2 : variables()) {
+                    Placement p2 = assignment.getValue(v2);
+                    if (p2 == null || v1.getId() >= v2.getId()) continue;
+                    if (!isSatisfiedPair(assignment, p1, p2)) nrViolatedPairs++;
+                }
             }
         }
         if (getType().is(Flag.BACK_TO_BACK)) {
@@ -1341,7 +1407,18 @@ public class GroupConstraint extends ConstraintWithContext<Lecture, Placement, G
         
         int nrViolatedPairsAfter = 0;
         int nrViolatedPairsBefore = 0;
-        for (Lecture v1 : variables()) {
+        if (isIncremental()) {
+            // violated pairs that do not involve the placement's lecture are known, only pairs with the placement need to be checked
+            GroupConstraintContext context = getContext(assignment);
+            nrViolatedPairsBefore = context.getNrViolatedPairs() - context.getNrViolatedPairs(placement.variable());
+            nrViolatedPairsAfter = nrViolatedPairsBefore;
+            for (Lecture other : variables()) {
+                if (other.equals(placement.variable())) continue;
+                Placement p = assignment.getValue(other);
+                if (p != null && !isSatisfiedOrderedPair(assignment, placement, p))
+                    nrViolatedPairsAfter ++;
+            }
+        } else for (Lecture v1 : variables()) {
             for (Lecture v2 : variables()) {
                 if (v1.getId() >= v2.getId()) continue;
                 Placement p1 = (v1.equals(placement.variable()) ? null : assignment.getValue(v1));
@@ -1783,6 +1860,13 @@ public class GroupConstraint extends ConstraintWithContext<Lecture, Placement, G
         return true;
     }
 
+    /**
+     * Check a pair of placements, the placement of the lecture with the smaller id is checked first (like in {@link GroupConstraint#getCurrentPreference(Assignment)}).
+     */
+    private boolean isSatisfiedOrderedPair(Assignment<Lecture, Placement> assignment, Placement plc1, Placement plc2) {
+        return (plc1.variable().getId() < plc2.variable().getId() ? isSatisfiedPair(assignment, plc1, plc2) : isSatisfiedPair(assignment, plc2, plc1));
+    }
+
     public boolean isSatisfiedPair(Assignment<Lecture, Placement> assignment, Placement plc1, Placement plc2) {
         if (iIsRequired || (!iIsProhibited && iPreference <= 0))
             return getType().isSatisfied(assignment, this, plc1, plc2);
@@ -1824,31 +1908,143 @@ public class GroupConstraint extends ConstraintWithContext<Lecture, Placement, G
         return new GroupConstraintContext(assignment);
     }
 
+    /** Results of the forward checking for one version of the assignment, replaced as a whole when the assignment changes */
+    private static class ForwardCheckCache {
+        private final long iVersion;
+        private final Map<Placement, Boolean> iResults = new ConcurrentHashMap<Placement, Boolean>();
+        
+        private ForwardCheckCache(long version) {
+            iVersion = version;
+        }
+    }
+    
+    /**
+     * Group constraint assignment context. Besides of the current preference (that is added to the {@link DistributionPreferences} criterion),
+     * the context keeps track of the violated pairs of classes when the constraint {@link GroupConstraint#isIncremental()}: only the pairs
+     * involving the changed class are checked when a class is assigned or unassigned.
+     */
     public class GroupConstraintContext implements AssignmentConstraintContext<Lecture, Placement> {
         private int iLastPreference = 0;
+        private List<Lecture> iLectures = null;
+        private BitSet[] iViolated = null;
+        private int[] iNrViolated = null;
+        private int iNrViolatedPairs = 0;
+        private volatile ForwardCheckCache iForwardCheck = null;
         
         public GroupConstraintContext(Assignment<Lecture, Placement> assignment) {
+            if (isIncremental()) {
+                iLectures = new ArrayList<Lecture>(variables());
+                iViolated = new BitSet[iLectures.size()];
+                iNrViolated = new int[iLectures.size()];
+                for (int i = 0; i < iLectures.size(); i++) {
+                    iViolated[i] = new BitSet(iLectures.size());
+                    Placement p1 = assignment.getValue(iLectures.get(i));
+                    if (p1 == null) continue;
+                    for (int j = 0; j < i; j++) {
+                        Placement p2 = assignment.getValue(iLectures.get(j));
+                        if (p2 != null && !isSatisfiedOrderedPair(assignment, p1, p2))
+                            setViolated(i, j, true);
+                    }
+                }
+            }
             updateCriterion(assignment);
         }
 
         @Override
         public void assigned(Assignment<Lecture, Placement> assignment, Placement value) {
+            if (iLectures != null) {
+                int i = iLectures.indexOf(value.variable());
+                if (i >= 0) {
+                    clearViolated(i);
+                    for (int j = 0; j < iLectures.size(); j++) {
+                        if (i == j) continue;
+                        Placement other = assignment.getValue(iLectures.get(j));
+                        if (other != null && !isSatisfiedOrderedPair(assignment, value, other))
+                            setViolated(i, j, true);
+                    }
+                }
+            }
             updateCriterion(assignment);
         }
 
         @Override
         public void unassigned(Assignment<Lecture, Placement> assignment, Placement value) {
+            if (iLectures != null) {
+                int i = iLectures.indexOf(value.variable());
+                if (i >= 0) clearViolated(i);
+            }
             updateCriterion(assignment);
         }
         
+        /** Mark a pair of classes (given by their positions) as violated or not */
+        private void setViolated(int i, int j, boolean violated) {
+            if (iViolated[i].get(j) == violated) return;
+            iViolated[i].set(j, violated);
+            iViolated[j].set(i, violated);
+            int delta = (violated ? 1 : -1);
+            iNrViolated[i] += delta;
+            iNrViolated[j] += delta;
+            iNrViolatedPairs += delta;
+        }
+        
+        /** Clear all the violated pairs of a class (given by its position) */
+        private void clearViolated(int i) {
+            for (int j = iViolated[i].nextSetBit(0); j >= 0; j = iViolated[i].nextSetBit(j + 1))
+                setViolated(i, j, false);
+        }
+        
         private void updateCriterion(Assignment<Lecture, Placement> assignment) {
             if (!isHard()) {
                 getModel().getCriterion(DistributionPreferences.class).inc(assignment, -iLastPreference);
-                iLastPreference = getCurrentPreference(assignment) + Math.abs(iPreference);
+                iLastPreference = getCurrentPreference(assignment, iLectures == null ? -1 : iNrViolatedPairs) + Math.abs(iPreference);
                 getModel().getCriterion(DistributionPreferences.class).inc(assignment, iLastPreference);
             }
         }
         
         public int getPreference() { return iLastPreference; }
+        
+        /**
+         * Cached result of the forward checking of the given placement
+         * @param version current version of the assignment (see {@link TimetableModel#getAssignmentVersion(Assignment)})
+         * @param value placement that is being considered
+         * @return null if not known (or if the assignment has changed since)
+         */
+        protected Boolean getForwardCheck(long version, Placement value) {
+            ForwardCheckCache cache = iForwardCheck;
+            if (cache == null || cache.iVersion != version) {
+                iForwardCheck = new ForwardCheckCache(version);
+                return null;
+            }
+            return cache.iResults.get(value);
+        }
+        
+        /**
+         * Remember the result of the forward checking of the given placement (it is ignored when the assignment has changed in the mean time)
+         * @param version version of the assignment for which the forward checking was done
+         * @param value placement that is being considered
+         * @param support result of the forward checking
+         */
+        protected void setForwardCheck(long version, Placement value, boolean support) {
+            ForwardCheckCache cache = iForwardCheck;
+            if (cache != null && cache.iVersion == version)
+                cache.iResults.put(value, support);
+        }
+        
+        /**
+         * Number of violated pairs of classes (only tracked when {@link GroupConstraint#isIncremental()})
+         * @return number of pairs of assigned classes that are not satisfied
+         */
+        public int getNrViolatedPairs() { return iNrViolatedPairs; }
+        
+        /**
+         * Number of violated pairs of classes that involve the given class (only tracked when {@link GroupConstraint#isIncremental()})
+         * @param lecture a class of this constraint
+         * @return number of assigned classes with which the given class makes a violated pair
+         */
+        public int getNrViolatedPairs(Lecture lecture) {
+            if (iLectures == null) return 0;
+            int i = iLectures.indexOf(lecture);
+            return (i < 0 ? 0 : iNrViolated[i]);
+        }
     }
 }
@@ -213,13 +213,13 @@ public class InstructorConstraint extends ConstraintWithContext<Lecture, Placeme
     public void computeConflicts(Assignment<Lecture, Placement> assignment, Placement placement, Set<Placement> conflicts) {
         Lecture lecture = placement.variable();
         Placement current = assignment.getValue(lecture);
-        BitSet weekCode = placement.getTimeLocation().getWeekCode();
+        TimeLocation time = placement.getTimeLocation();
         InstructorConstraintContext context = getContext(assignment);
 
         for (Enumeration<Integer> e = placement.getTimeLocation().getSlots(); e.hasMoreElements();) {
             int slot = e.nextElement();
             for (Placement p : context.getPlacements(slot)) {
-                if (!p.equals(current) && p.getTimeLocation().shareWeeks(weekCode)) {
+                if (!p.equals(current) && p.getTimeLocation().shareWeeks(time)) {
                     if (p.canShareRooms(placement) && p.sameRooms(placement))
                         continue;
                     conflicts.add(p);
@@ -273,13 +273,13 @@ public class InstructorConstraint extends ConstraintWithContext<Lecture, Placeme
     public boolean inConflict(Assignment<Lecture, Placement> assignment, Placement placement) {
         Lecture lecture = placement.variable();
         Placement current = assignment.getValue(lecture);
-        BitSet weekCode = placement.getTimeLocation().getWeekCode();
+        TimeLocation time = placement.getTimeLocation();
         InstructorConstraintContext context = getContext(assignment);
         
         for (Enumeration<Integer> e = placement.getTimeLocation().getSlots(); e.hasMoreElements();) {
             int slot = e.nextElement();
             for (Placement p : context.getPlacements(slot)) {
-                if (!p.equals(current) && p.getTimeLocation().shareWeeks(weekCode)) {
+                if (!p.equals(current) && p.getTimeLocation().shareWeeks(time)) {
                     if (p.canShareRooms(placement) && p.sameRooms(placement))
                         continue;
                     return true;
@@ -634,7 +634,13 @@ public class InstructorConstraint extends ConstraintWithContext<Lecture, Placeme
         }
         
         public List<Placement> getPlacements(int slot, Placement placement) {
-            return getPlacements(slot, placement.getTimeLocation().getWeekCode());
+            TimeLocation time = placement.getTimeLocation();
+            List<Placement> placements = new ArrayList<Placement>(iResource[slot].size());
+            for (Placement p : iResource[slot]) {
+                if (p.getTimeLocation().shareWeeks(time))
+                    placements.add(p);
+            }
+            return placements;
         }
         
         public int getNrSlots() { return iResource.length; }
@@ -1,8 +1,6 @@
 package org.cpsolver.coursett.constraint;
 
 import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -90,8 +88,7 @@ public class RoomConstraint extends ConstraintWithContext<Lecture, Placement, Ro
             for (int i = 0; i < iAvailable.length; i++)
                 iAvailable[i] = null;
         }
-        for (Enumeration<Integer> e = placement.getTimeLocation().getSlots(); e.hasMoreElements();) {
-            int slot = e.nextElement();
+        for (int slot: placement.getTimeLocation().getSlotsArray()) {
             if (iAvailable[slot] == null)
                 iAvailable[slot] = new ArrayList<Placement>(1);
             iAvailable[slot].add(placement);
@@ -110,8 +107,7 @@ public class RoomConstraint extends ConstraintWithContext<Lecture, Placement, Ro
 
     public boolean isAvailable(Lecture lecture, TimeLocation time, Long scheduler) {
         if (iAvailable != null) {
-            for (Enumeration<Integer> e = time.getSlots(); e.hasMoreElements();) {
-                int slot = e.nextElement();
+            for (int slot: time.getSlotsArray()) {
                 if (iAvailable[slot] != null) {
                     for (Placement p : iAvailable[slot]) {
                         if (lecture.canShareRoom(p.variable()))
@@ -177,13 +173,12 @@ public class RoomConstraint extends ConstraintWithContext<Lecture, Placement, Ro
         boolean canShareRoom = lecture.canShareRoom();
         int size = lecture.maxRoomUse();
         HashSet<Placement> skipPlacements = null;
-        BitSet weekCode = placement.getTimeLocation().getWeekCode();
+        TimeLocation time = placement.getTimeLocation();
         RoomConstraintContext context = getContext(assignment);
 
-        for (Enumeration<Integer> e = placement.getTimeLocation().getSlots(); e.hasMoreElements();) {
-            int slot = e.nextElement();
+        for (int slot: placement.getTimeLocation().getSlotsArray()) {
             for (Placement confPlacement : context.getPlacements(slot)) {
-                if (!confPlacement.getTimeLocation().shareWeeks(weekCode))
+                if (!confPlacement.getTimeLocation().shareWeeks(time))
                     continue;
                 if (confPlacement.equals(current))
                     continue;
@@ -213,13 +208,12 @@ public class RoomConstraint extends ConstraintWithContext<Lecture, Placement, Ro
         Placement current = assignment.getValue(lecture);
         int size = lecture.maxRoomUse();
         HashSet<Placement> skipPlacements = null;
-        BitSet weekCode = placement.getTimeLocation().getWeekCode();
+        TimeLocation time = placement.getTimeLocation();
         RoomConstraintContext context = getContext(assignment);
 
-        for (Enumeration<Integer> e = placement.getTimeLocation().getSlots(); e.hasMoreElements();) {
-            int slot = e.nextElement();
+        for (int slot: placement.getTimeLocation().getSlotsArray()) {
             for (Placement confPlacement : context.getPlacements(slot)) {
-                if (!confPlacement.getTimeLocation().shareWeeks(weekCode))
+                if (!confPlacement.getTimeLocation().shareWeeks(time))
                     continue;
                 if (confPlacement.equals(current))
                     continue;
@@ -343,8 +337,7 @@ public class RoomConstraint extends ConstraintWithContext<Lecture, Placement, Ro
             for (Lecture lecture: variables()) {
                 Placement placement = assignment.getValue(lecture);
                 if (placement != null && placement.hasRoomLocation(getResourceId())) {
-                    for (Enumeration<Integer> e = placement.getTimeLocation().getSlots(); e.hasMoreElements();) {
-                        int slot = e.nextElement();
+                    for (int slot: placement.getTimeLocation().getSlotsArray()) {
                         iResource[slot].add(placement);
                     }
                 }
@@ -359,8 +352,7 @@ public class RoomConstraint extends ConstraintWithContext<Lecture, Placement, Ro
         public void assigned(Assignment<Lecture, Placement> assignment, Placement placement) {
             if (!placement.hasRoomLocation(getResourceId()))
                 return;
-            for (Enumeration<Integer> e = placement.getTimeLocation().getSlots(); e.hasMoreElements();) {
-                int slot = e.nextElement();
+            for (int slot: placement.getTimeLocation().getSlotsArray()) {
                 iResource[slot].add(placement);
             }
             getModel().getCriterion(UselessHalfHours.class).inc(assignment, -iLastUselessHalfHours);
@@ -375,8 +367,7 @@ public class RoomConstraint extends ConstraintWithContext<Lecture, Placement, Ro
         public void unassigned(Assignment<Lecture, Placement> assignment, Placement placement) {
             if (!placement.hasRoomLocation(getResourceId()))
                 return;
-            for (Enumeration<Integer> e = placement.getTimeLocation().getSlots(); e.hasMoreElements();) {
-                int slot = e.nextElement();
+            for (int slot: placement.getTimeLocation().getSlotsArray()) {
                 iResource[slot].remove(placement);
             }
             getModel().getCriterion(UselessHalfHours.class).inc(assignment, -iLastUselessHalfHours);
@@ -406,10 +397,9 @@ public class RoomConstraint extends ConstraintWithContext<Lecture, Placement, Ro
         }
         
         public boolean inConflict(Lecture lecture, TimeLocation time) {
-            for (Enumeration<Integer> e = time.getSlots(); e.hasMoreElements();) {
-                int slot = e.nextElement();
+            for (int slot: time.getSlotsArray()) {
                 for (Placement confPlacement : getPlacements(slot)) {
-                    if (!confPlacement.getTimeLocation().shareWeeks(time.getWeekCode())) continue;
+                    if (!confPlacement.getTimeLocation().shareWeeks(time)) continue;
                     if (confPlacement.variable().equals(lecture)) continue;
                     if (!confPlacement.variable().canShareRoom(lecture)) return true;
                 }
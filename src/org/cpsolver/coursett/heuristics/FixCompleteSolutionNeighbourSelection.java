@@ -132,7 +132,7 @@ public class FixCompleteSolutionNeighbourSelection extends NeighbourSelectionWit
                     for (Placement value : variable.values(solution.getAssignment())) {
                         if (value.equals(currentValue))
                             continue;
-                        if (solution.getModel().conflictValues(solution.getAssignment(), value).isEmpty()) {
+                        if (solution.getModel().countConflicts(solution.getAssignment(), value) == 0) {
                             double val = value.toDouble(solution.getAssignment());
                             if (bestValue == null || val < bestVal) {
                                 bestValue = value;
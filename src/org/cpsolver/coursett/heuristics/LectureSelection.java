@@ -332,7 +332,7 @@ public class LectureSelection implements VariableSelection<Lecture, Placement> {
                             iDomainSizeWeight * (((double) (iMaxDomainSize - variable.values(solution.getAssignment()).size())) / ((double) iMaxDomainSize)) +
                             (iProp == null ? 0.0 : iGoodValuesWeight * (((double) (iMaxGoodDomainSize - iProp.goodValues(assignment, variable).size())) / ((double) iMaxGoodDomainSize))) +
                             iConstraintsWeight * (((double) (iMaxConstraints - variable.constraints().size())) / ((double) iMaxConstraints)) +
-                            iInitialAssignmentWeight * (variable.getInitialAssignment() != null ? model.conflictValues(assignment, variable.getInitialAssignment()).size() : 0.0));
+                            iInitialAssignmentWeight * (variable.getInitialAssignment() != null ? model.countConflicts(assignment, variable.getInitialAssignment()) : 0.0));
                     if (pointsThisVariable > 0) {
                         totalPoints += pointsThisVariable;
                         points.add(totalPoints);
@@ -372,7 +372,7 @@ public class LectureSelection implements VariableSelection<Lecture, Placement> {
                     long good = (long) (iDomainSizeWeight * variable.values(solution.getAssignment()).size() +
                             iGoodValuesWeight * (iProp == null ? 0 : iProp.goodValues(assignment, variable).size()) +
                             iConstraintsWeight * variable.constraints().size() +
-                            iInitialAssignmentWeight * (variable.getInitialAssignment() != null ? model.conflictValues(assignment, variable.getInitialAssignment()).size() : 0.0));
+                            iInitialAssignmentWeight * (variable.getInitialAssignment() != null ? model.countConflicts(assignment, variable.getInitialAssignment()) : 0.0));
                     if (selectionVariables == null || bestGood > good) {
                         if (selectionVariables == null)
                             selectionVariables = new ArrayList<Lecture>();
@@ -4,19 +4,27 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.cpsolver.coursett.criteria.TimetablingCriterion;
 import org.cpsolver.coursett.model.Lecture;
 import org.cpsolver.coursett.model.Placement;
 import org.cpsolver.coursett.model.TimetableModel;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.context.HasAssignmentContext;
 import org.cpsolver.ifs.criteria.Criterion;
 import org.cpsolver.ifs.extension.Extension;
 import org.cpsolver.ifs.extension.MacPropagation;
 import org.cpsolver.ifs.heuristics.ValueSelection;
+import org.cpsolver.ifs.model.ConflictSet;
+import org.cpsolver.ifs.model.Constraint;
+import org.cpsolver.ifs.model.GlobalConstraint;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.solver.Solver;
 import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.ifs.util.ThreadPool;
 import org.cpsolver.ifs.util.ToolBox;
 
 
@@ -30,6 +38,18 @@ import org.cpsolver.ifs.util.ToolBox;
  * with a given probability (random walk, e.g., 2%) and, in the case of MPP, to
  * select the initial value (if it exists) with a given probability (e.g., 70%). <br>
  * <br>
+ * When Placement.NrThreads is greater than one, the values of a large domain
+ * are evaluated in parallel (each thread evaluates a continuous part of the
+ * domain, the current assignment is only read during the evaluation). The
+ * evaluated values are then considered in the order of the domain, so the
+ * selection is the same as when the values are evaluated one by one. The
+ * evaluation of each value draws its random numbers (e.g., the conflicts picked
+ * randomly by some of the flexible constraints) from its own stream, seeded from
+ * the secondary stream of the solver thread, so a parallel run does not depend on the
+ * number of threads or on the order in which the values are evaluated. The values of
+ * the domains that are evaluated by the solver thread use their own streams as well
+ * (see parameter Placement.ValueRandomStreams). <br>
+ * <br>
  * Parameters (general):
  * <table border='1' summary='Related Solver Parameters'>
  * <tr>
@@ -67,6 +87,23 @@ import org.cpsolver.ifs.util.ToolBox;
  * <td>{@link Double}</td>
  * <td>MPP: limit on the perturbations penalty (-1 for no limit)</td>
  * </tr>
+ * <tr>
+ * <td>Placement.NrThreads</td>
+ * <td>{@link Integer}</td>
+ * <td>Number of threads used to evaluate the values of a domain (defaults to 1)</td>
+ * </tr>
+ * <tr>
+ * <td>Placement.ParallelMinValues</td>
+ * <td>{@link Integer}</td>
+ * <td>Domains with fewer values are always evaluated by the calling thread (defaults to 100)</td>
+ * </tr>
+ * <tr>
+ * <td>Placement.ValueRandomStreams</td>
+ * <td>{@link Boolean}</td>
+ * <td>Values evaluated by the calling thread also draw their random numbers from their own streams, like the values that are
+ * evaluated in parallel (defaults to true when Placement.NrThreads is greater than one); with Placement.NrThreads set to one, the
+ * selection is then the same as with more threads</td>
+ * </tr>
  * </table>
  * <br>
  * Parameters (for each level of selection):
@@ -217,12 +254,29 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
 
     private boolean iCanUnassingSingleton = false;
 
+    private int iNrThreads = 1;
+    public static final String NR_THREADS = "Placement.NrThreads";
+    private int iParallelMinValues = 100;
+    public static final String PARALLEL_MIN_VALUES = "Placement.ParallelMinValues";
+    private boolean iValueRandomStreams = false;
+    public static final String VALUE_RANDOM_STREAMS = "Placement.ValueRandomStreams";
+    private ThreadPool iThreadPool = null;
+    private volatile Assignment<Lecture, Placement> iContextsInitialized = null;
+
     @Override
     public void init(Solver<Lecture, Placement> solver) {
         for (Extension<Lecture, Placement> extension : solver.getExtensions()) {
             if (MacPropagation.class.isInstance(extension))
                 iProp = (MacPropagation<Lecture, Placement>) extension;
         }
+        if (iNrThreads > 1) {
+            synchronized (this) {
+                if (iThreadPool != null)
+                    iThreadPool.shutdown();
+                iThreadPool = new ThreadPool("PlacementSelection", iNrThreads);
+            }
+            solver.registerThreadPool(iThreadPool);
+        }
     }
 
     public PlacementSelection(DataProperties properties) {
@@ -240,6 +294,9 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         iUseThreshold = properties.getPropertyBoolean("Placement.UseThreshold", USE_THRESHOLD);
         for (int level = 0; level < NR_LEVELS; level++)
             iThresholdKoef[level] = (USE_THRESHOLD ? properties.getPropertyDouble(NR_THRESHOLD_KOEF + (level + 1), (level == 0 ? 0.1 : 0.0)) : 0.0);
+        iNrThreads = properties.getPropertyInt(NR_THREADS, iNrThreads);
+        iParallelMinValues = properties.getPropertyInt(PARALLEL_MIN_VALUES, iParallelMinValues);
+        iValueRandomStreams = properties.getPropertyBoolean(VALUE_RANDOM_STREAMS, iNrThreads > 1);
     }
 
     @Override
@@ -252,13 +309,13 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         Assignment<Lecture, Placement> assignment = solution.getAssignment();
         if (selectedVariable.getInitialAssignment() != null) {
             if (iMPPLimit >= 0 && model.perturbVariables(assignment).size() >= iMPPLimit) {
-                if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, selectedVariable.getInitialAssignment()), selectedVariable.getInitialAssignment()))
+                if (!containsItselfSingletonOrCommited(model, assignment, selectedVariable.getInitialAssignment()))
                     return selectedVariable.getInitialAssignment();
             } else if (iMPPPenaltyLimit >= 0.0 && solution.getPerturbationsCounter() != null && solution.getPerturbationsCounter().getPerturbationPenalty(assignment, model) > iMPPPenaltyLimit) {
-                if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, selectedVariable.getInitialAssignment()), selectedVariable.getInitialAssignment()))
+                if (!containsItselfSingletonOrCommited(model, assignment, selectedVariable.getInitialAssignment()))
                     return selectedVariable.getInitialAssignment();
             } else if (selectedVariable.getInitialAssignment() != null && ToolBox.random() <= iInitialSelectionProb) {
-                if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, selectedVariable.getInitialAssignment()), selectedVariable.getInitialAssignment()))
+                if (!containsItselfSingletonOrCommited(model, assignment, selectedVariable.getInitialAssignment()))
                     return selectedVariable.getInitialAssignment();
             }
         }
@@ -267,7 +324,7 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         if (iRW && ToolBox.random() <= iRandomWalkProb) {
             for (int i = 0; i < 5; i++) {
                 Placement ret = ToolBox.random(values);
-                if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, ret), ret))
+                if (!containsItselfSingletonOrCommited(model, assignment, ret))
                     return ret;
             }
         }
@@ -279,7 +336,7 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         }
         if (values.size() == 1) {
             Placement ret = values.get(0);
-            if (!containsItselfSingletonOrCommited(model, model.conflictValues(assignment, ret), ret))
+            if (!containsItselfSingletonOrCommited(model, assignment, ret))
                 return ret;
         }
 
@@ -287,52 +344,41 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         List<Placement> selectionValues = null;
 
         HeuristicSelector<Placement> selector = (iUseThreshold ? new HeuristicSelector<Placement>(iThresholdKoef) : null);
-        for (Placement value : values) {
-            if (iTabu != null && iTabu.contains(value))
-                continue;
-            if (current != null && current.equals(value))
-                continue;
-
-            Set<Placement> conflicts = value.variable().getModel().conflictValues(assignment, value);
-            
-            if (containsItselfSingletonOrCommited(model, conflicts, value))
-                continue;
-
-            if (iUseThreshold) {
-                Double flt = selector.firstLevelThreshold();
-                double[] costs = new double[NR_LEVELS];
-                for (int level = 0; level < NR_LEVELS; level++) {
-                    costs[level] = getCost(assignment, level, value, conflicts);
-                    if (level == 0 && flt != null && costs[0] > flt.doubleValue()) {
-                        break;
-                    }
-                }
-                if (flt != null && costs[0] > flt.doubleValue())
+        boolean parallel = (iNrThreads > 1 && values.size() >= Math.max(iNrThreads, iParallelMinValues));
+        // the seed of the per-value random streams is taken from the secondary stream, so that the main stream of the calling thread is not changed
+        long seed = (parallel || iValueRandomStreams ? ToolBox.getSecondaryRandom().nextLong() : 0l);
+        if (parallel) {
+            double[][] costs = evaluateParallel(model, assignment, values, current, seed);
+            for (int i = 0; i < costs.length; i++) {
+                if (costs[i] == null)
                     continue;
-                selector.add(costs, value);
-            } else {
-                boolean fail = false;
-                boolean best = false;
-                for (int level = 0; !fail && level < 1; level++) {
-                    double val = getCost(assignment, level, value, conflicts);
-                    long cost = Math.round(PRECISION * val);
-                    if (selectionValues != null && !best) {
-                        if (cost > bestCost[level]) {
-                            fail = true;
-                        }
-                        if (cost < bestCost[level]) {
-                            bestCost[level] = cost;
-                            selectionValues.clear();
-                            best = true;
-                        }
-                    } else {
-                        bestCost[level] = cost;
-                    }
+                Placement value = values.get(i);
+                if (iUseThreshold) {
+                    Double flt = selector.firstLevelThreshold();
+                    if (flt != null && costs[i][0] > flt.doubleValue())
+                        continue;
+                    selector.add(costs[i], value);
+                } else {
+                    selectionValues = consider(values, selectionValues, bestCost, costs[i], value);
+                }
+            }
+        } else {
+            for (int i = 0; i < values.size(); i++) {
+                Placement value = values.get(i);
+                if (iUseThreshold) {
+                    Double flt = selector.firstLevelThreshold();
+                    double[] costs = evaluate(model, assignment, value, current, flt, seed, i);
+                    if (costs == null)
+                        continue;
+                    if (flt != null && costs[0] > flt.doubleValue())
+                        continue;
+                    selector.add(costs, value);
+                } else {
+                    double[] costs = evaluate(model, assignment, value, current, null, seed, i);
+                    if (costs == null)
+                        continue;
+                    selectionValues = consider(values, selectionValues, bestCost, costs, value);
                 }
-                if (selectionValues == null)
-                    selectionValues = new ArrayList<Placement>(values.size());
-                if (!fail)
-                    selectionValues.add(value);
             }
         }
         // ToolBox.print("Best "+selectionValues.size()+" locations for variable "+selectedVariable.getId()+" have "+bestConflicts+" conflicts ("+bestRemovals+" weighted) and "+bestStudentConflicts+" ("+bestOriginalStudentConflicts+" * "+bestKoef+" + "+bestPenalty+") preference.");
@@ -373,6 +419,193 @@ public class PlacementSelection implements ValueSelection<Lecture, Placement> {
         return selectedValue;
     }
 
+    /**
+     * Evaluate the given value. The current assignment is not changed.
+     * 
+     * @param model timetable model
+     * @param assignment current assignment
+     * @param value a value of the selected variable
+     * @param current current value of the selected variable (null if not assigned)
+     * @param firstLevelThreshold when not null and the first level cost is above it, the other levels are not computed
+     * @return weighted sums for each level (only the first level is computed when the threshold is not used),
+     *         null when the value cannot be selected (it is tabu, current, or it conflicts with itself, a singleton or a committed class)
+     */
+    protected double[] evaluate(TimetableModel model, Assignment<Lecture, Placement> assignment, Placement value, Placement current, Double firstLevelThreshold) {
+        if (iTabu != null && iTabu.contains(value))
+            return null;
+        if (current != null && current.equals(value))
+            return null;
+
+        ConflictSet<Lecture, Placement> conflicts = model.conflictValuesBuffer(assignment, value);
+        try {
+            if (containsItselfSingletonOrCommited(model, conflicts, value))
+                return null;
+
+            double[] costs = new double[NR_LEVELS];
+            for (int level = 0; level < (iUseThreshold ? NR_LEVELS : 1); level++) {
+                costs[level] = getCost(assignment, level, value, conflicts);
+                if (level == 0 && firstLevelThreshold != null && costs[0] > firstLevelThreshold.doubleValue()) {
+                    break;
+                }
+            }
+            return costs;
+        } finally {
+            model.releaseConflictValuesBuffer(conflicts);
+        }
+    }
+    
+    /**
+     * Evaluate the given value, using its own random stream when Placement.ValueRandomStreams is set (see {@link ToolBox#initThreadRandom(long, int)}).
+     * 
+     * @param model timetable model
+     * @param assignment current assignment
+     * @param value a value of the selected variable
+     * @param current current value of the selected variable (null if not assigned)
+     * @param firstLevelThreshold when not null and the first level cost is above it, the other levels are not computed
+     * @param seed seed of the random streams of the values
+     * @param index index of the value in the domain
+     * @return weighted sums for each level, see {@link PlacementSelection#evaluate(TimetableModel, Assignment, Placement, Placement, Double)}
+     */
+    private double[] evaluate(TimetableModel model, Assignment<Lecture, Placement> assignment, Placement value, Placement current, Double firstLevelThreshold, long seed, int index) {
+        if (!iValueRandomStreams)
+            return evaluate(model, assignment, value, current, firstLevelThreshold);
+        ToolBox.initThreadRandom(seed, index);
+        try {
+            return evaluate(model, assignment, value, current, firstLevelThreshold);
+        } finally {
+            ToolBox.releaseThreadRandom();
+        }
+    }
+    
+    /**
+     * Consider an evaluated value when the threshold is not used (only values of the lowest first level cost are kept)
+     * @param values domain of the selected variable
+     * @param selectionValues values selected so far (null if there are none)
+     * @param bestCost best cost for each level
+     * @param costs weighted sums of the value (see {@link PlacementSelection#evaluate(TimetableModel, Assignment, Placement, Placement, Double)})
+     * @param value evaluated value
+     * @return updated selection values
+     */
+    private List<Placement> consider(List<Placement> values, List<Placement> selectionValues, long[] bestCost, double[] costs, Placement value) {
+        boolean fail = false;
+        boolean best = false;
+        for (int level = 0; !fail && level < 1; level++) {
+            long cost = Math.round(PRECISION * costs[level]);
+            if (selectionValues != null && !best) {
+                if (cost > bestCost[level]) {
+                    fail = true;
+                }
+                if (cost < bestCost[level]) {
+                    bestCost[level] = cost;
+                    selectionValues.clear();
+                    best = true;
+                }
+            } else {
+                bestCost[level] = cost;
+            }
+        }
+        if (selectionValues == null)
+            selectionValues = new ArrayList<Placement>(values.size());
+        if (!fail)
+            selectionValues.add(value);
+        return selectionValues;
+    }
+    
+    /**
+     * Evaluate the given values in parallel, using Placement.NrThreads threads. Each task evaluates a continuous
+     * part of the values, all the levels are computed. The current assignment is only read during the evaluation.
+     * Each value is evaluated with its own random stream (see {@link ToolBox#initThreadRandom(long, int)}), seeded by
+     * the given seed and the index of the value.
+     * 
+     * @param model timetable model
+     * @param assignment current assignment
+     * @param values domain of the selected variable
+     * @param current current value of the selected variable (null if not assigned)
+     * @param seed seed of the random streams of the values (drawn from the secondary stream of the calling thread, see {@link ToolBox#getSecondaryRandom()})
+     * @return weighted sums for each level of each value (null when the value cannot be selected)
+     */
+    protected double[][] evaluateParallel(final TimetableModel model, final Assignment<Lecture, Placement> assignment, final List<Placement> values, final Placement current, final long seed) {
+        initContexts(model, assignment);
+        final double[][] costs = new double[values.size()][];
+        List<Future<?>> tasks = new ArrayList<Future<?>>(iNrThreads);
+        for (int t = 0; t < iNrThreads; t++) {
+            final int first = (int) ((long) t * values.size() / iNrThreads);
+            final int last = (int) ((long) (t + 1) * values.size() / iNrThreads);
+            tasks.add(getExecutor().submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = first; i < last; i++) {
+                        ToolBox.initThreadRandom(seed, i);
+                        try {
+                            costs[i] = evaluate(model, assignment, values.get(i), current, null);
+                        } finally {
+                            ToolBox.releaseThreadRandom();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Evaluation of placements interrupted: " + e.getMessage(), e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Evaluation of placements failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Make sure that the assignment contexts of the constraints and the criteria exist before the assignment is read by multiple
+     * threads at once (contexts are created lazily otherwise).
+     * @param model timetable model
+     * @param assignment current assignment
+     */
+    @SuppressWarnings("unchecked")
+    protected void initContexts(TimetableModel model, Assignment<Lecture, Placement> assignment) {
+        if (iContextsInitialized == assignment) return;
+        for (Constraint<Lecture, Placement> constraint : model.constraints())
+            if (constraint instanceof HasAssignmentContext)
+                ((HasAssignmentContext<Lecture, Placement, ?>) constraint).getContext(assignment);
+        for (GlobalConstraint<Lecture, Placement> constraint : model.globalConstraints())
+            if (constraint instanceof HasAssignmentContext)
+                ((HasAssignmentContext<Lecture, Placement, ?>) constraint).getContext(assignment);
+        for (Criterion<Lecture, Placement> criterion : model.getCriteria())
+            if (criterion instanceof HasAssignmentContext)
+                ((HasAssignmentContext<Lecture, Placement, ?>) criterion).getContext(assignment);
+        iContextsInitialized = assignment;
+    }
+
+    /**
+     * Executor service used by {@link PlacementSelection#evaluateParallel(TimetableModel, Assignment, List, Placement, long)},
+     * created when needed (daemon threads, the pool is registered with the solver and shut down when the solver stops)
+     * @return executor service with Placement.NrThreads threads
+     */
+    protected synchronized ExecutorService getExecutor() {
+        if (iThreadPool == null)
+            iThreadPool = new ThreadPool("PlacementSelection", iNrThreads);
+        return iThreadPool.getExecutor();
+    }
+
+    /**
+     * Check whether the conflicts of the given value (computed into the conflict buffer of the model, see
+     * {@link TimetableModel#conflictValuesBuffer(Assignment, org.cpsolver.ifs.model.Value)}) contain the value itself, a singleton or a committed class.
+     * @param model timetable model
+     * @param assignment current assignment
+     * @param selectedValue a value of the selected variable
+     * @return true if the value cannot be selected
+     */
+    public boolean containsItselfSingletonOrCommited(TimetableModel model, Assignment<Lecture, Placement> assignment, Placement selectedValue) {
+        ConflictSet<Lecture, Placement> conflicts = model.conflictValuesBuffer(assignment, selectedValue);
+        try {
+            return containsItselfSingletonOrCommited(model, conflicts, selectedValue);
+        } finally {
+            model.releaseConflictValuesBuffer(conflicts);
+        }
+    }
+
     public boolean containsItselfSingletonOrCommited(TimetableModel model, Set<Placement> values,
             Placement selectedValue) {
         if (values.contains(selectedValue))
@@ -9,6 +9,7 @@ import java.util.List;
 
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.util.Progress;
+import org.cpsolver.ifs.util.ToolBox;
 
 
 /**
@@ -389,11 +390,11 @@ public class InitialSectioning {
                 double prob = 10.0 / iStudents.size();
                 int cnt = 0;
                 for (Student s1 : iStudents) {
-                    if (Math.random() < prob) {
+                    if (ToolBox.getSecondaryRandom().nextDouble() < prob) {
                         for (Student s2 : iStudents) {
                             if (s1.getId().compareTo(s2.getId()) <= 0)
                                 continue;
-                            if (Math.random() < prob) {
+                            if (ToolBox.getSecondaryRandom().nextDouble() < prob) {
                                 dist += s1.getDistance(s2);
                                 cnt++;
                             }
@@ -387,6 +387,14 @@ public class Lecture extends VariableWithContext<Lecture, Placement, Lecture.Lec
         return ret;
     }
     
+    /**
+     * True if the cached domain is to be kept in the compact form (see {@link PlacementDomain}), i.e., when
+     * parameter General.CompactDomains is set to true (see {@link TimetableModel#isCompactDomains()}).
+     */
+    private boolean isCompactDomain() {
+        return getModel() instanceof TimetableModel && ((TimetableModel) getModel()).isCompactDomains();
+    }
+    
     private boolean isCacheDomain() {
         return isCommitted() || (!sSaveMemory && (iNrRooms <= 1 || getMaxRoomCombinations() <= 0 || ToolBox.binomial(iRoomLocations.size(), iNrRooms) <= getMaxRoomCombinations()));
     }
@@ -398,6 +406,16 @@ public class Lecture extends VariableWithContext<Lecture, Placement, Lecture.Lec
      **/
     public List<Placement> computeValues(Assignment<Lecture, Placement> assignment, boolean allowBreakHard) {
         List<Placement> values = new ArrayList<Placement>(iRoomLocations.size() * iTimeLocations.size());
+        computeValues(assignment, allowBreakHard, values);
+        return values;
+    }
+    
+    /** Domain -- all combinations of room and time locations
+     * @param assignment current assignment
+     * @param allowBreakHard breaking of hard constraints is allowed
+     * @param values collection into which the possible placements are added (e.g., a {@link PlacementDomain} that encodes them as they come)
+     **/
+    protected void computeValues(Assignment<Lecture, Placement> assignment, boolean allowBreakHard, Collection<Placement> values) {
         for (TimeLocation timeLocation : iTimeLocations) {
             if (!allowBreakHard && Constants.sPreferenceProhibited.equals(Constants.preferenceLevel2preference(timeLocation.getPreference())))
                 continue;
@@ -488,7 +506,6 @@ public class Lecture extends VariableWithContext<Lecture, Placement, Lecture.Lec
                 }
             }
         }
-        return values;
     }
     
     public void clearValueCache() {
@@ -505,6 +522,13 @@ public class Lecture extends VariableWithContext<Lecture, Placement, Lecture.Lec
                 setValues(values);
                 return values;
             } else if (isCacheDomain()) {
+                if (isCompactDomain()) {
+                    PlacementDomain domain = new PlacementDomain(this, Math.max(1, iRoomLocations.size()) * iTimeLocations.size());
+                    computeValues(null, sAllowBreakHard, domain);
+                    domain.trim();
+                    setValues(domain);
+                    return domain;
+                }
                 List<Placement> values = computeValues(null, sAllowBreakHard); 
                 setValues(values);
                 return values;
@@ -1347,7 +1371,7 @@ public class Lecture extends VariableWithContext<Lecture, Placement, Lecture.Lec
                     i.remove();
             }
         }
-        setValues(newValues);
+        setValues(isCompactDomain() ? new PlacementDomain(this, newValues) : newValues);
     }
 
     public void setCommitted(boolean committed) {
@@ -67,7 +67,6 @@ public class Placement extends Value<Lecture, Placement> {
         if (iRoomLocation == null) {
             iRoomLocations = new ArrayList<RoomLocation>(0);
         }
-        iHashCode = getName().hashCode();
     }
 
     public Placement(Lecture lecture, TimeLocation timeLocation, java.util.List<RoomLocation> roomLocations) {
@@ -77,7 +76,6 @@ public class Placement extends Value<Lecture, Placement> {
         if (roomLocations.size() != 1) {
             iRoomLocations = new ArrayList<RoomLocation>(roomLocations);
         }
-        iHashCode = getName().hashCode();
     }
 
     /** Time location 
@@ -380,6 +378,9 @@ public class Placement extends Value<Lecture, Placement> {
 
     @Override
     public int hashCode() {
+        // computed lazily, placements of a compact domain are created on every access
+        if (iHashCode == 0)
+            iHashCode = getName().hashCode();
         return iHashCode;
     }
 
@@ -0,0 +1,296 @@
+package org.cpsolver.coursett.model;
+
+import java.lang.ref.SoftReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compact domain of a {@link Lecture}. <br>
+ * <br>
+ * Instead of keeping a {@link Placement} instance for every combination of
+ * time and room(s), only the index of the time location and the index of the
+ * room combination are kept for each value (that is two integers per value).
+ * The domain is filled by {@link Lecture#computeValues(org.cpsolver.ifs.assignment.Assignment, boolean, Collection)},
+ * every computed placement is encoded as it is added (see {@link PlacementDomain#add(Placement)}),
+ * so the full list of placements is never materialized. Only valid combinations are encoded
+ * (times when an instructor is not available and rooms that are not available or prohibited
+ * are skipped). <br>
+ * <br>
+ * A placement is created when it is accessed for the first time and it is kept in a cache that
+ * is only softly reachable, so that the same instance (with the same id and the already computed
+ * penalties, name, and hash code) is returned on the following calls, unless the cache is
+ * released by the garbage collector when the memory is low. Placements equal to the initial or
+ * the best assignment of the lecture are not created again, these instances are returned instead.
+ * Since two placements of the same lecture with the same time and rooms are
+ * equal (see {@link Placement#equals(Object)}), a re-created placement can be
+ * used in place of the released one. Once built (see {@link PlacementDomain#trim()}), the list is immutable.
+ *
+ * @version CourseTT 1.3 (University Course Timetabling)<br>
+ *          Copyright (C) 2006 - 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class PlacementDomain extends AbstractList<Placement> implements RandomAccess {
+    private Lecture iLecture;
+    private TimeLocation[] iTimes;
+    private RoomLocation[] iRooms;
+    private int[][] iRoomCombinations;
+    private int[] iTimeIndexes;
+    private int[] iRoomIndexes;
+    private int iSize = 0;
+    private volatile SoftReference<AtomicReferenceArray<Placement>> iCache = null;
+    private Builder iBuilder = null;
+
+    /**
+     * Constructor of an empty domain, placements are to be added using {@link PlacementDomain#add(Placement)}
+     * and the domain is to be finalized by {@link PlacementDomain#trim()}.
+     *
+     * @param lecture
+     *            lecture to which the placements belong
+     * @param initialCapacity
+     *            expected number of placements
+     */
+    public PlacementDomain(Lecture lecture, int initialCapacity) {
+        iLecture = lecture;
+        iTimeIndexes = new int[Math.max(initialCapacity, 1)];
+        iRoomIndexes = new int[Math.max(initialCapacity, 1)];
+        iBuilder = new Builder();
+    }
+
+    /**
+     * Constructor
+     *
+     * @param lecture
+     *            lecture to which the placements belong
+     * @param placements
+     *            placements to encode (in the order in which they are to be
+     *            returned)
+     */
+    public PlacementDomain(Lecture lecture, Collection<Placement> placements) {
+        this(lecture, placements.size());
+        for (Placement placement : placements)
+            add(placement);
+        trim();
+    }
+
+    /**
+     * Encode the given placement at the end of the domain (only the index of its time location
+     * and the index of its room combination are kept).
+     * @param placement placement of the lecture
+     * @return true
+     * @throws UnsupportedOperationException when the domain has been already finalized by {@link PlacementDomain#trim()}
+     */
+    @Override
+    public boolean add(Placement placement) {
+        if (iBuilder == null)
+            throw new UnsupportedOperationException("Domain of " + iLecture.getName() + " is immutable.");
+        if (iSize == iTimeIndexes.length) {
+            int capacity = 2 * iSize;
+            int[] timeIndexes = new int[capacity];
+            System.arraycopy(iTimeIndexes, 0, timeIndexes, 0, iSize);
+            iTimeIndexes = timeIndexes;
+            int[] roomIndexes = new int[capacity];
+            System.arraycopy(iRoomIndexes, 0, roomIndexes, 0, iSize);
+            iRoomIndexes = roomIndexes;
+        }
+        iTimeIndexes[iSize] = iBuilder.timeIndex(placement.getTimeLocation());
+        iRoomIndexes[iSize] = iBuilder.combinationIndex(placement);
+        iSize++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Finalize the domain: the arrays are trimmed to the number of placements, the structures
+     * that are only needed when adding placements are released, and the domain becomes immutable.
+     */
+    public void trim() {
+        if (iBuilder == null) return;
+        if (iTimeIndexes.length != iSize) {
+            int[] timeIndexes = new int[iSize];
+            System.arraycopy(iTimeIndexes, 0, timeIndexes, 0, iSize);
+            iTimeIndexes = timeIndexes;
+            int[] roomIndexes = new int[iSize];
+            System.arraycopy(iRoomIndexes, 0, roomIndexes, 0, iSize);
+            iRoomIndexes = roomIndexes;
+        }
+        iTimes = iBuilder.iTimes.toArray(new TimeLocation[iBuilder.iTimes.size()]);
+        iRooms = iBuilder.iRooms.toArray(new RoomLocation[iBuilder.iRooms.size()]);
+        iRoomCombinations = iBuilder.iCombinations.toArray(new int[iBuilder.iCombinations.size()][]);
+        iBuilder = null;
+    }
+
+    /** Lecture to which the domain belongs
+     * @return lecture
+     **/
+    public Lecture getLecture() {
+        return iLecture;
+    }
+
+    /** Time location of the i-th value (without creating the placement)
+     * @param index value index
+     * @return time location
+     **/
+    public TimeLocation getTimeLocation(int index) {
+        checkIndex(index);
+        return (iBuilder == null ? iTimes[iTimeIndexes[index]] : iBuilder.iTimes.get(iTimeIndexes[index]));
+    }
+
+    /** Number of rooms of the i-th value (without creating the placement)
+     * @param index value index
+     * @return number of rooms
+     **/
+    public int getNrRooms(int index) {
+        checkIndex(index);
+        return (iBuilder == null ? iRoomCombinations[iRoomIndexes[index]] : iBuilder.iCombinations.get(iRoomIndexes[index])).length;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= iSize)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + iSize);
+    }
+
+    /**
+     * Placement cache, (re)created when needed
+     */
+    private AtomicReferenceArray<Placement> getCache() {
+        SoftReference<AtomicReferenceArray<Placement>> ref = iCache;
+        AtomicReferenceArray<Placement> cache = (ref == null ? null : ref.get());
+        if (cache == null) {
+            synchronized (this) {
+                ref = iCache;
+                cache = (ref == null ? null : ref.get());
+                if (cache == null) {
+                    cache = new AtomicReferenceArray<Placement>(iSize);
+                    iCache = new SoftReference<AtomicReferenceArray<Placement>>(cache);
+                }
+            }
+        }
+        return cache;
+    }
+
+    /** Returns the i-th placement of the domain (created on the first access) */
+    @Override
+    public Placement get(int index) {
+        checkIndex(index);
+        if (iBuilder != null) return createPlacement(index);
+        AtomicReferenceArray<Placement> cache = getCache();
+        Placement placement = cache.get(index);
+        if (placement == null) {
+            placement = createPlacement(index);
+            if (!cache.compareAndSet(index, null, placement))
+                placement = cache.get(index);
+        }
+        return placement;
+    }
+
+    private RoomLocation getRoom(int index) {
+        return (iBuilder == null ? iRooms[index] : iBuilder.iRooms.get(index));
+    }
+
+    /**
+     * Creates the i-th placement of the domain, the initial or the best assignment of the lecture is
+     * returned instead when equal
+     */
+    private Placement createPlacement(int index) {
+        TimeLocation time = getTimeLocation(index);
+        int[] combination = (iBuilder == null ? iRoomCombinations[iRoomIndexes[index]] : iBuilder.iCombinations.get(iRoomIndexes[index]));
+        Placement placement = null;
+        if (combination.length == 0) {
+            placement = new Placement(iLecture, time, (RoomLocation) null);
+        } else if (combination.length == 1) {
+            placement = new Placement(iLecture, time, getRoom(combination[0]));
+        } else {
+            List<RoomLocation> roomList = new ArrayList<RoomLocation>(combination.length);
+            for (int r : combination)
+                roomList.add(getRoom(r));
+            placement = new Placement(iLecture, time, roomList);
+        }
+        placement.setVariable(iLecture);
+        Placement initial = iLecture.getInitialAssignment();
+        if (initial != null && initial.variable() == iLecture && placement.equals(initial))
+            return initial;
+        Placement best = iLecture.getBestAssignment();
+        if (best != null && best.variable() == iLecture && placement.equals(best))
+            return best;
+        return placement;
+    }
+
+    @Override
+    public int size() {
+        return iSize;
+    }
+
+    /**
+     * Structures needed while the domain is being built (indexes of the time locations, rooms, and room combinations)
+     */
+    private static class Builder {
+        private List<TimeLocation> iTimes = new ArrayList<TimeLocation>();
+        private Map<TimeLocation, Integer> iTime2Index = new IdentityHashMap<TimeLocation, Integer>();
+        private List<RoomLocation> iRooms = new ArrayList<RoomLocation>();
+        private Map<RoomLocation, Integer> iRoom2Index = new IdentityHashMap<RoomLocation, Integer>();
+        private List<int[]> iCombinations = new ArrayList<int[]>();
+        private Map<List<Integer>, Integer> iCombination2Index = new HashMap<List<Integer>, Integer>();
+
+        private int timeIndex(TimeLocation time) {
+            Integer index = iTime2Index.get(time);
+            if (index == null) {
+                index = iTimes.size();
+                iTime2Index.put(time, index);
+                iTimes.add(time);
+            }
+            return index;
+        }
+
+        private int roomIndex(RoomLocation room) {
+            Integer index = iRoom2Index.get(room);
+            if (index == null) {
+                index = iRooms.size();
+                iRoom2Index.put(room, index);
+                iRooms.add(room);
+            }
+            return index;
+        }
+
+        private int combinationIndex(Placement placement) {
+            List<Integer> combination = new ArrayList<Integer>(placement.getNrRooms());
+            if (placement.isMultiRoom()) {
+                for (RoomLocation room : placement.getRoomLocations())
+                    combination.add(roomIndex(room));
+            } else if (placement.getRoomLocation() != null) {
+                combination.add(roomIndex(placement.getRoomLocation()));
+            }
+            Integer index = iCombination2Index.get(combination);
+            if (index == null) {
+                index = iCombinations.size();
+                iCombination2Index.put(combination, index);
+                int[] c = new int[combination.size()];
+                for (int i = 0; i < c.length; i++)
+                    c[i] = combination.get(i);
+                iCombinations.add(c);
+            }
+            return index;
+        }
+    }
+}
@@ -45,6 +45,9 @@ public class TimeLocation {
     private int iBreakTime;
 
     private BitSet iWeekCode;
+    private long[] iWeekWords;
+    private int iFirstWeekWord, iLastWeekWord;
+    private long[] iOccupancy;
     private Long iDatePatternId = null;
     private String iDatePatternName = null;
     private int iDatePreference;
@@ -64,7 +67,7 @@ public class TimeLocation {
      * @param datePatternPreference date pattern preference
      * @param datePatternId date pattern unique id
      * @param datePatternName date pattern name
-     * @param weekCode date pattern (binary string with 1 for each day when classes take place)
+     * @param weekCode date pattern (binary string with 1 for each day when classes take place), it is kept by this time location and it must not be modified afterwards
      * @param breakTime break time in minutes
      */
     public TimeLocation(int dayCode, int startTime, int length, int pref, double normPref, int datePatternPreference,
@@ -93,6 +96,68 @@ public class TimeLocation {
             for (int i = 0; i <= 365; i++)
                 iWeekCode.set(i);
         }
+        updateWeekWords();
+        updateOccupancy();
+    }
+    
+    /**
+     * Pack the date pattern into an array of words (bit i of the date pattern is bit i % 64 of the word i / 64),
+     * and remember the first and the last word with a bit set so that {@link TimeLocation#shareWeeks(TimeLocation)}
+     * only needs to AND the words of the overlapping range.
+     */
+    private void updateWeekWords() {
+        int length = iWeekCode.length();
+        iWeekWords = new long[(length + 63) / 64];
+        for (int i = iWeekCode.nextSetBit(0); i >= 0; i = iWeekCode.nextSetBit(i + 1))
+            iWeekWords[i >> 6] |= (1l << (i & 63));
+        iFirstWeekWord = (length == 0 ? 0 : iWeekCode.nextSetBit(0) >> 6);
+        iLastWeekWord = iWeekWords.length - 1;
+    }
+    
+    /** Number of time slots that are represented by one bit of the occupancy signature (half an hour) */
+    public static final int OCCUPANCY_SLOTS_PER_BIT = 6;
+    private static final int sOccupancyBitsPerDay = (Constants.SLOTS_PER_DAY + OCCUPANCY_SLOTS_PER_BIT - 1) / OCCUPANCY_SLOTS_PER_BIT;
+    
+    /**
+     * Compute the occupancy signature: bit day * 48 + slot / 6 is set when the time takes place on the given day of the week
+     * during the given half an hour. Date patterns are ignored, so two times that overlap (see {@link TimeLocation#hasIntersection(TimeLocation)})
+     * always have intersecting signatures, but not the other way around.
+     */
+    private void updateOccupancy() {
+        iOccupancy = new long[(Constants.NR_DAYS * sOccupancyBitsPerDay + 63) / 64];
+        int first = Math.max(0, iStartSlot) / OCCUPANCY_SLOTS_PER_BIT;
+        int last = Math.min(Constants.SLOTS_PER_DAY - 1, Math.max(iStartSlot, iStartSlot + iLength - 1)) / OCCUPANCY_SLOTS_PER_BIT;
+        for (int i = 0; i < Constants.NR_DAYS; i++) {
+            if ((iDayCode & Constants.DAY_CODES[i]) == 0) continue;
+            for (int b = first; b <= last; b++) {
+                int bit = i * sOccupancyBitsPerDay + b;
+                iOccupancy[bit >> 6] |= (1l << (bit & 63));
+            }
+        }
+    }
+    
+    /**
+     * Occupancy signature of this time, a compact day of the week &times; half an hour bit mask (date patterns are ignored).
+     * If the signatures of two times do not intersect (see {@link TimeLocation#isOccupancyOverlapping(long[], long[])}), the times do not overlap.
+     * The returned array must not be modified.
+     * @return occupancy signature
+     */
+    public long[] getOccupancy() {
+        return iOccupancy;
+    }
+    
+    /**
+     * Check whether two occupancy signatures intersect (see {@link TimeLocation#getOccupancy()})
+     * @param o1 first occupancy signature (or a bitwise OR of multiple signatures), may be null
+     * @param o2 second occupancy signature (or a bitwise OR of multiple signatures), may be null
+     * @return true if there is a bit that is set in both signatures
+     */
+    public static boolean isOccupancyOverlapping(long[] o1, long[] o2) {
+        if (o1 == null || o2 == null) return false;
+        int length = Math.min(o1.length, o2.length);
+        for (int i = 0; i < length; i++)
+            if ((o1[i] & o2[i]) != 0) return true;
+        return false;
     }
     
     public TimeLocation(int dayCode, int startTime, int length, int pref, double normPref, Long datePatternId,
@@ -264,7 +329,10 @@ public class TimeLocation {
      * @return true if the date patterns overlap
      */
     public boolean shareWeeks(TimeLocation anotherLocation) {
-        return iWeekCode.intersects(anotherLocation.iWeekCode);
+        int last = Math.min(iLastWeekWord, anotherLocation.iLastWeekWord);
+        for (int i = Math.max(iFirstWeekWord, anotherLocation.iFirstWeekWord); i <= last; i++)
+            if ((iWeekWords[i] & anotherLocation.iWeekWords[i]) != 0) return true;
+        return false;
     }
 
     /** true if weeks overlap
@@ -293,6 +361,21 @@ public class TimeLocation {
     public IntEnumeration getSlots() {
         return new SlotsEnum();
     }
+    
+    private int[] iSlotsCache = null;
+    /** Used slots (same as {@link TimeLocation#getSlots()}, but without the need to create an enumeration and to box the slots)
+     * @return array of used slots
+     **/
+    public int[] getSlotsArray() {
+        if (iSlotsCache == null) {
+            int[] slots = new int[getNrMeetings() * getLength()];
+            int i = 0;
+            for (Enumeration<Integer> e = getSlots(); e.hasMoreElements();)
+                slots[i++] = e.nextElement();
+            iSlotsCache = slots;
+        }
+        return iSlotsCache;
+    }
 
     /** Used start slots (for each meeting) 
      * @return enumeration of start slots for each meeting of the time
@@ -400,6 +483,11 @@ public class TimeLocation {
         iTimePatternId = timePatternId;
     }
 
+    /** Date pattern (binary string with 1 for each day when classes take place), use {@link TimeLocation#setDatePattern(Long, String, BitSet)} to change it.
+     * The returned bit set is the one kept by this time location (it is not copied, as the method is called often), it must not be modified:
+     * the date pattern is also kept packed into words for {@link TimeLocation#shareWeeks(TimeLocation)}, which would not see the change.
+     * @return date pattern
+     **/
     public BitSet getWeekCode() {
         return iWeekCode;
     }
@@ -408,10 +496,17 @@ public class TimeLocation {
         return iDatePatternName;
     }
 
+    /**
+     * Change the date pattern of this time location
+     * @param datePatternId date pattern unique id
+     * @param datePatternName date pattern name
+     * @param weekCode date pattern (binary string with 1 for each day when classes take place), it is kept by this time location and it must not be modified afterwards
+     */
     public void setDatePattern(Long datePatternId, String datePatternName, BitSet weekCode) {
         iDatePatternId = datePatternId;
         iDatePatternName = datePatternName;
         iWeekCode = weekCode;
+        updateWeekWords();
     }
     
     public int getDatePatternPreference() {
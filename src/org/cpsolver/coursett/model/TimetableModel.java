@@ -42,6 +42,8 @@ import org.cpsolver.coursett.criteria.placement.HardConflicts;
 import org.cpsolver.coursett.criteria.placement.PotentialHardConflicts;
 import org.cpsolver.coursett.criteria.placement.WeightedHardConflicts;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.context.AbstractClassWithContext;
+import org.cpsolver.ifs.assignment.context.AssignmentContext;
 import org.cpsolver.ifs.constant.ConstantModel;
 import org.cpsolver.ifs.criteria.Criterion;
 import org.cpsolver.ifs.model.Constraint;
@@ -94,6 +96,7 @@ public class TimetableModel extends ConstantModel<Lecture, Placement> {
     private int iYear = -1;
     private List<BitSet> iWeeks = null;
     private boolean iOnFlySectioning = false;
+    private boolean iCompactDomains = false;
 
     private HashSet<Student> iAllStudents = new HashSet<Student>();
     
@@ -101,12 +104,14 @@ public class TimetableModel extends ConstantModel<Lecture, Placement> {
     
     private StudentSectioning iStudentSectioning = null;
     private List<StudentGroup> iStudentGroups = new ArrayList<StudentGroup>();
+    private AssignmentVersion iAssignmentVersion = new AssignmentVersion();
 
     @SuppressWarnings("unchecked")
     public TimetableModel(DataProperties properties) {
         super();
         iProperties = properties;
         iDistanceMetric = new DistanceMetric(properties);
+        iCompactDomains = properties.getPropertyBoolean("General.CompactDomains", iCompactDomains);
         if (properties.getPropertyBoolean("OnFlySectioning.Enabled", false)) {
             addModelListener(new OnFlySectioning(this)); iOnFlySectioning = true;
         }
@@ -166,7 +171,17 @@ public class TimetableModel extends ConstantModel<Lecture, Placement> {
     public DistanceMetric getDistanceMetric() {
         return iDistanceMetric;
     }
-    
+
+    /**
+     * Keep cached lecture domains in the compact form (see {@link PlacementDomain}), only storing the time and room
+     * combination indexes of each placement and creating the placements on demand. Trades some CPU time for memory,
+     * it can be enabled by setting parameter General.CompactDomains to true.
+     * @return true if compact domains are to be used
+     */
+    public boolean isCompactDomains() {
+        return iCompactDomains;
+    }
+
     /**
      * Returns interface to the student sectioning functions needed during course timetabling.
      * Defaults to an instance of {@link DefaultStudentSectioning}, can be changed using the StudentSectioning.Class parameter.
@@ -179,6 +194,28 @@ public class TimetableModel extends ConstantModel<Lecture, Placement> {
     public DataProperties getProperties() {
         return iProperties;
     }
+    
+    /**
+     * Number of changes (assignments and unassignments, including the constant classes) that have been made to the given assignment.
+     * It can be used to invalidate data that are cached for an assignment, e.g., the forward checking results of the {@link GroupConstraint}.
+     * @param assignment current assignment
+     * @return assignment version, it increases with every change of the assignment
+     */
+    public long getAssignmentVersion(Assignment<Lecture, Placement> assignment) {
+        return iAssignmentVersion.getContext(assignment).iVersion;
+    }
+    
+    @Override
+    public void afterAssigned(Assignment<Lecture, Placement> assignment, long iteration, Placement value) {
+        iAssignmentVersion.getContext(assignment).iVersion ++;
+        super.afterAssigned(assignment, iteration, value);
+    }
+    
+    @Override
+    public void afterUnassigned(Assignment<Lecture, Placement> assignment, long iteration, Placement value) {
+        iAssignmentVersion.getContext(assignment).iVersion ++;
+        super.afterUnassigned(assignment, iteration, value);
+    }
 
     /**
      * Student final sectioning (switching students between sections of the same
@@ -405,14 +442,6 @@ public class TimetableModel extends ConstantModel<Lecture, Placement> {
     public List<FlexibleConstraint> getFlexibleConstraints() {
         return iFlexibleConstraints;
     }
-    
-    @Override
-    public double getTotalValue(Assignment<Lecture, Placement> assignment) {
-        double ret = 0;
-        for (Criterion<Lecture, Placement> criterion: getCriteria())
-            ret += criterion.getWeightedValue(assignment);
-        return ret;
-    }
 
     @Override
     public double getTotalValue(Assignment<Lecture, Placement> assignment, Collection<Lecture> variables) {
@@ -643,4 +672,26 @@ public class TimetableModel extends ConstantModel<Lecture, Placement> {
         }
         super.restoreBest(assignment);
     }
+    
+    /**
+     * Assignment version context: number of changes of an assignment
+     */
+    private static class AssignmentVersionContext implements AssignmentContext {
+        private long iVersion = 0;
+    }
+    
+    /**
+     * Holder of the {@link AssignmentVersionContext} assignment contexts.
+     */
+    private class AssignmentVersion extends AbstractClassWithContext<Lecture, Placement, AssignmentVersionContext> {
+        @Override
+        public AssignmentVersionContext createAssignmentContext(Assignment<Lecture, Placement> assignment) {
+            return new AssignmentVersionContext();
+        }
+
+        @Override
+        public TimetableModel getModel() {
+            return TimetableModel.this;
+        }
+    }
 }
@@ -43,7 +43,10 @@ public abstract class ExamCriterion extends AbstractCriterion<Exam, ExamPlacemen
         super();
     }
     
-    public void setWeight(double weight) { iWeight = weight; }
+    public void setWeight(double weight) {
+        iWeight = weight;
+        if (getModel() != null) getModel().invalidateTotalValue();
+    }
     
     @Override
     public String getWeightName() {
@@ -1,25 +1,35 @@
 package org.cpsolver.exam.heuristics;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.cpsolver.exam.model.Exam;
 import org.cpsolver.exam.model.ExamModel;
 import org.cpsolver.exam.model.ExamPeriodPlacement;
 import org.cpsolver.exam.model.ExamPlacement;
+import org.cpsolver.exam.model.ExamRoom;
 import org.cpsolver.exam.model.ExamRoomPlacement;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.context.AssignmentContext;
+import org.cpsolver.ifs.assignment.context.HasAssignmentContext;
 import org.cpsolver.ifs.assignment.context.NeighbourSelectionWithContext;
+import org.cpsolver.ifs.criteria.Criterion;
 import org.cpsolver.ifs.extension.ConflictStatistics;
 import org.cpsolver.ifs.extension.Extension;
 import org.cpsolver.ifs.heuristics.NeighbourSelection;
 import org.cpsolver.ifs.heuristics.ValueSelection;
+import org.cpsolver.ifs.model.ConflictSet;
+import org.cpsolver.ifs.model.Constraint;
+import org.cpsolver.ifs.model.GlobalConstraint;
 import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Neighbour;
 import org.cpsolver.ifs.model.SimpleNeighbour;
@@ -27,6 +37,7 @@ import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.solver.Solver;
 import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.ifs.util.ThreadPool;
 import org.cpsolver.ifs.util.ToolBox;
 
 /**
@@ -59,7 +70,17 @@ import org.cpsolver.ifs.util.ToolBox;
  * <br>
  * Conflict-based Statistics {@link ConflictStatistics} (CBS) can be used
  * instead of (or together with) tabu list, when CBS is used as a solver
- * extension.
+ * extension. <br>
+ * <br>
+ * When TabuSearch.NrThreads is greater than one, the candidate (re)assignments
+ * of the neighbour selection are evaluated in parallel (each thread evaluates
+ * a continuous part of the exams, the current assignment is only read during the
+ * evaluation). The candidates are merged in the order of the exams, and the
+ * (re)assignments of each exam draw their random numbers (e.g., when the rooms are
+ * selected randomly) from their own stream, so the selected move does not depend
+ * on the number of threads. With TabuSearch.ExamRandomStreams set, the exams
+ * evaluated sequentially use their own streams as well, giving the same moves
+ * as a parallel run.
  * 
  * @version ExamTT 1.3 (Examination Timetabling)<br>
  *          Copyright (C) 2008 - 2014 Tomas Muller<br>
@@ -93,6 +114,11 @@ public class ExamTabuSearch extends NeighbourSelectionWithContext<Exam, ExamPlac
     private double iConflictWeight = 1000000;
     private double iValueWeight = 1;
 
+    private int iNrThreads = 1;
+    private boolean iExamRandomStreams = false;
+    private ThreadPool iThreadPool = null;
+    private volatile Assignment<Exam, ExamPlacement> iContextsInitialized = null;
+
     /**
      * <ul>
      * <li>TabuSearch.MaxIdle ... maximum number of idle iterations (default is
@@ -104,6 +130,11 @@ public class ExamTabuSearch extends NeighbourSelectionWithContext<Exam, ExamPlac
      * <li>Value.ConflictWeight ... weight of a conflicting value (see
      * {@link Model#conflictValues(Assignment, Value)}), it is also weighted by the past
      * occurrences when conflict-based statistics is used
+     * <li>TabuSearch.NrThreads ... number of threads used to evaluate the
+     * candidate assignments of the neighbour selection (default is 1)
+     * <li>TabuSearch.ExamRandomStreams ... the assignments of each exam are evaluated
+     * with their own random stream, also when evaluated sequentially (default is true
+     * when TabuSearch.NrThreads is greater than one)
      * </ul>
      * @param properties solver configuration
      * @throws Exception thrown when the initialization fails
@@ -114,6 +145,8 @@ public class ExamTabuSearch extends NeighbourSelectionWithContext<Exam, ExamPlac
         iMaxIdleIterations = properties.getPropertyLong("TabuSearch.MaxIdle", iMaxIdleIterations);
         iConflictWeight = properties.getPropertyDouble("Value.ConflictWeight", iConflictWeight);
         iValueWeight = properties.getPropertyDouble("Value.ValueWeight", iValueWeight);
+        iNrThreads = properties.getPropertyInt("TabuSearch.NrThreads", iNrThreads);
+        iExamRandomStreams = properties.getPropertyBoolean("TabuSearch.ExamRandomStreams", iNrThreads > 1);
     }
 
     /** Initialization */
@@ -124,6 +157,10 @@ public class ExamTabuSearch extends NeighbourSelectionWithContext<Exam, ExamPlac
             if (ConflictStatistics.class.isInstance(extension))
                 iStat = (ConflictStatistics<Exam, ExamPlacement>) extension;
         }
+        if (iThreadPool != null)
+            iThreadPool.shutdown();
+        iThreadPool = new ThreadPool("ExamTabuSearch", iNrThreads);
+        solver.registerThreadPool(iThreadPool);
     }
 
     /**
@@ -153,53 +190,25 @@ public class ExamTabuSearch extends NeighbourSelectionWithContext<Exam, ExamPlac
         boolean acceptConflicts = solution.getModel().getBestUnassignedVariables() > 0;
         ExamModel model = (ExamModel) solution.getModel();
         Assignment<Exam, ExamPlacement> assignment = solution.getAssignment();
-        double bestEval = 0.0;
-        List<ExamPlacement> best = null;
-        for (Exam exam : model.variables()) {
-            ExamPlacement assigned = assignment.getValue(exam);
-            double assignedVal = (assigned == null ? iConflictWeight : iValueWeight * assigned.toDouble(assignment));
-            for (ExamPeriodPlacement period : exam.getPeriodPlacements()) {
-                Set<ExamRoomPlacement> rooms = exam.findBestAvailableRooms(assignment, period);
-                if (rooms == null)
-                    rooms = exam.findRoomsRandom(assignment, period, false);
-                if (rooms == null)
-                    continue;
-                ExamPlacement value = new ExamPlacement(exam, period, rooms);
-                if (value.equals(assigned))
-                    continue;
-                double eval = iValueWeight * value.toDouble(assignment) - assignedVal;
-                if (acceptConflicts) {
-                    Set<ExamPlacement> conflicts = model.conflictValues(assignment, value);
-                    for (ExamPlacement conflict : conflicts) {
-                        eval -= iValueWeight * conflict.toDouble(assignment);
-                        eval += iConflictWeight
-                                * (1.0 + (iStat == null ? 0.0 : iStat.countRemovals(solution.getIteration(), conflict,
-                                        value)));
-                    }
-                } else {
-                    if (model.inConflict(assignment, value))
-                        continue;
-                }
-                if (tabu.size() > 0 && tabu.contains(exam.getId() + ":" + value.getPeriod().getIndex())) {
-                    int un = model.variables().size() - assignment.nrAssignedVariables() - (assigned == null ? 0 : 1);
-                    if (un > model.getBestUnassignedVariables())
-                        continue;
-                    if (un == model.getBestUnassignedVariables()
-                            && model.getTotalValue(assignment) + eval >= solution.getBestValue())
-                        continue;
-                }
-                if (best == null || bestEval > eval) {
-                    if (best == null)
-                        best = new ArrayList<ExamPlacement>();
-                    else
-                        best.clear();
-                    best.add(value);
-                    bestEval = eval;
-                } else if (bestEval == eval) {
-                    best.add(value);
-                }
+        Candidates candidates = null;
+        boolean parallel = (iNrThreads > 1 && model.variables().size() >= iNrThreads);
+        // the seed of the per-exam random streams is taken from the secondary stream, so that the main stream is not changed
+        long seed = (parallel || iExamRandomStreams ? ToolBox.getSecondaryRandom().nextLong() : 0l);
+        if (parallel) {
+            candidates = evaluateParallel(solution, tabu, acceptConflicts, seed);
+        } else {
+            candidates = new Candidates();
+            double totalValue = (tabu.size() > 0 ? model.getTotalValue(assignment) : 0.0);
+            List<Exam> exams = model.variables();
+            for (int i = 0; i < exams.size(); i++) {
+                if (iExamRandomStreams)
+                    evaluate(solution, exams.get(i), tabu, acceptConflicts, totalValue, candidates, seed, i);
+                else
+                    evaluate(solution, exams.get(i), tabu, acceptConflicts, totalValue, candidates);
             }
         }
+        double bestEval = candidates.iEval;
+        List<ExamPlacement> best = candidates.iBest;
 
         if (best == null) {
             sLog.debug("  [tabu] --none--");
@@ -219,11 +228,200 @@ public class ExamTabuSearch extends NeighbourSelectionWithContext<Exam, ExamPlac
         }
 
         if (tabu.size() > 0)
-            tabu.add(bestVal.variable().getId() + ":" + bestVal.getPeriod().getIndex());
+            tabu.add(bestVal.variable().getIndex(), bestVal.getPeriod().getIndex());
 
         return new SimpleNeighbour<Exam, ExamPlacement>(bestVal.variable(), bestVal);
     }
 
+    /**
+     * Evaluate all (re)assignments of the given exam, the best ones are added
+     * into the given candidates. The current assignment is not changed.
+     * 
+     * @param solution current solution
+     * @param exam an exam
+     * @param tabu tabu list
+     * @param acceptConflicts true if conflicting assignments are allowed
+     * @param totalValue current total value of the solution (only needed when the tabu list is used)
+     * @param candidates best candidates found so far
+     */
+    protected void evaluate(Solution<Exam, ExamPlacement> solution, Exam exam, TabuList tabu, boolean acceptConflicts, double totalValue, Candidates candidates) {
+        ExamModel model = (ExamModel) solution.getModel();
+        Assignment<Exam, ExamPlacement> assignment = solution.getAssignment();
+        ExamPlacement assigned = assignment.getValue(exam);
+        double assignedVal = (assigned == null ? iConflictWeight : iValueWeight * assigned.toDouble(assignment));
+        for (ExamPeriodPlacement period : exam.getPeriodPlacements()) {
+            Set<ExamRoomPlacement> rooms = exam.findBestAvailableRooms(assignment, period);
+            if (rooms == null)
+                rooms = exam.findRoomsRandom(assignment, period, false);
+            if (rooms == null)
+                continue;
+            ExamPlacement value = new ExamPlacement(exam, period, rooms);
+            if (value.equals(assigned))
+                continue;
+            double eval = iValueWeight * value.toDouble(assignment) - assignedVal;
+            if (acceptConflicts) {
+                ConflictSet<Exam, ExamPlacement> conflicts = model.conflictValuesBuffer(assignment, value);
+                for (ExamPlacement conflict : conflicts) {
+                    eval -= iValueWeight * conflict.toDouble(assignment);
+                    eval += iConflictWeight
+                            * (1.0 + (iStat == null ? 0.0 : iStat.countRemovals(solution.getIteration(), conflict,
+                                    value)));
+                }
+                model.releaseConflictValuesBuffer(conflicts);
+            } else {
+                if (model.inConflict(assignment, value))
+                    continue;
+            }
+            if (tabu.size() > 0 && tabu.contains(exam.getIndex(), value.getPeriod().getIndex())) {
+                int un = model.variables().size() - assignment.nrAssignedVariables() - (assigned == null ? 0 : 1);
+                if (un > model.getBestUnassignedVariables())
+                    continue;
+                if (un == model.getBestUnassignedVariables()
+                        && totalValue + eval >= solution.getBestValue())
+                    continue;
+            }
+            candidates.add(value, eval);
+        }
+    }
+
+    /**
+     * Evaluate all (re)assignments of the given exam using its own random stream, seeded by the given seed and the index
+     * of the exam (see {@link ToolBox#initThreadRandom(long, int)}), see {@link ExamTabuSearch#evaluate(Solution, Exam, TabuList, boolean, double, Candidates)}.
+     * 
+     * @param solution current solution
+     * @param exam an exam
+     * @param tabu tabu list
+     * @param acceptConflicts true if conflicting assignments are allowed
+     * @param totalValue current total value of the solution (only needed when the tabu list is used)
+     * @param candidates best candidates found so far
+     * @param seed seed of the random streams of the exams
+     * @param index index of the exam
+     */
+    protected void evaluate(Solution<Exam, ExamPlacement> solution, Exam exam, TabuList tabu, boolean acceptConflicts, double totalValue, Candidates candidates, long seed, int index) {
+        ToolBox.initThreadRandom(seed, index);
+        try {
+            evaluate(solution, exam, tabu, acceptConflicts, totalValue, candidates);
+        } finally {
+            ToolBox.releaseThreadRandom();
+        }
+    }
+
+    /**
+     * Evaluate all (re)assignments of all the exams in parallel, using
+     * TabuSearch.NrThreads threads. Each task evaluates a continuous part of the exams,
+     * the candidates of the tasks are merged in the order of the exams (so that the list of
+     * the best candidates is the same as when the exams are evaluated one by one).
+     * 
+     * @param solution current solution
+     * @param tabu tabu list
+     * @param acceptConflicts true if conflicting assignments are allowed
+     * @param seed seed of the random streams of the exams (drawn from the secondary stream of the calling thread, see {@link ToolBox#getSecondaryRandom()})
+     * @return the best candidates
+     */
+    protected Candidates evaluateParallel(final Solution<Exam, ExamPlacement> solution, final TabuList tabu, final boolean acceptConflicts, final long seed) {
+        initContexts((ExamModel) solution.getModel(), solution.getAssignment());
+        final List<Exam> exams = solution.getModel().variables();
+        final double totalValue = (tabu.size() > 0 ? solution.getModel().getTotalValue(solution.getAssignment()) : 0.0);
+        List<Future<Candidates>> tasks = new ArrayList<Future<Candidates>>(iNrThreads);
+        for (int t = 0; t < iNrThreads; t++) {
+            final int first = (int) ((long) t * exams.size() / iNrThreads);
+            final int last = (int) ((long) (t + 1) * exams.size() / iNrThreads);
+            tasks.add(getExecutor().submit(new Callable<Candidates>() {
+                @Override
+                public Candidates call() {
+                    Candidates candidates = new Candidates();
+                    for (int i = first; i < last; i++)
+                        evaluate(solution, exams.get(i), tabu, acceptConflicts, totalValue, candidates, seed, i);
+                    return candidates;
+                }
+            }));
+        }
+        Candidates candidates = new Candidates();
+        for (Future<Candidates> task : tasks) {
+            try {
+                candidates.addAll(task.get());
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Evaluation of exams interrupted: " + e.getMessage(), e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Evaluation of exams failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Make sure that the assignment contexts of the model, the constraints (including the rooms), and the criteria exist before
+     * the assignment is read by multiple threads at once (contexts are created lazily otherwise).
+     * @param model examination timetabling model
+     * @param assignment current assignment
+     */
+    @SuppressWarnings("unchecked")
+    protected void initContexts(ExamModel model, Assignment<Exam, ExamPlacement> assignment) {
+        if (iContextsInitialized == assignment) return;
+        model.getContext(assignment);
+        for (Constraint<Exam, ExamPlacement> constraint : model.constraints())
+            if (constraint instanceof HasAssignmentContext)
+                ((HasAssignmentContext<Exam, ExamPlacement, ?>) constraint).getContext(assignment);
+        for (GlobalConstraint<Exam, ExamPlacement> constraint : model.globalConstraints())
+            if (constraint instanceof HasAssignmentContext)
+                ((HasAssignmentContext<Exam, ExamPlacement, ?>) constraint).getContext(assignment);
+        for (ExamRoom room : model.getRooms())
+            room.getContext(assignment);
+        for (Criterion<Exam, ExamPlacement> criterion : model.getCriteria())
+            if (criterion instanceof HasAssignmentContext)
+                ((HasAssignmentContext<Exam, ExamPlacement, ?>) criterion).getContext(assignment);
+        iContextsInitialized = assignment;
+    }
+
+    /**
+     * Executor service used by {@link ExamTabuSearch#evaluateParallel(Solution, TabuList, boolean)}, created
+     * when needed (daemon threads, the pool is registered with the solver and shut down when the solver stops)
+     * @return executor service with TabuSearch.NrThreads threads
+     */
+    protected synchronized ExecutorService getExecutor() {
+        if (iThreadPool == null)
+            iThreadPool = new ThreadPool("ExamTabuSearch", iNrThreads);
+        return iThreadPool.getExecutor();
+    }
+
+    /** Best candidates (placements of the same, lowest evaluation) */
+    protected static class Candidates {
+        private double iEval = 0.0;
+        private List<ExamPlacement> iBest = null;
+
+        /**
+         * Consider a candidate placement
+         * @param value a placement
+         * @param eval its evaluation (lower is better)
+         */
+        public void add(ExamPlacement value, double eval) {
+            if (iBest == null || iEval > eval) {
+                if (iBest == null)
+                    iBest = new ArrayList<ExamPlacement>();
+                else
+                    iBest.clear();
+                iBest.add(value);
+                iEval = eval;
+            } else if (iEval == eval) {
+                iBest.add(value);
+            }
+        }
+
+        /**
+         * Merge with candidates found by some other task
+         * @param other other candidates
+         */
+        public void addAll(Candidates other) {
+            if (other.iBest == null) return;
+            if (iBest == null || iEval > other.iEval) {
+                iBest = new ArrayList<ExamPlacement>(other.iBest);
+                iEval = other.iEval;
+            } else if (iEval == other.iEval) {
+                iBest.addAll(other.iBest);
+            }
+        }
+    }
+
     /**
      * Value selection
      */
@@ -268,14 +466,15 @@ public class ExamTabuSearch extends NeighbourSelectionWithContext<Exam, ExamPlac
             ExamPlacement value = new ExamPlacement(exam, period, rooms);
             if (value.equals(assigned))
                 continue;
-            Set<ExamPlacement> conflicts = model.conflictValues(assignment, value);
+            ConflictSet<Exam, ExamPlacement> conflicts = model.conflictValuesBuffer(assignment, value);
             double eval = iValueWeight * value.toDouble(assignment) - assignedVal;
             for (ExamPlacement conflict : conflicts) {
                 eval -= iValueWeight * conflict.toDouble(assignment);
                 eval += iConflictWeight
                         * (1.0 + (iStat == null ? 0.0 : iStat.countRemovals(solution.getIteration(), conflict, value)));
             }
-            if (tabu.size() > 0 && tabu.contains(exam.getId() + ":" + value.getPeriod().getIndex())) {
+            model.releaseConflictValuesBuffer(conflicts);
+            if (tabu.size() > 0 && tabu.contains(exam.getIndex(), value.getPeriod().getIndex())) {
                 int un = model.variables().size() - assignment.nrAssignedVariables() - (assigned == null ? 0 : 1);
                 if (un > model.getBestUnassignedVariables())
                     continue;
@@ -307,14 +506,26 @@ public class ExamTabuSearch extends NeighbourSelectionWithContext<Exam, ExamPlac
         }
 
         if (tabu.size() > 0)
-            tabu.add(exam.getId() + ":" + bestVal.getPeriod().getIndex());
+            tabu.add(exam.getIndex(), bestVal.getPeriod().getIndex());
 
         return bestVal;
     }
 
-    /** Tabu-list */
+    /**
+     * Tabu-list. Items are pairs (exam index, period index), they are kept in a
+     * ring (in the order in which they were added) and the iteration in which an
+     * item was added last is indexed by the exam and the period indexes. When
+     * an item that is already in the list is added again, its old ring entry
+     * becomes stale and it is skipped when the oldest item is removed.
+     */
     public static class TabuList implements AssignmentContext {
-        private HashSet<TabuItem> iList = new HashSet<TabuItem>();
+        private long[][] iAdded = new long[0][];
+        private int[] iRingExam = new int[16];
+        private int[] iRingPeriod = new int[16];
+        private long[] iRingAdded = new long[16];
+        private int iHead = 0, iRingSize = 0;
+        private int iNrItems = 0;
+        private LinkedHashMap<Object, Long> iObjects = new LinkedHashMap<Object, Long>();
         private int iSize;
         private long iIteration = 0;
 
@@ -322,96 +533,170 @@ public class ExamTabuSearch extends NeighbourSelectionWithContext<Exam, ExamPlac
             iSize = size;
         }
 
+        /** Iteration in which the given item was added last, 0 if it is not in the list */
+        private long added(int exam, int period) {
+            if (exam < 0 || exam >= iAdded.length || iAdded[exam] == null || period < 0 || period >= iAdded[exam].length)
+                return 0;
+            return iAdded[exam][period];
+        }
+
+        private void setAdded(int exam, int period, long iteration) {
+            if (exam >= iAdded.length)
+                iAdded = Arrays.copyOf(iAdded, Math.max(exam + 1, 2 * iAdded.length));
+            if (iAdded[exam] == null)
+                iAdded[exam] = new long[period + 1];
+            else if (period >= iAdded[exam].length)
+                iAdded[exam] = Arrays.copyOf(iAdded[exam], period + 1);
+            iAdded[exam][period] = iteration;
+        }
+
+        private boolean isStale(int pos) {
+            return added(iRingExam[pos], iRingPeriod[pos]) != iRingAdded[pos];
+        }
+
+        /** Append an entry at the end of the ring, stale entries are dropped when the ring is full */
+        private void push(int exam, int period, long iteration) {
+            if (iRingSize == iRingExam.length) {
+                int[] ringExam = new int[iRingSize], ringPeriod = new int[iRingSize];
+                long[] ringAdded = new long[iRingSize];
+                int size = 0;
+                for (int i = 0; i < iRingSize; i++) {
+                    int pos = (iHead + i) % iRingExam.length;
+                    if (isStale(pos)) continue;
+                    ringExam[size] = iRingExam[pos]; ringPeriod[size] = iRingPeriod[pos]; ringAdded[size] = iRingAdded[pos];
+                    size++;
+                }
+                if (2 * size > ringExam.length) {
+                    ringExam = Arrays.copyOf(ringExam, 2 * ringExam.length);
+                    ringPeriod = Arrays.copyOf(ringPeriod, 2 * ringPeriod.length);
+                    ringAdded = Arrays.copyOf(ringAdded, 2 * ringAdded.length);
+                }
+                iRingExam = ringExam; iRingPeriod = ringPeriod; iRingAdded = ringAdded;
+                iHead = 0; iRingSize = size;
+            }
+            int pos = (iHead + iRingSize) % iRingExam.length;
+            iRingExam[pos] = exam; iRingPeriod[pos] = period; iRingAdded[pos] = iteration;
+            iRingSize++;
+        }
+
+        /**
+         * Add an item into the tabu list, the oldest item is removed when the list is full
+         * @param exam exam index
+         * @param period period index
+         */
+        public void add(int exam, int period) {
+            if (iSize == 0)
+                return;
+            if (added(exam, period) == 0) {
+                if (iNrItems + iObjects.size() >= iSize)
+                    removeOldest();
+                iNrItems++;
+            }
+            long iteration = ++iIteration;
+            setAdded(exam, period, iteration);
+            push(exam, period, iteration);
+        }
+
+        /**
+         * Add an item into the tabu list
+         * @param object an item
+         * @return the removed oldest item if the list was full, the given item if the list is of zero size, null otherwise
+         * @deprecated use {@link TabuList#add(int, int)} instead
+         */
+        @Deprecated
         public Object add(Object object) {
             if (iSize == 0)
                 return object;
-            if (contains(object)) {
-                iList.remove(new TabuItem(object, 0));
-                iList.add(new TabuItem(object, iIteration++));
+            if (iObjects.remove(object) != null) {
+                iObjects.put(object, ++iIteration);
                 return null;
-            } else {
-                Object oldest = null;
-                if (iList.size() >= iSize)
-                    oldest = removeOldest();
-                iList.add(new TabuItem(object, iIteration++));
-                return oldest;
             }
+            Object oldest = null;
+            if (iNrItems + iObjects.size() >= iSize)
+                oldest = removeOldest();
+            iObjects.put(object, ++iIteration);
+            return oldest;
         }
 
         public void resize(int newSize) {
             iSize = newSize;
-            while (iList.size() > newSize)
+            while (iNrItems + iObjects.size() > newSize)
                 removeOldest();
         }
 
+        /**
+         * Is the given item in the tabu list
+         * @param exam exam index
+         * @param period period index
+         * @return true if present
+         */
+        public boolean contains(int exam, int period) {
+            return added(exam, period) > 0;
+        }
+
+        /**
+         * Is the given item in the tabu list
+         * @param object an item
+         * @return true if present
+         * @deprecated use {@link TabuList#contains(int, int)} instead
+         */
+        @Deprecated
         public boolean contains(Object object) {
-            return iList.contains(new TabuItem(object, 0));
+            return iObjects.containsKey(object);
         }
 
         public void clear() {
-            iList.clear();
+            for (int i = 0; i < iRingSize; i++) {
+                int pos = (iHead + i) % iRingExam.length;
+                if (!isStale(pos))
+                    setAdded(iRingExam[pos], iRingPeriod[pos], 0);
+            }
+            iHead = 0; iRingSize = 0; iNrItems = 0;
+            iObjects.clear();
         }
 
         public int size() {
             return iSize;
         }
 
+        /**
+         * Remove the oldest item from the tabu list
+         * @return the removed item (exam and period indexes are returned as exam:period), null if the list is empty
+         */
         public Object removeOldest() {
-            TabuItem oldest = null;
-            for (TabuItem element : iList) {
-                if (oldest == null || oldest.getIteration() > element.getIteration())
-                    oldest = element;
+            while (iRingSize > 0 && isStale(iHead)) {
+                iHead = (iHead + 1) % iRingExam.length;
+                iRingSize--;
             }
-            if (oldest == null)
+            Map.Entry<Object, Long> first = (iObjects.isEmpty() ? null : iObjects.entrySet().iterator().next());
+            if (first != null && (iRingSize == 0 || first.getValue() < iRingAdded[iHead])) {
+                iObjects.remove(first.getKey());
+                return first.getKey();
+            }
+            if (iRingSize == 0)
                 return null;
-            iList.remove(oldest);
-            return oldest.getObject();
-        }
-
-        @Override
-        public String toString() {
-            return new TreeSet<TabuItem>(iList).toString();
-        }
-    }
-
-    /** Tabu item (an item in {@link TabuList}) */
-    private static class TabuItem implements Comparable<TabuItem> {
-        private Object iObject;
-        private long iIteration;
-
-        public TabuItem(Object object, long iteration) {
-            iObject = object;
-            iIteration = iteration;
-        }
-
-        public Object getObject() {
-            return iObject;
-        }
-
-        public long getIteration() {
-            return iIteration;
-        }
-
-        @Override
-        public boolean equals(Object object) {
-            if (object == null || !(object instanceof TabuItem))
-                return false;
-            return getObject().equals(((TabuItem) object).getObject());
-        }
-
-        @Override
-        public int hashCode() {
-            return getObject().hashCode();
-        }
-
-        @Override
-        public int compareTo(TabuItem o) {
-            return Double.compare(getIteration(), o.getIteration());
+            int pos = iHead;
+            iHead = (iHead + 1) % iRingExam.length;
+            iRingSize--;
+            setAdded(iRingExam[pos], iRingPeriod[pos], 0);
+            iNrItems--;
+            return iRingExam[pos] + ":" + iRingPeriod[pos];
         }
 
         @Override
         public String toString() {
-            return getObject().toString();
+            StringBuffer sb = new StringBuffer("[");
+            for (int i = 0; i < iRingSize; i++) {
+                int pos = (iHead + i) % iRingExam.length;
+                if (isStale(pos)) continue;
+                if (sb.length() > 1) sb.append(", ");
+                sb.append(iRingExam[pos] + ":" + iRingPeriod[pos]);
+            }
+            for (Object object: iObjects.keySet()) {
+                if (sb.length() > 1) sb.append(", ");
+                sb.append(object);
+            }
+            return sb.append("]").toString();
         }
     }
 
@@ -349,18 +349,6 @@ public class ExamModel extends ModelWithContext<Exam, ExamPlacement, ExamContext
         return ((StudentDistanceBackToBackConflicts)getCriterion(StudentDistanceBackToBackConflicts.class)).getBackToBackDistance();
     }
 
-    /**
-     * Objective function.
-     * @return weighted sum of objective criteria
-     */
-    @Override
-    public double getTotalValue(Assignment<Exam, ExamPlacement> assignment) {
-        double total = 0;
-        for (Criterion<Exam, ExamPlacement> criterion: getCriteria())
-            total += criterion.getWeightedValue(assignment);
-        return total;
-    }
-
     /**
      * Return weighted individual objective criteria.
      * @param assignment current assignment
@@ -1,10 +1,8 @@
 package org.cpsolver.exam.model;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.cpsolver.ifs.assignment.Assignment;
@@ -79,7 +77,6 @@ public class ExamRoom extends ConstraintWithContext<Exam, ExamPlacement, ExamRoo
         }
     }
     
-    private Map<Long, Double> iDistanceCache = new HashMap<Long, Double>();
     /**
      * Distance between two rooms. See {@link DistanceMetric}
      * 
@@ -88,14 +85,8 @@ public class ExamRoom extends ConstraintWithContext<Exam, ExamPlacement, ExamRoo
      * @return distance between this and the given room
      */
     public double getDistanceInMeters(ExamRoom other) {
-        synchronized (iDistanceCache) {
-            Double distance = iDistanceCache.get(other.getId());
-            if (distance == null) {
-                distance = ((ExamModel)getModel()).getDistanceMetric().getDistanceInMeters(getId(), getCoordX(), getCoordY(), other.getId(), other.getCoordX(), other.getCoordY());
-                iDistanceCache.put(other.getId(), distance);
-            }
-            return distance;
-        }
+        // room to room distances are cached by the distance metric
+        return ((ExamModel)getModel()).getDistanceMetric().getDistanceInMeters(getId(), getCoordX(), getCoordY(), other.getId(), other.getCoordX(), other.getCoordY());
     }
 
     /**
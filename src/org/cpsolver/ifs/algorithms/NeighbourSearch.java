@@ -34,6 +34,14 @@ import org.cpsolver.ifs.util.ToolBox;
 /**
  * Base class for the search techniques like hill climber, great deluge, or simulated annealing.
  * It implements the {@link SolutionListener} and the variable neighbourhood selection.
+ * <br>
+ * By default, a neighbourhood is selected by roulette wheel selection using its bonus (or its points when Xxx.Update
+ * is set to true, see {@link NeighbourSelector#getPoints()}). When Xxx.Adaptive is set to true, the selection takes
+ * into account how much each neighbourhood improves the solution per millisecond of its (JProf) time. The share of
+ * the search time a neighbourhood gets is proportional to its bonus multiplied by Xxx.AdaptiveExploration (defaults
+ * to 0.05) plus its recent improvement per millisecond relative to the best neighbourhood, so neighbourhoods that
+ * are expensive (e.g., {@link SuggestionMove}) get called less often when cheaper ones improve the solution faster.
+ * The statistics are decayed by Xxx.AdaptiveDecay (defaults to 0.999) on each call of the neighbourhood.
  * 
  * <br>
  * 
@@ -68,6 +76,9 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
     private List<NeighbourSelector<V, T>> iNeighbours = null;
     private boolean iRandomSelection = false;
     private boolean iUpdatePoints = false;
+    private boolean iAdaptive = false;
+    private double iAdaptiveDecay = 0.999;
+    private double iAdaptiveExploration = 0.05;
     private double iTotalBonus;
     private Solver<V, T> iSolver = null;
 
@@ -77,6 +88,9 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
         iLog = Logger.getLogger(getClass());
         iRandomSelection = properties.getPropertyBoolean(getParameterBaseName() + ".Random", iRandomSelection);
         iUpdatePoints = properties.getPropertyBoolean(getParameterBaseName() + ".Update", iUpdatePoints);
+        iAdaptive = properties.getPropertyBoolean(getParameterBaseName() + ".Adaptive", iAdaptive);
+        iAdaptiveDecay = properties.getPropertyDouble(getParameterBaseName() + ".AdaptiveDecay", iAdaptiveDecay);
+        iAdaptiveExploration = properties.getPropertyDouble(getParameterBaseName() + ".AdaptiveExploration", iAdaptiveExploration);
         String neighbours = properties.getProperty(getParameterBaseName() + ".Neighbours",
                 RandomMove.class.getName() + ";" + RandomSwapMove.class.getName() + "@0.01;" + SuggestionMove.class.getName() + "@0.01");
         neighbours += ";" + properties.getProperty(getParameterBaseName() + ".AdditionalNeighbours", "");
@@ -129,7 +143,44 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
      * @param bonus execution bonus (more bonus means more executions of this neighbour selection, see {@link NeighbourSelector})
      */
     protected void addNeighbourSelection(NeighbourSelection<V,T> ns, double bonus) {
-        iNeighbours.add(new NeighbourSelector<V,T>(ns, bonus, iUpdatePoints));
+        iNeighbours.add(new NeighbourSelector<V,T>(ns, bonus, iUpdatePoints || iAdaptive, iAdaptiveDecay));
+    }
+    
+    /**
+     * Adaptive weight of a neighbour selection: its share of the search time (bonus multiplied by the exploration
+     * factor plus the relative improvement per millisecond) divided by the average time of one call.
+     * @param ns neighbour selector
+     * @param bestRate the best improvement per millisecond of all the neighbour selections
+     * @return weight of the neighbour selection in the roulette wheel selection
+     */
+    protected double getAdaptiveWeight(NeighbourSelector<V,T> ns, double bestRate) {
+        double share = ns.getBonus() * (iAdaptiveExploration + (bestRate > 0.0 ? ns.improvementPerMilli() / bestRate : 0.0));
+        return share / Math.max(0.001, ns.averageTimeMillis());
+    }
+    
+    /**
+     * Time-aware adaptive selection (Xxx.Adaptive is true). Each neighbour selection is called once first,
+     * then a roulette wheel selection using {@link NeighbourSearch#getAdaptiveWeight(NeighbourSelector, double)} is used.
+     * @return next neighbour selection to use
+     */
+    protected NeighbourSelector<V,T> nextAdaptiveNeighbourSelection() {
+        double bestRate = 0.0;
+        for (NeighbourSelector<V,T> ns: iNeighbours) {
+            if (ns.nrCalls() == 0) return ns;
+            bestRate = Math.max(bestRate, ns.improvementPerMilli());
+        }
+        double[] weights = new double[iNeighbours.size()];
+        double total = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = getAdaptiveWeight(iNeighbours.get(i), bestRate);
+            total += weights[i];
+        }
+        double points = ToolBox.random() * total;
+        for (int i = 0; i < weights.length; i++) {
+            points -= weights[i];
+            if (points <= 0) return iNeighbours.get(i);
+        }
+        return iNeighbours.get(weights.length - 1);
     }
     
     private double totalPoints() {
@@ -183,6 +234,8 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
         NeighbourSelector<V,T> ns = null;
         if (iRandomSelection) {
             ns = ToolBox.random(iNeighbours);
+        } else if (iAdaptive) {
+            ns = nextAdaptiveNeighbourSelection();
         } else {
             double points = (ToolBox.random() * totalPoints());
             for (Iterator<NeighbourSelector<V,T>> i = iNeighbours.iterator(); i.hasNext(); ) {
@@ -198,7 +251,16 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
      * Log some information about neigbour selections once in a while
      */
     protected void logNeibourStatus() {
-        if (iUpdatePoints)
+        if (iAdaptive) {
+            double bestRate = 0.0;
+            for (NeighbourSelector<V,T> ns: iNeighbours)
+                bestRate = Math.max(bestRate, ns.improvementPerMilli());
+            double total = 0.0;
+            for (NeighbourSelector<V,T> ns: iNeighbours)
+                total += getAdaptiveWeight(ns, bestRate);
+            for (NeighbourSelector<V,T> ns: iNeighbours)
+                iLog.info("  "+ns+" ("+iDF2.format(ns.improvementPerMilli())+" imp/ms, "+iDF2.format(100.0*getAdaptiveWeight(ns, bestRate)/total)+"%)");
+        } else if (iUpdatePoints)
             for (NeighbourSelector<V,T> ns: iNeighbours)
                 iLog.info("  "+ns+" ("+iDF2.format(ns.getPoints())+" pts, "+iDF2.format(100.0*(iUpdatePoints?ns.getPoints():ns.getBonus())/totalPoints())+"%)");
     }
@@ -266,6 +328,19 @@ public abstract class NeighbourSearch<V extends Variable<V, T>, T extends Value<
 
     @Override
     public void getInfo(Solution<V, T> solution, Map<String, String> info) {
+        if (iUpdatePoints || iAdaptive) {
+            double total = 0.0;
+            for (NeighbourSelector<V,T> ns: iNeighbours)
+                total += ns.getTimeMillis();
+            if (total > 0.0)
+                for (NeighbourSelector<V,T> ns: iNeighbours) {
+                    if (ns.nrCalls() == 0) continue;
+                    info.put(iPhase + ": " + ns.selection().getClass().getSimpleName(),
+                            iDF2.format(100.0 * ns.getTimeMillis() / total) + "% time, " +
+                            iDF2.format(ns.getTimeMillis() / ns.nrCalls()) + " ms/call, " +
+                            iDF2.format(ns.improvementPerMilli()) + " imp/ms");
+                }
+        }
         getContext(solution.getAssignment()).getInfo(solution, info);
     }
 
@@ -9,6 +9,7 @@ import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.solver.Solver;
+import org.cpsolver.ifs.util.JProf;
 
 
 /**
@@ -46,7 +47,11 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
     private int iNrImprovingMoves = 0;
     private double iBonus = 1.0;
     private double iPoints = 0;
-    private long iTime = 0;
+    private double iTime = 0;
+    private double iDecay = 1.0;
+    private double iDecayedImprovement = 0.0;
+    private double iDecayedTime = 0.0;
+    private double iDecayedCalls = 0.0;
     
     /**
      * Constructor 
@@ -62,6 +67,19 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
         iUpdate = update;
     }
     
+    /**
+     * Constructor 
+     * @param sel neighbour selector
+     * @param bonus initial bonus (see {@link NeighbourSelector#NeighbourSelector(NeighbourSelection, double, boolean)})
+     * @param update update selector bonus after each iteration
+     * @param decay decay factor of the improvement and time statistics (see {@link NeighbourSelector#improvementPerMilli()}),
+     * all the sums are multiplied by this factor on each call of this selector
+     */
+    public NeighbourSelector(NeighbourSelection<V,T> sel, double bonus, boolean update, double decay) {
+        this(sel, bonus, update);
+        iDecay = decay;
+    }
+    
     /** Initialization */
     @Override
     public void init(Solver<V,T> solver) {
@@ -74,10 +92,10 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
     @Override
     public Neighbour<V,T> selectNeighbour(Solution<V,T> solution) {
         if (iUpdate) {
-            long t0 = System.currentTimeMillis();
+            double t0 = JProf.currentTimeSec();
             Neighbour<V,T> n = iSelection.selectNeighbour(solution);
-            long t1 = System.currentTimeMillis();
-            update(solution.getAssignment(), n, t1-t0);
+            double t1 = JProf.currentTimeSec();
+            update(solution.getAssignment(), n, 1000.0 * (t1 - t0));
             return n;
         } else
             return iSelection.selectNeighbour(solution);
@@ -90,8 +108,19 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
      * @param time time needed to generate the move (in milliseconds)
      */
     public void update(Assignment<V, T> a, Neighbour<V,T> n, long time) {
+        update(a, n, (double) time);
+    }
+    
+    /**
+     * Update statistics
+     * @param a current assignment
+     * @param n generated move
+     * @param time time needed to generate the move (in milliseconds, measured by {@link JProf})
+     */
+    public void update(Assignment<V, T> a, Neighbour<V,T> n, double time) {
         iNrCalls ++;
         iTime += time;
+        double improvement = 0.0;
         if (n!=null) {
             iNrNotNull++;
             double val = n.value(a); 
@@ -101,12 +130,16 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
             } else if (val<0) {
                 iNrImprovingMoves++;
                 iPoints -= n.value(a);
+                improvement = -val;
             } else {
                 iPoints *= 0.9999;
             }
         } else {
             iPoints *= 0.999;
         }
+        iDecayedImprovement = iDecay * iDecayedImprovement + improvement;
+        iDecayedTime = iDecay * iDecayedTime + time;
+        iDecayedCalls = iDecay * iDecayedCalls + 1.0;
     }
     
     /** Weight of the selector in the roulette wheel selection of neighbour selectors 
@@ -140,11 +173,24 @@ public class NeighbourSelector<V extends Variable<V, T>, T extends Value<V, T>>
     /** Total time spend in {@link NeighbourSelection#selectNeighbour(Solution)} (in milliseconds)
      * @return total time spend in theis selector 
      **/
-    public long time() { return iTime; }
+    public long time() { return Math.round(iTime); }
+    /** Total time spend in {@link NeighbourSelection#selectNeighbour(Solution)} (in milliseconds, not rounded)
+     * @return total time spend in this selector
+     **/
+    public double getTimeMillis() { return iTime; }
+    /** Recent improvement of the solution value per millisecond spend in this selector (improvements and times
+     * of the past calls are decayed exponentially, so the rate follows the current phase of the search)
+     * @return improvement per millisecond, zero if the selector has not been called yet
+     **/
+    public double improvementPerMilli() { return (iDecayedTime <= 0.0 ? 0.0 : iDecayedImprovement / iDecayedTime); }
+    /** Recent average time of one call of {@link NeighbourSelection#selectNeighbour(Solution)} (in milliseconds)
+     * @return average time per call, zero if the selector has not been called yet
+     **/
+    public double averageTimeMillis() { return (iDecayedCalls <= 0.0 ? 0.0 : iDecayedTime / iDecayedCalls); }
     /** Average number of iterations per second (calls of {@link NeighbourSelection#selectNeighbour(Solution)})
      * @return number of calls per second
      **/
-    public double speed() { return 1000.0*nrCalls()/time(); }
+    public double speed() { return 1000.0*nrCalls()/iTime; }
     /** String representation */
     @Override
     public String toString() {
@@ -4,18 +4,34 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 import org.cpsolver.ifs.assignment.context.AssignmentContextHolder;
+import org.cpsolver.ifs.assignment.context.AssignmentContextHolderArray;
+import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
+import org.cpsolver.ifs.solution.Solution;
 
 
 /**
  * An assignment using array to store values of all the variables of the model.
  * {@link Variable#getIndex()} is used to index the array.
- * 
+ * <br><br>
+ * Iterations are kept in a primitive array and the indexes of the assigned variables are kept in a dense
+ * list, so that {@link Assignment#nrAssignedVariables()} is a constant time operation and the copies returned by
+ * {@link Assignment#assignedVariables()} and {@link Assignment#assignedValues()} are built from the assigned
+ * variables only (without going through all the variables of the model). The returned collections can be iterated
+ * over while the assignment is being changed. To go through the assigned variables without allocating a copy, use
+ * {@link AssignmentArray#getAssignedVariable(int)} or {@link AssignmentArray#getAssignedValue(int)} with a position between
+ * zero and {@link AssignmentArray#nrAssignedVariables()} - 1.
+ * <br><br>
+ * When an {@link InheritedAssignmentArray} is created from an assignment, the assignment starts to keep a log of the
+ * indexes of the changed variables (a ring buffer), so that the inherited assignment can be refreshed by only copying
+ * the slots that have changed since its last refresh.
+ *
  * @see Assignment
- * 
+ *
  * @version IFS 1.3 (Iterative Forward Search)<br>
  *          Copyright (C) 2014 Tomas Muller<br>
  *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
@@ -37,75 +53,235 @@ import org.cpsolver.ifs.model.Variable;
  * @param <T> Value
  **/
 public class AssignmentArray<V extends Variable<V, T>, T extends Value<V, T>> extends AssignmentAbstract<V, T> {
-    protected Object[] iAssignments = new Object[1000];
-    protected Long[] iIteration = new Long[1000];
-    
-    /** Creates an empty assignment 
+    /** Assigned values, indexed by the variable index */
+    protected Object[] iAssignments;
+    /** Iterations of the assignments, indexed by the variable index */
+    protected long[] iIteration;
+    /** Indexes of the assigned variables (first iNrAssigned elements are used) */
+    protected int[] iAssigned;
+    /** Position of a variable in iAssigned, indexed by the variable index (-1 if not assigned) */
+    protected int[] iPosition;
+    /** Number of assigned variables */
+    protected int iNrAssigned = 0;
+    /** Indexes of the changed variables (a ring buffer, null when the changes are not logged) */
+    private volatile int[] iChanges = null;
+    /** Number of changes made since the changes are logged */
+    private long iNrChanges = 0;
+
+    /** Creates an empty assignment
      * @param contexts assignment context holder
      **/
     public AssignmentArray(AssignmentContextHolder<V, T> contexts) {
+        this(contexts, 1000);
+    }
+
+    /** Creates an empty assignment, assignment contexts are kept in an array (see {@link AssignmentContextHolderArray})
+     * @param model problem model (used to size the arrays)
+     **/
+    public AssignmentArray(Model<V, T> model) {
+        this(new AssignmentContextHolderArray<V, T>(), model.variables().size());
+    }
+
+    /** Creates an empty assignment, assignment contexts are kept in an array (see {@link AssignmentContextHolderArray}) */
+    public AssignmentArray() {
+        this(new AssignmentContextHolderArray<V, T>(), 1000);
+    }
+
+    /** Creates an empty assignment
+     * @param contexts assignment context holder
+     * @param nrVariables expected number of variables (e.g., the number of variables of the model), the arrays grow when needed
+     **/
+    public AssignmentArray(AssignmentContextHolder<V, T> contexts, int nrVariables) {
         super(contexts);
+        int size = Math.max(1, nrVariables);
+        iAssignments = new Object[size];
+        iIteration = new long[size];
+        iAssigned = new int[size];
+        iPosition = new int[size];
+        Arrays.fill(iPosition, -1);
     }
-    
-    @Override
-    public long getIteration(V variable) {
+
+    /** Creates a copy of the assignment of the given solution (values and iterations), the solution's read lock is held while copying
+     * @param contexts assignment context holder
+     * @param solution solution which assignment (an {@link AssignmentArray}) is to be copied
+     **/
+    protected AssignmentArray(AssignmentContextHolder<V, T> contexts, Solution<V, T> solution) {
+        super(contexts);
+        Lock lock = solution.getLock().readLock();
+        lock.lock();
         try {
-            Long it = iIteration[variable.getIndex()];
-            return (it == null ? 0 : it);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            return 0;
+            copy((AssignmentArray<V, T>)solution.getAssignment());
+        } finally {
+            lock.unlock();
         }
     }
-    
+
+    @Override
+    public long getIteration(V variable) {
+        int index = variable.getIndex();
+        return (index >= 0 && index < iIteration.length ? iIteration[index] : 0);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected T getValueInternal(V variable) {
-        try {
-            return (T) iAssignments[variable.getIndex()];
-        } catch (ArrayIndexOutOfBoundsException e) {
-            return null;
+        int index = variable.getIndex();
+        return (index >= 0 && index < iAssignments.length ? (T) iAssignments[index] : null);
+    }
+
+    /** Make sure that the arrays can hold a variable of the given index */
+    private void ensureCapacity(int index) {
+        if (iAssignments.length <= index) {
+            int size = Math.max(index + 1, 2 * iAssignments.length);
+            iAssignments = Arrays.copyOf(iAssignments, size);
+            iIteration = Arrays.copyOf(iIteration, size);
+            iAssigned = Arrays.copyOf(iAssigned, size);
+            int old = iPosition.length;
+            iPosition = Arrays.copyOf(iPosition, size);
+            Arrays.fill(iPosition, old, size, -1);
         }
     }
 
+    /**
+     * Make this assignment a copy of the given assignment (values, iterations, and assigned variables), the arrays of
+     * this assignment are reused when they have the same size. The caller is responsible for the locking.
+     * @param source assignment to be copied
+     */
+    protected void copy(AssignmentArray<V, T> source) {
+        if (iAssignments != null && iAssignments.length == source.iAssignments.length) {
+            System.arraycopy(source.iAssignments, 0, iAssignments, 0, iAssignments.length);
+            System.arraycopy(source.iIteration, 0, iIteration, 0, iIteration.length);
+            System.arraycopy(source.iAssigned, 0, iAssigned, 0, source.iNrAssigned);
+            System.arraycopy(source.iPosition, 0, iPosition, 0, iPosition.length);
+        } else {
+            iAssignments = Arrays.copyOf(source.iAssignments, source.iAssignments.length);
+            iIteration = Arrays.copyOf(source.iIteration, source.iIteration.length);
+            iAssigned = Arrays.copyOf(source.iAssigned, source.iAssigned.length);
+            iPosition = Arrays.copyOf(source.iPosition, source.iPosition.length);
+        }
+        iNrAssigned = source.iNrAssigned;
+    }
+
+    /**
+     * Copy the value and the iteration of the variable with the given index from the given assignment. The caller is responsible for the locking.
+     * @param source assignment to copy the slot from
+     * @param index variable index
+     */
+    protected void copy(AssignmentArray<V, T> source, int index) {
+        Object value = (index < source.iAssignments.length ? source.iAssignments[index] : null);
+        if (value == null && index >= iAssignments.length) return;
+        ensureCapacity(index);
+        iAssignments[index] = value;
+        iIteration[index] = (value == null ? 0 : source.iIteration[index]);
+        setAssigned(index, value != null);
+    }
+
+    /** Add or remove the variable with the given index from the dense list of the assigned variables */
+    private void setAssigned(int index, boolean assigned) {
+        int pos = iPosition[index];
+        if (!assigned && pos >= 0) {
+            // move the last assigned variable into the freed position
+            int last = iAssigned[--iNrAssigned];
+            iAssigned[pos] = last;
+            iPosition[last] = pos;
+            iPosition[index] = -1;
+        } else if (assigned && pos < 0) {
+            iAssigned[iNrAssigned] = index;
+            iPosition[index] = iNrAssigned++;
+        }
+    }
+
+    /**
+     * Start logging the indexes of the changed variables (if not logged already), see {@link AssignmentArray#getNrChanges()}.
+     * The log is kept in a ring buffer of the given size.
+     * @param size size of the ring buffer
+     */
+    protected synchronized void logChanges(int size) {
+        if (iChanges == null)
+            iChanges = new int[Math.max(1, size)];
+    }
+
+    /**
+     * Number of changes (assignments and unassignments) made since the changes started to be logged
+     * (see {@link AssignmentArray#logChanges(int)})
+     * @return number of changes
+     */
+    protected long getNrChanges() {
+        return iNrChanges;
+    }
+
+    /**
+     * Index of the variable that was changed by the given change, or -1 when the change is no longer (or not yet) in the log.
+     * @param change change number, between zero and {@link AssignmentArray#getNrChanges()} - 1
+     * @return variable index
+     */
+    protected int getChange(long change) {
+        int[] changes = iChanges;
+        if (changes == null || change < 0 || change >= iNrChanges || iNrChanges - change > changes.length) return -1;
+        return changes[(int)(change % changes.length)];
+    }
+
     @Override
     protected void setValueInternal(long iteration, V variable, T value) {
-        if (iAssignments.length <= variable.getIndex()) {
-            iAssignments = Arrays.copyOf(iAssignments, variable.getIndex() + 1000);
-            iIteration = Arrays.copyOf(iIteration, variable.getIndex() + 1000);
-        }
+        int index = variable.getIndex();
+        ensureCapacity(index);
+        int[] changes = iChanges;
+        if (changes != null)
+            changes[(int)(iNrChanges++ % changes.length)] = index;
         if (value == null) {
-            iAssignments[variable.getIndex()] = null;
-            iIteration[variable.getIndex()] = null;
+            iAssignments[index] = null;
+            iIteration[index] = 0;
         } else {
-            iAssignments[variable.getIndex()] = value;
+            iAssignments[index] = value;
             if (iteration > 0)
-                iIteration[variable.getIndex()] = iteration;
+                iIteration[index] = iteration;
         }
+        setAssigned(index, value != null);
     }
-    
+
+    /** Assigned variables, a copy (the returned collection is not affected by later changes of this assignment) */
     @Override
     @SuppressWarnings("unchecked")
     public Collection<V> assignedVariables() {
-        List<V> variables = new ArrayList<V>(iAssignments.length);
-        for (Object value: iAssignments)
-            if (value != null) variables.add(((T)value).variable());
+        List<V> variables = new ArrayList<V>(iNrAssigned);
+        for (int i = 0; i < iNrAssigned; i++)
+            variables.add(((T)iAssignments[iAssigned[i]]).variable());
         return variables;
     }
-    
+
+    /** Assigned values, a copy (the returned collection is not affected by later changes of this assignment) */
     @Override
     @SuppressWarnings("unchecked")
     public Collection<T> assignedValues() {
-        List<T> values = new ArrayList<T>(iAssignments.length);
-        for (Object value: iAssignments)
-            if (value != null) values.add((T)value);
+        List<T> values = new ArrayList<T>(iNrAssigned);
+        for (int i = 0; i < iNrAssigned; i++)
+            values.add((T)iAssignments[iAssigned[i]]);
         return values;
     }
 
     @Override
     public int nrAssignedVariables() {
-        int ret = 0;
-        for (Object value: iAssignments)
-            if (value != null) ret ++;
-        return ret;
+        return iNrAssigned;
+    }
+
+    /**
+     * Assigned variable at the given position of the dense list of the assigned variables. This does not allocate any memory,
+     * but the positions change when a variable is unassigned (the last assigned variable is moved into the freed position).
+     * @param position position between zero and {@link AssignmentArray#nrAssignedVariables()} - 1
+     * @return assigned variable
+     */
+    @SuppressWarnings("unchecked")
+    public V getAssignedVariable(int position) {
+        return ((T)iAssignments[iAssigned[position]]).variable();
+    }
+
+    /**
+     * Assigned value at the given position of the dense list of the assigned variables, see {@link AssignmentArray#getAssignedVariable(int)}.
+     * @param position position between zero and {@link AssignmentArray#nrAssignedVariables()} - 1
+     * @return assigned value
+     */
+    @SuppressWarnings("unchecked")
+    public T getAssignedValue(int position) {
+        return (T)iAssignments[iAssigned[position]];
     }
 }
@@ -18,7 +18,8 @@ import org.cpsolver.ifs.solver.ParallelSolver;
  * An assignment using the {@link Variable#getAssignments()} to store values of all the
  * variables of the model. Besides of that, a set of assigned variables is kept in memory.
  * Each extra contains an array of values, indexed by {@link Assignment#getIndex()}.
- * Useful for a small, fixed number of assignments. Used by the {@link ParallelSolver},
+ * The array is extended when needed (see {@link Variable#getAssignments(int)}), so there
+ * is no fixed limit on the number of assignments. Used by the {@link ParallelSolver},
  * where there is one assignment for each thread. 
  * 
  * @see Assignment
@@ -90,13 +91,16 @@ public class DefaultParallelAssignment <V extends Variable<V, T>, T extends Valu
     @Override
     @SuppressWarnings({ "deprecation", "unchecked" })
     protected T getValueInternal(V variable) {
-        return (T) variable.getAssignments()[iIndex];
+        Value<V, T>[] values = variable.getAssignments();
+        return (T) (iIndex < values.length ? values[iIndex] : null);
     }
     
     @Override
     @SuppressWarnings("deprecation")
     protected void setValueInternal(long iteration, V variable, T value) {
-        variable.getAssignments()[iIndex] = value;
+        Value<V, T>[] values = variable.getAssignments();
+        if (iIndex >= values.length) values = variable.getAssignments(iIndex);
+        values[iIndex] = value;
         if (value == null)
             iAssignedVariables.remove(variable);
         else
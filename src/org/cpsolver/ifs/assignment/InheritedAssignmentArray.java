@@ -1,24 +1,125 @@
 package org.cpsolver.ifs.assignment;
 
 import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
 
 import org.cpsolver.ifs.assignment.context.InheritedAssignmentContextHolder;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
 import org.cpsolver.ifs.solution.Solution;
 
+/**
+ * An inherited assignment based on the {@link AssignmentArray}. It is created as a copy of the assignment of the given solution,
+ * which must be an {@link AssignmentArray}. The assignment can be then refreshed (see {@link InheritedAssignmentArray#refresh(Solution)}),
+ * which only copies the slots that have been changed since the last refresh, either in the parent assignment (the parent keeps a log
+ * of its changes, see {@link AssignmentArray#logChanges(int)}) or in this assignment. A full copy is only made when the parent has
+ * changed more variables than it keeps in its log.
+ * <br><br>
+ * Both the creation and the refresh hold the read lock of the solution, the parent assignment and its version (the iteration of the
+ * solution) are taken while the lock is held, so they match the copied values.
+ *
+ * @see InheritedAssignment
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ * @param <V> Variable
+ * @param <T> Value
+ **/
 public class InheritedAssignmentArray<V extends Variable<V, T>, T extends Value<V, T>> extends AssignmentArray<V, T> implements InheritedAssignment<V, T> {
-    private Assignment<V, T> iParent;
+    private AssignmentArray<V, T> iParent;
     private long iVersion = -1;
+    private long iContextVersion = -1;
     private int iIndex = -1;
+    /** Number of changes of the parent assignment at the time of the last refresh */
+    private long iParentChanges = -1;
+    /** Indexes of the variables changed locally since the last refresh (first iNrLocalChanges elements are used) */
+    private int[] iLocalChanges = new int[16];
+    private int iNrLocalChanges = 0;
+    /** Local change flags, indexed by the variable index */
+    private boolean[] iLocalChanged = new boolean[0];
 
     public InheritedAssignmentArray(Solution<V, T> parent, int index) {
-        super(new InheritedAssignmentContextHolder<V, T>(index, parent.getIteration()));
+        super(new InheritedAssignmentContextHolder<V, T>(index, -1), 0);
         iIndex = index;
-        iAssignments = Arrays.copyOf(((AssignmentArray<V, T>)parent.getAssignment()).iAssignments, parent.getModel().variables().size());
-        iIteration = Arrays.copyOf(((AssignmentArray<V, T>)parent.getAssignment()).iIteration, parent.getModel().variables().size());
+        refresh(parent);
     }
-    
+
+    /**
+     * Refresh this assignment, so that it is the same as the assignment of the given solution (which must be an {@link AssignmentArray}).
+     * Only the slots that have been changed since the last refresh are copied (both in the parent assignment and locally), unless the
+     * parent assignment has changed. The version is updated to the current iteration of the solution and the assignment contexts are
+     * re-inherited from the parent when they are used next time.
+     * @param parent solution whose assignment is to be copied
+     */
+    public void refresh(Solution<V, T> parent) {
+        Lock lock = parent.getLock().readLock();
+        lock.lock();
+        try {
+            AssignmentArray<V, T> assignment = (AssignmentArray<V, T>)parent.getAssignment();
+            if (assignment != iParent) {
+                assignment.logChanges(Math.max(1024, assignment.iAssignments.length));
+                iParent = assignment;
+                iParentChanges = -1;
+            }
+            long nrChanges = iParent.getNrChanges();
+            boolean full = (iParentChanges < 0);
+            if (!full) {
+                for (long change = iParentChanges; change < nrChanges; change++) {
+                    int index = iParent.getChange(change);
+                    if (index < 0) { full = true; break; }
+                    copy(iParent, index);
+                }
+            }
+            if (full) {
+                copy(iParent);
+            } else {
+                for (int i = 0; i < iNrLocalChanges; i++)
+                    copy(iParent, iLocalChanges[i]);
+            }
+            for (int i = 0; i < iNrLocalChanges; i++)
+                iLocalChanged[iLocalChanges[i]] = false;
+            iNrLocalChanges = 0;
+            iParentChanges = nrChanges;
+            iVersion = parent.getIteration();
+            // contexts created before the refresh may reflect local changes, make sure that they are not current
+            iContextVersion = Math.max(iVersion, iContextVersion + 1);
+            ((InheritedAssignmentContextHolder<V, T>)iContexts).setVersion(iContextVersion);
+            iHasInitialzedContext = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void setValueInternal(long iteration, V variable, T value) {
+        super.setValueInternal(iteration, variable, value);
+        int index = variable.getIndex();
+        if (index < 0) return;
+        if (index >= iLocalChanged.length)
+            iLocalChanged = Arrays.copyOf(iLocalChanged, Math.max(index + 1, iAssignments.length));
+        if (!iLocalChanged[index]) {
+            iLocalChanged[index] = true;
+            if (iNrLocalChanges == iLocalChanges.length)
+                iLocalChanges = Arrays.copyOf(iLocalChanges, 2 * iLocalChanges.length);
+            iLocalChanges[iNrLocalChanges++] = index;
+        }
+    }
+
     @Override
     public int getIndex() {
         return iIndex;
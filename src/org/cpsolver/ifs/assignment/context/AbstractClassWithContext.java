@@ -34,7 +34,7 @@ import org.cpsolver.ifs.model.Variable;
  **/
 public abstract class AbstractClassWithContext<V extends Variable<V, T>, T extends Value<V, T>, C extends AssignmentContext> implements HasAssignmentContext<V, T, C>, CanHoldContext {
     private AssignmentContextReference<V, T, C> iContextReference = null;
-    private AssignmentContext[] iContext = new AssignmentContext[CanHoldContext.sMaxSize];
+    private volatile AssignmentContext[] iContext = new AssignmentContext[CanHoldContext.sMaxSize];
     private C iSingleContextWhenNoModel = null;
   
     /**
@@ -66,6 +66,9 @@ public abstract class AbstractClassWithContext<V extends Variable<V, T>, T exten
 
     @Override
     public AssignmentContext[] getContext() { return iContext; }
+    
+    @Override
+    public void setContext(AssignmentContext[] context) { iContext = context; }
 
     /**
      * Get the model. This is used to create an assignment context if needed.
@@ -17,15 +17,16 @@ public class AssignmentContextHelper {
      */
     @SuppressWarnings("unchecked")
     public static <V extends Variable<V, T>, T extends Value<V, T>, C extends AssignmentContext> C getContext(HasAssignmentContext<V, T, C> source, Assignment<V, T> assignment) {
-        if (assignment.getIndex() >= 0 && assignment.getIndex() < CanHoldContext.sMaxSize) {
-            AssignmentContext[] contexts = ((CanHoldContext)source).getContext();
-            if (assignment.getIndex() > 0 && assignment instanceof InheritedAssignment) {
+        int index = assignment.getIndex();
+        if (index >= 0) {
+            AssignmentContext[] contexts = getContexts((CanHoldContext)source, index);
+            if (index > 0 && assignment instanceof InheritedAssignment) {
                 long version = ((InheritedAssignment<V, T>)assignment).getVersion();
                 
-                InheritedAssignmentContextHolder.VersionedContext<C> context = (InheritedAssignmentContextHolder.VersionedContext<C>)contexts[assignment.getIndex()];
+                InheritedAssignmentContextHolder.VersionedContext<C> context = (InheritedAssignmentContextHolder.VersionedContext<C>)contexts[index];
                 if (context == null) {
                     context = new InheritedAssignmentContextHolder.VersionedContext<C>();
-                    contexts[assignment.getIndex()] = context;
+                    setContext((CanHoldContext)source, index, context);
                 }
                 
                 if (!context.isCurrent(version)) {
@@ -37,14 +38,52 @@ public class AssignmentContextHelper {
                 
                 return context.getContent();
             } else {
-                AssignmentContext context = contexts[assignment.getIndex()];
+                AssignmentContext context = contexts[index];
                 if (context == null) {
                     context = source.createAssignmentContext(assignment);
-                    contexts[assignment.getIndex()] = context;
+                    setContext((CanHoldContext)source, index, context);
                 }
                 return (C) context;
             }
         }
         return assignment.getAssignmentContext(source.getAssignmentContextReference());
     }
+    
+    /**
+     * Returns the array of assignment contexts of the given object that is large enough to contain
+     * a context of the given index. If the current array is too small, it is extended (at least doubled in size).
+     * The returned array must only be used to read the contexts, use {@link AssignmentContextHelper#setContext(CanHoldContext, int, AssignmentContext)}
+     * to store a new context.
+     * @param source given object
+     * @param index assignment index
+     * @return array of contexts of the given object, with length greater than the given index
+     */
+    public static AssignmentContext[] getContexts(CanHoldContext source, int index) {
+        AssignmentContext[] contexts = source.getContext();
+        if (index < contexts.length) return contexts;
+        synchronized (source) {
+            contexts = source.getContext();
+            if (index >= contexts.length) {
+                AssignmentContext[] extended = new AssignmentContext[Math.max(index + 1, 2 * contexts.length)];
+                System.arraycopy(contexts, 0, extended, 0, contexts.length);
+                source.setContext(extended);
+                contexts = extended;
+            }
+        }
+        return contexts;
+    }
+    
+    /**
+     * Store an assignment context of the given index with the given object. The context is stored in
+     * the current array of contexts (see {@link CanHoldContext#getContext()}), so that it is not lost when
+     * the array is being extended by a different thread at the same time.
+     * @param source given object
+     * @param index assignment index
+     * @param context assignment context to store (null to clear the context)
+     */
+    public static void setContext(CanHoldContext source, int index, AssignmentContext context) {
+        synchronized (source) {
+            getContexts(source, index)[index] = context;
+        }
+    }
 }
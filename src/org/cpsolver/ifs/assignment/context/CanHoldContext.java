@@ -7,7 +7,9 @@ import org.cpsolver.ifs.assignment.Assignment;
  * The assignment context holder (see {@link AssignmentContextHolder}) can than use this interface
  * to store assignment contexts directly on the {@link HasAssignmentContext} class, if the 
  * assignment permits it (the {@link Assignment#getIndex()} is implemented, i.e., a non negative
- * index is returned).
+ * index is returned). The array of contexts is extended when an assignment with a higher index
+ * is encountered (see {@link AssignmentContextHelper#getContexts(CanHoldContext, int)}), so there is
+ * no limit on the number of assignments (e.g., solver threads) that can be used in parallel.
  * 
  * @see HasAssignmentContext
  * 
@@ -31,13 +33,20 @@ import org.cpsolver.ifs.assignment.Assignment;
  **/
 public interface CanHoldContext {
     /**
-     * Maximum number of assignment contexts to be held
+     * Initial number of assignment contexts to be held (the array is extended when needed)
      */
     public static int sMaxSize = 17;
     
     /**
-     * An array of {@link CanHoldContext#sMaxSize} assignment contexts
+     * An array of assignment contexts, initially of {@link CanHoldContext#sMaxSize} size
      * @return assignment contexts
      */
     public AssignmentContext[] getContext();
+    
+    /**
+     * Replace the array of assignment contexts. This is used by {@link AssignmentContextHelper} when
+     * the array needs to be extended to hold a context of an assignment with a higher index.
+     * @param context new array of assignment contexts
+     */
+    public void setContext(AssignmentContext[] context);
 }
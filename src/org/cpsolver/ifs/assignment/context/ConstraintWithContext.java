@@ -40,7 +40,7 @@ import org.cpsolver.ifs.model.Variable;
  **/
 public abstract class ConstraintWithContext<V extends Variable<V, T>, T extends Value<V, T>, C extends AssignmentConstraintContext<V, T>> extends Constraint<V, T> implements HasAssignmentContext<V, T, C>, CanHoldContext {
     private AssignmentContextReference<V, T, C> iContextReference = null;
-    private AssignmentContext[] iContext = new AssignmentContext[CanHoldContext.sMaxSize];
+    private volatile AssignmentContext[] iContext = new AssignmentContext[CanHoldContext.sMaxSize];
     
     public ConstraintWithContext() {
         super();
@@ -76,6 +76,9 @@ public abstract class ConstraintWithContext<V extends Variable<V, T>, T extends
 
     @Override
     public AssignmentContext[] getContext() { return iContext; }
+    
+    @Override
+    public void setContext(AssignmentContext[] context) { iContext = context; }
 
     @Override
     public void assigned(Assignment<V, T> assignment, long iteration, T value) {
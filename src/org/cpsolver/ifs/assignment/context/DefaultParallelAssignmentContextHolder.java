@@ -45,13 +45,13 @@ public class DefaultParallelAssignmentContextHolder<V extends Variable<V, T>, T
     @Override
     @SuppressWarnings("unchecked")
     public <U extends AssignmentContext> U getAssignmentContext(Assignment<V, T> assignment, AssignmentContextReference<V, T, U> reference) {
-        if (iIndex >= 0 && iIndex < CanHoldContext.sMaxSize && reference.getParent() instanceof CanHoldContext) {
-            AssignmentContext[] contexts = ((CanHoldContext)reference.getParent()).getContext();
+        if (iIndex >= 0 && reference.getParent() instanceof CanHoldContext) {
+            AssignmentContext[] contexts = AssignmentContextHelper.getContexts((CanHoldContext)reference.getParent(), iIndex);
             U context = (U)contexts[iIndex];
             
             if (context == null) {
                 context = reference.getParent().createAssignmentContext(assignment);
-                contexts[iIndex] = context;
+                AssignmentContextHelper.setContext((CanHoldContext)reference.getParent(), iIndex, context);
             }
             
             return context;
@@ -62,9 +62,8 @@ public class DefaultParallelAssignmentContextHolder<V extends Variable<V, T>, T
     
     @Override
     public <C extends AssignmentContext> void clearContext(AssignmentContextReference<V, T, C> reference) {
-        if (iIndex >= 0 && iIndex < CanHoldContext.sMaxSize && reference.getParent() instanceof CanHoldContext) {
-            AssignmentContext[] contexts = ((CanHoldContext)reference.getParent()).getContext();
-            contexts[iIndex] = null;
+        if (iIndex >= 0 && reference.getParent() instanceof CanHoldContext) {
+            AssignmentContextHelper.setContext((CanHoldContext)reference.getParent(), iIndex, null);
         } else {
             super.clearContext(reference);
         }
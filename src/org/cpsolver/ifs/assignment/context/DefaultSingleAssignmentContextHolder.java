@@ -44,9 +44,12 @@ public class DefaultSingleAssignmentContextHolder<V extends Variable<V, T>, T ex
     public <U extends AssignmentContext> U getAssignmentContext(Assignment<V, T> assignment, AssignmentContextReference<V, T, U> reference) {
         if (reference.getParent() instanceof CanHoldContext) {
             AssignmentContext[] contexts = ((CanHoldContext)reference.getParent()).getContext();
-            if (contexts[0] == null)
-                contexts[0] = reference.getParent().createAssignmentContext(assignment);
-            return (U)contexts[0];
+            U context = (U)contexts[0];
+            if (context == null) {
+                context = reference.getParent().createAssignmentContext(assignment);
+                AssignmentContextHelper.setContext((CanHoldContext)reference.getParent(), 0, context);
+            }
+            return context;
         } else {
             return super.getAssignmentContext(assignment, reference);
         }
@@ -55,8 +58,7 @@ public class DefaultSingleAssignmentContextHolder<V extends Variable<V, T>, T ex
     @Override
     public <C extends AssignmentContext> void clearContext(AssignmentContextReference<V, T, C> reference) {
         if (reference.getParent() instanceof CanHoldContext) {
-            AssignmentContext[] contexts = ((CanHoldContext)reference.getParent()).getContext();
-            contexts[0] = null;
+            AssignmentContextHelper.setContext((CanHoldContext)reference.getParent(), 0, null);
         } else {
             super.clearContext(reference);
         }
@@ -43,6 +43,17 @@ public class InheritedAssignmentContextHolder<V extends Variable<V, T>, T extend
         super(index);
         iVersion = version;
     }
+    
+    /**
+     * Change the version of the holder (e.g., when the inherited assignment is refreshed, see {@link org.cpsolver.ifs.assignment.InheritedAssignmentArray#refresh(org.cpsolver.ifs.solution.Solution)}).
+     * Contexts of a different version are inherited again from the parent assignment when they are requested next time. The new version must
+     * differ from all the versions that were used by this holder before.
+     * @param version new version
+     */
+    public void setVersion(long version) {
+        iVersion = version;
+        iContexts.clear();
+    }
 
     /**
      * If the {@link AssignmentContextReference#getParent()} implements the {@link CanInheritContext} interface, this 
@@ -55,8 +66,8 @@ public class InheritedAssignmentContextHolder<V extends Variable<V, T>, T extend
     @Override
     @SuppressWarnings("unchecked")
     public <U extends AssignmentContext> U getAssignmentContext(Assignment<V, T> assignment, AssignmentContextReference<V, T, U> reference) {
-        if (iIndex >= 0 && iIndex < CanHoldContext.sMaxSize && reference.getParent() instanceof CanHoldContext) {
-            AssignmentContext[] contexts = ((CanHoldContext)reference.getParent()).getContext();
+        if (iIndex >= 0 && reference.getParent() instanceof CanHoldContext) {
+            AssignmentContext[] contexts = AssignmentContextHelper.getContexts((CanHoldContext)reference.getParent(), iIndex);
 
             VersionedContext<U> context = (VersionedContext<U>)contexts[iIndex];
             if (context == null) {
@@ -66,7 +77,7 @@ public class InheritedAssignmentContextHolder<V extends Variable<V, T>, T extend
                             ((InheritedAssignment<V, T>)assignment).getParentAssignment().getAssignmentContext(reference)), iVersion);
                 else
                     context.setContent(reference.getParent().createAssignmentContext(assignment), iVersion);
-                contexts[iIndex] = context;
+                AssignmentContextHelper.setContext((CanHoldContext)reference.getParent(), iIndex, context);
             } else if (!context.isCurrent(iVersion)) {
                 if (reference.getParent() instanceof CanInheritContext)
                     context.setContent(((CanInheritContext<V, T, U>)reference.getParent()).inheritAssignmentContext(assignment,
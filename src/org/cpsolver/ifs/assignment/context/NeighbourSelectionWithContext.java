@@ -40,7 +40,7 @@ import org.cpsolver.ifs.solver.Solver;
  **/
 public abstract class NeighbourSelectionWithContext<V extends Variable<V, T>, T extends Value<V, T>, C extends AssignmentContext> implements NeighbourSelection<V, T>, HasAssignmentContext<V, T, C>, CanHoldContext {
     private AssignmentContextReference<V, T, C> iContextReference = null;
-    private AssignmentContext[] iContext = new AssignmentContext[CanHoldContext.sMaxSize];
+    private volatile AssignmentContext[] iContext = new AssignmentContext[CanHoldContext.sMaxSize];
     protected C iContextOverride = null;
 
     @Override
@@ -83,6 +83,9 @@ public abstract class NeighbourSelectionWithContext<V extends Variable<V, T>, T
     @Override
     public AssignmentContext[] getContext() { return iContext; }
     
+    @Override
+    public void setContext(AssignmentContext[] context) { iContext = context; }
+    
     /**
      * Has context override
      * @return true if all threads are using the same context
@@ -63,8 +63,9 @@ public abstract class AbstractCriterion<V extends Variable<V, T>, T extends Valu
     protected boolean iDebug = false;
     
     private AssignmentContextReference<V, T, ValueContext> iContextReference = null;
-    private AssignmentContext[] iContext = new AssignmentContext[CanHoldContext.sMaxSize];
+    private volatile AssignmentContext[] iContext = new AssignmentContext[CanHoldContext.sMaxSize];
     private int iLastCacheId = 0;
+    private boolean iIncremental = true;
 
     
     /**
@@ -104,12 +105,40 @@ public abstract class AbstractCriterion<V extends Variable<V, T>, T extends Valu
         iModel = model;
         if (model != null)
             iContextReference = model.createReference(this);
+        try {
+            iIncremental = getClass().getMethod("getValue", Assignment.class).getDeclaringClass().equals(AbstractCriterion.class) &&
+                    getClass().getMethod("getWeightedValue", Assignment.class).getDeclaringClass().equals(AbstractCriterion.class);
+        } catch (NoSuchMethodException e) {
+            iIncremental = false;
+        }
     }
     
     @Override
     public void configure(DataProperties properties) {
         iWeight = properties.getPropertyDouble(getWeightName(), getWeightDefault(properties));
         iDebug = properties.getPropertyBoolean("Debug." + getClass().getName().substring(1 + getClass().getName().lastIndexOf('.')), properties.getPropertyBoolean("Debug.Criterion", false));
+        if (iModel != null) iModel.invalidateTotalValue();
+    }
+    
+    /**
+     * True if the weighted value of this criterion can be kept in the running total of the model (see {@link Model#getTotalValue(Assignment)}).
+     * This is the case when the value of the criterion is the total kept in its assignment context, i.e., neither
+     * {@link AbstractCriterion#getValue(Assignment)} nor {@link AbstractCriterion#getWeightedValue(Assignment)} is overridden.
+     * All the changes of the total are then propagated to the model by {@link AbstractCriterion#totalChanged(Assignment, double)}.
+     * @return true if the criterion value is updated incrementally
+     */
+    public boolean isIncremental() {
+        return iIncremental;
+    }
+    
+    /**
+     * Propagate a change of the total kept in the assignment context of this criterion to the running total of the model.
+     * @param assignment current assignment
+     * @param delta change of the (unweighted) criterion value
+     */
+    protected void totalChanged(Assignment<V, T> assignment, double delta) {
+        if (iIncremental && delta != 0.0 && iModel != null && getWeight() != 0.0)
+            iModel.incTotalValue(assignment, getWeight() * delta);
     }
 
     @Override
@@ -155,6 +184,11 @@ public abstract class AbstractCriterion<V extends Variable<V, T>, T extends Valu
         return iContext;
     }
     
+    @Override
+    public void setContext(AssignmentContext[] context) {
+        iContext = context;
+    }
+    
     @Override
     public double getValue(Assignment<V, T> assignment) {
         return getContext(assignment).getTotal();
@@ -238,7 +272,10 @@ public abstract class AbstractCriterion<V extends Variable<V, T>, T extends Valu
         switch (getValueUpdateType()) {
             case AfterUnassignedBeforeAssigned:
             case BeforeUnassignedBeforeAssigned:
-                getContext(assignment).assigned(assignment, value);
+                ValueContext context = getContext(assignment);
+                double total = context.getTotal();
+                context.assigned(assignment, value);
+                totalChanged(assignment, context.getTotal() - total);
         }
     }
 
@@ -247,7 +284,10 @@ public abstract class AbstractCriterion<V extends Variable<V, T>, T extends Valu
         switch (getValueUpdateType()) {
             case AfterUnassignedAfterAssigned:
             case BeforeUnassignedAfterAssigned:
-                getContext(assignment).assigned(assignment, value);
+                ValueContext context = getContext(assignment);
+                double total = context.getTotal();
+                context.assigned(assignment, value);
+                totalChanged(assignment, context.getTotal() - total);
         }
     }
 
@@ -256,7 +296,10 @@ public abstract class AbstractCriterion<V extends Variable<V, T>, T extends Valu
         switch (getValueUpdateType()) {
             case BeforeUnassignedAfterAssigned:
             case BeforeUnassignedBeforeAssigned:
-                getContext(assignment).unassigned(assignment, value);
+                ValueContext context = getContext(assignment);
+                double total = context.getTotal();
+                context.unassigned(assignment, value);
+                totalChanged(assignment, context.getTotal() - total);
         }
     }
 
@@ -265,7 +308,10 @@ public abstract class AbstractCriterion<V extends Variable<V, T>, T extends Valu
         switch (getValueUpdateType()) {
             case AfterUnassignedAfterAssigned:
             case AfterUnassignedBeforeAssigned:
-                getContext(assignment).unassigned(assignment, value);
+                ValueContext context = getContext(assignment);
+                double total = context.getTotal();
+                context.unassigned(assignment, value);
+                totalChanged(assignment, context.getTotal() - total);
         }
     }
 
@@ -276,12 +322,16 @@ public abstract class AbstractCriterion<V extends Variable<V, T>, T extends Valu
 
     @Override
     public void bestRestored(Assignment<V, T> assignment) {
-        getContext(assignment).setTotal(iBest);
+        ValueContext context = getContext(assignment);
+        double total = context.getTotal();
+        context.setTotal(iBest);
+        totalChanged(assignment, iBest - total);
     }
     
     @Override
     public void inc(Assignment<V, T> assignment, double value) {
         getContext(assignment).inc(value);
+        totalChanged(assignment, value);
     }   
 
     @Override
@@ -1,7 +1,6 @@
 package org.cpsolver.ifs.dbt;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -10,6 +9,7 @@ import org.cpsolver.ifs.extension.Extension;
 import org.cpsolver.ifs.extension.ViolatedInitials;
 import org.cpsolver.ifs.heuristics.GeneralValueSelection;
 import org.cpsolver.ifs.heuristics.ValueSelection;
+import org.cpsolver.ifs.model.ConflictSet;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
 import org.cpsolver.ifs.solution.Solution;
@@ -157,14 +157,11 @@ public class DbtValueSelection<V extends Variable<V, T>, T extends Value<V, T>>
                 if (!iProp.isGood(assignment, value)) {
                     continue;
                 }
-                Collection<T> conf = solution.getModel().conflictValues(assignment, value);
+                ConflictSet<V, T> conf = solution.getModel().conflictValuesBuffer(assignment, value);
+                Set<T> noGood = (conf.isEmpty() ? null : new HashSet<T>(conf));
+                solution.getModel().releaseConflictValuesBuffer(conf);
 
-                if (!conf.isEmpty()) {
-                    Set<T> noGood = new HashSet<T>(2 * conf.size());
-
-                    for (T v : conf) {
-                        noGood.add(v);
-                    }
+                if (noGood != null) {
                     iProp.setNoGood(assignment, value, noGood);
                     sLogger.debug(value + " become nogood (" + noGood + ")");
                 } else {
@@ -176,7 +173,7 @@ public class DbtValueSelection<V extends Variable<V, T>, T extends Value<V, T>>
         } else {
             values = new ArrayList<T>(selectedVariable.values(solution.getAssignment()).size());
             for (T value : selectedVariable.values(solution.getAssignment())) {
-                if (solution.getModel().conflictValues(assignment, value).isEmpty()) {
+                if (solution.getModel().countConflicts(assignment, value) == 0) {
                     if (solution.isBestComplete() && solution.getModel().getBestValue() > solution.getModel().getTotalValue(assignment) + value.toDouble(assignment)) {
                         values.add(value);
                     }
@@ -0,0 +1,137 @@
+package org.cpsolver.ifs.example.csp;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.model.Neighbour;
+import org.cpsolver.ifs.solution.Solution;
+import org.cpsolver.ifs.solver.ParallelSolver;
+import org.cpsolver.ifs.solver.SolverListener;
+import org.cpsolver.ifs.util.DataProperties;
+
+/**
+ * Parallel solver throughput test. A random binary CSP problem is solved by the {@link ParallelSolver}
+ * with an increasing number of solver threads (1, 2, 4, ... up to the given maximum), each run is
+ * limited by the given time. The number of iterations per second (counted across all the solver threads)
+ * is printed for each number of threads.<br>
+ * <br>
+ * Usage: java org.cpsolver.ifs.example.csp.ParallelTest [max threads] [time in seconds] [number of variables]<br>
+ * Default: 64 threads, 30 seconds, 1000 variables.<br>
+ * <br>
+ * The random seed is taken from the General.Seed system property (e.g., -DGeneral.Seed=1234), the current time is used
+ * when it is not set. The seed is used both to generate the problem and to initialize the solver, and it is printed
+ * so that a run can be repeated.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class ParallelTest {
+    private static DecimalFormat sDF = new DecimalFormat("0.00");
+
+    /**
+     * Solve the given problem with the given number of threads
+     * @param nrThreads number of solver threads
+     * @param time time limit in seconds
+     * @param nrVariables number of variables
+     * @param seed random seed used to generate the problem and to initialize the solver (General.Seed)
+     * @return number of iterations per second
+     */
+    private static double test(int nrThreads, int time, int nrVariables, long seed) {
+        int nrValues = 20;
+        int nrConstraints = 10 * nrVariables;
+        int nrCompatiblePairs = (int) (0.75 * nrValues * nrValues);
+
+        DataProperties cfg = new DataProperties();
+        cfg.setProperty("Termination.Class", "org.cpsolver.ifs.termination.GeneralTerminationCondition");
+        cfg.setProperty("Termination.StopWhenComplete", "false");
+        cfg.setProperty("Termination.TimeOut", String.valueOf(time));
+        cfg.setProperty("Comparator.Class", "org.cpsolver.ifs.solution.GeneralSolutionComparator");
+        cfg.setProperty("Value.Class", "org.cpsolver.ifs.heuristics.GeneralValueSelection");
+        cfg.setProperty("Value.WeightConflicts", "1");
+        cfg.setProperty("Variable.Class", "org.cpsolver.ifs.heuristics.GeneralVariableSelection");
+        cfg.setProperty("Extensions.Classes", "org.cpsolver.ifs.extension.ConflictStatistics");
+        cfg.setProperty("Parallel.NrSolvers", String.valueOf(nrThreads));
+        cfg.setProperty("General.Seed", String.valueOf(seed));
+
+        CSPModel model = new CSPModel(nrVariables, nrValues, nrConstraints, nrCompatiblePairs, seed);
+        ParallelSolver<CSPVariable, CSPValue> solver = new ParallelSolver<CSPVariable, CSPValue>(cfg);
+        solver.setInitalSolution(model);
+        final AtomicLong iterations = new AtomicLong(0);
+        solver.addSolverListener(new SolverListener<CSPVariable, CSPValue>() {
+            @Override
+            public boolean variableSelected(Assignment<CSPVariable, CSPValue> assignment, long iteration, CSPVariable variable) {
+                return true;
+            }
+
+            @Override
+            public boolean valueSelected(Assignment<CSPVariable, CSPValue> assignment, long iteration, CSPVariable variable, CSPValue value) {
+                return true;
+            }
+
+            @Override
+            public boolean neighbourSelected(Assignment<CSPVariable, CSPValue> assignment, long iteration, Neighbour<CSPVariable, CSPValue> neighbour) {
+                iterations.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public void neighbourFailed(Assignment<CSPVariable, CSPValue> assignment, long iteration, Neighbour<CSPVariable, CSPValue> neighbour) {
+            }
+        });
+
+        long t0 = System.currentTimeMillis();
+        solver.start();
+        try {
+            solver.getSolverThread().join();
+        } catch (InterruptedException e) {
+        }
+        long t1 = System.currentTimeMillis();
+
+        Solution<CSPVariable, CSPValue> solution = solver.lastSolution();
+        double speed = 1000.0 * iterations.get() / Math.max(1, t1 - t0);
+        System.out.println(nrThreads + " thread(s): " + iterations.get() + " iterations in " + sDF.format((t1 - t0) / 1000.0) + " s, " +
+                sDF.format(speed) + " it/s, best solution found after " + solution.getBestIteration() + " iterations");
+        return speed;
+    }
+
+    /**
+     * Run the test
+     * @param args program arguments: maximal number of threads, time limit in seconds, number of variables
+     */
+    public static void main(String[] args) {
+        org.apache.log4j.BasicConfigurator.configure();
+        org.apache.log4j.Logger.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+        int maxThreads = (args.length > 0 ? Integer.parseInt(args[0]) : 64);
+        int time = (args.length > 1 ? Integer.parseInt(args[1]) : 30);
+        int nrVariables = (args.length > 2 ? Integer.parseInt(args[2]) : 1000);
+        DataProperties properties = new DataProperties(System.getProperties());
+        long seed = properties.getPropertyLong("General.Seed", System.currentTimeMillis());
+
+        System.out.println("CSP(" + nrVariables + " variables), " + Runtime.getRuntime().availableProcessors() + " available processors, seed " + seed);
+        double base = 0.0;
+        for (int nrThreads = 1; nrThreads <= maxThreads; nrThreads *= 2) {
+            double speed = test(nrThreads, time, nrVariables, seed);
+            if (nrThreads == 1)
+                base = speed;
+            else if (base > 0.0)
+                System.out.println("  speedup: " + sDF.format(speed / base) + "x");
+        }
+    }
+}
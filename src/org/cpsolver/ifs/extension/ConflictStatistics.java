@@ -1,14 +1,19 @@
 package org.cpsolver.ifs.extension;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.heuristics.ValueSelection;
@@ -129,7 +134,20 @@ import org.cpsolver.ifs.util.DataProperties;
  * <td>Another way how to express ageing: number of iterations to decrease a
  * conflict to 1/2 (default is 0 -- no ageing)</td>
  * </tr>
+ * <tr>
+ * <td>ConflictStatistics.MaxEntries</td>
+ * <td>{@link Integer}</td>
+ * <td>Maximal number of memorized counters (default is 0 -- no limit). When
+ * the limit is reached, the coldest counters (the ones with the lowest aged
+ * value) are forgotten until the number of counters drops under 90% of the
+ * limit.</td>
+ * </tr>
  * </table>
+ * <br>
+ * The counters are kept in concurrent hash maps, each counter only holds its
+ * (aged) value and the iteration of its last update, so an update or a lookup
+ * takes a constant time and no global lock is needed. This allows the statistics
+ * to be shared by the threads of the {@link org.cpsolver.ifs.solver.ParallelSolver}.
  * 
  * @see Solver
  * @see Model
@@ -161,15 +179,19 @@ public class ConflictStatistics<V extends Variable<V, T>, T extends Value<V, T>>
     private static final String PARAM_AGEING = "ConflictStatistics.Ageing";
     private static final String PARAM_HALF_AGE = "ConflictStatistics.AgeingHalfTime";
     private static final String PARAM_PRINT = "ConflictStatistics.Print";
+    private static final String PARAM_MAX_ENTRIES = "ConflictStatistics.MaxEntries";
 
     private double iAgeing = 1.0;
     private boolean iPrint = false;
+    private int iMaxEntries = 0;
 
-    private Map<AssignedValue<T>, List<AssignedValue<T>>> iAssignments = new HashMap<AssignedValue<T>, List<AssignedValue<T>>>();
-    private Map<V, List<AssignedValue<T>>> iUnassignedVariables = new HashMap<V, List<AssignedValue<T>>>();
+    private ConcurrentMap<T, ConcurrentMap<T, Counter>> iAssignments = new ConcurrentHashMap<T, ConcurrentMap<T, Counter>>();
+    private ConcurrentMap<V, ConcurrentMap<T, Counter>> iUnassignedVariables = new ConcurrentHashMap<V, ConcurrentMap<T, Counter>>();
     private Map<AssignedValue<T>, List<AssignedValue<T>>> iNoGoods = new HashMap<AssignedValue<T>, List<AssignedValue<T>>>();
     
-    private final ReentrantReadWriteLock iLock = new ReentrantReadWriteLock();
+    private final AtomicInteger iNrEntries = new AtomicInteger(0);
+    private final AtomicBoolean iEvicting = new AtomicBoolean(false);
+    private volatile long iLastIteration = 0;
 
     public ConflictStatistics(Solver<V, T> solver, DataProperties properties) {
         super(solver, properties);
@@ -178,6 +200,7 @@ public class ConflictStatistics<V extends Variable<V, T>, T extends Value<V, T>>
         if (halfAge > 0)
             iAgeing = Math.exp(Math.log(0.5) / (halfAge));
         iPrint = properties.getPropertyBoolean(PARAM_PRINT, iPrint);
+        iMaxEntries = properties.getPropertyInt(PARAM_MAX_ENTRIES, iMaxEntries);
     }
 
     @Override
@@ -192,8 +215,7 @@ public class ConflictStatistics<V extends Variable<V, T>, T extends Value<V, T>>
 
     private void variableUnassigned(long iteration, T unassignedValue, AssignedValue<T> noGood) {
         if (iteration <= 0) return;
-        iLock.writeLock().lock();
-        try {
+        synchronized (iNoGoods) {
             AssignedValue<T> unass = new AssignedValue<T>(iteration, unassignedValue, iAgeing);
             List<AssignedValue<T>> noGoodsForUnassignment = iNoGoods.get(unass);
             if (noGoodsForUnassignment != null) {
@@ -207,58 +229,113 @@ public class ConflictStatistics<V extends Variable<V, T>, T extends Value<V, T>>
                 noGoodsForUnassignment.add(noGood);
                 iNoGoods.put(unass, noGoodsForUnassignment);
             }
-        } finally {
-            iLock.writeLock().unlock();
         }
     }
 
     public void reset() {
-        iLock.writeLock().lock();
-        try {
-            iUnassignedVariables.clear();
-            iAssignments.clear();
-        } finally {
-            iLock.writeLock().unlock();
-        }
+        iUnassignedVariables.clear();
+        iAssignments.clear();
+        iNrEntries.set(0);
     }
 
     public Map<AssignedValue<T>, List<AssignedValue<T>>> getNoGoods() {
         return iNoGoods;
     }
 
+    /**
+     * Increments the counter of the given key and value in the given map. When there is no such counter yet,
+     * the provided counter (or a new one if null) is put in the map and returned.
+     */
+    private <K> Counter incCounter(ConcurrentMap<K, ConcurrentMap<T, Counter>> map, K key, T value, long iteration, Counter newCounter) {
+        ConcurrentMap<T, Counter> counters = map.get(key);
+        if (counters == null) {
+            counters = new ConcurrentHashMap<T, Counter>(4, 0.75f, 2);
+            ConcurrentMap<T, Counter> old = map.putIfAbsent(key, counters);
+            if (old != null) counters = old;
+        }
+        Counter counter = counters.get(value);
+        if (counter == null) {
+            counter = (newCounter == null ? new Counter(iteration) : newCounter);
+            Counter old = counters.putIfAbsent(value, counter);
+            if (old == null) {
+                iNrEntries.incrementAndGet();
+                return counter;
+            }
+            counter = old;
+        }
+        counter.inc(iteration, iAgeing);
+        return null;
+    }
+
     public void variableUnassigned(long iteration, T unassignedValue, T assignedValue) {
         if (iteration <= 0) return;
-        AssignedValue<T> ass = new AssignedValue<T>(iteration, assignedValue, iAgeing);
-        AssignedValue<T> unass = new AssignedValue<T>(iteration, unassignedValue, iAgeing);
-        iLock.writeLock().lock();
+        if (iteration > iLastIteration) iLastIteration = iteration;
+        // a newly created counter is shared by both maps (as the assigned value entries used to be)
+        Counter created = incCounter(iAssignments, unassignedValue, assignedValue, iteration, null);
+        incCounter(iUnassignedVariables, unassignedValue.variable(), assignedValue, iteration, created);
+        if (iMaxEntries > 0 && iNrEntries.get() > iMaxEntries)
+            evict();
+    }
+    
+    /**
+     * Forget the coldest counters (counters with the lowest aged value) until the number of
+     * counters drops under 90% of the ConflictStatistics.MaxEntries limit. Only one thread
+     * does the eviction at a time, other threads do not wait for it.
+     */
+    protected void evict() {
+        if (!iEvicting.compareAndSet(false, true)) return;
         try {
-            if (iAssignments.containsKey(unass)) {
-                List<AssignedValue<T>> asss = iAssignments.get(unass);
-                if (asss.contains(ass)) {
-                    asss.get(asss.indexOf(ass)).incCounter(iteration);
-                } else {
-                    asss.add(ass);
+            long iteration = iLastIteration;
+            int toRemove = iNrEntries.get() - (9 * iMaxEntries) / 10;
+            if (toRemove <= 0) return;
+            double[] values = new double[iNrEntries.get() + 16];
+            int size = 0;
+            for (ConcurrentMap<T, Counter> counters: iUnassignedVariables.values())
+                for (Counter counter: counters.values()) {
+                    if (size == values.length) values = Arrays.copyOf(values, 2 * size);
+                    values[size++] = counter.get(iteration, iAgeing);
                 }
-            } else {
-                List<AssignedValue<T>> asss = new ArrayList<AssignedValue<T>>();
-                asss.add(ass);
-                iAssignments.put(unass, asss);
-            }
-            if (iUnassignedVariables.containsKey(unassignedValue.variable())) {
-                List<AssignedValue<T>> asss = iUnassignedVariables.get(unassignedValue.variable());
-                if (asss.contains(ass)) {
-                    (asss.get(asss.indexOf(ass))).incCounter(iteration);
-                } else {
-                    asss.add(ass);
+            for (ConcurrentMap<T, Counter> counters: iAssignments.values())
+                for (Counter counter: counters.values()) {
+                    if (size == values.length) values = Arrays.copyOf(values, 2 * size);
+                    values[size++] = counter.get(iteration, iAgeing);
                 }
-            } else {
-                List<AssignedValue<T>> asss = new ArrayList<AssignedValue<T>>();
-                asss.add(ass);
-                iUnassignedVariables.put(unassignedValue.variable(), asss);
-            }
+            if (size == 0) return;
+            Arrays.sort(values, 0, size);
+            double limit = values[Math.min(toRemove, size) - 1];
+            toRemove -= evict(iUnassignedVariables, iteration, limit, toRemove);
+            evict(iAssignments, iteration, limit, toRemove);
         } finally {
-            iLock.writeLock().unlock();
+            iEvicting.set(false);
+        }
+    }
+    
+    /**
+     * Remove up to the given number of counters with an aged value not exceeding the limit from the given map.
+     * @return number of removed counters
+     */
+    private <K> int evict(ConcurrentMap<K, ConcurrentMap<T, Counter>> map, long iteration, double limit, int toRemove) {
+        int removed = 0;
+        for (Iterator<Map.Entry<K, ConcurrentMap<T, Counter>>> i = map.entrySet().iterator(); i.hasNext() && removed < toRemove; ) {
+            ConcurrentMap<T, Counter> counters = i.next().getValue();
+            for (Iterator<Counter> j = counters.values().iterator(); j.hasNext() && removed < toRemove; ) {
+                if (j.next().get(iteration, iAgeing) <= limit) {
+                    j.remove(); removed ++;
+                    iNrEntries.decrementAndGet();
+                }
+            }
+            // a counter added concurrently to an emptied map may get lost, which is fine for statistics
+            if (counters.isEmpty()) i.remove();
         }
+        return removed;
+    }
+    
+    /**
+     * Number of memorized counters
+     * @return number of counters in the statistics
+     */
+    public int getNrEntries() {
+        return iNrEntries.get();
     }
 
     /**
@@ -287,19 +364,13 @@ public class ConflictStatistics<V extends Variable<V, T>, T extends Value<V, T>>
      * @return number of unassignments
      */
     public double countRemovals(long iteration, T conflictValue, T value) {
-        iLock.readLock().lock();
-        try {
-            List<AssignedValue<T>> asss = iUnassignedVariables.get(conflictValue.variable());
-            if (asss == null)
-                return 0;
-            AssignedValue<T> ass = new AssignedValue<T>(iteration, value, iAgeing);
-            int idx = asss.indexOf(ass);
-            if (idx < 0)
-                return 0;
-            return (asss.get(idx)).getCounter(iteration);
-        } finally {
-            iLock.readLock().unlock();
-        }
+        Map<T, Counter> counters = iUnassignedVariables.get(conflictValue.variable());
+        if (counters == null)
+            return 0;
+        Counter counter = counters.get(value);
+        if (counter == null)
+            return 0;
+        return counter.get(iteration, iAgeing);
     }
 
     /**
@@ -312,82 +383,73 @@ public class ConflictStatistics<V extends Variable<V, T>, T extends Value<V, T>>
      * @return number of potential unassignments
      */
     public long countPotentialConflicts(Assignment<V, T> assignment, long iteration, T value, int limit) {
-        iLock.readLock().lock();
-        try {
-            List<AssignedValue<T>> asss = iAssignments.get(new AssignedValue<T>(iteration, value, iAgeing));
-            if (asss == null)
-                return 0;
-            long count = 0;
-            for (AssignedValue<T> ass : asss) {
-                if (ass.getValue().variable().getAssignment(assignment) == null) {
-                    if (limit >= 0) {
-                        count += ass.getCounter(iteration) * Math.max(0, 1 + limit - value.variable().getModel().conflictValues(assignment, ass.getValue()).size());
-                    } else {
-                        count += ass.getCounter(iteration);
-                    }
+        Map<T, Counter> counters = iAssignments.get(value);
+        if (counters == null)
+            return 0;
+        long count = 0;
+        for (Map.Entry<T, Counter> entry : counters.entrySet()) {
+            if (entry.getKey().variable().getAssignment(assignment) == null) {
+                if (limit >= 0) {
+                    count += entry.getValue().get(iteration, iAgeing) * Math.max(0, 1 + limit - value.variable().getModel().countConflicts(assignment, entry.getKey()));
+                } else {
+                    count += entry.getValue().get(iteration, iAgeing);
                 }
             }
-            return count;            
-        } finally {
-            iLock.readLock().unlock();
         }
+        return count;            
     }
     
     private int countAssignments(V variable) {
-        iLock.readLock().lock();
-        try {
-            List<AssignedValue<T>> assignments = iUnassignedVariables.get(variable);
-            if (assignments == null || assignments.isEmpty()) return 0;
-            int ret = 0;
-            for (AssignedValue<T> assignment: assignments) {
-                ret += assignment.getCounter(0);
-            }
-            return ret;
-        } finally {
-            iLock.readLock().unlock();
+        Map<T, Counter> counters = iUnassignedVariables.get(variable);
+        if (counters == null || counters.isEmpty()) return 0;
+        int ret = 0;
+        for (Counter counter: counters.values()) {
+            ret += counter.get(0, iAgeing);
         }
+        return ret;
     }
 
     @Override
     public String toString() {
-        iLock.readLock().lock();
-        try {
-            StringBuffer sb = new StringBuffer("Statistics{");
-            TreeSet<V> sortedUnassignedVariables = new TreeSet<V>(new Comparator<V>() {
-                @Override
-                public int compare(V v1, V v2) {
-                    int cmp = Double.compare(countAssignments(v1), countAssignments(v2));
-                    if (cmp != 0)
-                        return -cmp;
-                    return v1.compareTo(v2);
-                }
-            });
-            sortedUnassignedVariables.addAll(iUnassignedVariables.keySet());
-            int printedVariables = 0;
-            for (V variable : sortedUnassignedVariables) {
-                sb.append("\n      ").append(countAssignments(variable) + "x ").append(variable.getName()).append(" <= {");
-                TreeSet<AssignedValue<T>> sortedAssignments = new TreeSet<AssignedValue<T>>(
-                        new AssignedValue.AssignmentComparator<T>(0));
-                sortedAssignments.addAll(iUnassignedVariables.get(variable));
-                int printedAssignments = 0;
-                for (AssignedValue<T> x : sortedAssignments) {
-                    sb.append("\n        ").append(x.toString(0, true));
-                    if (++printedAssignments == 20) {
-                        sb.append("\n        ...");
-                        break;
-                    }
-                }
-                sb.append("\n      }");
-                if (++printedVariables == 100) {
-                    sb.append("\n      ...");
+        StringBuffer sb = new StringBuffer("Statistics{");
+        TreeSet<V> sortedUnassignedVariables = new TreeSet<V>(new Comparator<V>() {
+            @Override
+            public int compare(V v1, V v2) {
+                int cmp = Double.compare(countAssignments(v1), countAssignments(v2));
+                if (cmp != 0)
+                    return -cmp;
+                return v1.compareTo(v2);
+            }
+        });
+        sortedUnassignedVariables.addAll(iUnassignedVariables.keySet());
+        int printedVariables = 0;
+        for (V variable : sortedUnassignedVariables) {
+            Map<T, Counter> counters = iUnassignedVariables.get(variable);
+            if (counters == null) continue;
+            sb.append("\n      ").append(countAssignments(variable) + "x ").append(variable.getName()).append(" <= {");
+            TreeSet<AssignedValue<T>> sortedAssignments = new TreeSet<AssignedValue<T>>(
+                    new AssignedValue.AssignmentComparator<T>(0));
+            for (Map.Entry<T, Counter> entry: counters.entrySet()) {
+                AssignedValue<T> ass = new AssignedValue<T>(0, entry.getKey(), iAgeing);
+                ass.setCounter(entry.getValue().get(0, iAgeing));
+                sortedAssignments.add(ass);
+            }
+            int printedAssignments = 0;
+            for (AssignedValue<T> x : sortedAssignments) {
+                sb.append("\n        ").append(x.toString(0, true));
+                if (++printedAssignments == 20) {
+                    sb.append("\n        ...");
                     break;
                 }
             }
-            sb.append("\n    }");
-            return sb.toString();            
-        } finally {
-            iLock.readLock().unlock();
+            sb.append("\n      }");
+            if (++printedVariables == 100) {
+                sb.append("\n      ...");
+                break;
+            }
         }
+        sb.append("\n    }");
+        return sb.toString();            
     }
 
     @Override
@@ -428,4 +490,49 @@ public class ConflictStatistics<V extends Variable<V, T>, T extends Value<V, T>>
     public void constraintRemoved(Constraint<V, T> constraint) {
         constraint.removeConstraintListener(this);
     }
+    
+    /**
+     * Aged counter of the conflict-based statistics. It only keeps the counter value (aged to the
+     * iteration of its last update) and the iteration of the last update. Updates are synchronized
+     * on the counter, reads take no lock (a read that interleaves with an update may see the new
+     * value with the old iteration, which only makes the returned value slightly more aged).
+     */
+    protected static class Counter {
+        private volatile double iCounter = 1.0;
+        private volatile long iLastRevision;
+        
+        /**
+         * Constructor, creates a counter with value 1.0
+         * @param iteration current iteration
+         */
+        protected Counter(long iteration) {
+            iLastRevision = iteration;
+        }
+        
+        /**
+         * Ages the counter to the given iteration and increments it by one
+         * @param iteration current iteration
+         * @param ageing ageing factor
+         */
+        protected synchronized void inc(long iteration, double ageing) {
+            if (ageing != 1.0 && iteration > iLastRevision) {
+                iCounter *= Math.pow(ageing, iteration - iLastRevision);
+                iLastRevision = iteration;
+            }
+            iCounter += 1.0;
+        }
+        
+        /**
+         * Counter value, aged to the given iteration
+         * @param iteration current iteration (0 for the value without ageing)
+         * @param ageing ageing factor
+         * @return counter value
+         */
+        protected double get(long iteration, double ageing) {
+            if (iteration == 0l || ageing == 1.0)
+                return iCounter;
+            long lastRevision = iLastRevision;
+            return iCounter * Math.pow(ageing, iteration - lastRevision);
+        }
+    }
 }
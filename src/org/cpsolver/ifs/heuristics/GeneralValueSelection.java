@@ -11,6 +11,7 @@ import org.cpsolver.ifs.extension.ConflictStatistics;
 import org.cpsolver.ifs.extension.Extension;
 import org.cpsolver.ifs.extension.MacPropagation;
 import org.cpsolver.ifs.extension.ViolatedInitials;
+import org.cpsolver.ifs.model.ConflictSet;
 import org.cpsolver.ifs.model.Model;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.model.Variable;
@@ -233,52 +234,56 @@ public class GeneralValueSelection<V extends Variable<V, T>, T extends Value<V,
             if (oldValue != null && oldValue.equals(value))
                 continue;
 
-            Collection<T> conf = solution.getModel().conflictValues(solution.getAssignment(), value);
-            if (conf.contains(value))
-                continue;
+            ConflictSet<V, T> conf = solution.getModel().conflictValuesBuffer(solution.getAssignment(), value);
+            try {
+                if (conf.contains(value))
+                    continue;
 
-            double weightedConflicts = (iStat == null || iWeightWeightedCoflicts == 0.0 ? 0.0 : iStat.countRemovals(solution.getIteration(), conf, value));
-            double potentialConflicts = (iStat == null || iWeightPotentialConflicts == 0.0 ? 0.0 : iStat.countPotentialConflicts(solution.getAssignment(), solution.getIteration(), value, 3));
+                double weightedConflicts = (iStat == null || iWeightWeightedCoflicts == 0.0 ? 0.0 : iStat.countRemovals(solution.getIteration(), conf, value));
+                double potentialConflicts = (iStat == null || iWeightPotentialConflicts == 0.0 ? 0.0 : iStat.countPotentialConflicts(solution.getAssignment(), solution.getIteration(), value, 3));
 
-            long deltaInitialAssignments = 0;
-            if (iMPP && iWeightDeltaInitialAssignment != 0.0) {
-                if (iViolatedInitials != null) {
-                    Set<T> violations = iViolatedInitials.getViolatedInitials(value);
-                    if (violations != null) {
-                        for (T aValue : violations) {
-                            T aOld = solution.getAssignment().getValue(aValue.variable());
-                            if (aOld == null || aOld.equals(aValue))
-                                deltaInitialAssignments += 2;
+                long deltaInitialAssignments = 0;
+                if (iMPP && iWeightDeltaInitialAssignment != 0.0) {
+                    if (iViolatedInitials != null) {
+                        Set<T> violations = iViolatedInitials.getViolatedInitials(value);
+                        if (violations != null) {
+                            for (T aValue : violations) {
+                                T aOld = solution.getAssignment().getValue(aValue.variable());
+                                if (aOld == null || aOld.equals(aValue))
+                                    deltaInitialAssignments += 2;
+                            }
                         }
                     }
+                    for (Iterator<T> it1 = conf.iterator(); it1.hasNext();) {
+                        T aValue = it1.next();
+                        if (aValue.variable().getInitialAssignment() != null)
+                            deltaInitialAssignments--;
+                    }
+                    if (selectedVariable.getInitialAssignment() != null
+                            && !selectedVariable.getInitialAssignment().equals(value)) {
+                        deltaInitialAssignments++;
+                    }
+                    if (iMPPLimit >= 0 && (solution.getModel().perturbVariables(solution.getAssignment()).size() + deltaInitialAssignments) > iMPPLimit)
+                        continue;
                 }
-                for (Iterator<T> it1 = conf.iterator(); it1.hasNext();) {
-                    T aValue = it1.next();
-                    if (aValue.variable().getInitialAssignment() != null)
-                        deltaInitialAssignments--;
-                }
-                if (selectedVariable.getInitialAssignment() != null
-                        && !selectedVariable.getInitialAssignment().equals(value)) {
-                    deltaInitialAssignments++;
-                }
-                if (iMPPLimit >= 0 && (solution.getModel().perturbVariables(solution.getAssignment()).size() + deltaInitialAssignments) > iMPPLimit)
-                    continue;
-            }
 
-            double weightedSum = (iWeightDeltaInitialAssignment * deltaInitialAssignments)
-                    + (iWeightPotentialConflicts * potentialConflicts) + (iWeightWeightedCoflicts * weightedConflicts)
-                    + (iWeightCoflicts * conf.size()) + (iWeightValue * value.toDouble(solution.getAssignment()));
+                double weightedSum = (iWeightDeltaInitialAssignment * deltaInitialAssignments)
+                        + (iWeightPotentialConflicts * potentialConflicts) + (iWeightWeightedCoflicts * weightedConflicts)
+                        + (iWeightCoflicts * conf.size()) + (iWeightValue * value.toDouble(solution.getAssignment()));
 
-            if (bestValues == null || bestWeightedSum > weightedSum) {
-                bestWeightedSum = weightedSum;
-                if (bestValues == null)
-                    bestValues = new ArrayList<T>();
-                else
-                    bestValues.clear();
-                bestValues.add(value);
-            } else {
-                if (bestWeightedSum == weightedSum)
+                if (bestValues == null || bestWeightedSum > weightedSum) {
+                    bestWeightedSum = weightedSum;
+                    if (bestValues == null)
+                        bestValues = new ArrayList<T>();
+                    else
+                        bestValues.clear();
                     bestValues.add(value);
+                } else {
+                    if (bestWeightedSum == weightedSum)
+                        bestValues.add(value);
+                }
+            } finally {
+                solution.getModel().releaseConflictValuesBuffer(conf);
             }
         }
 
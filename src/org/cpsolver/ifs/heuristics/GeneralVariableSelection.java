@@ -5,6 +5,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.AssignmentArray;
 import org.cpsolver.ifs.extension.Extension;
 import org.cpsolver.ifs.extension.MacPropagation;
 import org.cpsolver.ifs.model.Value;
@@ -126,6 +128,28 @@ public class GeneralVariableSelection<V extends Variable<V, T>, T extends Value<
         }
     }
 
+    /**
+     * A random assigned variable, the same as {@link ToolBox#random(java.util.Collection)} of {@link Assignment#assignedVariables()}
+     * (drawing the same random numbers), but without making a copy of the assigned variables when the assignment is an {@link AssignmentArray}
+     * @param assignment current assignment
+     * @return a randomly selected assigned variable
+     */
+    protected V randomAssignedVariable(Assignment<V, T> assignment) {
+        if (!(assignment instanceof AssignmentArray))
+            return ToolBox.random(assignment.assignedVariables());
+        AssignmentArray<V, T> array = (AssignmentArray<V, T>)assignment;
+        switch (array.nrAssignedVariables()) {
+            case 0:
+                return null;
+            case 1:
+                return array.getAssignedVariable(0);
+            case 2:
+                return array.getAssignedVariable(ToolBox.getRandom().nextBoolean() ? 1 : 0);
+            default:
+                return array.getAssignedVariable(ToolBox.random(array.nrAssignedVariables()));
+        }
+    }
+
     /** Variable selection */
     @Override
     public V selectVariable(Solution<V, T> solution) {
@@ -133,7 +157,7 @@ public class GeneralVariableSelection<V extends Variable<V, T>, T extends Value<
             if (!solution.getModel().perturbVariables(solution.getAssignment()).isEmpty())
                 return ToolBox.random(solution.getModel().perturbVariables(solution.getAssignment()));
             else
-                return ToolBox.random(solution.getAssignment().assignedVariables());
+                return randomAssignedVariable(solution.getAssignment());
         } else {
             if (iProp != null && iUnassignWhenNotGood) {
                 List<V> noGoodVariables = new ArrayList<V>();
@@ -143,7 +167,7 @@ public class GeneralVariableSelection<V extends Variable<V, T>, T extends Value<
                 }
                 if (!noGoodVariables.isEmpty()) {
                     if (ToolBox.random() < iUnassignWhenNotGoodRandWalk)
-                        return ToolBox.random(solution.getAssignment().assignedVariables());
+                        return randomAssignedVariable(solution.getAssignment());
                     for (int attempt = 0; attempt < 10; attempt++) {
                         V noGoodVariable = ToolBox.random(noGoodVariables);
                         T noGoodValue = ToolBox.random(noGoodVariable.values(solution.getAssignment()));
@@ -158,7 +182,7 @@ public class GeneralVariableSelection<V extends Variable<V, T>, T extends Value<
             List<Integer> points = new ArrayList<Integer>();
             int totalPoints = 0;
             for (V variable : solution.getAssignment().unassignedVariables(solution.getModel())) {
-                int pointsThisVariable = (variable.getInitialAssignment() != null ? 3 * (1 + solution.getModel().conflictValues(solution.getAssignment(), variable.getInitialAssignment()).size()) : 1);
+                int pointsThisVariable = (variable.getInitialAssignment() != null ? 3 * (1 + solution.getModel().countConflicts(solution.getAssignment(), variable.getInitialAssignment())) : 1);
                 totalPoints += pointsThisVariable;
                 points.add(totalPoints);
             }
@@ -0,0 +1,191 @@
+package org.cpsolver.ifs.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A clearable set of conflicting values that is keyed by the variable index (see {@link Variable#getIndex()}).
+ * It is meant to be reused between calls of {@link Constraint#computeConflicts(org.cpsolver.ifs.assignment.Assignment, Value, java.util.Set)}:
+ * adding a value, checking whether a value is contained, and clearing the set do not allocate any memory (once the
+ * internal arrays are big enough). Values are compared using {@link Object#equals(Object)}, like in a {@link java.util.HashSet}.<br>
+ * <br>
+ * A set of conflicts normally contains at most one value of each variable. If two different values of the same variable are
+ * added (or a value of a variable that is not in a model, i.e., with a negative index), the additional values are kept in the
+ * set too, but they are looked up sequentially.
+ *
+ * @see Model#conflictValuesBuffer(org.cpsolver.ifs.assignment.Assignment, Value)
+ * @see Model#countConflicts(org.cpsolver.ifs.assignment.Assignment, Value)
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ * @param <V> Variable
+ * @param <T> Value
+ */
+public class ConflictSet<V extends Variable<V, T>, T extends Value<V, T>> extends AbstractSet<T> {
+    /** Values in the set (first iSize elements are used) */
+    private Object[] iValues;
+    /** Position of a value in iValues plus one, indexed by the variable index (zero if there is no such value in the set) */
+    private int[] iPositions;
+    private int iSize = 0;
+    /** Number of values in the set that are not indexed by iPositions */
+    private int iNrUnindexed = 0;
+    private int iModCount = 0;
+
+    /** Create an empty set */
+    public ConflictSet() {
+        this(16, 16);
+    }
+
+    /**
+     * Create an empty set
+     * @param nrVariables expected number of variables (the highest variable index plus one)
+     * @param capacity expected number of conflicts
+     */
+    public ConflictSet(int nrVariables, int capacity) {
+        iPositions = new int[Math.max(1, nrVariables)];
+        iValues = new Object[Math.max(1, capacity)];
+    }
+
+    @Override
+    public int size() {
+        return iSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return iSize == 0;
+    }
+
+    /** Index of the value in iValues, -1 if not present */
+    private int indexOf(Object o) {
+        if (o == null || !(o instanceof Value)) return -1;
+        int idx = ((Value<?, ?>)o).variable().getIndex();
+        if (idx >= 0 && idx < iPositions.length) {
+            int pos = iPositions[idx] - 1;
+            if (pos >= 0 && o.equals(iValues[pos])) return pos;
+        }
+        if (iNrUnindexed > 0)
+            for (int i = 0; i < iSize; i++)
+                if (o.equals(iValues[i])) return i;
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean add(T value) {
+        int idx = value.variable().getIndex();
+        if (idx >= 0 && idx < iPositions.length && iPositions[idx] > 0) {
+            if (value.equals(iValues[iPositions[idx] - 1])) return false;
+        }
+        if (iNrUnindexed > 0 && indexOf(value) >= 0) return false;
+        if (iSize == iValues.length)
+            iValues = Arrays.copyOf(iValues, 2 * iValues.length);
+        iValues[iSize] = value;
+        if (idx >= iPositions.length)
+            iPositions = Arrays.copyOf(iPositions, Math.max(idx + 1, 2 * iPositions.length));
+        if (idx >= 0 && iPositions[idx] == 0)
+            iPositions[idx] = iSize + 1;
+        else
+            iNrUnindexed ++;
+        iSize ++;
+        iModCount ++;
+        return true;
+    }
+
+    /** Remove value at the given position, the last value is moved into its place */
+    private void removeAt(int pos) {
+        int idx = ((Value<?, ?>)iValues[pos]).variable().getIndex();
+        if (idx >= 0 && iPositions[idx] == pos + 1)
+            iPositions[idx] = 0;
+        else
+            iNrUnindexed --;
+        iSize --;
+        if (pos < iSize) {
+            iValues[pos] = iValues[iSize];
+            int lastIdx = ((Value<?, ?>)iValues[pos]).variable().getIndex();
+            if (lastIdx >= 0 && iPositions[lastIdx] == iSize + 1)
+                iPositions[lastIdx] = pos + 1;
+        }
+        iValues[iSize] = null;
+        iModCount ++;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int pos = indexOf(o);
+        if (pos < 0) return false;
+        removeAt(pos);
+        return true;
+    }
+
+    /** Clear the set, only the positions that are in use are reset */
+    @Override
+    public void clear() {
+        for (int i = 0; i < iSize; i++) {
+            int idx = ((Value<?, ?>)iValues[i]).variable().getIndex();
+            if (idx >= 0 && iPositions[idx] == i + 1)
+                iPositions[idx] = 0;
+            iValues[i] = null;
+        }
+        iSize = 0;
+        iNrUnindexed = 0;
+        iModCount ++;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int iNext = 0;
+            private int iLast = -1;
+            private int iExpectedModCount = iModCount;
+
+            @Override
+            public boolean hasNext() {
+                return iNext < iSize;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (iExpectedModCount != iModCount) throw new ConcurrentModificationException();
+                if (iNext >= iSize) throw new NoSuchElementException();
+                iLast = iNext++;
+                return (T)iValues[iLast];
+            }
+
+            @Override
+            public void remove() {
+                if (iLast < 0) throw new IllegalStateException();
+                if (iExpectedModCount != iModCount) throw new ConcurrentModificationException();
+                // the last value is moved into the removed position, it has not been returned yet
+                removeAt(iLast);
+                iNext = iLast;
+                iLast = -1;
+                iExpectedModCount = iModCount;
+            }
+        };
+    }
+}
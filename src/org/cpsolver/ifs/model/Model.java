@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -15,13 +16,17 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.cpsolver.coursett.criteria.TimetablingCriterion;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.AssignmentArray;
 import org.cpsolver.ifs.assignment.DefaultInheritedAssignment;
 import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
 import org.cpsolver.ifs.assignment.EmptyAssignment;
 import org.cpsolver.ifs.assignment.InheritedAssignment;
+import org.cpsolver.ifs.assignment.InheritedAssignmentArray;
+import org.cpsolver.ifs.assignment.context.AbstractClassWithContext;
 import org.cpsolver.ifs.assignment.context.AssignmentContext;
 import org.cpsolver.ifs.assignment.context.AssignmentContextReference;
 import org.cpsolver.ifs.assignment.context.HasAssignmentContext;
+import org.cpsolver.ifs.criteria.AbstractCriterion;
 import org.cpsolver.ifs.criteria.Criterion;
 import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.solver.Solver;
@@ -98,6 +103,17 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     private List<ModelListener<V, T>> iModelListeners = new ArrayList<ModelListener<V, T>>();
     private List<InfoProvider<V, T>> iInfoProviders = new ArrayList<InfoProvider<V, T>>();
     private HashMap<String, Criterion<V, T>> iCriteria = new HashMap<String, Criterion<V,T>>();
+    private List<Criterion<V, T>> iIncrementalCriteria = new ArrayList<Criterion<V, T>>();
+    private List<Criterion<V, T>> iOtherCriteria = new ArrayList<Criterion<V, T>>();
+    private TotalValue iTotalValue = new TotalValue();
+    private volatile int iTotalValueVersion = 0;
+    private boolean iIncrementalTotalValue = true;
+    private boolean iDebugTotalValue = false;
+    private BestChanges iBestChanges = new BestChanges();
+    private volatile int iBestVersion = 0;
+    private boolean iDeltaBest = true;
+    private ThreadLocal<ConflictSet<V, T>> iConflictBuffer = new ThreadLocal<ConflictSet<V, T>>();
+    private ThreadLocal<ConflictSet<V, T>> iCountBuffer = new ThreadLocal<ConflictSet<V, T>>();
 
     private int iBestUnassignedVariables = -1;
     private int iBestPerturbations = 0;
@@ -408,11 +424,82 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      */
     public Set<T> conflictValues(Assignment<V, T> assignment, T value) {
         Set<T> conflictValues = new HashSet<T>();
+        computeConflicts(assignment, value, conflictValues);
+        return conflictValues;
+    }
+    
+    /**
+     * Compute conflicting values of the given value (if it is assigned to its variable) into the provided set.
+     * This is the same as {@link Model#conflictValues(Assignment, Value)}, but the caller can reuse the set (e.g., a {@link ConflictSet}).
+     * @param assignment current assignment
+     * @param value a value to be assigned
+     * @param conflicts a set into which the conflicting values are added (it is not cleared first)
+     */
+    public void computeConflicts(Assignment<V, T> assignment, T value, Set<T> conflicts) {
         for (Constraint<V, T> constraint : value.variable().hardConstraints())
-            constraint.computeConflicts(assignment, value, conflictValues);
+            constraint.computeConflicts(assignment, value, conflicts);
         for (GlobalConstraint<V, T> constraint : globalConstraints())
-            constraint.computeConflicts(assignment, value, conflictValues);
-        return conflictValues;
+            constraint.computeConflicts(assignment, value, conflicts);
+    }
+    
+    /**
+     * Returns the set of conflicting values with this value (if it is assigned to its variable), using a conflict buffer
+     * that is reused by the calling thread. Unlike {@link Model#conflictValues(Assignment, Value)}, this method does not allocate
+     * a new set when the buffer of the calling thread is available. The buffer is in use from this call until it is given back by
+     * {@link Model#releaseConflictValuesBuffer(ConflictSet)}; a call made while the buffer is in use (e.g., a nested call from a constraint
+     * or a criterion, or a caller that does not release the buffer) gets a newly allocated set instead. It should be only used
+     * for short lived conflict computations (e.g., when evaluating values of a domain) and it must not be kept
+     * (e.g., in a neighbour) by the caller after it is released.
+     * @param assignment current assignment
+     * @param value a value to be assigned
+     * @return a set of conflicting values that is owned by the caller until released
+     */
+    public ConflictSet<V, T> conflictValuesBuffer(Assignment<V, T> assignment, T value) {
+        ConflictSet<V, T> conflicts = iConflictBuffer.get();
+        if (conflicts == null) {
+            // not created yet, or in use by an outer call on the same thread
+            conflicts = new ConflictSet<V, T>(iNextVariableIndex, 16);
+        } else {
+            iConflictBuffer.set(null);
+        }
+        computeConflicts(assignment, value, conflicts);
+        return conflicts;
+    }
+    
+    /**
+     * Give back a set returned by {@link Model#conflictValuesBuffer(Assignment, Value)}, so that it can be reused by the next call
+     * on the calling thread. The set is cleared and it must not be used by the caller anymore.
+     * @param conflicts a set returned by {@link Model#conflictValuesBuffer(Assignment, Value)}
+     */
+    public void releaseConflictValuesBuffer(ConflictSet<V, T> conflicts) {
+        if (conflicts == null) return;
+        conflicts.clear();
+        iConflictBuffer.set(conflicts);
+    }
+    
+    /**
+     * Number of conflicting values with this value (if it is assigned to its variable), that is the size of 
+     * {@link Model#conflictValues(Assignment, Value)}. The conflicts are computed into a set that is reused by the calling thread,
+     * so no memory is allocated.
+     * @param assignment current assignment
+     * @param value a value to be assigned
+     * @return number of values that would have to be unassigned if the given value is assigned to its variable
+     */
+    public int countConflicts(Assignment<V, T> assignment, T value) {
+        ConflictSet<V, T> conflicts = iCountBuffer.get();
+        if (conflicts == null) {
+            // not created yet, or in use by an outer call on the same thread
+            conflicts = new ConflictSet<V, T>(iNextVariableIndex, 16);
+        } else {
+            iCountBuffer.set(null);
+        }
+        try {
+            computeConflicts(assignment, value, conflicts);
+            return conflicts.size();
+        } finally {
+            conflicts.clear();
+            iCountBuffer.set(conflicts);
+        }
     }
 
     /**
@@ -527,6 +614,8 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      **/
     public void afterAssigned(Assignment<V, T> assignment,  long iteration, T value) {
         afterAssigned(iteration, value);
+        if (iDeltaBest)
+            iBestChanges.getContext(assignment).changed(value.variable());
         for (ModelListener<V, T> listener : iModelListeners)
             listener.afterAssigned(assignment, iteration, value);
     }
@@ -546,6 +635,8 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
      **/
     public void afterUnassigned(Assignment<V, T> assignment, long iteration, T value) {
         afterUnassigned(iteration, value);
+        if (iDeltaBest)
+            iBestChanges.getContext(assignment).changed(value.variable());
         for (ModelListener<V, T> listener : iModelListeners)
             listener.afterUnassigned(assignment, iteration, value);
     }
@@ -755,16 +846,29 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         saveBest(getDefaultAssignment());
     }
 
-    /** Save the current assignment as the best ever found assignment 
+    /** Save the current assignment as the best ever found assignment.
+     * When the previous best was saved from the same assignment, only the variables that
+     * have changed since then are updated (see {@link Model#setDeltaBest(boolean)}).
      * @param assignment current assignment 
      **/
     public void saveBest(Assignment<V, T> assignment) {
         iBestUnassignedVariables = iVariables.size() - assignment.nrAssignedVariables();
-        iBestPerturbations = perturbVariables(assignment).size();
+        iBestPerturbations = (variablesWithInitialValue().isEmpty() ? 0 : perturbVariables(assignment).size());
         iBestValue = getTotalValue(assignment);
-        for (V variable : iVariables) {
-            variable.setBestAssignment(assignment.getValue(variable), assignment.getIteration(variable));
+        BestChangesContext changes = (iDeltaBest ? iBestChanges.getContext(assignment) : null);
+        if (changes != null && changes.isValid()) {
+            for (V variable : changes.getChangedVariables()) {
+                variable.setBestAssignment(assignment.getValue(variable), assignment.getIteration(variable));
+            }
+        } else {
+            for (V variable : iVariables) {
+                variable.setBestAssignment(assignment.getValue(variable), assignment.getIteration(variable));
+            }
         }
+        if (changes != null)
+            changes.bestSaved();
+        else
+            iBestVersion++;
         for (Criterion<V, T> criterion: getCriteria()) {
             criterion.bestSaved(assignment);
         }
@@ -775,6 +879,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         iBestUnassignedVariables = -1;
         iBestPerturbations = 0;
         iBestValue = 0;
+        iBestVersion++;
         for (V variable : iVariables) {
             variable.setBestAssignment(null, 0);
         }
@@ -796,7 +901,9 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     @SuppressWarnings("unchecked")
     protected void restoreBest(Assignment<V, T> assignment, Comparator<V> assignmentOrder) {
         TreeSet<V> sortedVariables = new TreeSet<V>(assignmentOrder);
-        for (V variable : iVariables) {
+        BestChangesContext changes = (iDeltaBest ? iBestChanges.getContext(assignment) : null);
+        Collection<V> variables = (changes != null && changes.isValid() ? new ArrayList<V>(changes.getChangedVariables()) : iVariables);
+        for (V variable : variables) {
             T value = assignment.getValue(variable);
             if (value == null) {
                 if (variable.getBestAssignment() != null)
@@ -876,6 +983,9 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         for (Criterion<V, T> criterion: getCriteria()) {
             criterion.bestRestored(assignment);
         }
+        if (changes != null && changes.isValid())
+            changes.bestRestored(assignment);
+        invalidateTotalValue();
     }
     
     /** Restore the best ever found assignment into the current assignment
@@ -935,20 +1045,222 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     
     /**
      * Value of the current solution. It is the sum of all assigned values,
-     * i.e., {@link Value#toDouble(Assignment)}.
+     * i.e., {@link Value#toDouble(Assignment)}. If there are some criteria registered,
+     * it is the weighted sum of all criteria. Weighted values of incremental criteria
+     * (see {@link AbstractCriterion#isIncremental()}) are kept in a running total that is
+     * updated with each change (unless disabled by Model.IncrementalTotalValue=false).
+     * Use Debug.TotalValue=true to cross-check the running total with the full recomputation.
      * @param assignment current assignment
      * @return solution value
      */
     public double getTotalValue(Assignment<V, T> assignment) {
         double ret = 0.0;
-        if (getCriteria().isEmpty())
-            for (T t: assignment.assignedValues())
-                ret += t.toDouble(assignment);
-        else
+        if (getCriteria().isEmpty()) {
+            if (assignment instanceof AssignmentArray) {
+                // go through the assigned values without making a copy
+                AssignmentArray<V, T> array = (AssignmentArray<V, T>)assignment;
+                for (int i = 0; i < array.nrAssignedVariables(); i++)
+                    ret += array.getAssignedValue(i).toDouble(assignment);
+            } else {
+                for (T t: assignment.assignedValues())
+                    ret += t.toDouble(assignment);
+            }
+        } else if (iIncrementalTotalValue) {
+            TotalValueContext context = iTotalValue.getContext(assignment);
+            ret = context.getTotalValue(assignment);
+            if (iDebugTotalValue) {
+                double check = 0.0;
+                for (Criterion<V, T> c: getCriteria())
+                    check += c.getWeightedValue(assignment);
+                if (Math.abs(check - ret) > 0.0001) {
+                    sLogger.error("Running total value " + sDoubleFormat.format(ret) + " does not match the computed value " + sDoubleFormat.format(check) + ".");
+                    for (Criterion<V, T> c: iIncrementalCriteria)
+                        sLogger.error("  " + c.getName() + ": " + sDoubleFormat.format(c.getWeightedValue(assignment)));
+                    context.invalidate();
+                    ret = check;
+                }
+            }
+        } else {
             for (Criterion<V, T> c: getCriteria())
                 ret += c.getWeightedValue(assignment);
+        }
         return ret;
     }
+    
+    /**
+     * Increment the running total value of the given assignment (see {@link Model#getTotalValue(Assignment)}). This method is
+     * called by the {@link AbstractCriterion} whenever the value of an incremental criterion (see {@link AbstractCriterion#isIncremental()}) changes.
+     * @param assignment current assignment
+     * @param delta change in the weighted value of a criterion
+     */
+    public void incTotalValue(Assignment<V, T> assignment, double delta) {
+        if (iIncrementalTotalValue)
+            iTotalValue.getContext(assignment).inc(delta);
+    }
+    
+    /**
+     * Invalidate the running total values of all assignments, they will get recomputed from the criteria on the next call of the {@link Model#getTotalValue(Assignment)}.
+     * This is needed when a criterion weight changes or when a criterion is added or removed.
+     */
+    public void invalidateTotalValue() {
+        iTotalValueVersion++;
+    }
+    
+    /**
+     * Enable or disable the running total value. When enabled (default), the weighted sum of the incremental criteria (see {@link AbstractCriterion#isIncremental()})
+     * is kept up to date with each change so that {@link Model#getTotalValue(Assignment)} does not need to iterate over these criteria.
+     * @param incremental true to keep the running total value
+     * @param debug true to cross-check the running total value with the full recomputation on each call of {@link Model#getTotalValue(Assignment)}
+     */
+    public void setIncrementalTotalValue(boolean incremental, boolean debug) {
+        iIncrementalTotalValue = incremental;
+        iDebugTotalValue = debug;
+        invalidateTotalValue();
+    }
+    
+    /**
+     * Running total value of an assignment: weighted sum of incremental criteria values.
+     */
+    public class TotalValueContext implements AssignmentContext {
+        private double iTotal = 0.0;
+        private int iVersion = -1;
+        
+        /**
+         * Overall solution value, computed from the criteria only when the running total is not valid
+         * @param assignment current assignment
+         * @return weighted sum of all criteria
+         */
+        public double getTotalValue(Assignment<V, T> assignment) {
+            if (iVersion != iTotalValueVersion) {
+                iVersion = iTotalValueVersion;
+                iTotal = 0.0;
+                for (Criterion<V, T> c: iIncrementalCriteria)
+                    iTotal += c.getWeightedValue(assignment);
+            }
+            double ret = iTotal;
+            for (Criterion<V, T> c: iOtherCriteria)
+                ret += c.getWeightedValue(assignment);
+            return ret;
+        }
+        
+        /**
+         * Increment the running total (ignored when the running total is not valid)
+         * @param delta change in the weighted value of a criterion
+         */
+        public void inc(double delta) {
+            iTotal += delta;
+        }
+        
+        /**
+         * Make the running total invalid, it will get recomputed on the next call of {@link TotalValueContext#getTotalValue(Assignment)}
+         */
+        public void invalidate() {
+            iVersion = -1;
+        }
+    }
+    
+    /**
+     * Holder of the {@link TotalValueContext} assignment contexts.
+     */
+    private class TotalValue extends AbstractClassWithContext<V, T, TotalValueContext> {
+        @Override
+        public TotalValueContext createAssignmentContext(Assignment<V, T> assignment) {
+            return new TotalValueContext();
+        }
+
+        @Override
+        public Model<V, T> getModel() {
+            return Model.this;
+        }
+    }
+
+    /**
+     * Enable or disable delta-based saving and restoring of the best solution. When enabled (default), each assignment
+     * keeps track of the variables that have changed since the best solution was saved from it, so that
+     * {@link Model#saveBest(Assignment)} and {@link Model#restoreBest(Assignment)} only need to consider these variables.
+     * @param deltaBest true to track changed variables
+     */
+    public void setDeltaBest(boolean deltaBest) {
+        iDeltaBest = deltaBest;
+        iBestVersion++;
+    }
+    
+    /**
+     * Variables of an assignment that have changed since the best solution was saved from it.
+     * The set is only kept when the best solution was last saved from this assignment (and after no {@link Model#clearBest()} call),
+     * it is dropped when it grows over one half of the variables.
+     */
+    public class BestChangesContext implements AssignmentContext {
+        private Set<V> iChanged = new HashSet<V>();
+        private int iVersion = -1;
+        
+        /**
+         * True if the best solution was last saved from this assignment, i.e., the changed variables are known
+         * @return true if the changed variables can be used to save or restore the best solution
+         */
+        public boolean isValid() {
+            return iVersion == iBestVersion;
+        }
+        
+        /**
+         * Called when a variable has been assigned or unassigned
+         * @param variable changed variable
+         */
+        public void changed(V variable) {
+            if (iVersion != iBestVersion) return;
+            iChanged.add(variable);
+            if (2 * iChanged.size() > iVariables.size()) {
+                iVersion = -1;
+                iChanged.clear();
+            }
+        }
+        
+        /**
+         * Variables that have changed since the best solution was saved
+         * @return changed variables
+         */
+        public Set<V> getChangedVariables() {
+            return iChanged;
+        }
+        
+        /**
+         * Called when the best solution has been saved from this assignment
+         */
+        public void bestSaved() {
+            iVersion = ++iBestVersion;
+            iChanged.clear();
+        }
+        
+        /**
+         * Called when the best solution has been restored into this assignment, only variables that
+         * are still not assigned to their best values are kept
+         * @param assignment current assignment
+         */
+        public void bestRestored(Assignment<V, T> assignment) {
+            for (Iterator<V> i = iChanged.iterator(); i.hasNext(); ) {
+                V variable = i.next();
+                T best = variable.getBestAssignment();
+                T value = assignment.getValue(variable);
+                if (best == null ? value == null : best.equals(value))
+                    i.remove();
+            }
+        }
+    }
+    
+    /**
+     * Holder of the {@link BestChangesContext} assignment contexts.
+     */
+    private class BestChanges extends AbstractClassWithContext<V, T, BestChangesContext> {
+        @Override
+        public BestChangesContext createAssignmentContext(Assignment<V, T> assignment) {
+            return new BestChangesContext();
+        }
+
+        @Override
+        public Model<V, T> getModel() {
+            return Model.this;
+        }
+    }
 
     /**
      * Value of the current solution. It is the sum of all assigned values,
@@ -1017,6 +1329,10 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
             if (!listener.init(solver))
                 return false;
         }
+        setIncrementalTotalValue(
+                solver.getProperties().getPropertyBoolean("Model.IncrementalTotalValue", true),
+                solver.getProperties().getPropertyBoolean("Debug.TotalValue", false));
+        setDeltaBest(solver.getProperties().getPropertyBoolean("Model.DeltaBest", true));
         return true;
     }
 
@@ -1104,6 +1420,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         iCriteria.put(criterion.getClass().getName(), criterion);
         criterion.setModel(this);
         addModelListener(criterion);
+        updateIncrementalCriteria();
     }
     
     /** Unregister an existing criterion
@@ -1113,6 +1430,7 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         iCriteria.remove(criterion.getClass().getName());
         criterion.setModel(null);
         removeModelListener(criterion);
+        updateIncrementalCriteria();
     }
     
     /** Unregister an existing criterion
@@ -1122,6 +1440,25 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
         Criterion<V,T> c = iCriteria.remove(criterion.getName());
         if (c != null)
             removeModelListener(c);
+        updateIncrementalCriteria();
+    }
+    
+    /**
+     * Split registered criteria into the ones that are part of the running total value and the others,
+     * invalidate the running total values.
+     */
+    protected void updateIncrementalCriteria() {
+        List<Criterion<V, T>> incremental = new ArrayList<Criterion<V, T>>();
+        List<Criterion<V, T>> other = new ArrayList<Criterion<V, T>>();
+        for (Criterion<V, T> criterion: iCriteria.values()) {
+            if (criterion instanceof AbstractCriterion && ((AbstractCriterion<V, T>)criterion).isIncremental())
+                incremental.add(criterion);
+            else
+                other.add(criterion);
+        }
+        iIncrementalCriteria = incremental;
+        iOtherCriteria = other;
+        invalidateTotalValue();
     }
 
     /** Return a registered criterion of the given type. 
@@ -1241,12 +1578,15 @@ public class Model<V extends Variable<V, T>, T extends Value<V, T>> {
     
     
     /**
-     * Create a new inherited assignment from the given solution
+     * Create a new inherited assignment from the given solution ({@link InheritedAssignmentArray} when the solution
+     * is using an {@link AssignmentArray}, {@link DefaultInheritedAssignment} otherwise)
      * @param solution a solution that is using this model
      * @param index thread index of the new assignment
      * @return a new inherited assignment
      */
     public InheritedAssignment<V, T> createInheritedAssignment(Solution<V, T> solution, int index) {
+        if (solution.getAssignment() instanceof AssignmentArray)
+            return new InheritedAssignmentArray<V, T>(solution, index);
         return new DefaultInheritedAssignment<V, T>(solution, index);
     }
 }
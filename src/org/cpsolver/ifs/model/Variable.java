@@ -192,6 +192,26 @@ public class Variable<V extends Variable<V, T>, T extends Value<V, T>> implement
     public Value<V, T>[] getAssignments() {
         return iAssignedValues;
     }
+    
+    /**
+     * Make sure that the array of current assignments (see {@link Variable#getAssignments()}) is
+     * large enough to hold an assignment of the given index, extending the array when needed.
+     * BEWARE: Do not use outside of {@link DefaultParallelAssignment}. The array should be extended before
+     * the solver threads are started (see {@link org.cpsolver.ifs.solver.ParallelSolver}) as the values stored by other threads while
+     * the array is being extended may get lost.
+     * @param index assignment index
+     * @return currently assigned values, an array of length greater than the given index
+     **/
+    @Deprecated
+    @SuppressWarnings("unchecked")
+    public synchronized Value<V, T>[] getAssignments(int index) {
+        if (index >= iAssignedValues.length) {
+            Value<V, T>[] extended = (Value<V, T>[])Array.newInstance(Value.class, Math.max(index + 1, 2 * iAssignedValues.length));
+            System.arraycopy(iAssignedValues, 0, extended, 0, iAssignedValues.length);
+            iAssignedValues = extended;
+        }
+        return iAssignedValues;
+    }
 
     /** Returns initial assignment 
      * @return initial assignment (for the minimal perturbation problem)
@@ -1,5 +1,6 @@
 package org.cpsolver.ifs.solver;
 
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -8,12 +9,19 @@ import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.assignment.DefaultParallelAssignment;
 import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
-import org.cpsolver.ifs.assignment.context.CanHoldContext;
+import org.cpsolver.ifs.assignment.InheritedAssignment;
+import org.cpsolver.ifs.assignment.InheritedAssignmentArray;
+import org.cpsolver.ifs.heuristics.NeighbourSelection;
+import org.cpsolver.ifs.model.Constraint;
+import org.cpsolver.ifs.model.GlobalConstraint;
 import org.cpsolver.ifs.model.LazyNeighbour;
 import org.cpsolver.ifs.model.LazyNeighbour.LazyNeighbourAcceptanceCriterion;
 import org.cpsolver.ifs.model.Model;
@@ -36,7 +44,23 @@ import org.cpsolver.ifs.util.ToolBox;
  * <br>
  * When {@link DefaultSingleAssignment} is given to the solver, only one solution is used.
  * A neighbour is assigned to this (shared) solution when it does not create any conflicts
- * outside of {@link Neighbour#assignments()}.
+ * outside of {@link Neighbour#assignments()}. With ParallelSolver.SingleSolutionOptimistic set to true,
+ * a neighbour is validated (the touched variables have not been changed in the mean time) under the locks of the
+ * constraints of the touched variables (there are ParallelSolver.SingleSolutionStripes such locks) and the shared
+ * solution is only locked to make the assignment. A lazy neighbour is evaluated on the thread's inherited assignment
+ * first and re-evaluated when validated. When the validation fails, a new neighbour is selected (at most
+ * ParallelSolver.SingleSolutionRetries times).<br>
+ * <br>
+ * With Parallel.Portfolio set to true, each solver thread uses its own neighbour selection, created using
+ * the solver properties that are overridden by the properties starting with Parallel.Portfolio.<i>k</i>.
+ * (e.g., Parallel.Portfolio.2.SimulatedAnnealing.InitialTemperature=2.0 changes the initial temperature of
+ * the second, fourth, etc. thread when there are two such configurations), see {@link ParallelSolver#getPortfolioProperties(int)}.
+ * When Parallel.ExchangeInterval is set (in seconds, defaults to 30 in the portfolio mode), each solver thread
+ * periodically restores the best solution found so far, if it has been improved by some other thread since then
+ * and if the current solution of the thread is not better.<br>
+ * <br>
+ * Each solver thread draws its random numbers from its own generator, seeded by General.Seed and the
+ * thread index (see {@link ToolBox#initThreadRandom(int)}), instead of the random number generator shared by all threads.
  * 
  * @see Solver
  * 
@@ -64,6 +88,9 @@ import org.cpsolver.ifs.util.ToolBox;
 public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> extends Solver<V, T> {
     private SynchronizationThread iSynchronizationThread = null;
     private int iNrFinished = 0;
+    private AtomicInteger iBestVersion = new AtomicInteger(0);
+    private Lock[] iStripes = null;
+    private AtomicLong iNrOptimisticCommitted = new AtomicLong(0), iNrOptimisticRejected = new AtomicLong(0), iNrOptimisticFailed = new AtomicLong(0);
     
     public ParallelSolver(DataProperties properties) {
         super(properties);
@@ -72,7 +99,7 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
     /** Starts solver */
     @Override
     public void start() {
-        int nrSolvers = Math.min(Math.abs(getProperties().getPropertyInt("Parallel.NrSolvers", 4)), CanHoldContext.sMaxSize - 1);
+        int nrSolvers = Math.abs(getProperties().getPropertyInt("Parallel.NrSolvers", 4));
         if (nrSolvers == 1) {
             super.start();
         } else {
@@ -91,9 +118,9 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
     /** Sets initial solution */
     @Override
     public void setInitalSolution(Model<V, T> model) {
-        int nrSolvers = Math.min(Math.abs(getProperties().getPropertyInt("Parallel.NrSolvers", 4)), CanHoldContext.sMaxSize - 1);
+        int nrSolvers = Math.abs(getProperties().getPropertyInt("Parallel.NrSolvers", 4));
         boolean updateMasterSolution = getProperties().getPropertyBoolean("Parallel.UpdateMasterSolution", true);
-        setInitalSolution(new Solution<V, T>(model, nrSolvers > 1 ? new DefaultParallelAssignment<V, T>(updateMasterSolution ? 1 : 0) : new DefaultSingleAssignment<V, T>(), 0, 0));
+        setInitalSolution(new Solution<V, T>(model, nrSolvers > 1 ? new DefaultParallelAssignment<V, T>(updateMasterSolution ? 1 : 0) : createSingleAssignment(model), 0, 0));
     }
     
     /**
@@ -123,6 +150,7 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
         }
         
         @Override
+        @SuppressWarnings("deprecation")
         public void run() {
             iStop = false;
             iNrFinished = 0;
@@ -158,9 +186,29 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
             if (hasSingleSolution() && iNrSolvers > 1 && getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionQueue", false))
                 queue = new ArrayBlockingQueue<Neighbour<V, T>>(2 * iNrSolvers);
             
+            if (hasSingleSolution() && queue == null && getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionOptimistic", false)) {
+                iStripes = new Lock[Math.max(1, getProperties().getPropertyInt("ParallelSolver.SingleSolutionStripes", 64))];
+                for (int i = 0; i < iStripes.length; i++)
+                    iStripes[i] = new ReentrantLock();
+                iNrOptimisticCommitted.set(0); iNrOptimisticRejected.set(0); iNrOptimisticFailed.set(0);
+            }
+            
             if (!iStop) {
+                // Make sure that all the variables can hold an assignment of each solver thread
+                // (the arrays are to be extended before any of the solver threads is started)
+                for (V variable: currentSolution().getModel().variables())
+                    variable.getAssignments(iNrSolvers);
+                
+                boolean portfolio = getProperties().getPropertyBoolean("Parallel.Portfolio", false) && !hasSingleSolution();
                 for (int i = 1; i <= iNrSolvers; i++) {
                     SolverThread thread = new SolverThread(i, queue);
+                    if (portfolio) {
+                        NeighbourSelection<V, T> neighbourSelection = createPortfolioNeighbourSelection(i);
+                        if (neighbourSelection != null) {
+                            neighbourSelection.init(ParallelSolver.this);
+                            thread.iNeighbourSelection = neighbourSelection;
+                        }
+                    }
                     thread.setPriority(THREAD_PRIORITY);
                     thread.setName("Solver-" + i);
                     thread.start();
@@ -209,10 +257,13 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
             
             // Finalization
             iLastSolution = iCurrentSolution;
+            if (iStripes != null)
+                sLogger.info("Optimistic assignments: " + iNrOptimisticCommitted.get() + " committed, " + iNrOptimisticRejected.get() + " rejected after re-evaluation, " + iNrOptimisticFailed.get() + " failed validation");
 
             iProgress.setPhase("Done", 1);
             iProgress.incProgress();
 
+            shutdownThreadPools();
             iSynchronizationThread = null;
             if (stop) {
                 sLogger.debug("Solver stopped.");
@@ -226,6 +277,38 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
         }
     }
     
+    /**
+     * Locks that are to be held while a neighbour is validated and assigned in the optimistic single solution mode
+     * (ParallelSolver.SingleSolutionOptimistic is true). A constraint (or a variable) is mapped to one of the
+     * ParallelSolver.SingleSolutionStripes locks by its id, the locks are returned in the order in which they are to be taken.
+     * Two neighbours that touch variables sharing a constraint always share a lock, global constraints are shared by all neighbours.
+     * @param variables variables that are touched by a neighbour
+     * @return locks of the constraints of the given variables, ordered by their index
+     */
+    protected Lock[] getStripes(Collection<V> variables) {
+        boolean[] stripes = new boolean[iStripes.length];
+        int count = 0;
+        for (V variable: variables) {
+            int stripe = (int)Math.abs(variable.getId() % iStripes.length);
+            if (!stripes[stripe]) { stripes[stripe] = true; count++; }
+            for (Constraint<V, T> constraint: variable.constraints()) {
+                stripe = (int)Math.abs(constraint.getId() % iStripes.length);
+                if (!stripes[stripe]) { stripes[stripe] = true; count++; }
+            }
+        }
+        if (!variables.isEmpty()) {
+            for (GlobalConstraint<V, T> constraint: iCurrentSolution.getModel().globalConstraints()) {
+                int stripe = (int)Math.abs(constraint.getId() % iStripes.length);
+                if (!stripes[stripe]) { stripes[stripe] = true; count++; }
+            }
+        }
+        Lock[] ret = new Lock[count];
+        int idx = 0;
+        for (int i = 0; i < stripes.length; i++)
+            if (stripes[i]) ret[idx++] = iStripes[i];
+        return ret;
+    }
+    
     /**
      * Create a solution that is to be used by a solver thread of the given index
      * @param index solver thread index
@@ -241,13 +324,75 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
         return solution;
     }
     
+    /**
+     * Number of portfolio configurations, i.e., the highest <i>k</i> such that there is a property starting with Parallel.Portfolio.<i>k</i>.
+     * (unless set by the Parallel.PortfolioSize property)
+     * @return number of portfolio configurations, zero if there are none
+     */
+    protected int getPortfolioSize() {
+        int size = getProperties().getPropertyInt("Parallel.PortfolioSize", -1);
+        if (size >= 0) return size;
+        size = 0;
+        String prefix = "Parallel.Portfolio.";
+        for (Object key: getProperties().keySet()) {
+            String name = key.toString();
+            if (!name.startsWith(prefix)) continue;
+            int dot = name.indexOf('.', prefix.length());
+            if (dot < 0) continue;
+            try {
+                size = Math.max(size, Integer.parseInt(name.substring(prefix.length(), dot)));
+            } catch (NumberFormatException e) {}
+        }
+        return size;
+    }
+    
+    /**
+     * Solver properties of a solver thread in the portfolio mode. The solver properties are overridden by the properties starting with
+     * Parallel.Portfolio.<i>k</i>. where <i>k</i> = ((index - 1) % {@link ParallelSolver#getPortfolioSize()}) + 1.
+     * @param index solver thread index (starting with 1)
+     * @return solver properties of the given thread
+     */
+    protected DataProperties getPortfolioProperties(int index) {
+        int size = getPortfolioSize();
+        if (size <= 0) return getProperties();
+        String prefix = "Parallel.Portfolio." + (1 + (index - 1) % size) + ".";
+        DataProperties properties = new DataProperties(getProperties());
+        for (Map.Entry<Object, Object> entry: getProperties().entrySet()) {
+            String name = entry.getKey().toString();
+            if (name.startsWith(prefix) && name.length() > prefix.length())
+                properties.setProperty(name.substring(prefix.length()), entry.getValue().toString());
+        }
+        return properties;
+    }
+    
+    /**
+     * Create a neighbour selection that is to be used by a solver thread of the given index in the portfolio mode (Parallel.Portfolio is true).
+     * The class is given by the Neighbour.Class property and it is created using the {@link ParallelSolver#getPortfolioProperties(int)}.
+     * @param index solver thread index (starting with 1)
+     * @return neighbour selection of the given thread, null if it cannot be created (the solver neighbour selection is used instead)
+     */
+    @SuppressWarnings("unchecked")
+    protected NeighbourSelection<V, T> createPortfolioNeighbourSelection(int index) {
+        DataProperties properties = getPortfolioProperties(index);
+        try {
+            String neighbourSelectionClassName = properties.getProperty("Neighbour.Class", "org.cpsolver.ifs.heuristics.StandardNeighbourSelection");
+            sLogger.info("Solver-" + index + " is using " + neighbourSelectionClassName);
+            Class<?> neighbourSelectionClass = Class.forName(neighbourSelectionClassName);
+            Constructor<?> neighbourSelectionConstructor = neighbourSelectionClass.getConstructor(new Class<?>[] { DataProperties.class });
+            return (NeighbourSelection<V, T>) neighbourSelectionConstructor.newInstance(new Object[] { properties });
+        } catch (Exception e) {
+            sLogger.error("Unable to create neighbour selection for Solver-" + index + ".", e);
+            return null;
+        }
+    }
+    
     /**
      * Returns true if the solver works only with one solution (regardless the number of threads it is using)
-     * @return true if the current solution is {@link DefaultSingleAssignment}
+     * @return true if the current solution is {@link DefaultSingleAssignment} (or a not inherited {@link org.cpsolver.ifs.assignment.AssignmentArray})
      */
     @Override
     public boolean hasSingleSolution() {
-        return iCurrentSolution.getAssignment() instanceof DefaultSingleAssignment;
+        return isSingleAssignment(iCurrentSolution.getAssignment());
     }
     
     /**
@@ -261,6 +406,9 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
         private Solution<V, T> iSolution;
         private Assignment<V, T> iAssignment;
         private BlockingQueue<Neighbour<V, T>> iQueue;
+        private NeighbourSelection<V, T> iNeighbourSelection = null;
+        private int iAdoptedBestVersion = 0;
+        private InheritedAssignment<V, T> iInheritedAssignment = null;
         
         public SolverThread(int index, BlockingQueue<Neighbour<V, T>> queue) {
             iIndex = index;
@@ -274,59 +422,32 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
         @Override
         public void run() {
             iStartTime = JProf.currentTimeSec();
+            // each solver thread has its own (reproducible) stream of random numbers
+            ToolBox.initThreadRandom(iIndex);
             try {
                 boolean neighbourCheck = getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionNeighbourCheck", false);
                 boolean tryLazyFirst = getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionTryLazyFirst", false);
+                boolean optimistic = getProperties().getPropertyBoolean("ParallelSolver.SingleSolutionOptimistic", false);
+                double exchangeInterval = getProperties().getPropertyDouble("Parallel.ExchangeInterval",
+                        getProperties().getPropertyBoolean("Parallel.Portfolio", false) ? 30.0 : 0.0);
+                double lastExchange = iStartTime;
+                NeighbourSelection<V, T> neighbourSelection = (iNeighbourSelection == null ? getNeighbourSelection() : iNeighbourSelection);
                 
                 while (!iStop) {
                     // Break if cannot continue
                     if (!getTerminationCondition().canContinue(iSolution)) break;
                     
-                    // Create a sub-solution if needed
-                    Solution<V, T> current = iSolution;
-                    if (iSingle) {
-                        current = new Solution<V, T>(iModel, iModel.createInheritedAssignment(iSolution, iIndex), iSolution.getIteration(), iSolution.getTime());
-                        current.addSolutionListener(new SolutionListener<V, T>() {
-                            @Override
-                            public void solutionUpdated(Solution<V, T> solution) {
-                            }
-
-                            @Override
-                            public void getInfo(Solution<V, T> solution, Map<String, String> info) {
-                            }
-
-                            @Override
-                            public void getInfo(Solution<V, T> solution, Map<String, String> info, Collection<V> variables) {
-                            }
-
-                            @Override
-                            public void bestCleared(Solution<V, T> solution) {
-                            }
-
-                            @Override
-                            public void bestSaved(Solution<V, T> solution) {
-                            }
-
-                            @Override
-                            public void bestRestored(Solution<V, T> solution) {
-                                iSolution.restoreBest();
-                            }
-                        });
+                    // Adopt the best solution found by the other threads
+                    if (!iSingle && exchangeInterval > 0.0 && JProf.currentTimeSec() - lastExchange >= exchangeInterval) {
+                        lastExchange = JProf.currentTimeSec();
+                        adoptBest();
                     }
+                    
+                    // Create a sub-solution if needed
+                    Solution<V, T> current = (iSingle ? createSubSolution() : iSolution);
 
                     // Neighbour selection
-                    Neighbour<V, T> neighbour = null;
-                    try {
-                        neighbour = getNeighbourSelection().selectNeighbour(current);
-                    } catch (Exception e) {
-                        sLogger.warn("Failed to select a neighbour: " + (e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
-                    }
-                    for (SolverListener<V, T> listener : iSolverListeners) {
-                        if (!listener.neighbourSelected(iAssignment, iSolution.getIteration(), neighbour)) {
-                            neighbour = null;
-                            continue;
-                        }
-                    }
+                    Neighbour<V, T> neighbour = selectNeighbour(neighbourSelection, current);
 
                     double time = JProf.currentTimeSec() - iStartTime;
                     if (neighbour == null) {
@@ -357,6 +478,11 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
                             continue;
                         }
                         
+                        if (optimistic) {
+                            assignOptimistic(current, neighbourSelection, neighbour, assignments, time, neighbourCheck);
+                            continue;
+                        }
+                        
                         if (tryLazyFirst && neighbour instanceof LazyNeighbour) {
                             LazyNeighbour<V, T> lazy = (LazyNeighbour<V, T>)neighbour;
                             double before = current.getModel().getTotalValue(current.getAssignment());
@@ -436,8 +562,9 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
 
                         onAssigned(iStartTime, iSolution);
                         
-                        if (iSaveBestUnassigned < 0 || iSaveBestUnassigned >= iAssignment.nrUnassignedVariables(iModel))
-                            iSolution.saveBestIfImproving(currentSolution(), getSolutionComparator());
+                        if ((iSaveBestUnassigned < 0 || iSaveBestUnassigned >= iAssignment.nrUnassignedVariables(iModel)) &&
+                                iSolution.saveBestIfImproving(currentSolution(), getSolutionComparator()))
+                            iAdoptedBestVersion = iBestVersion.incrementAndGet();
                     }
                 }
 
@@ -448,6 +575,8 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
                     iProgress.setStatus("Solver failed.");
                     onFailure();
                 }
+            } finally {
+                ToolBox.releaseThreadRandom();
             }
             Lock lock = currentSolution().getLock().writeLock();
             lock.lock();
@@ -458,6 +587,282 @@ public class ParallelSolver<V extends Variable<V, T>, T extends Value<V, T>> ext
             }
         }
         
+        /**
+         * Restore the best solution into the solution of this thread (multiple solutions mode, see Parallel.ExchangeInterval).
+         * The best solution is only restored when it has been saved by some other thread since the last time this thread has
+         * saved or restored the best solution and the current solution of this thread is not better than the best solution.
+         * @return true if the best solution has been restored
+         */
+        protected boolean adoptBest() {
+            int version = iBestVersion.get();
+            if (version == iAdoptedBestVersion) return false;
+            Solution<V, T> master = currentSolution();
+            // the master solution is locked by the restore itself, other solutions need to prevent the best solution from being changed
+            Lock lock = (iSolution == master ? null : master.getLock().readLock());
+            if (lock != null) lock.lock();
+            try {
+                version = iBestVersion.get();
+                if (master.getBestInfo() == null || master.getBestIndex() == iAssignment.getIndex()) {
+                    iAdoptedBestVersion = version;
+                    return false;
+                }
+                if (getSolutionComparator().isBetterThanBestSolution(iSolution))
+                    return false;
+                iSolution.restoreBest();
+                iAdoptedBestVersion = version;
+                sLogger.debug(getName() + " adopted the best solution of Solver-" + master.getBestIndex() + " (value: " + iModel.getTotalValue(iAssignment) + ")");
+                return true;
+            } finally {
+                if (lock != null) lock.unlock();
+            }
+        }
+        
+        /**
+         * Create a sub-solution of the shared solution (single solution mode). An array based inherited assignment is refreshed
+         * incrementally (unless the neighbours are passed to the assignment thread), otherwise a new inherited assignment is created.
+         * @return a solution that is based on the current state of the shared solution
+         */
+        protected Solution<V, T> createSubSolution() {
+            if (iQueue == null && iInheritedAssignment instanceof InheritedAssignmentArray)
+                ((InheritedAssignmentArray<V, T>)iInheritedAssignment).refresh(iSolution);
+            else
+                iInheritedAssignment = iModel.createInheritedAssignment(iSolution, iIndex);
+            Solution<V, T> current = new Solution<V, T>(iModel, iInheritedAssignment, iSolution.getIteration(), iSolution.getTime());
+            current.addSolutionListener(new SolutionListener<V, T>() {
+                @Override
+                public void solutionUpdated(Solution<V, T> solution) {
+                }
+
+                @Override
+                public void getInfo(Solution<V, T> solution, Map<String, String> info) {
+                }
+
+                @Override
+                public void getInfo(Solution<V, T> solution, Map<String, String> info, Collection<V> variables) {
+                }
+
+                @Override
+                public void bestCleared(Solution<V, T> solution) {
+                }
+
+                @Override
+                public void bestSaved(Solution<V, T> solution) {
+                }
+
+                @Override
+                public void bestRestored(Solution<V, T> solution) {
+                    iSolution.restoreBest();
+                }
+            });
+            return current;
+        }
+        
+        /**
+         * Select a neighbour using the given neighbour selection, the solver listeners can veto the selected neighbour.
+         * @param neighbourSelection neighbour selection of this thread
+         * @param current (sub-)solution on which the neighbour is to be selected
+         * @return selected neighbour, null if no neighbour has been selected
+         */
+        protected Neighbour<V, T> selectNeighbour(NeighbourSelection<V, T> neighbourSelection, Solution<V, T> current) {
+            Neighbour<V, T> neighbour = null;
+            try {
+                neighbour = neighbourSelection.selectNeighbour(current);
+            } catch (Exception e) {
+                sLogger.warn("Failed to select a neighbour: " + (e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
+            }
+            for (SolverListener<V, T> listener : iSolverListeners) {
+                if (!listener.neighbourSelected(iAssignment, iSolution.getIteration(), neighbour)) {
+                    neighbour = null;
+                    continue;
+                }
+            }
+            return neighbour;
+        }
+        
+        /**
+         * Optimistic assignment of a neighbour in the single solution mode (ParallelSolver.SingleSolutionOptimistic is true).
+         * A lazy neighbour is first evaluated (using its acceptance criterion, see {@link LazyEvaluation}) on the inherited assignment
+         * of this thread, without holding any lock. The neighbour is then validated and committed under a stripe of locks (see {@link ParallelSolver#getStripes(Collection)})
+         * that are taken from the constraints of the touched variables: the sub-solution is refreshed, the touched variables must still
+         * have the values the neighbour was selected with, and the value of a lazy neighbour is re-evaluated on the refreshed sub-solution
+         * (its acceptance criterion is consulted again if the value has changed). Neighbours that do not share a constraint are
+         * validated and evaluated concurrently, the write lock of the solution is only held while the assignments are made.
+         * The neighbour check (ParallelSolver.SingleSolutionNeighbourCheck) is done on the shared solution, the same way as when
+         * the optimistic mode is disabled. If the validation fails, a new neighbour is selected on the refreshed sub-solution
+         * (at most ParallelSolver.SingleSolutionRetries times).
+         * @param current sub-solution of this thread on which the neighbour was selected
+         * @param neighbourSelection neighbour selection of this thread (used to select a new neighbour when the validation fails)
+         * @param neighbour selected neighbour
+         * @param assignments assignments of the selected neighbour
+         * @param time current solver time
+         * @param neighbourCheck check that the neighbour value is not worse than expected (ParallelSolver.SingleSolutionNeighbourCheck)
+         */
+        protected void assignOptimistic(Solution<V, T> current, NeighbourSelection<V, T> neighbourSelection, Neighbour<V, T> neighbour, Map<V, T> assignments, double time, boolean neighbourCheck) {
+            int retries = getProperties().getPropertyInt("ParallelSolver.SingleSolutionRetries", 3);
+            while (true) {
+                // Remember the values of the touched variables the neighbour is evaluated with
+                Map<V, T> expected = new HashMap<V, T>();
+                for (V var: assignments.keySet())
+                    expected.put(var, current.getAssignment().getValue(var));
+                
+                // Evaluate the lazy neighbour on the inherited assignment
+                LazyEvaluation lazy = null;
+                if (neighbour instanceof LazyNeighbour) {
+                    lazy = new LazyEvaluation((LazyNeighbour<V, T>)neighbour);
+                    if (!lazy.evaluate(current)) return;
+                }
+                
+                // Validate and assign under the locks of the touched constraints
+                Lock[] stripes = getStripes(assignments.keySet());
+                for (Lock stripe: stripes) stripe.lock();
+                try {
+                    // No other thread can change the touched variables (or any other variable of their constraints) now
+                    if (current.getAssignment() == iInheritedAssignment && iInheritedAssignment instanceof InheritedAssignmentArray)
+                        ((InheritedAssignmentArray<V, T>)iInheritedAssignment).refresh(iSolution);
+                    else
+                        current = createSubSolution();
+                    boolean valid = true;
+                    for (Map.Entry<V, T> entry: expected.entrySet()) {
+                        if (!ToolBox.equals(current.getAssignment().getValue(entry.getKey()), entry.getValue())) {
+                            valid = false; break;
+                        }
+                    }
+                    if (valid) {
+                        // Re-evaluate the lazy neighbour on the refreshed sub-solution
+                        if (lazy != null && !lazy.evaluate(current)) {
+                            iNrOptimisticRejected.incrementAndGet();
+                            return;
+                        }
+                        if (commitOptimistic(current, neighbour, assignments, expected, time, neighbourCheck))
+                            iNrOptimisticCommitted.incrementAndGet();
+                        return;
+                    }
+                } finally {
+                    for (int i = stripes.length - 1; i >= 0; i--) stripes[i].unlock();
+                }
+                
+                // Validation failed: the neighbour was selected on a state that is no longer valid, select a new one
+                iNrOptimisticFailed.incrementAndGet();
+                if (retries-- <= 0 || iStop) return;
+                neighbour = selectNeighbour(neighbourSelection, current);
+                if (neighbour == null) return;
+                try {
+                    assignments = neighbour.assignments();
+                } catch (UnsupportedOperationException e) {
+                    return;
+                }
+                if (assignments == null) return;
+            }
+        }
+        
+        /**
+         * Evaluation of a lazy neighbour in the optimistic mode. The acceptance criterion of the neighbour is consulted when the
+         * neighbour is evaluated for the first time, when it is re-evaluated it is only consulted again if the value has changed.
+         */
+        protected class LazyEvaluation implements LazyNeighbourAcceptanceCriterion<V, T> {
+            private LazyNeighbour<V, T> iNeighbour;
+            private LazyNeighbourAcceptanceCriterion<V, T> iCriterion;
+            private Double iValue = null;
+            private boolean iAccepted = false;
+            
+            public LazyEvaluation(LazyNeighbour<V, T> neighbour) {
+                iNeighbour = neighbour;
+                iCriterion = neighbour.getAcceptanceCriterion();
+            }
+            
+            /**
+             * Assign the neighbour to the given (sub-)solution, the assignment is undone if the neighbour is not accepted
+             * @param current sub-solution of this thread
+             * @return true if the neighbour has been accepted
+             */
+            public boolean evaluate(Solution<V, T> current) {
+                iNeighbour.setAcceptanceCriterion(this);
+                try {
+                    iNeighbour.assign(current.getAssignment(), current.getIteration());
+                } finally {
+                    iNeighbour.setAcceptanceCriterion(iCriterion);
+                }
+                return iAccepted;
+            }
+            
+            @Override
+            public boolean accept(Assignment<V, T> assignment, LazyNeighbour<V, T> neighbour, double value) {
+                if (iValue == null || Math.abs(iValue - value) > 1e-9)
+                    iAccepted = iCriterion.accept(assignment, neighbour, value);
+                iValue = value;
+                return iAccepted;
+            }
+        }
+        
+        /**
+         * Assign the validated neighbour to the shared solution (single solution mode, ParallelSolver.SingleSolutionOptimistic is true).
+         * Called with the stripe locks of the touched variables held, the write lock of the solution is held while the assignments are made.
+         * @param current refreshed sub-solution of this thread
+         * @param neighbour validated neighbour
+         * @param assignments assignments of the neighbour
+         * @param expected values of the touched variables the neighbour has been evaluated with
+         * @param time current solver time
+         * @param neighbourCheck check that the neighbour value is not worse than expected (ParallelSolver.SingleSolutionNeighbourCheck)
+         * @return true if the neighbour has been assigned
+         */
+        protected boolean commitOptimistic(Solution<V, T> current, Neighbour<V, T> neighbour, Map<V, T> assignments, Map<V, T> expected, double time, boolean neighbourCheck) {
+            Lock lock = iSolution.getLock().writeLock();
+            lock.lock();
+            try {
+                boolean fail = false;
+                // the touched variables can still be changed by the solution itself (e.g., when the best solution is restored)
+                for (Map.Entry<V, T> entry: expected.entrySet()) {
+                    if (!ToolBox.equals(iSolution.getAssignment().getValue(entry.getKey()), entry.getValue())) {
+                        fail = true; break;
+                    }
+                }
+                if (!fail) {
+                    double before = 0, value = 0;
+                    boolean check = neighbourCheck && !(neighbour instanceof LazyNeighbour);
+                    if (check) {
+                        before = iModel.getTotalValue(iSolution.getAssignment());
+                        value = neighbour.value(current.getAssignment());
+                    }
+                    Map<V, T> undo = new HashMap<V, T>();
+                    for (V var: assignments.keySet())
+                        undo.put(var, iSolution.getAssignment().unassign(iSolution.getIteration(), var));
+                    for (T val: assignments.values()) {
+                        if (val == null) continue;
+                        if (iModel.inConflict(iSolution.getAssignment(), val)) {
+                            fail = true; break;
+                        }
+                        iSolution.getAssignment().assign(iSolution.getIteration(), val);
+                    }
+                    if (!fail && check) {
+                        double after = iModel.getTotalValue(iSolution.getAssignment());
+                        if (before + value < after && before < after && !getSolutionComparator().isBetterThanBestSolution(iSolution))
+                            fail = true;
+                    }
+                    if (fail) {
+                        for (V var: undo.keySet())
+                            iSolution.getAssignment().unassign(iSolution.getIteration(), var);
+                        for (T val: undo.values())
+                            if (val != null)
+                                iSolution.getAssignment().assign(iSolution.getIteration(), val);
+                    }
+                }
+                iSolution.update(time, !fail);
+                if (fail) {
+                    for (SolverListener<V, T> listener : iSolverListeners)
+                        listener.neighbourFailed(current.getAssignment(), iSolution.getIteration(), neighbour);
+                    return false;
+                }
+                
+                onAssigned(iStartTime, iSolution);
+                
+                if ((iSaveBestUnassigned < 0 || iSaveBestUnassigned >= iSolution.getAssignment().nrUnassignedVariables(iModel)) && getSolutionComparator().isBetterThanBestSolution(iSolution)) {
+                    iSolution.saveBest();
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
     }
     
     /**
@@ -9,7 +9,10 @@ import java.util.List;
 import java.util.StringTokenizer;
 import java.util.concurrent.locks.Lock;
 
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.AssignmentArray;
 import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.assignment.InheritedAssignment;
 import org.cpsolver.ifs.extension.ConflictStatistics;
 import org.cpsolver.ifs.extension.Extension;
 import org.cpsolver.ifs.extension.MacPropagation;
@@ -31,6 +34,7 @@ import org.cpsolver.ifs.termination.TerminationCondition;
 import org.cpsolver.ifs.util.DataProperties;
 import org.cpsolver.ifs.util.JProf;
 import org.cpsolver.ifs.util.Progress;
+import org.cpsolver.ifs.util.ThreadPool;
 import org.cpsolver.ifs.util.ToolBox;
 
 
@@ -224,6 +228,7 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
     private NeighbourSelection<V, T> iNeighbourSelection = null;
     private List<Extension<V, T>> iExtensions = new ArrayList<Extension<V, T>>();
     protected List<SolverListener<V, T>> iSolverListeners = new ArrayList<SolverListener<V, T>>();
+    private List<ThreadPool> iThreadPools = new ArrayList<ThreadPool>();
     protected int iSaveBestUnassigned = 0;
 
     private boolean iUpdateProgress = true;
@@ -327,6 +332,29 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
         iSolverListeners.add(listener);
     }
 
+    /**
+     * Register a thread pool of a heuristic (e.g., a neighbour or a value selection that evaluates its candidates in parallel).
+     * Registered thread pools are shut down when the solver stops or finishes.
+     * @param pool a thread pool
+     */
+    public void registerThreadPool(ThreadPool pool) {
+        synchronized (iThreadPools) {
+            if (!iThreadPools.contains(pool))
+                iThreadPools.add(pool);
+        }
+    }
+
+    /**
+     * Shut down all the registered thread pools (see {@link Solver#registerThreadPool(ThreadPool)}), called when the solver stops or finishes.
+     * A thread pool creates new worker threads when it is used again (e.g., when the solver is restarted).
+     */
+    protected void shutdownThreadPools() {
+        synchronized (iThreadPools) {
+            for (ThreadPool pool: iThreadPools)
+                pool.shutdown();
+        }
+    }
+
     /** Removes a solver listener
      * @param listener solver listener
      **/
@@ -437,7 +465,30 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
      * @param model problem model
      **/
     public void setInitalSolution(Model<V, T> model) {
-        setInitalSolution(new Solution<V, T>(model, new DefaultSingleAssignment<V, T>(), 0, 0));
+        setInitalSolution(new Solution<V, T>(model, createSingleAssignment(model), 0, 0));
+    }
+
+    /**
+     * Creates an assignment that is used when the solver works with a single solution.
+     * An {@link AssignmentArray} (indexed by {@link Variable#getIndex()}) is returned when General.AssignmentArray is set to true,
+     * {@link DefaultSingleAssignment} otherwise.
+     * @param model problem model
+     * @return a new empty assignment
+     */
+    protected Assignment<V, T> createSingleAssignment(Model<V, T> model) {
+        if (getProperties().getPropertyBoolean("General.AssignmentArray", false))
+            return new AssignmentArray<V, T>(model);
+        return new DefaultSingleAssignment<V, T>();
+    }
+
+    /**
+     * Returns true if the given assignment is a single (not inherited) assignment, i.e., {@link DefaultSingleAssignment}
+     * or an {@link AssignmentArray} that is not an {@link InheritedAssignment}.
+     * @param assignment an assignment
+     * @return true if there is only one solution
+     */
+    protected static boolean isSingleAssignment(Assignment<?, ?> assignment) {
+        return assignment instanceof DefaultSingleAssignment || (assignment instanceof AssignmentArray && !(assignment instanceof InheritedAssignment));
     }
 
     /** Starts solver */
@@ -590,7 +641,7 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
      * @return true
      */
     public boolean hasSingleSolution() {
-        return currentSolution().getAssignment() instanceof DefaultSingleAssignment;
+        return isSingleAssignment(currentSolution().getAssignment());
     }
 
     /** Solver thread */
@@ -707,6 +758,7 @@ public class Solver<V extends Variable<V, T>, T extends Value<V, T>> {
                 iProgress.setStatus("Solver failed.");
                 onFailure();
             }
+            shutdownThreadPools();
             iSolverThread = null;
         }
     }
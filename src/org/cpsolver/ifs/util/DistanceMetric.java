@@ -2,6 +2,7 @@ package org.cpsolver.ifs.util;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -16,6 +17,9 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * For instructors, the preference is computed using the distance in meters and the three constants 
  * Instructor.NoPreferenceLimit (distance &lt;= limit &rarr; no preference), Instructor.DiscouragedLimit (distance &lt;= limit &rarr; discouraged),
  * Instructor.ProhibitedLimit (distance &lt;= limit &rarr; strongly discouraged), the back-to-back placement is prohibited when the distance is over the last limit.
+ * <br><br>
+ * Computed distances are cached in two lock-free caches of a fixed size (given by Distances.CacheSize, defaults to 65536 entries): one is keyed by the
+ * coordinates, the other one by the pair of room ids (it also contains the travel times). Cache lookups do not allocate any objects.
  * 
  * @version IFS 1.3 (Iterative Forward Search)<br>
  *          Copyright (C) 2006 - 2014 Tomas Muller<br>
@@ -113,8 +117,12 @@ public class DistanceMetric {
     private int iMaxTravelTime = 60;
     /** Travel times overriding the distances computed from coordintaes */
     private Map<Long, Map<Long, Integer>> iTravelTimes = new HashMap<Long, Map<Long,Integer>>();
-    /** Distance cache  */
-    private Map<String, Double> iDistanceCache = new HashMap<String, Double>();
+    /** Distance cache (keyed by coordinates) */
+    private DistanceCache iDistanceCache = null;
+    /** Room to room distance cache (keyed by room ids) */
+    private DistanceCache iRoomDistanceCache = null;
+    /** Number of entries of each of the distance caches */
+    private int iCacheSize = 65536;
     /** True if distances should be considered between classes that are NOT back-to-back */
     private boolean iComputeDistanceConflictsBetweenNonBTBClasses = false;
     
@@ -122,6 +130,7 @@ public class DistanceMetric {
     
     /** Default properties */
     public DistanceMetric() {
+        initCache();
     }
     
     /** With provided ellipsoid 
@@ -134,6 +143,7 @@ public class DistanceMetric {
             iInstructorDiscouragedLimit = 5.0;
             iInstructorProhibitedLimit = 20.0;
         }
+        initCache();
     }
 
     /** With provided ellipsoid and student speed
@@ -143,6 +153,7 @@ public class DistanceMetric {
     public DistanceMetric(Ellipsoid model, double speed) {
         iModel = model;
         iSpeed = speed;
+        initCache();
     }
     
     /** Configured using properties 
@@ -171,6 +182,14 @@ public class DistanceMetric {
         iComputeDistanceConflictsBetweenNonBTBClasses = properties.getPropertyBoolean(
                 "Distances.ComputeDistanceConflictsBetweenNonBTBClasses", iComputeDistanceConflictsBetweenNonBTBClasses);
         iInstructorLongTravelInMinutes = properties.getPropertyDouble("Instructor.InstructorLongTravelInMinutes", 30.0);
+        iCacheSize = properties.getPropertyInt("Distances.CacheSize", iCacheSize);
+        initCache();
+    }
+    
+    /** Create distance caches */
+    private void initCache() {
+        iDistanceCache = new DistanceCache(iCacheSize);
+        iRoomDistanceCache = new DistanceCache(iCacheSize);
     }
 
     /** Degrees to radians 
@@ -204,80 +223,69 @@ public class DistanceMetric {
             return Math.sqrt(dx * dx + dy * dy);
         }
         
-        String id = null;
-        if (lat1 < lat2 || (lat1 == lat2 && lon1 <= lon2)) {
-            id =
-                Long.toHexString(Double.doubleToRawLongBits(lat1)) +
-                Long.toHexString(Double.doubleToRawLongBits(lon1)) +
-                Long.toHexString(Double.doubleToRawLongBits(lat2)) +
-                Long.toHexString(Double.doubleToRawLongBits(lon2));
-        } else {
-            id =
-                Long.toHexString(Double.doubleToRawLongBits(lat1)) +
-                Long.toHexString(Double.doubleToRawLongBits(lon1)) +
-                Long.toHexString(Double.doubleToRawLongBits(lat2)) +
-                Long.toHexString(Double.doubleToRawLongBits(lon2));
+        // make the key symmetric
+        if (lat1 > lat2 || (lat1.equals(lat2) && lon1 > lon2)) {
+            Double lat = lat1; lat1 = lat2; lat2 = lat;
+            Double lon = lon1; lon1 = lon2; lon2 = lon;
         }
+        long k1 = Double.doubleToLongBits(lat1), k2 = Double.doubleToLongBits(lon1), k3 = Double.doubleToLongBits(lat2), k4 = Double.doubleToLongBits(lon2);
+        DistanceCache.Entry entry = iDistanceCache.get(k1, k2, k3, k4);
+        if (entry != null) return entry.getMeters();
+        double distance = computeDistanceInMeters(lat1, lon1, lat2, lon2);
+        iDistanceCache.put(new DistanceCache.Entry(k1, k2, k3, k4, distance, 0));
+        return distance;
+    }
+    
+    /**
+     * Compute distance between the two given coordinates using the Vincenty's formula (not cached)
+     * @param lat1 first coordinate's latitude
+     * @param lon1 first coordinate's longitude
+     * @param lat2 second coordinate's latitude
+     * @param lon2 second coordinate's longitude
+     * @return distance in meters
+     */
+    protected double computeDistanceInMeters(double lat1, double lon1, double lat2, double lon2) {
+        double a = iModel.a(), b = iModel.b(),  f = iModel.f();  // ellipsoid params
+        double L = deg2rad(lon2-lon1);
+        double U1 = Math.atan((1-f) * Math.tan(deg2rad(lat1)));
+        double U2 = Math.atan((1-f) * Math.tan(deg2rad(lat2)));
+        double sinU1 = Math.sin(U1), cosU1 = Math.cos(U1);
+        double sinU2 = Math.sin(U2), cosU2 = Math.cos(U2);
         
-        iLock.readLock().lock();
-        try {
-            Double distance = iDistanceCache.get(id);
-            if (distance != null) return distance;
-        } finally {
-            iLock.readLock().unlock();
-        }
+        double lambda = L, lambdaP, iterLimit = 100;
+        double cosSqAlpha, cos2SigmaM, sinSigma, cosSigma, sigma, sinLambda, cosLambda;
+        do {
+          sinLambda = Math.sin(lambda);
+          cosLambda = Math.cos(lambda);
+          sinSigma = Math.sqrt((cosU2*sinLambda) * (cosU2*sinLambda) + 
+            (cosU1*sinU2-sinU1*cosU2*cosLambda) * (cosU1*sinU2-sinU1*cosU2*cosLambda));
+          if (sinSigma==0) return 0;  // co-incident points
+          cosSigma = sinU1*sinU2 + cosU1*cosU2*cosLambda;
+          sigma = Math.atan2(sinSigma, cosSigma);
+          double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+          cosSqAlpha = 1 - sinAlpha*sinAlpha;
+          cos2SigmaM = cosSigma - 2*sinU1*sinU2/cosSqAlpha;
+          if (Double.isNaN(cos2SigmaM)) cos2SigmaM = 0;  // equatorial line: cosSqAlpha=0 (�6)
+          double C = f/16*cosSqAlpha*(4+f*(4-3*cosSqAlpha));
+          lambdaP = lambda;
+          lambda = L + (1-C) * f * sinAlpha *
+            (sigma + C*sinSigma*(cos2SigmaM+C*cosSigma*(-1+2*cos2SigmaM*cos2SigmaM)));
+        } while (Math.abs(lambda-lambdaP) > 1e-12 && --iterLimit>0);
+        if (iterLimit==0) return Double.NaN; // formula failed to converge
+       
+        double uSq = cosSqAlpha * (a*a - b*b) / (b*b);
+        double A = 1 + uSq/16384*(4096+uSq*(-768+uSq*(320-175*uSq)));
+        double B = uSq/1024 * (256+uSq*(-128+uSq*(74-47*uSq)));
+        double deltaSigma = B*sinSigma*(cos2SigmaM+B/4*(cosSigma*(-1+2*cos2SigmaM*cos2SigmaM)-
+          B/6*cos2SigmaM*(-3+4*sinSigma*sinSigma)*(-3+4*cos2SigmaM*cos2SigmaM)));
         
-        iLock.writeLock().lock();
-        try {
-            Double distance = iDistanceCache.get(id);
-            if (distance != null) return distance;
-
-            double a = iModel.a(), b = iModel.b(),  f = iModel.f();  // ellipsoid params
-            double L = deg2rad(lon2-lon1);
-            double U1 = Math.atan((1-f) * Math.tan(deg2rad(lat1)));
-            double U2 = Math.atan((1-f) * Math.tan(deg2rad(lat2)));
-            double sinU1 = Math.sin(U1), cosU1 = Math.cos(U1);
-            double sinU2 = Math.sin(U2), cosU2 = Math.cos(U2);
-            
-            double lambda = L, lambdaP, iterLimit = 100;
-            double cosSqAlpha, cos2SigmaM, sinSigma, cosSigma, sigma, sinLambda, cosLambda;
-            do {
-              sinLambda = Math.sin(lambda);
-              cosLambda = Math.cos(lambda);
-              sinSigma = Math.sqrt((cosU2*sinLambda) * (cosU2*sinLambda) + 
-                (cosU1*sinU2-sinU1*cosU2*cosLambda) * (cosU1*sinU2-sinU1*cosU2*cosLambda));
-              if (sinSigma==0) return 0;  // co-incident points
-              cosSigma = sinU1*sinU2 + cosU1*cosU2*cosLambda;
-              sigma = Math.atan2(sinSigma, cosSigma);
-              double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
-              cosSqAlpha = 1 - sinAlpha*sinAlpha;
-              cos2SigmaM = cosSigma - 2*sinU1*sinU2/cosSqAlpha;
-              if (Double.isNaN(cos2SigmaM)) cos2SigmaM = 0;  // equatorial line: cosSqAlpha=0 (�6)
-              double C = f/16*cosSqAlpha*(4+f*(4-3*cosSqAlpha));
-              lambdaP = lambda;
-              lambda = L + (1-C) * f * sinAlpha *
-                (sigma + C*sinSigma*(cos2SigmaM+C*cosSigma*(-1+2*cos2SigmaM*cos2SigmaM)));
-            } while (Math.abs(lambda-lambdaP) > 1e-12 && --iterLimit>0);
-            if (iterLimit==0) return Double.NaN; // formula failed to converge
-           
-            double uSq = cosSqAlpha * (a*a - b*b) / (b*b);
-            double A = 1 + uSq/16384*(4096+uSq*(-768+uSq*(320-175*uSq)));
-            double B = uSq/1024 * (256+uSq*(-128+uSq*(74-47*uSq)));
-            double deltaSigma = B*sinSigma*(cos2SigmaM+B/4*(cosSigma*(-1+2*cos2SigmaM*cos2SigmaM)-
-              B/6*cos2SigmaM*(-3+4*sinSigma*sinSigma)*(-3+4*cos2SigmaM*cos2SigmaM)));
-            
-            // initial & final bearings
-            // double fwdAz = Math.atan2(cosU2*sinLambda, cosU1*sinU2-sinU1*cosU2*cosLambda);
-            // double revAz = Math.atan2(cosU1*sinLambda, -sinU1*cosU2+cosU1*sinU2*cosLambda);
-            
-            // s = s.toFixed(3); // round to 1mm precision
+        // initial & final bearings
+        // double fwdAz = Math.atan2(cosU2*sinLambda, cosU1*sinU2-sinU1*cosU2*cosLambda);
+        // double revAz = Math.atan2(cosU1*sinLambda, -sinU1*cosU2+cosU1*sinU2*cosLambda);
+        
+        // s = s.toFixed(3); // round to 1mm precision
 
-            distance = b*A*(sigma-deltaSigma);
-            iDistanceCache.put(id, distance);
-            return distance;
-        } finally {
-            iLock.writeLock().unlock();
-        }
+        return b*A*(sigma-deltaSigma);
     }
     
     /**
@@ -373,7 +381,8 @@ public class DistanceMetric {
                     times.remove(roomId1);
                 else
                     times.put(roomId1, travelTimeInMinutes);
-            }            
+            }
+            iRoomDistanceCache.clear();
         } finally {
             iLock.writeLock().unlock();
         }
@@ -410,6 +419,21 @@ public class DistanceMetric {
      * @return distance in minutes
      **/
     public Integer getDistanceInMinutes(Long roomId1, Double lat1, Double lon1, Long roomId2, Double lat2, Double lon2) {
+        DistanceCache.Entry entry = getRoomDistance(roomId1, lat1, lon1, roomId2, lat2, lon2);
+        if (entry != null) return entry.getMinutes();
+        return computeDistanceInMinutes(roomId1, lat1, lon1, roomId2, lat2, lon2);
+    }
+    
+    /** Return travel time between two locations (not cached by room ids). 
+     * @param roomId1 first room's id
+     * @param lat1 first room's latitude
+     * @param lon1 first room's longitude
+     * @param roomId2 second room's id
+     * @param lat2 second room's latitude
+     * @param lon2 second room's longitude
+     * @return distance in minutes
+     **/
+    protected int computeDistanceInMinutes(Long roomId1, Double lat1, Double lon1, Long roomId2, Double lat2, Double lon2) {
         Integer distance = getTravelTimeInMinutes(roomId1, roomId2);
         if (distance != null) return distance;
         
@@ -429,12 +453,54 @@ public class DistanceMetric {
      * @return distance in meters
      **/
     public double getDistanceInMeters(Long roomId1, Double lat1, Double lon1, Long roomId2, Double lat2, Double lon2) {
+        DistanceCache.Entry entry = getRoomDistance(roomId1, lat1, lon1, roomId2, lat2, lon2);
+        if (entry != null) return entry.getMeters();
+        return computeDistanceInMeters(roomId1, lat1, lon1, roomId2, lat2, lon2);
+    }
+    
+    /** Return travel distance between two locations (not cached by room ids).
+     * @param roomId1 first room's id
+     * @param lat1 first room's latitude
+     * @param lon1 first room's longitude
+     * @param roomId2 second room's id
+     * @param lat2 second room's latitude
+     * @param lon2 second room's longitude
+     * @return distance in meters
+     **/
+    protected double computeDistanceInMeters(Long roomId1, Double lat1, Double lon1, Long roomId2, Double lat2, Double lon2) {
         Integer distance = getTravelTimeInMinutes(roomId1, roomId2);
         if (distance != null) return minutes2meters(distance);
         
         return getDistanceInMeters(lat1, lon1, lat2, lon2);
     }
     
+    /**
+     * Room to room distance, looked up in the room distance cache (and computed when not present).
+     * The coordinates of a room are expected not to change.
+     * @param roomId1 first room's id
+     * @param lat1 first room's latitude
+     * @param lon1 first room's longitude
+     * @param roomId2 second room's id
+     * @param lat2 second room's latitude
+     * @param lon2 second room's longitude
+     * @return cache entry with both the distance in meters and in minutes, null when one of the room ids is not known
+     */
+    protected DistanceCache.Entry getRoomDistance(Long roomId1, Double lat1, Double lon1, Long roomId2, Double lat2, Double lon2) {
+        if (roomId1 == null || roomId2 == null) return null;
+        long id1 = roomId1, id2 = roomId2;
+        if (id1 > id2) {
+            long id = id1; id1 = id2; id2 = id;
+        }
+        DistanceCache.Entry entry = iRoomDistanceCache.get(id1, id2, 0l, 0l);
+        if (entry == null) {
+            entry = new DistanceCache.Entry(id1, id2, 0l, 0l,
+                    computeDistanceInMeters(roomId1, lat1, lon1, roomId2, lat2, lon2),
+                    computeDistanceInMinutes(roomId1, lat1, lon1, roomId2, lat2, lon2));
+            iRoomDistanceCache.put(entry);
+        }
+        return entry;
+    }
+    
     /** Return travel times matrix
      * @return travel times matrix
      **/
@@ -449,6 +515,119 @@ public class DistanceMetric {
         return iComputeDistanceConflictsBetweenNonBTBClasses;
     }
     
+    /**
+     * A simple lock-free cache of distances with a fixed number of entries. An entry is keyed by four long values
+     * (raw bits of the coordinates, or a pair of room ids). Each key can be placed in one of a few consecutive slots
+     * of the table, when all of these are taken the first one is replaced. Entries are immutable and lookups do not
+     * allocate any objects.
+     */
+    protected static class DistanceCache {
+        private static final int sMaxProbes = 4;
+        private final AtomicReferenceArray<Entry> iEntries;
+        private final int iMask;
+        
+        /**
+         * Create the cache
+         * @param size number of entries (rounded up to the nearest power of two)
+         */
+        public DistanceCache(int size) {
+            int capacity = 16;
+            while (capacity < size && capacity < (1 << 30)) capacity <<= 1;
+            iEntries = new AtomicReferenceArray<Entry>(capacity);
+            iMask = capacity - 1;
+        }
+        
+        private static int hash(long k1, long k2, long k3, long k4) {
+            long h = k1;
+            h = h * 0x9E3779B97F4A7C15l + k2;
+            h = h * 0x9E3779B97F4A7C15l + k3;
+            h = h * 0x9E3779B97F4A7C15l + k4;
+            h ^= (h >>> 33);
+            h *= 0xFF51AFD7ED558CCDl;
+            h ^= (h >>> 33);
+            return (int) h;
+        }
+        
+        /**
+         * Lookup an entry
+         * @param k1 first key
+         * @param k2 second key
+         * @param k3 third key
+         * @param k4 fourth key
+         * @return cached entry, null if there is no entry with the given key
+         */
+        public Entry get(long k1, long k2, long k3, long k4) {
+            int index = hash(k1, k2, k3, k4);
+            for (int i = 0; i < sMaxProbes; i++) {
+                Entry entry = iEntries.get((index + i) & iMask);
+                if (entry == null) return null;
+                if (entry.match(k1, k2, k3, k4)) return entry;
+            }
+            return null;
+        }
+        
+        /**
+         * Put an entry into the cache, replacing an older entry when there is no free slot
+         * @param entry new entry
+         */
+        public void put(Entry entry) {
+            int index = hash(entry.iK1, entry.iK2, entry.iK3, entry.iK4);
+            for (int i = 0; i < sMaxProbes; i++) {
+                int slot = (index + i) & iMask;
+                Entry old = iEntries.get(slot);
+                if (old == null) {
+                    if (iEntries.compareAndSet(slot, null, entry)) return;
+                    old = iEntries.get(slot);
+                }
+                if (old.match(entry.iK1, entry.iK2, entry.iK3, entry.iK4)) return;
+            }
+            iEntries.set(index & iMask, entry);
+        }
+        
+        /** Remove all entries */
+        public void clear() {
+            for (int i = 0; i < iEntries.length(); i++)
+                iEntries.set(i, null);
+        }
+        
+        /**
+         * Immutable cache entry
+         */
+        protected static class Entry {
+            private final long iK1, iK2, iK3, iK4;
+            private final double iMeters;
+            private final int iMinutes;
+            
+            /**
+             * Create an entry
+             * @param k1 first key
+             * @param k2 second key
+             * @param k3 third key
+             * @param k4 fourth key
+             * @param meters distance in meters
+             * @param minutes distance in minutes
+             */
+            public Entry(long k1, long k2, long k3, long k4, double meters, int minutes) {
+                iK1 = k1; iK2 = k2; iK3 = k3; iK4 = k4;
+                iMeters = meters; iMinutes = minutes;
+            }
+            
+            private boolean match(long k1, long k2, long k3, long k4) {
+                return iK1 == k1 && iK2 == k2 && iK3 == k3 && iK4 == k4;
+            }
+            
+            /** Distance in meters 
+             * @return distance in meters
+             **/
+            public double getMeters() { return iMeters; }
+            
+            /** Distance in minutes 
+             * @return distance in minutes
+             **/
+            public int getMinutes() { return iMinutes; }
+        }
+    }
+    
     /** Few tests 
      * @param args program arguments
      **/
@@ -0,0 +1,151 @@
+package org.cpsolver.ifs.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A named fixed-size pool of daemon worker threads, used by heuristics that evaluate
+ * their candidates in parallel. The underlying executor is created on the first call of
+ * {@link ThreadPool#getExecutor()} and it is released by {@link ThreadPool#shutdown()}; a
+ * following call of {@link ThreadPool#getExecutor()} creates a new executor.<br>
+ * <br>
+ * A thread pool of a heuristic that is used by a solver should be registered with the solver
+ * (see {@link org.cpsolver.ifs.solver.Solver#registerThreadPool(ThreadPool)}), which shuts it down
+ * when the solver stops (or finishes), so that no worker threads are left behind.<br>
+ * <br>
+ * Tasks submitted by {@link ThreadPool#submit(long, int, Callable)} draw their random numbers from their own streams
+ * (see {@link ToolBox#initThreadRandom(long, int)}) instead of the shared random number generator. The seed is to be drawn
+ * from the stream of the submitting thread (e.g., <code>ToolBox.getRandom().nextLong()</code>), so that a parallel run only
+ * depends on General.Seed and on how the work is split into the tasks.
+ *
+ * @version IFS 1.3 (Iterative Forward Search)<br>
+ *          Copyright (C) 2014 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see
+ *          <a href='http://www.gnu.org/licenses/'>http://www.gnu.org/licenses/</a>.
+ */
+public class ThreadPool {
+    private String iName;
+    private int iNrThreads;
+    private ExecutorService iExecutor = null;
+    private int iThreadNumber = 0;
+
+    /**
+     * Constructor
+     * @param name name of the pool (worker threads are named name-1, name-2, etc.)
+     * @param nrThreads number of worker threads
+     */
+    public ThreadPool(String name, int nrThreads) {
+        iName = name;
+        iNrThreads = Math.max(1, nrThreads);
+    }
+
+    /** Name of the pool
+     * @return pool name
+     **/
+    public String getName() { return iName; }
+
+    /** Number of worker threads
+     * @return number of threads
+     **/
+    public int getNrThreads() { return iNrThreads; }
+
+    /**
+     * Executor service of this pool, created when needed (fixed number of daemon threads)
+     * @return executor service with {@link ThreadPool#getNrThreads()} threads
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (iExecutor == null) {
+            iExecutor = Executors.newFixedThreadPool(iNrThreads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, iName + "-" + nextThreadNumber());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return iExecutor;
+    }
+
+    /**
+     * Submit a task that draws its random numbers from its own stream, seeded by the given seed and the task index
+     * (see {@link ToolBox#initThreadRandom(long, int)}). The stream is bound to the worker thread while the task is running.
+     * @param seed random seed (drawn from the stream of the submitting thread)
+     * @param index task index
+     * @param task a task
+     * @param <T> result type
+     * @return future of the task
+     */
+    public <T> Future<T> submit(final long seed, final int index, final Callable<T> task) {
+        return getExecutor().submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                ToolBox.initThreadRandom(seed, index);
+                try {
+                    return task.call();
+                } finally {
+                    ToolBox.releaseThreadRandom();
+                }
+            }
+        });
+    }
+
+    /**
+     * Submit a task that draws its random numbers from its own stream, see {@link ThreadPool#submit(long, int, Callable)}.
+     * @param seed random seed (drawn from the stream of the submitting thread)
+     * @param index task index
+     * @param task a task
+     * @return future of the task
+     */
+    public Future<?> submit(final long seed, final int index, final Runnable task) {
+        return getExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+                ToolBox.initThreadRandom(seed, index);
+                try {
+                    task.run();
+                } finally {
+                    ToolBox.releaseThreadRandom();
+                }
+            }
+        });
+    }
+
+    private synchronized int nextThreadNumber() {
+        return ++iThreadNumber;
+    }
+
+    /** True if the executor service has been created and not shut down yet
+     * @return true if there are worker threads
+     **/
+    public synchronized boolean isActive() {
+        return iExecutor != null;
+    }
+
+    /**
+     * Shut down the executor service (already submitted tasks are finished, but no new tasks are accepted)
+     */
+    public synchronized void shutdown() {
+        if (iExecutor != null) {
+            iExecutor.shutdown();
+            iExecutor = null;
+        }
+    }
+}
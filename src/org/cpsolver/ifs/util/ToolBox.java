@@ -49,6 +49,8 @@ import org.apache.log4j.PropertyConfigurator;
 public class ToolBox {
     private static long sSeed = System.currentTimeMillis();
     private static Random sRandom = new Random(sSeed);
+    private static Random sSecondaryRandom = new Random(~sSeed);
+    private static ThreadLocal<ThreadRandom> sThreadRandom = new ThreadLocal<ThreadRandom>();
 
     /** Returns random number (int) from the set 0 .. limit - 1 
      * @param limit a limit 
@@ -71,7 +73,7 @@ public class ToolBox {
                 return set.iterator().next();
             case 2:
                 Iterator<E> i = set.iterator();
-                if (sRandom.nextBoolean()) i.next();
+                if (getRandom().nextBoolean()) i.next();
                 return i.next();
             default:
                 int index = random(set.size());
@@ -227,12 +229,79 @@ public class ToolBox {
 
     /**
      * Sets seeds for {@link ToolBox#getRandom()} and {@link ToolBox#random()}
-     * methods.
+     * methods (and for {@link ToolBox#getSecondaryRandom()}). This only affects the shared random number generators, random streams that
+     * are already bound to a thread (see {@link ToolBox#initThreadRandom(int)}) are kept.
      * @param seed random seed
      */
     public static void setSeed(long seed) {
         sSeed = seed;
         sRandom = new Random(sSeed);
+        sSecondaryRandom = new Random(~sSeed);
+    }
+
+    /**
+     * Binds a random number generator to the current thread. The generator is seeded by a
+     * combination of the current seed (see {@link ToolBox#getSeed()}) and the given index, so
+     * each solver thread gets its own reproducible stream of random numbers and the threads
+     * do not contend on a shared generator. Until {@link ToolBox#releaseThreadRandom()} is called,
+     * {@link ToolBox#getRandom()} and all the random methods of this class called from the current
+     * thread use this generator (and {@link ToolBox#getSecondaryRandom()} uses a secondary stream of the thread).
+     * @param index thread index (e.g., solver thread index of the {@link org.cpsolver.ifs.solver.ParallelSolver})
+     * @return random number generator bound to the current thread
+     */
+    public static Random initThreadRandom(int index) {
+        return initThreadRandom(sSeed, index);
+    }
+
+    /**
+     * Binds a random number generator to the current thread, seeded by a combination of the given seed and index.
+     * This is used by tasks that are evaluated in parallel (see {@link ThreadPool#submit(long, int, java.util.concurrent.Callable)}):
+     * the seed is drawn once from the stream of the thread that creates the tasks and each task (or each evaluated item) gets
+     * its own index, so the random numbers drawn by a task only depend on General.Seed and on the task (not on the order in which
+     * the tasks are processed by the worker threads). Bindings can be nested, {@link ToolBox#releaseThreadRandom()} restores
+     * the generator that was bound to the thread before.
+     * @param seed random seed
+     * @param index task index
+     * @return random number generator bound to the current thread
+     */
+    public static Random initThreadRandom(long seed, int index) {
+        // mix the seed with the index (golden ratio increment) so that the streams of consecutive indexes differ
+        ThreadRandom random = new ThreadRandom(seed + index * 0x9E3779B97F4A7C15L, sThreadRandom.get());
+        sThreadRandom.set(random);
+        return random.iRandom;
+    }
+
+    /**
+     * Removes the random number generator bound to the current thread (see {@link ToolBox#initThreadRandom(long, int)}),
+     * the previously bound generator (or the shared random number generator, if there is none) is used afterwards.
+     */
+    public static void releaseThreadRandom() {
+        ThreadRandom random = sThreadRandom.get();
+        if (random == null || random.iPrevious == null)
+            sThreadRandom.remove();
+        else
+            sThreadRandom.set(random.iPrevious);
+    }
+
+    /** Random number generators bound to a thread */
+    private static class ThreadRandom {
+        private long iSeed;
+        private Random iRandom;
+        private Random iSecondary = null;
+        private ThreadRandom iPrevious;
+
+        private ThreadRandom(long seed, ThreadRandom previous) {
+            iSeed = seed;
+            iRandom = new Random(seed);
+            iPrevious = previous;
+        }
+
+        /** Secondary stream of the thread, created when needed */
+        private Random getSecondary() {
+            if (iSecondary == null)
+                iSecondary = new Random(~iSeed);
+            return iSecondary;
+        }
     }
 
     /** Gets current seed 
@@ -242,18 +311,32 @@ public class ToolBox {
         return sSeed;
     }
 
-    /** Gets random number generator 
+    /** Gets random number generator, that is the one bound to the current thread (if any, see
+     * {@link ToolBox#initThreadRandom(int)}) or the shared one otherwise
      * @return random number generator
      **/
     public static Random getRandom() {
-        return sRandom;
+        ThreadRandom random = sThreadRandom.get();
+        return (random == null ? sRandom : random.iRandom);
     }
 
     /** Generates random double number 
      * @return random number
      **/
     public static double random() {
-        return sRandom.nextDouble();
+        return getRandom().nextDouble();
+    }
+
+    /** Gets the secondary random number generator, that is the one bound to the current thread (if any, see
+     * {@link ToolBox#initThreadRandom(int)}) or the shared one otherwise. It is also seeded by {@link ToolBox#setSeed(long)},
+     * but it is independent of {@link ToolBox#getRandom()}: it is meant for places that used to call {@link Math#random()}
+     * or {@link java.util.Collections#shuffle(List)}, so that drawing from it does not change the sequence of
+     * {@link ToolBox#getRandom()} (and a run with a given seed is not affected by these places).
+     * @return secondary random number generator
+     **/
+    public static Random getSecondaryRandom() {
+        ThreadRandom random = sThreadRandom.get();
+        return (random == null ? sSecondaryRandom : random.getSecondary());
     }
 
     /** Configurates log4j loging */
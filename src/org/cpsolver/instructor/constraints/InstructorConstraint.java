@@ -47,7 +47,7 @@ public class InstructorConstraint extends GlobalConstraint<TeachingRequest.Varia
         Context context = value.getInstructor().getContext(assignment);
 
         // Check availability
-        if (context.getInstructor().getTimePreference(value.variable().getRequest()).isProhibited()) {
+        if (context.getInstructor().getModel().isTimeProhibited(context.getInstructor(), value.variable().getRequest())) {
             conflicts.add(value);
             return;
         }
@@ -1,5 +1,7 @@
 package org.cpsolver.instructor.model;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Attributes of an instructor. Each instructor can have a number of attributes and there are attribute preferences on teaching requests.
  * Each attribute has an id, a name and a {@link Type}.
@@ -65,9 +67,20 @@ public class Attribute {
     public Attribute getParentAttribute() { return iParentAttribute; }
     
     /**
-     * Parent attribute
+     * Parent attribute. Changing the parent changes the attributes of all the instructors that have this attribute (see
+     * {@link Instructor#getAttributes(Type)}): they lose the attributes of the old parent chain and gain the attributes of the new one.
+     * So the hierarchy version of each type on the two chains is incremented (see {@link Type#getHierarchyVersion()}).
      */
-    public void setParentAttribute(Attribute parent) { iParentAttribute = parent; }
+    public void setParentAttribute(Attribute parent) {
+        if (iParentAttribute != parent) {
+            Attribute old = iParentAttribute;
+            iParentAttribute = parent;
+            for (Attribute a = old; a != null && a != this; a = a.getParentAttribute())
+                if (a.getType() != null) a.getType().iHierarchyVersion.incrementAndGet();
+            for (Attribute a = parent; a != null && a != this; a = a.getParentAttribute())
+                if (a.getType() != null) a.getType().iHierarchyVersion.incrementAndGet();
+        }
+    }
     
     @Override
     public int hashCode() {
@@ -96,6 +109,7 @@ public class Attribute {
         private String iTypeName;
         private boolean iRequired;
         private boolean iConjunctive;
+        private AtomicLong iHierarchyVersion = new AtomicLong(0);
 
         /**
          * Constructor
@@ -136,6 +150,14 @@ public class Attribute {
          * @return true if this attribute type is conjunctive, false if disjunctive
          */
         public boolean isConjunctive() { return iConjunctive; }
+        
+        /**
+         * Version of the attribute hierarchy of this type, it is incremented every time an attribute of this type is added to or removed from
+         * a parent chain of some attribute (see {@link Attribute#setParentAttribute(Attribute)}). It is used by {@link InstructorSchedulingModel}
+         * to invalidate its instructor x teaching request compatibility matrix when the attributes of its types change.
+         * @return attribute hierarchy version of this type
+         */
+        public long getHierarchyVersion() { return iHierarchyVersion.get(); }
 
         @Override
         public int hashCode() {
@@ -1,6 +1,7 @@
 package org.cpsolver.instructor.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -51,6 +52,7 @@ public class Instructor extends AbstractClassWithContext<TeachingRequest.Variabl
     private List<Preference<TimeLocation>> iTimePreferences = new ArrayList<Preference<TimeLocation>>();
     private List<Preference<Course>> iCoursePreferences = new ArrayList<Preference<Course>>();
     private InstructorSchedulingModel iModel;
+    private int iIndex = -1;
     private long iInstructorId;
     private String iExternalId;
     private String iName;
@@ -79,6 +81,18 @@ public class Instructor extends AbstractClassWithContext<TeachingRequest.Variabl
      */
     public void setModel(InstructorSchedulingModel model) { iModel = model; }
     
+    /**
+     * Index of the instructor in the model (see {@link InstructorSchedulingModel#getInstructors()}), used by the compatibility matrix of the model
+     * @return instructor index, -1 if the instructor has not been added to a model
+     */
+    public int getIndex() { return iIndex; }
+    
+    /**
+     * Set index of the instructor in the model
+     * @param index instructor index
+     */
+    public void setIndex(int index) { iIndex = index; }
+    
     /**
      * Instructor unique id that was provided in the constructor
      * @return instructor unique id
@@ -198,16 +212,22 @@ public class Instructor extends AbstractClassWithContext<TeachingRequest.Variabl
     }
     
     /**
-     * Return instructor attributes
-     * @return list of instructor attributes
+     * Return instructor attributes, use {@link Instructor#addAttribute(Attribute)} to add an attribute
+     * @return list of instructor attributes (unmodifiable)
      */
-    public List<Attribute> getAttributes() { return iAttributes; }
+    public List<Attribute> getAttributes() { return Collections.unmodifiableList(iAttributes); }
     
     /**
      * Add instructor attribute
      * @param attribute instructor attribute
      */
-    public void addAttribute(Attribute attribute) { iAttributes.add(attribute); }
+    public void addAttribute(Attribute attribute) {
+        iAttributes.add(attribute);
+        if (iModel != null) {
+            iModel.addAttributeType(attribute.getType());
+            iModel.invalidateCompatibility(this);
+        }
+    }
     
     /**
      * Return instructor attributes of given type
@@ -229,15 +249,18 @@ public class Instructor extends AbstractClassWithContext<TeachingRequest.Variabl
     
     /**
      * Return instructor preferences
-     * @return list of instructor time preferences
+     * @return list of instructor time preferences (unmodifiable, use {@link Instructor#addTimePreference(Preference)} to add a preference)
      */
-    public List<Preference<TimeLocation>> getTimePreferences() { return iTimePreferences; }
+    public List<Preference<TimeLocation>> getTimePreferences() { return Collections.unmodifiableList(iTimePreferences); }
     
     /**
      * Add instructor time preference
      * @param pref instructor time preference
      */
-    public void addTimePreference(Preference<TimeLocation> pref) { iTimePreferences.add(pref); }
+    public void addTimePreference(Preference<TimeLocation> pref) {
+        iTimePreferences.add(pref);
+        if (iModel != null) iModel.invalidateCompatibility(this);
+    }
     
     /**
      * Compute time preference for a given time. This is using the {@link MinMaxPreferenceCombination} for all time preferences that are overlapping with the given time.
@@ -274,15 +297,18 @@ public class Instructor extends AbstractClassWithContext<TeachingRequest.Variabl
 
     /**
      * Return course preferences
-     * @return list of instructor course preferences
+     * @return list of instructor course preferences (unmodifiable, use {@link Instructor#addCoursePreference(Preference)} to add a preference)
      */
-    public List<Preference<Course>> getCoursePreferences() { return iCoursePreferences; }
+    public List<Preference<Course>> getCoursePreferences() { return Collections.unmodifiableList(iCoursePreferences); }
     
     /**
      * Add course preference
      * @param pref instructor course preference
      */
-    public void addCoursePreference(Preference<Course> pref) { iCoursePreferences.add(pref); }
+    public void addCoursePreference(Preference<Course> pref) {
+        iCoursePreferences.add(pref);
+        if (iModel != null) iModel.invalidateCompatibility(this);
+    }
     
     /**
      * Return preference for the given course
@@ -326,10 +352,21 @@ public class Instructor extends AbstractClassWithContext<TeachingRequest.Variabl
      * the instructor is available (time preference is not prohibited), the instructor does not prohibit the course (there is no 
      * prohibited course preference for the given course), and the request's instructor preference is also not prohibited.
      * So, the only thing that is not checked are the attribute preferences.
+     * The result is taken from the compatibility matrix of the model (see {@link InstructorSchedulingModel#canTeach(Instructor, TeachingRequest)}).
      * @param request teaching request that is being considered
      * @return true, if the instructor can be assigned to the given teaching request
      */
     public boolean canTeach(TeachingRequest request) {
+        if (iModel != null) return iModel.canTeach(this, request);
+        return computeCanTeach(request);
+    }
+    
+    /**
+     * Check if this instructor can teach the given request, without using the compatibility matrix of the model
+     * @param request teaching request that is being considered
+     * @return true, if the instructor can be assigned to the given teaching request
+     */
+    protected boolean computeCanTeach(TeachingRequest request) {
         if (request.getLoad() > getMaxLoad())
             return false;
         if (getTimePreference(request).isProhibited())
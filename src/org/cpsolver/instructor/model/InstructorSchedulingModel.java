@@ -2,8 +2,10 @@ package org.cpsolver.instructor.model;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -16,6 +18,7 @@ import java.util.TreeSet;
 import org.apache.log4j.Logger;
 import org.cpsolver.coursett.Constants;
 import org.cpsolver.coursett.model.TimeLocation;
+import org.cpsolver.coursett.preference.PreferenceCombination;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.criteria.Criterion;
 import org.cpsolver.ifs.model.Constraint;
@@ -75,6 +78,10 @@ public class InstructorSchedulingModel extends Model<TeachingRequest.Variable, T
     private Set<Attribute.Type> iTypes = new HashSet<Attribute.Type>();
     private List<Instructor> iInstructors = new ArrayList<Instructor>();
     private List<TeachingRequest> iRequests = new ArrayList<TeachingRequest>();
+    private boolean iUseCompatibilityMatrix = true;
+    private Compatibility[] iCompatibility = new Compatibility[0];
+    private Attribute.Type[] iTypeArray = new Attribute.Type[0];
+    private long iAttributeHierarchyVersion = 0;
 
     /**
      * Constructor
@@ -83,6 +90,7 @@ public class InstructorSchedulingModel extends Model<TeachingRequest.Variable, T
     public InstructorSchedulingModel(DataProperties properties) {
         super();
         iProperties = properties;
+        iUseCompatibilityMatrix = properties.getPropertyBoolean("Instructor.CompatibilityMatrix", iUseCompatibilityMatrix);
         addCriterion(new AttributePreferences());
         addCriterion(new InstructorPreferences());
         addCriterion(new TeachingPreferences());
@@ -116,6 +124,7 @@ public class InstructorSchedulingModel extends Model<TeachingRequest.Variable, T
      */
     public void addInstructor(Instructor instructor) {
         instructor.setModel(this);
+        instructor.setIndex(iInstructors.size());
         iInstructors.add(instructor);
         for (Attribute attribute: instructor.getAttributes())
             addAttributeType(attribute.getType());
@@ -134,6 +143,7 @@ public class InstructorSchedulingModel extends Model<TeachingRequest.Variable, T
      * @param request teaching request
      */
     public void addRequest(TeachingRequest request) {
+        request.setIndex(iRequests.size());
         iRequests.add(request);
         for (TeachingRequest.Variable variable: request.getVariables())
             addVariable(variable);
@@ -152,13 +162,190 @@ public class InstructorSchedulingModel extends Model<TeachingRequest.Variable, T
      * Return registered attribute types
      * @return attribute types in the problem
      */
-    public Set<Attribute.Type> getAttributeTypes() { return iTypes; }
+    public Set<Attribute.Type> getAttributeTypes() { return Collections.unmodifiableSet(iTypes); }
     
     /**
      * Register an attribute type
      * @param type attribute type
      */
-    public void addAttributeType(Attribute.Type type) { iTypes.add(type); }
+    public void addAttributeType(Attribute.Type type) {
+        if (iTypes.add(type)) {
+            iTypeArray = iTypes.toArray(new Attribute.Type[iTypes.size()]);
+            iAttributeHierarchyVersion = getAttributeHierarchyVersion();
+            invalidateCompatibility();
+        }
+    }
+    
+    /**
+     * Version of the attribute hierarchy of the registered attribute types (sum of {@link Attribute.Type#getHierarchyVersion()}, it changes
+     * whenever a parent of an attribute changes the attributes of one of the registered types)
+     * @return attribute hierarchy version of this model
+     */
+    protected long getAttributeHierarchyVersion() {
+        long version = 0;
+        for (Attribute.Type type: iTypeArray)
+            version += type.getHierarchyVersion();
+        return version;
+    }
+    
+    /**
+     * Compatibility of an instructor with all the teaching requests of the model. For each teaching request, it contains
+     * the result of {@link Instructor#canTeach(TeachingRequest)} together with the time, course, instructor, and attribute
+     * preferences, so that they do not need to be recomputed every time a domain is computed or a teaching assignment is created.
+     */
+    private static class Compatibility {
+        private static final int sCanTeach = 1, sTimeProhibited = 2, sAttributeProhibited = 4;
+        private static final int sFlags = 0, sTime = 1, sCourse = 2, sInstructor = 3, sAttribute = 4, sSize = 5;
+        private final int[] iData;
+        
+        private Compatibility(Instructor instructor, List<TeachingRequest> requests) {
+            iData = new int[sSize * requests.size()];
+            int offset = 0;
+            for (TeachingRequest request: requests) {
+                PreferenceCombination timePref = instructor.getTimePreference(request);
+                PreferenceCombination attributePref = request.getAttributePreference(instructor);
+                iData[offset + sFlags] = (instructor.computeCanTeach(request) ? sCanTeach : 0) | (timePref.isProhibited() ? sTimeProhibited : 0) | (attributePref.isProhibited() ? sAttributeProhibited : 0);
+                iData[offset + sTime] = timePref.getPreferenceInt();
+                iData[offset + sCourse] = instructor.getCoursePreference(request.getCourse()).getPreference();
+                iData[offset + sInstructor] = request.getInstructorPreference(instructor).getPreference();
+                iData[offset + sAttribute] = attributePref.getPreferenceInt();
+                offset += sSize;
+            }
+        }
+    }
+    
+    /**
+     * Return the compatibility matrix row of the given instructor, the row is computed when needed.
+     * The entry of the given request starts at the offset {@link Compatibility#sSize} * {@link TeachingRequest#getIndex()}.
+     * @return compatibility matrix row, null if the matrix is disabled or the instructor or the request are not in the model
+     */
+    private int[] getCompatibility(Instructor instructor, TeachingRequest request) {
+        if (!iUseCompatibilityMatrix) return null;
+        int i = instructor.getIndex(), r = request.getIndex();
+        if (i < 0 || i >= iInstructors.size() || r < 0 || r >= iRequests.size() || iInstructors.get(i) != instructor || iRequests.get(r) != request) return null;
+        long version = getAttributeHierarchyVersion();
+        if (version != iAttributeHierarchyVersion) {
+            // a parent attribute has changed (see Attribute#setParentAttribute), the attributes of the instructors may have changed as well
+            iAttributeHierarchyVersion = version;
+            invalidateCompatibility();
+        }
+        Compatibility[] matrix = iCompatibility;
+        if (matrix.length <= i) {
+            matrix = Arrays.copyOf(matrix, iInstructors.size());
+            iCompatibility = matrix;
+        }
+        Compatibility row = matrix[i];
+        if (row == null || row.iData.length <= Compatibility.sSize * r) {
+            row = new Compatibility(instructor, iRequests);
+            matrix[i] = row;
+        }
+        return row.iData;
+    }
+    
+    /**
+     * Invalidate the compatibility matrix of the given instructor (e.g., when a preference or an attribute of the instructor has changed).
+     * The instructor's row is recomputed when it is needed next time.
+     * @param instructor an instructor
+     */
+    public void invalidateCompatibility(Instructor instructor) {
+        Compatibility[] matrix = iCompatibility;
+        int i = instructor.getIndex();
+        if (i >= 0 && i < matrix.length) matrix[i] = null;
+    }
+    
+    /**
+     * Invalidate the whole compatibility matrix (e.g., when a preference or the load of a teaching request has changed).
+     * This also happens automatically when a parent of an attribute changes the attributes of a registered type (see {@link Attribute#setParentAttribute(Attribute)}).
+     * Rows are recomputed when they are needed next time.
+     */
+    public void invalidateCompatibility() {
+        iCompatibility = new Compatibility[iInstructors.size()];
+    }
+    
+    /**
+     * Check if the given instructor can teach the given request, using the compatibility matrix.
+     * See {@link Instructor#canTeach(TeachingRequest)} for more details.
+     * @param instructor an instructor
+     * @param request teaching request that is being considered
+     * @return true, if the instructor can be assigned to the given teaching request
+     */
+    public boolean canTeach(Instructor instructor, TeachingRequest request) {
+        int[] row = getCompatibility(instructor, request);
+        if (row == null) return instructor.computeCanTeach(request);
+        return (row[Compatibility.sSize * request.getIndex() + Compatibility.sFlags] & Compatibility.sCanTeach) != 0;
+    }
+    
+    /**
+     * Check if the time preference of the given instructor and teaching request is prohibited, using the compatibility matrix
+     * @param instructor an instructor
+     * @param request teaching request that is being considered
+     * @return true if {@link Instructor#getTimePreference(TeachingRequest)} is prohibited
+     */
+    public boolean isTimeProhibited(Instructor instructor, TeachingRequest request) {
+        int[] row = getCompatibility(instructor, request);
+        if (row == null) return instructor.getTimePreference(request).isProhibited();
+        return (row[Compatibility.sSize * request.getIndex() + Compatibility.sFlags] & Compatibility.sTimeProhibited) != 0;
+    }
+    
+    /**
+     * Time preference of the given instructor and teaching request, using the compatibility matrix
+     * @param instructor an instructor
+     * @param request teaching request that is being considered
+     * @return value of {@link Instructor#getTimePreference(TeachingRequest)}
+     */
+    public int getTimePreference(Instructor instructor, TeachingRequest request) {
+        int[] row = getCompatibility(instructor, request);
+        if (row == null) return instructor.getTimePreference(request).getPreferenceInt();
+        return row[Compatibility.sSize * request.getIndex() + Compatibility.sTime];
+    }
+    
+    /**
+     * Course preference of the given instructor and teaching request, using the compatibility matrix
+     * @param instructor an instructor
+     * @param request teaching request that is being considered
+     * @return value of {@link Instructor#getCoursePreference(Course)} for the course of the request
+     */
+    public int getCoursePreference(Instructor instructor, TeachingRequest request) {
+        int[] row = getCompatibility(instructor, request);
+        if (row == null) return instructor.getCoursePreference(request.getCourse()).getPreference();
+        return row[Compatibility.sSize * request.getIndex() + Compatibility.sCourse];
+    }
+    
+    /**
+     * Instructor preference of the given teaching request, using the compatibility matrix
+     * @param instructor an instructor
+     * @param request teaching request that is being considered
+     * @return value of {@link TeachingRequest#getInstructorPreference(Instructor)}
+     */
+    public int getInstructorPreference(Instructor instructor, TeachingRequest request) {
+        int[] row = getCompatibility(instructor, request);
+        if (row == null) return request.getInstructorPreference(instructor).getPreference();
+        return row[Compatibility.sSize * request.getIndex() + Compatibility.sInstructor];
+    }
+    
+    /**
+     * Check if the attribute preference of the given instructor and teaching request is prohibited, using the compatibility matrix
+     * @param instructor an instructor
+     * @param request teaching request that is being considered
+     * @return true if {@link TeachingRequest#getAttributePreference(Instructor)} is prohibited
+     */
+    public boolean isAttributeProhibited(Instructor instructor, TeachingRequest request) {
+        int[] row = getCompatibility(instructor, request);
+        if (row == null) return request.getAttributePreference(instructor).isProhibited();
+        return (row[Compatibility.sSize * request.getIndex() + Compatibility.sFlags] & Compatibility.sAttributeProhibited) != 0;
+    }
+    
+    /**
+     * Attribute preference of the given instructor and teaching request, using the compatibility matrix
+     * @param instructor an instructor
+     * @param request teaching request that is being considered
+     * @return value of {@link TeachingRequest#getAttributePreference(Instructor)}
+     */
+    public int getAttributePreference(Instructor instructor, TeachingRequest request) {
+        int[] row = getCompatibility(instructor, request);
+        if (row == null) return request.getAttributePreference(instructor).getPreferenceInt();
+        return row[Compatibility.sSize * request.getIndex() + Compatibility.sAttribute];
+    }
 
     @Override
     public Map<String, String> getInfo(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment) {
@@ -176,14 +363,6 @@ public class InstructorSchedulingModel extends Model<TeachingRequest.Variable, T
         return info;
     }
 
-    @Override
-    public double getTotalValue(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment) {
-        double ret = 0;
-        for (Criterion<TeachingRequest.Variable, TeachingAssignment> criterion : getCriteria())
-            ret += criterion.getWeightedValue(assignment);
-        return ret;
-    }
-
     @Override
     public double getTotalValue(Assignment<TeachingRequest.Variable, TeachingAssignment> assignment, Collection<TeachingRequest.Variable> variables) {
         double ret = 0;
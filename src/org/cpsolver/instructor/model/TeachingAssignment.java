@@ -42,9 +42,16 @@ public class TeachingAssignment extends Value<TeachingRequest.Variable, Teaching
         super(variable);
         iInstructor = instructor;
         iHashCode = variable.hashCode() ^ instructor.hashCode();
-        iTimePreference = instructor.getTimePreference(variable.getRequest()).getPreferenceInt();
-        iCoursePreference = instructor.getCoursePreference(variable.getCourse()).getPreference();
-        iInstructorPreference = variable.getRequest().getInstructorPreference(instructor).getPreference();
+        InstructorSchedulingModel model = (InstructorSchedulingModel)variable.getModel();
+        if (model != null) {
+            iTimePreference = model.getTimePreference(instructor, variable.getRequest());
+            iCoursePreference = model.getCoursePreference(instructor, variable.getRequest());
+            iInstructorPreference = model.getInstructorPreference(instructor, variable.getRequest());
+        } else {
+            iTimePreference = instructor.getTimePreference(variable.getRequest()).getPreferenceInt();
+            iCoursePreference = instructor.getCoursePreference(variable.getCourse()).getPreference();
+            iInstructorPreference = variable.getRequest().getInstructorPreference(instructor).getPreference();
+        }
         iAttributePreference = attributePreference;
     }
     
@@ -54,7 +61,8 @@ public class TeachingAssignment extends Value<TeachingRequest.Variable, Teaching
      * @param instructor instructor (it is expected that {@link Instructor#canTeach(TeachingRequest)} is true and that {@link TeachingRequest#getAttributePreference(Instructor)} is not prohibited)
      */
     public TeachingAssignment(TeachingRequest.Variable variable, Instructor instructor) {
-        this(variable, instructor, variable.getRequest().getAttributePreference(instructor).getPreferenceInt());
+        this(variable, instructor, variable.getModel() == null ? variable.getRequest().getAttributePreference(instructor).getPreferenceInt() :
+            ((InstructorSchedulingModel)variable.getModel()).getAttributePreference(instructor, variable.getRequest()));
     }
 
     /**
@@ -2,6 +2,7 @@ package org.cpsolver.instructor.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -44,6 +45,7 @@ public class TeachingRequest {
     private List<Preference<Instructor>> iInstructorPreferences = new ArrayList<Preference<Instructor>>();
     private Variable[] iVariables;
     private int iSameCoursePreference, iSameCommonPreference;
+    private int iIndex = -1;
 
     /**
      * Constructor
@@ -76,6 +78,30 @@ public class TeachingRequest {
         return iRequestId;
     }
     
+    /**
+     * Index of the request in the model (see {@link InstructorSchedulingModel#getRequests()}), used by the compatibility matrix of the model
+     * @return request index, -1 if the request has not been added to a model
+     */
+    public int getIndex() {
+        return iIndex;
+    }
+    
+    /**
+     * Set index of the request in the model
+     * @param index request index
+     */
+    public void setIndex(int index) {
+        iIndex = index;
+    }
+    
+    /**
+     * Invalidate the compatibility matrix of the model when a preference or the load of this request has changed
+     */
+    protected void invalidateCompatibility() {
+        InstructorSchedulingModel model = (iVariables.length == 0 ? null : (InstructorSchedulingModel)iVariables[0].getModel());
+        if (model != null) model.invalidateCompatibility();
+    }
+    
     
     /**
      * Preference of an instructor taking this request together with some other request of the same / different course. 
@@ -149,15 +175,18 @@ public class TeachingRequest {
 
     /**
      * Return attribute preferences for this request
-     * @return attribute preferences
+     * @return attribute preferences (unmodifiable, use {@link TeachingRequest#addAttributePreference(Preference)} to add a preference)
      */
-    public List<Preference<Attribute>> getAttributePreferences() { return iAttributePreferences; }
+    public List<Preference<Attribute>> getAttributePreferences() { return Collections.unmodifiableList(iAttributePreferences); }
     
     /**
      * Add attribute preference
      * @param pref attribute preference
      */
-    public void addAttributePreference(Preference<Attribute> pref) { iAttributePreferences.add(pref); }
+    public void addAttributePreference(Preference<Attribute> pref) {
+        iAttributePreferences.add(pref);
+        invalidateCompatibility();
+    }
     
     /**
      * Compute attribute preference for the given instructor and attribute type
@@ -202,15 +231,18 @@ public class TeachingRequest {
 
     /**
      * Return instructor preferences for this request
-     * @return instructor preferences
+     * @return instructor preferences (unmodifiable, use {@link TeachingRequest#addInstructorPreference(Preference)} to add a preference)
      */
-    public List<Preference<Instructor>> getInstructorPreferences() { return iInstructorPreferences; }
+    public List<Preference<Instructor>> getInstructorPreferences() { return Collections.unmodifiableList(iInstructorPreferences); }
     
     /**
      * Add instructor preference
      * @param pref instructor preference
      */
-    public void addInstructorPreference(Preference<Instructor> pref) { iInstructorPreferences.add(pref); }
+    public void addInstructorPreference(Preference<Instructor> pref) {
+        iInstructorPreferences.add(pref);
+        invalidateCompatibility();
+    }
     
     /**
      * Return instructor preference for the given instructor
@@ -241,9 +273,9 @@ public class TeachingRequest {
 
     /**
      * Sections of the request that was provided in the constructor
-     * @return sections of the request
+     * @return sections of the request (unmodifiable)
      */
-    public List<Section> getSections() { return iSections; }
+    public List<Section> getSections() { return Collections.unmodifiableList(iSections); }
 
     /**
      * Return teaching load of the request
@@ -255,7 +287,10 @@ public class TeachingRequest {
      * Set teaching load of the request
      * @param load teaching load
      */
-    public void setLoad(float load) { iLoad = load; }
+    public void setLoad(float load) {
+        iLoad = load;
+        invalidateCompatibility();
+    }
 
     @Override
     public String toString() {
@@ -532,11 +567,11 @@ public class TeachingRequest {
             List<TeachingAssignment> values = super.values(assignment);
             if (values == null) {
                 values = new ArrayList<TeachingAssignment>();
-                for (Instructor instructor: ((InstructorSchedulingModel)getModel()).getInstructors()) {
-                    if (instructor.canTeach(getRequest())) {
-                        PreferenceCombination attributePref = getAttributePreference(instructor);
-                        if (attributePref.isProhibited()) continue;
-                        values.add(new TeachingAssignment(this, instructor, attributePref.getPreferenceInt()));
+                InstructorSchedulingModel model = (InstructorSchedulingModel)getModel();
+                for (Instructor instructor: model.getInstructors()) {
+                    if (model.canTeach(instructor, getRequest())) {
+                        if (model.isAttributeProhibited(instructor, getRequest())) continue;
+                        values.add(new TeachingAssignment(this, instructor, model.getAttributePreference(instructor, getRequest())));
                     }
                 }
                 setValues(values);
@@ -71,11 +71,9 @@ public class MathTest extends Test {
         return null;
     }
     
-    public String toString(Instructor instructor) {
-        StringBuffer sb = new StringBuffer();
-        sb.append(instructor.getExternalId());
-        sb.append(",\"" + instructor.getAvailable() + "\"");
-        Collections.sort(instructor.getCoursePreferences(), new Comparator<Preference<Course>>() {
+    public List<Preference<Course>> getCoursePreferences(Instructor instructor) {
+        List<Preference<Course>> coursePreferences = new ArrayList<Preference<Course>>(instructor.getCoursePreferences());
+        Collections.sort(coursePreferences, new Comparator<Preference<Course>>() {
             @Override
             public int compare(Preference<Course> p1, Preference<Course> p2) {
                 if (p1.getPreference() == p2.getPreference())
@@ -83,8 +81,16 @@ public class MathTest extends Test {
                 return p1.getPreference() < p2.getPreference() ? -1 : 1;
             }
         });
+        return coursePreferences;
+    }
+    
+    public String toString(Instructor instructor) {
+        StringBuffer sb = new StringBuffer();
+        sb.append(instructor.getExternalId());
+        sb.append(",\"" + instructor.getAvailable() + "\"");
+        List<Preference<Course>> coursePreferences = getCoursePreferences(instructor);
         for (int i = 0; i < 3; i++) {
-            Preference<Course> p = (i < instructor.getCoursePreferences().size() ? instructor.getCoursePreferences().get(i) : null);
+            Preference<Course> p = (i < coursePreferences.size() ? coursePreferences.get(i) : null);
             sb.append("," + (p == null ? "" : p.getTarget().getCourseName()));
         }
         sb.append("," + (instructor.getPreference() == 0 ? "Yes" : "No"));
@@ -486,8 +492,9 @@ public class MathTest extends Test {
         for (Instructor instructor: getInstructors()) {
             out.print(instructor.getExternalId());
             out.print(",\"" + instructor.getAvailable() + "\"");
+            List<Preference<Course>> coursePreferences = getCoursePreferences(instructor);
             for (int i = 0; i < 3; i++) {
-                Preference<Course> p = (i < instructor.getCoursePreferences().size() ? instructor.getCoursePreferences().get(i) : null);
+                Preference<Course> p = (i < coursePreferences.size() ? coursePreferences.get(i) : null);
                 out.print("," + (p == null ? "" : p.getTarget().getCourseName()));
             }
             out.print("," + (instructor.getPreference() == 0 ? "Yes" : "No"));
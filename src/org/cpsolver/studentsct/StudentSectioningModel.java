@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 import org.cpsolver.ifs.assignment.Assignment;
@@ -93,6 +94,8 @@ public class StudentSectioningModel extends ModelWithContext<Request, Enrollment
     private boolean iKeepInitials;
     protected double iProjectedStudentWeight = 0.0100;
     private int iMaxDomainSize = -1; 
+    private boolean iEnrollmentCache = true;
+    private AtomicLong iEnrollmentCacheHits = new AtomicLong(0), iEnrollmentCacheMisses = new AtomicLong(0);
 
 
     /**
@@ -109,6 +112,7 @@ public class StudentSectioningModel extends ModelWithContext<Request, Enrollment
         iKeepInitials = properties.getPropertyBoolean("Sectioning.KeepInitialAssignments", false);
         iStudentWeights = new PriorityStudentWeights(properties);
         iMaxDomainSize = properties.getPropertyInt("Sectioning.MaxDomainSize", iMaxDomainSize);
+        iEnrollmentCache = properties.getPropertyBoolean("Sectioning.EnrollmentCache", iEnrollmentCache);
         if (properties.getPropertyBoolean("Sectioning.SectionLimit", true)) {
             SectionLimit sectionLimit = new SectionLimit(properties);
             addGlobalConstraint(sectionLimit);
@@ -898,6 +902,10 @@ public class StudentSectioningModel extends ModelWithContext<Request, Enrollment
             info.put("Sections disbalanced by 10% or more", disb10Sections + " (" + sDecimalFormat.format(disbSections == 0 ? 0.0 : 100.0 * disb10Sections / disbSections) + "%)" + list);
         }
         
+        long hits = iEnrollmentCacheHits.get(), misses = iEnrollmentCacheMisses.get();
+        if (hits + misses > 0)
+            info.put("Enrollment cache", sDecimalFormat.format(100.0 * hits / (hits + misses)) + "% hits (" + hits + " hits, " + misses + " misses)");
+        
         return info;
     }
     
@@ -969,6 +977,40 @@ public class StudentSectioningModel extends ModelWithContext<Request, Enrollment
      */
     public void setMaxDomainSize(int maxDomainSize) { iMaxDomainSize = maxDomainSize; }
     
+    /**
+     * Are available enrollments of course requests cached (see {@link CourseRequest#getAvaiableEnrollments(Assignment)})?
+     * @return true if the enrollment cache is enabled (Sectioning.EnrollmentCache parameter, defaults to true)
+     */
+    public boolean isEnrollmentCache() { return iEnrollmentCache; }
+    
+    /**
+     * Enable or disable the enrollment cache (see {@link CourseRequest#getAvaiableEnrollments(Assignment)})
+     * @param enrollmentCache true if the available enrollments of course requests are to be cached
+     */
+    public void setEnrollmentCache(boolean enrollmentCache) { iEnrollmentCache = enrollmentCache; }
+    
+    /**
+     * Called when the available enrollments of a course request were taken from the cache
+     */
+    public void enrollmentCacheHit() { iEnrollmentCacheHits.incrementAndGet(); }
+    
+    /**
+     * Called when the available enrollments of a course request had to be computed
+     */
+    public void enrollmentCacheMiss() { iEnrollmentCacheMisses.incrementAndGet(); }
+    
+    /**
+     * Number of times the available enrollments of a course request were taken from the cache
+     * @return number of enrollment cache hits
+     */
+    public long getEnrollmentCacheHits() { return iEnrollmentCacheHits.get(); }
+    
+    /**
+     * Number of times the available enrollments of a course request had to be computed (with the cache enabled)
+     * @return number of enrollment cache misses
+     */
+    public long getEnrollmentCacheMisses() { return iEnrollmentCacheMisses.get(); }
+    
 
     @Override
     public StudentSectioningModelContext createAssignmentContext(Assignment<Request, Enrollment> assignment) {
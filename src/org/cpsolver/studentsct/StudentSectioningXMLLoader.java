@@ -44,6 +44,8 @@ import org.cpsolver.studentsct.reservation.ReservationOverride;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.Element;
+import org.dom4j.ElementHandler;
+import org.dom4j.ElementPath;
 import org.dom4j.io.SAXReader;
 
 /**
@@ -94,6 +96,12 @@ import org.dom4j.io.SAXReader;
  * <td>{@link StudentFilter}</td>
  * <td>If provided, students are filtered by the given student filter</td>
  * </tr>
+ * <tr>
+ * <td>Xml.Streaming</td>
+ * <td>{@link Boolean}</td>
+ * <td>If true, the input file (and the timetable file, if provided) is not read into a document
+ * first, but each offering and student is loaded as soon as it is parsed (see {@link StudentSectioningXMLLoader#loadStreaming()})</td>
+ * </tr>
  * </table>
  * 
  * <br>
@@ -136,6 +144,7 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
     private boolean iLoadOfferings = true;
     private boolean iLoadStudents = true;
     private StudentFilter iStudentFilter = null;
+    private boolean iStreaming = false;
 
     /**
      * Constructor
@@ -155,6 +164,7 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         iLoadCurrent = getModel().getProperties().getPropertyBoolean("Xml.LoadCurrent", true);
         iLoadOfferings = getModel().getProperties().getPropertyBoolean("Xml.LoadOfferings", true);
         iLoadStudents = getModel().getProperties().getPropertyBoolean("Xml.LoadStudents", true);
+        iStreaming = getModel().getProperties().getPropertyBoolean("Xml.Streaming", iStreaming);
         if (getModel().getProperties().getProperty("Xml.StudentFilter") != null) {
             try {
                 iStudentFilter = (StudentFilter) Class.forName(
@@ -194,6 +204,13 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         iLoadOfferings = loadOfferings;
     }
 
+    /** Set whether to load the input file in a streaming way (see {@link StudentSectioningXMLLoader#loadStreaming()})
+     * @param streaming true if offerings and students are to be loaded as they are parsed
+     **/
+    public void setStreaming(boolean streaming) {
+        iStreaming = streaming;
+    }
+
     /** Create BitSet from a bit string */
     private static BitSet createBitSet(String bitString) {
         BitSet ret = new BitSet(bitString.length());
@@ -207,6 +224,11 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
     @Override
     public void load() throws Exception {
         sLogger.debug("Reading XML data from " + iInputFile);
+        
+        if (iStreaming) {
+            loadStreaming();
+            return;
+        }
 
         Document document = (new SAXReader()).read(iInputFile);
         Element root = document.getRootElement();
@@ -281,12 +303,7 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         if (iLoadOfferings && root.element("offerings") != null) {
             loadOfferings(root.element("offerings"), offeringTable, courseTable, timetable);
         } else {
-            for (Offering offering : getModel().getOfferings()) {
-                offeringTable.put(new Long(offering.getId()), offering);
-                for (Course course : offering.getCourses()) {
-                    courseTable.put(new Long(course.getId()), course);
-                }
-            }
+            fillTables(offeringTable, courseTable);
         }
 
         if (iLoadStudents && root.element("students") != null) {
@@ -299,6 +316,191 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         sLogger.debug("Model successfully loaded.");
     }
     
+    /**
+     * Load the input file in a streaming way. Unlike {@link StudentSectioningXMLLoader#load(Element)}, the whole document is
+     * not read into the memory first. Each offering, student, and travel time is loaded as soon as it has been parsed and its
+     * element is then detached from the document, so that only the small parts of the file (root, log, and constraints
+     * elements) are kept in the memory. The same is done with the timetable file, if provided. Enrollments are
+     * assigned and linked sections are loaded when the whole file has been read, so the resultant model is the same as
+     * when the file is loaded using {@link StudentSectioningXMLLoader#load(Element)}.
+     * @throws DocumentException when the file cannot be parsed
+     */
+    protected void loadStreaming() throws DocumentException {
+        Map<Long, Placement> timetable = null;
+        if (iTimetableFile != null) {
+            sLogger.info("Reading timetable from " + iTimetableFile + " ...");
+            final Map<Long, Placement> table = new HashMap<Long, Placement>();
+            final Map<Long, RoomLocation> rooms = new HashMap<Long, RoomLocation>();
+            SAXReader reader = new SAXReader();
+            reader.addHandler("/timetable/rooms/room", new PruningHandler() {
+                @Override
+                protected void onElement(Element element) {
+                    loadTimetableRoom(element, rooms);
+                }
+            });
+            reader.addHandler("/timetable/classes/class", new PruningHandler() {
+                @Override
+                protected void onElement(Element element) {
+                    loadTimetableClass(element, rooms, table);
+                }
+            });
+            // all the other elements are not needed
+            reader.setDefaultHandler(new PruningHandler());
+            Document timetableDocument = reader.read(iTimetableFile);
+            if (!"timetable".equals(timetableDocument.getRootElement().getName())) {
+                sLogger.error("Given XML file is not course timetabling problem.");
+                return;
+            }
+            timetable = table;
+        }
+        
+        StreamingHandler handler = new StreamingHandler(timetable);
+        SAXReader reader = new SAXReader();
+        for (String path: new String[] {
+                "/sectioning/offerings", "/sectioning/offerings/offering",
+                "/sectioning/students", "/sectioning/students/student",
+                "/sectioning/travel-times", "/sectioning/travel-times/travel-time",
+                "/sectioning/constraints", "/sectioning/log" })
+            reader.addHandler(path, handler);
+        reader.setDefaultHandler(handler);
+        Document document = reader.read(iInputFile);
+        
+        Element root = document.getRootElement();
+        sLogger.debug("Root element: " + root.getName());
+        if (!"sectioning".equals(root.getName())) {
+            sLogger.error("Given XML file is not student sectioning problem.");
+            return;
+        }
+        
+        handler.finish(root);
+        
+        sLogger.debug("Model successfully loaded.");
+    }
+    
+    /**
+     * Element handler that detaches an element from the document once it has been parsed (and processed by
+     * {@link PruningHandler#onElement(Element)}).
+     */
+    private static class PruningHandler implements ElementHandler {
+        
+        /**
+         * Called when an element has been parsed, before it is detached
+         * @param element parsed element (including all its children)
+         */
+        protected void onElement(Element element) {}
+        
+        @Override
+        public void onStart(ElementPath path) {}
+        
+        @Override
+        public void onEnd(ElementPath path) {
+            Element element = path.getCurrent();
+            // keep the document root
+            if (element.getParent() == null) return;
+            onElement(element);
+            element.detach();
+        }
+    }
+    
+    /**
+     * Element handler used by {@link StudentSectioningXMLLoader#loadStreaming()}. Offerings, students, and travel times
+     * are loaded as they are parsed and detached afterwards, constraints and log are kept and processed in
+     * {@link StreamingHandler#finish(Element)}, all other elements are skipped.
+     */
+    private class StreamingHandler implements ElementHandler {
+        private Map<Long, Placement> iTimetable;
+        private Map<Long, Offering> iOfferingTable = new HashMap<Long, Offering>();
+        private Map<Long, Course> iCourseTable = new HashMap<Long, Course>();
+        private List<Enrollment> iBestEnrollments = new ArrayList<Enrollment>();
+        private List<Enrollment> iCurrentEnrollments = new ArrayList<Enrollment>();
+        private boolean iHasOfferings = false, iHasTables = false, iHasStudents = false;
+        
+        private StreamingHandler(Map<Long, Placement> timetable) {
+            iTimetable = timetable;
+        }
+        
+        /** Fill in offering and course tables from the model, if the offerings are not loaded from the file */
+        private void fillTables() {
+            if (iHasTables) return;
+            iHasTables = true;
+            if (iHasOfferings) return;
+            StudentSectioningXMLLoader.this.fillTables(iOfferingTable, iCourseTable);
+        }
+        
+        @Override
+        public void onStart(ElementPath path) {
+            Element element = path.getCurrent();
+            if ("/sectioning".equals(path.getPath())) {
+                // root element, only attributes are available at this point
+                Progress.getInstance(getModel()).load(element, true);
+                Progress.getInstance(getModel()).message(Progress.MSGLEVEL_STAGE, "Restoring from backup ...");
+                
+                if (element.attributeValue("term") != null)
+                    getModel().getProperties().setProperty("Data.Term", element.attributeValue("term"));
+                if (element.attributeValue("year") != null)
+                    getModel().getProperties().setProperty("Data.Year", element.attributeValue("year"));
+                if (element.attributeValue("initiative") != null)
+                    getModel().getProperties().setProperty("Data.Initiative", element.attributeValue("initiative"));
+            } else if ("/sectioning/offerings".equals(path.getPath())) {
+                if (iLoadOfferings && !iHasTables) iHasOfferings = true;
+            } else if ("/sectioning/students".equals(path.getPath())) {
+                fillTables();
+                iHasStudents = true;
+            }
+        }
+        
+        @Override
+        public void onEnd(ElementPath path) {
+            Element element = path.getCurrent();
+            if ("/sectioning/offerings/offering".equals(path.getPath())) {
+                if (iHasOfferings)
+                    loadOffering(element, iOfferingTable, iCourseTable, iTimetable);
+            } else if ("/sectioning/students/student".equals(path.getPath())) {
+                if (iLoadStudents)
+                    loadStudent(element, iOfferingTable, iCourseTable, iBestEnrollments, iCurrentEnrollments);
+            } else if ("/sectioning/travel-times/travel-time".equals(path.getPath())) {
+                if (iLoadOfferings && getModel().getDistanceConflict() != null)
+                    loadTravelTime(element, getModel().getDistanceConflict().getDistanceMetric());
+            } else if ("/sectioning/constraints".equals(path.getPath()) || "/sectioning/log".equals(path.getPath())) {
+                // processed when the whole document is read
+                return;
+            }
+            // keep the document root
+            if (element.getParent() != null)
+                element.detach();
+        }
+        
+        /**
+         * Called when the whole document has been read: assign enrollments and load linked sections and the log
+         * @param root document root, containing constraints and log elements (if present)
+         */
+        private void finish(Element root) {
+            fillTables();
+            
+            if (iLoadStudents && iHasStudents)
+                assignEnrollments(iBestEnrollments, iCurrentEnrollments);
+            
+            if (iLoadOfferings && root.element("constraints") != null) 
+                loadLinkedSections(root.element("constraints"), iOfferingTable);
+            
+            Progress.getInstance(getModel()).load(root, false);
+        }
+    }
+    
+    /**
+     * Fill in offering and course tables from the offerings that are already in the model
+     * @param offeringTable offering table
+     * @param courseTable course table
+     */
+    protected void fillTables(Map<Long, Offering> offeringTable, Map<Long, Course> courseTable) {
+        for (Offering offering : getModel().getOfferings()) {
+            offeringTable.put(Long.valueOf(offering.getId()), offering);
+            for (Course course : offering.getCourses()) {
+                courseTable.put(Long.valueOf(course.getId()), course);
+            }
+        }
+    }
+    
     /**
      * Load offerings
      * @param offeringsEl offerings element
@@ -307,34 +509,47 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
      * @param timetable provided timetable (null if to be loaded from the given document)
      */
     protected void loadOfferings(Element offeringsEl, Map<Long, Offering> offeringTable, Map<Long, Course> courseTable, Map<Long, Placement> timetable) {
+        for (Iterator<?> i = offeringsEl.elementIterator("offering"); i.hasNext();) {
+            Element offeringEl = (Element) i.next();
+            loadOffering(offeringEl, offeringTable, courseTable, timetable);
+        }
+    }
+    
+    /**
+     * Load offering (including its courses, configurations and reservations)
+     * @param offeringEl offering element
+     * @param offeringTable offering table
+     * @param courseTable course table
+     * @param timetable provided timetable (null if to be loaded from the given document)
+     * @return loaded offering
+     */
+    protected Offering loadOffering(Element offeringEl, Map<Long, Offering> offeringTable, Map<Long, Course> courseTable, Map<Long, Placement> timetable) {
         HashMap<Long, Config> configTable = new HashMap<Long, Config>();
         HashMap<Long, Subpart> subpartTable = new HashMap<Long, Subpart>();
         HashMap<Long, Section> sectionTable = new HashMap<Long, Section>();
-        for (Iterator<?> i = offeringsEl.elementIterator("offering"); i.hasNext();) {
-            Element offeringEl = (Element) i.next();
-            Offering offering = new Offering(
-                    Long.parseLong(offeringEl.attributeValue("id")),
-                    offeringEl.attributeValue("name", "O" + offeringEl.attributeValue("id")));
-            offeringTable.put(new Long(offering.getId()), offering);
-            getModel().addOffering(offering);
-            
-            for (Iterator<?> j = offeringEl.elementIterator("course"); j.hasNext();) {
-                Element courseEl = (Element) j.next();
-                Course course = loadCourse(courseEl, offering);
-                courseTable.put(new Long(course.getId()), course);
-            }
-            
-            for (Iterator<?> j = offeringEl.elementIterator("config"); j.hasNext();) {
-                Element configEl = (Element) j.next();
-                Config config = loadConfig(configEl, offering, subpartTable, sectionTable, timetable);
-                configTable.put(config.getId(), config);
-            }
-            
-            for (Iterator<?> j = offeringEl.elementIterator("reservation"); j.hasNext(); ) {
-                Element reservationEl = (Element)j.next();
-                loadReservation(reservationEl, offering, configTable, sectionTable);
-            } 
+        Offering offering = new Offering(
+                Long.parseLong(offeringEl.attributeValue("id")),
+                offeringEl.attributeValue("name", "O" + offeringEl.attributeValue("id")));
+        offeringTable.put(new Long(offering.getId()), offering);
+        getModel().addOffering(offering);
+        
+        for (Iterator<?> j = offeringEl.elementIterator("course"); j.hasNext();) {
+            Element courseEl = (Element) j.next();
+            Course course = loadCourse(courseEl, offering);
+            courseTable.put(new Long(course.getId()), course);
+        }
+        
+        for (Iterator<?> j = offeringEl.elementIterator("config"); j.hasNext();) {
+            Element configEl = (Element) j.next();
+            Config config = loadConfig(configEl, offering, subpartTable, sectionTable, timetable);
+            configTable.put(config.getId(), config);
+        }
+        
+        for (Iterator<?> j = offeringEl.elementIterator("reservation"); j.hasNext(); ) {
+            Element reservationEl = (Element)j.next();
+            loadReservation(reservationEl, offering, configTable, sectionTable);
         }
+        return offering;
     }
     
     /**
@@ -578,57 +793,76 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
      */
     protected Map<Long, Placement> loadTimetable(Element timetableRoot) {
         Map<Long, Placement> timetable = new HashMap<Long, Placement>();
-        HashMap<Long, RoomLocation> rooms = new HashMap<Long, RoomLocation>();
+        Map<Long, RoomLocation> rooms = new HashMap<Long, RoomLocation>();
         for (Iterator<?> i = timetableRoot.element("rooms").elementIterator("room"); i.hasNext();) {
             Element roomEl = (Element)i.next();
-            Long roomId = Long.valueOf(roomEl.attributeValue("id"));
-            Double posX = null, posY = null;
-            if (roomEl.attributeValue("location") != null) {
-                String loc = roomEl.attributeValue("location");
-                posX = Double.valueOf(loc.substring(0, loc.indexOf(',')));
-                posY = Double.valueOf(loc.substring(loc.indexOf(',') + 1));
-            }
-            RoomLocation room = new RoomLocation(
-                    Long.valueOf(roomEl.attributeValue("id")),
-                    roomEl.attributeValue("name", "R" + roomEl.attributeValue("id")),
-                    roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl.attributeValue("building")),
-                    0, Integer.parseInt(roomEl.attributeValue("capacity")),
-                    posX, posY, "true".equals(roomEl.attributeValue("ignoreTooFar")), null);
-            rooms.put(roomId, room);
+            loadTimetableRoom(roomEl, rooms);
         }
         for (Iterator<?> i = timetableRoot.element("classes").elementIterator("class"); i.hasNext();) {
             Element classEl = (Element)i.next();
-            Long classId = Long.valueOf(classEl.attributeValue("id"));
-            TimeLocation time = null;
-            Element timeEl = null;
-            for (Iterator<?> j = classEl.elementIterator("time"); j.hasNext(); ) {
-                Element e = (Element)j.next();
-                if ("true".equals(e.attributeValue("solution", "false"))) { timeEl = e; break; }
-            }
-            if (timeEl != null) {
-                time = new TimeLocation(
-                        Integer.parseInt(timeEl.attributeValue("days"), 2),
-                        Integer.parseInt(timeEl.attributeValue("start")),
-                        Integer.parseInt(timeEl.attributeValue("length")), 0, 0,
-                        classEl.attributeValue("datePattern") == null ? null : Long.valueOf(classEl.attributeValue("datePattern")),
-                        classEl.attributeValue("datePatternName", ""), createBitSet(classEl.attributeValue("dates")),
-                        Integer.parseInt(timeEl.attributeValue("breakTime", "0")));
-                if (timeEl.attributeValue("pattern") != null)
-                    time.setTimePatternId(Long.valueOf(timeEl.attributeValue("pattern")));
-            }
-            List<RoomLocation> room = new ArrayList<RoomLocation>();
-            for (Iterator<?> j = classEl.elementIterator("room"); j.hasNext();) {
-                Element roomEl = (Element) j.next();
-                if (!"true".equals(roomEl.attributeValue("solution", "false"))) continue;
-                room.add(rooms.get(Long.valueOf(roomEl.attributeValue("id"))));
-            }
-            Placement placement = (time == null ? null : new Placement(null, time, room));
-            if (placement != null)
-                timetable.put(classId, placement);
+            loadTimetableClass(classEl, rooms, timetable);
         }
         return timetable;
     }
     
+    /**
+     * Load a room of the given timetable
+     * @param roomEl room element in the course timetabling XML format
+     * @param rooms room table (map room id: room location) to be populated
+     */
+    protected void loadTimetableRoom(Element roomEl, Map<Long, RoomLocation> rooms) {
+        Long roomId = Long.valueOf(roomEl.attributeValue("id"));
+        Double posX = null, posY = null;
+        if (roomEl.attributeValue("location") != null) {
+            String loc = roomEl.attributeValue("location");
+            posX = Double.valueOf(loc.substring(0, loc.indexOf(',')));
+            posY = Double.valueOf(loc.substring(loc.indexOf(',') + 1));
+        }
+        RoomLocation room = new RoomLocation(
+                Long.valueOf(roomEl.attributeValue("id")),
+                roomEl.attributeValue("name", "R" + roomEl.attributeValue("id")),
+                roomEl.attributeValue("building") == null ? null : Long.valueOf(roomEl.attributeValue("building")),
+                0, Integer.parseInt(roomEl.attributeValue("capacity")),
+                posX, posY, "true".equals(roomEl.attributeValue("ignoreTooFar")), null);
+        rooms.put(roomId, room);
+    }
+    
+    /**
+     * Load assignment of a class of the given timetable
+     * @param classEl class element in the course timetabling XML format
+     * @param rooms room table (map room id: room location)
+     * @param timetable timetable (map class id: assigned placement) to be populated
+     */
+    protected void loadTimetableClass(Element classEl, Map<Long, RoomLocation> rooms, Map<Long, Placement> timetable) {
+        Long classId = Long.valueOf(classEl.attributeValue("id"));
+        TimeLocation time = null;
+        Element timeEl = null;
+        for (Iterator<?> j = classEl.elementIterator("time"); j.hasNext(); ) {
+            Element e = (Element)j.next();
+            if ("true".equals(e.attributeValue("solution", "false"))) { timeEl = e; break; }
+        }
+        if (timeEl != null) {
+            time = new TimeLocation(
+                    Integer.parseInt(timeEl.attributeValue("days"), 2),
+                    Integer.parseInt(timeEl.attributeValue("start")),
+                    Integer.parseInt(timeEl.attributeValue("length")), 0, 0,
+                    classEl.attributeValue("datePattern") == null ? null : Long.valueOf(classEl.attributeValue("datePattern")),
+                    classEl.attributeValue("datePatternName", ""), createBitSet(classEl.attributeValue("dates")),
+                    Integer.parseInt(timeEl.attributeValue("breakTime", "0")));
+            if (timeEl.attributeValue("pattern") != null)
+                time.setTimePatternId(Long.valueOf(timeEl.attributeValue("pattern")));
+        }
+        List<RoomLocation> room = new ArrayList<RoomLocation>();
+        for (Iterator<?> j = classEl.elementIterator("room"); j.hasNext();) {
+            Element roomEl = (Element) j.next();
+            if (!"true".equals(roomEl.attributeValue("solution", "false"))) continue;
+            room.add(rooms.get(Long.valueOf(roomEl.attributeValue("id"))));
+        }
+        Placement placement = (time == null ? null : new Placement(null, time, room));
+        if (placement != null)
+            timetable.put(classId, placement);
+    }
+    
     /**
      * Load travel times
      * @param travelTimesEl travel-time element
@@ -637,13 +871,22 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
     protected void loadTravelTimes(Element travelTimesEl, DistanceMetric metric) {
         for (Iterator<?> i = travelTimesEl.elementIterator("travel-time"); i.hasNext();) {
             Element travelTimeEl = (Element)i.next();
-            metric.addTravelTime(
-                    Long.valueOf(travelTimeEl.attributeValue("id1")),
-                    Long.valueOf(travelTimeEl.attributeValue("id2")),
-                    Integer.valueOf(travelTimeEl.attributeValue("minutes")));
+            loadTravelTime(travelTimeEl, metric);
         }
     }
     
+    /**
+     * Load travel time
+     * @param travelTimeEl travel-time element
+     * @param metric distance metric to be populated
+     */
+    protected void loadTravelTime(Element travelTimeEl, DistanceMetric metric) {
+        metric.addTravelTime(
+                Long.valueOf(travelTimeEl.attributeValue("id1")),
+                Long.valueOf(travelTimeEl.attributeValue("id2")),
+                Integer.valueOf(travelTimeEl.attributeValue("minutes")));
+    }
+    
     /**
      * Load linked sections
      * @param constraintsEl constraints element
@@ -673,36 +916,59 @@ public class StudentSectioningXMLLoader extends StudentSectioningLoader {
         List<Enrollment> currentEnrollments = new ArrayList<Enrollment>();
         for (Iterator<?> i = studentsEl.elementIterator("student"); i.hasNext();) {
             Element studentEl = (Element) i.next();
-            Student student = loadStudent(studentEl, offeringTable);
-            if (iStudentFilter != null && !iStudentFilter.accept(student))
-                continue;
-            for (Iterator<?> j = studentEl.elementIterator(); j.hasNext();) {
-                Element requestEl = (Element) j.next();
-                Request request = loadRequest(requestEl, student, offeringTable, courseTable);
-                if (request == null) continue;
-                
-                Element initialEl = requestEl.element("initial");
-                if (iLoadInitial && initialEl != null) {
-                    Enrollment enrollment = loadEnrollment(initialEl, request);
-                    if (enrollment != null)
-                        request.setInitialAssignment(enrollment);
-                }
-                Element currentEl = requestEl.element("current");
-                if (iLoadCurrent && currentEl != null) {
-                    Enrollment enrollment = loadEnrollment(currentEl, request);
-                    if (enrollment != null)
-                        currentEnrollments.add(enrollment);
-                }
-                Element bestEl = requestEl.element("best");
-                if (iLoadBest && bestEl != null) {
-                    Enrollment enrollment = loadEnrollment(bestEl, request);
-                    if (enrollment != null)
-                        bestEnrollments.add(enrollment);
-                }
+            loadStudent(studentEl, offeringTable, courseTable, bestEnrollments, currentEnrollments);
+        }
+        
+        assignEnrollments(bestEnrollments, currentEnrollments);
+    }
+    
+    /**
+     * Load student with its requests, the student is added into the model (unless it is rejected by the student filter)
+     * @param studentEl student element
+     * @param offeringTable offering table
+     * @param courseTable course table
+     * @param bestEnrollments best enrollments of the student are added here
+     * @param currentEnrollments current enrollments of the student are added here
+     * @return loaded student, null if the student has been filtered out
+     */
+    protected Student loadStudent(Element studentEl, Map<Long, Offering> offeringTable, Map<Long, Course> courseTable, List<Enrollment> bestEnrollments, List<Enrollment> currentEnrollments) {
+        Student student = loadStudent(studentEl, offeringTable);
+        if (iStudentFilter != null && !iStudentFilter.accept(student))
+            return null;
+        for (Iterator<?> j = studentEl.elementIterator(); j.hasNext();) {
+            Element requestEl = (Element) j.next();
+            Request request = loadRequest(requestEl, student, offeringTable, courseTable);
+            if (request == null) continue;
+            
+            Element initialEl = requestEl.element("initial");
+            if (iLoadInitial && initialEl != null) {
+                Enrollment enrollment = loadEnrollment(initialEl, request);
+                if (enrollment != null)
+                    request.setInitialAssignment(enrollment);
+            }
+            Element currentEl = requestEl.element("current");
+            if (iLoadCurrent && currentEl != null) {
+                Enrollment enrollment = loadEnrollment(currentEl, request);
+                if (enrollment != null)
+                    currentEnrollments.add(enrollment);
+            }
+            Element bestEl = requestEl.element("best");
+            if (iLoadBest && bestEl != null) {
+                Enrollment enrollment = loadEnrollment(bestEl, request);
+                if (enrollment != null)
+                    bestEnrollments.add(enrollment);
             }
-            getModel().addStudent(student);
         }
-
+        getModel().addStudent(student);
+        return student;
+    }
+    
+    /**
+     * Assign loaded enrollments, best enrollments are assigned (and saved as best) first, current enrollments are assigned next
+     * @param bestEnrollments best enrollments
+     * @param currentEnrollments current enrollments
+     */
+    protected void assignEnrollments(List<Enrollment> bestEnrollments, List<Enrollment> currentEnrollments) {
         if (!bestEnrollments.isEmpty()) {
             // Enrollments with a reservation must go first
             for (Enrollment enrollment : bestEnrollments) {
@@ -55,7 +55,7 @@ public class RandomStudentFilter implements StudentFilter {
             return true;
         if (iRejectedStudentIds.contains(studentId))
             return false;
-        boolean accept = (Math.random() < iProb);
+        boolean accept = (ToolBox.getSecondaryRandom().nextDouble() < iProb);
         if (accept)
             iAcceptedStudentIds.add(studentId);
         else
@@ -12,6 +12,7 @@ import org.cpsolver.ifs.solution.Solution;
 import org.cpsolver.ifs.solver.Solver;
 import org.cpsolver.ifs.util.DataProperties;
 import org.cpsolver.ifs.util.Progress;
+import org.cpsolver.ifs.util.ToolBox;
 import org.cpsolver.studentsct.heuristics.RandomizedBacktrackNeighbourSelection;
 import org.cpsolver.studentsct.model.Enrollment;
 import org.cpsolver.studentsct.model.Request;
@@ -55,7 +56,7 @@ public class BacktrackSelection implements NeighbourSelection<Request, Enrollmen
 
     public void init(Solver<Request, Enrollment> solver, String name) {
         List<Request> variables = new ArrayList<Request>(iIncludeAssignedRequests ? solver.currentSolution().getModel().variables() : solver.currentSolution().getModel().unassignedVariables(solver.currentSolution().getAssignment()));
-        Collections.shuffle(variables);
+        Collections.shuffle(variables, ToolBox.getSecondaryRandom());
         iRequests = new LinkedList<Request>(variables);
         if (iRBtNSel == null) {
             try {
@@ -1,6 +1,7 @@
 package org.cpsolver.studentsct.heuristics.selection;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -11,10 +12,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
+import org.cpsolver.coursett.model.TimeLocation;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.heuristics.NeighbourSelection;
+import org.cpsolver.ifs.model.Constraint;
 import org.cpsolver.ifs.model.GlobalConstraint;
 import org.cpsolver.ifs.model.Neighbour;
 import org.cpsolver.ifs.solution.Solution;
@@ -22,17 +28,26 @@ import org.cpsolver.ifs.solver.Solver;
 import org.cpsolver.ifs.util.DataProperties;
 import org.cpsolver.ifs.util.JProf;
 import org.cpsolver.ifs.util.Progress;
+import org.cpsolver.ifs.util.ThreadPool;
+import org.cpsolver.ifs.util.ToolBox;
 import org.cpsolver.studentsct.StudentSectioningModel;
 import org.cpsolver.studentsct.constraint.LinkedSections;
 import org.cpsolver.studentsct.extension.DistanceConflict;
 import org.cpsolver.studentsct.extension.TimeOverlapsCounter;
 import org.cpsolver.studentsct.heuristics.studentord.StudentGroupsChoiceRealFirstOrder;
 import org.cpsolver.studentsct.heuristics.studentord.StudentOrder;
+import org.cpsolver.studentsct.model.Config;
+import org.cpsolver.studentsct.model.Course;
 import org.cpsolver.studentsct.model.CourseRequest;
 import org.cpsolver.studentsct.model.Enrollment;
 import org.cpsolver.studentsct.model.FreeTimeRequest;
+import org.cpsolver.studentsct.model.Offering;
 import org.cpsolver.studentsct.model.Request;
+import org.cpsolver.studentsct.model.RequestGroup;
+import org.cpsolver.studentsct.model.Section;
 import org.cpsolver.studentsct.model.Student;
+import org.cpsolver.studentsct.model.Subpart;
+import org.cpsolver.studentsct.reservation.Reservation;
 import org.cpsolver.studentsct.weights.StudentWeights;
 
 /**
@@ -64,6 +79,20 @@ import org.cpsolver.studentsct.weights.StudentWeights;
  * to better mimic the case when students can choose their sections (section
  * times).</td>
  * </tr>
+ * <tr>
+ * <td>Neighbour.BranchAndBoundThreads</td>
+ * <td>{@link Integer}</td>
+ * <td>Number of threads. If greater than one, branch &amp; bound searches of a batch of
+ * students are computed concurrently (on top of the current assignment). The found schedules are
+ * then returned one by one, each is checked against the current assignment first (e.g., section,
+ * configuration, and course limits and reservations). Students whose schedules are no longer feasible
+ * are sectioned again.</td>
+ * </tr>
+ * <tr>
+ * <td>Neighbour.BranchAndBoundBatchSize</td>
+ * <td>{@link Integer}</td>
+ * <td>Number of students in a batch when Neighbour.BranchAndBoundThreads is greater than one.</td>
+ * </tr>
  * </table>
  * <br>
  * <br>
@@ -101,6 +130,11 @@ public class BranchBoundSelection implements NeighbourSelection<Request, Enrollm
     protected StudentOrder iOrder = new StudentGroupsChoiceRealFirstOrder();
     protected double iDistConfWeight = 1.0;
     protected boolean iBranchWhenSelectedHasNoConflict = false;
+    protected int iNrThreads = 1;
+    protected int iBatchSize = 100;
+    private ThreadPool iThreadPool = null;
+    private Queue<BranchBoundNeighbour> iPending = new LinkedList<BranchBoundNeighbour>();
+    private Assignment<Request, Enrollment> iContextsInitialized = null;
 
     /**
      * Constructor
@@ -123,6 +157,8 @@ public class BranchBoundSelection implements NeighbourSelection<Request, Enrollm
         }
         iDistConfWeight = properties.getPropertyDouble("DistanceConflict.Weight", iDistConfWeight);
         iBranchWhenSelectedHasNoConflict = properties.getPropertyBoolean("Students.BranchWhenSelectedHasNoConflict", iBranchWhenSelectedHasNoConflict);
+        iNrThreads = properties.getPropertyInt("Neighbour.BranchAndBoundThreads", iNrThreads);
+        iBatchSize = properties.getPropertyInt("Neighbour.BranchAndBoundBatchSize", iBatchSize);
     }
 
     /**
@@ -132,6 +168,14 @@ public class BranchBoundSelection implements NeighbourSelection<Request, Enrollm
      */
     public void init(Solver<Request, Enrollment> solver, String name) {
         setModel((StudentSectioningModel) solver.currentSolution().getModel());
+        if (iNrThreads > 1) {
+            synchronized (this) {
+                if (iThreadPool != null)
+                    iThreadPool.shutdown();
+                iThreadPool = new ThreadPool("BranchBound", iNrThreads);
+            }
+            solver.registerThreadPool(iThreadPool);
+        }
         Progress.getInstance(solver.currentSolution().getModel()).setPhase(name, iModel.getStudents().size());
     }
     
@@ -139,6 +183,10 @@ public class BranchBoundSelection implements NeighbourSelection<Request, Enrollm
         iModel = model;
         List<Student> students = iOrder.order(iModel.getStudents());
         iStudents = new LinkedList<Student>(students);
+        synchronized (iPending) {
+            iPending.clear();
+        }
+        iContextsInitialized = null;
         iTimeOverlaps = model.getTimeOverlaps();
         iDistanceConflict = model.getDistanceConflict();
     }
@@ -162,6 +210,8 @@ public class BranchBoundSelection implements NeighbourSelection<Request, Enrollm
      */
     @Override
     public Neighbour<Request, Enrollment> selectNeighbour(Solution<Request, Enrollment> solution) {
+        if (iNrThreads > 1)
+            return selectNeighbourParallel(solution);
         Student student = null;
         while ((student = nextStudent()) != null) {
             Progress.getInstance(solution.getModel()).incProgress();
@@ -171,6 +221,155 @@ public class BranchBoundSelection implements NeighbourSelection<Request, Enrollm
         }
         return null;
     }
+    
+    /**
+     * Select neighbour, branch &amp; bound searches of a batch of students are computed concurrently.
+     * The found schedules are returned one by one, a schedule that is no longer feasible (see {@link BranchBoundSelection#isFeasible(Assignment, BranchBoundNeighbour)})
+     * is computed again on top of the current assignment.
+     * @param solution current solution
+     * @return next schedule, null if there are no more students
+     */
+    protected Neighbour<Request, Enrollment> selectNeighbourParallel(Solution<Request, Enrollment> solution) {
+        Assignment<Request, Enrollment> assignment = solution.getAssignment();
+        while (true) {
+            BranchBoundNeighbour neighbour = null;
+            synchronized (iPending) {
+                if (iPending.isEmpty()) {
+                    List<Student> batch = new ArrayList<Student>(iBatchSize);
+                    Student student = null;
+                    while (batch.size() < iBatchSize && (student = nextStudent()) != null) {
+                        Progress.getInstance(solution.getModel()).incProgress();
+                        batch.add(student);
+                    }
+                    if (batch.isEmpty()) return null;
+                    iPending.addAll(selectParallel(assignment, batch));
+                }
+                neighbour = iPending.poll();
+            }
+            if (neighbour == null) continue;
+            if (isFeasible(assignment, neighbour))
+                return neighbour;
+            // the schedule is no longer feasible, section the student again
+            neighbour = getSelection(assignment, neighbour.getStudent()).select();
+            if (neighbour != null)
+                return neighbour;
+        }
+    }
+    
+    /**
+     * Compute branch &amp; bound searches for the given students concurrently, using Neighbour.BranchAndBoundThreads threads.
+     * The assignment is only read during the computation.
+     * @param assignment current assignment
+     * @param students students to section
+     * @return found schedules, in the order of the given students (students with no schedule found are skipped)
+     */
+    protected List<BranchBoundNeighbour> selectParallel(final Assignment<Request, Enrollment> assignment, List<Student> students) {
+        initContexts(assignment);
+        List<Future<BranchBoundNeighbour>> tasks = new ArrayList<Future<BranchBoundNeighbour>>(students.size());
+        // each student is sectioned using its own random stream, seeded from the stream of the calling thread
+        long seed = ToolBox.getRandom().nextLong();
+        for (int i = 0; i < students.size(); i++) {
+            final Student student = students.get(i);
+            tasks.add(getThreadPool().submit(seed, i, new Callable<BranchBoundNeighbour>() {
+                @Override
+                public BranchBoundNeighbour call() {
+                    return getSelection(assignment, student).select();
+                }
+            }));
+        }
+        List<BranchBoundNeighbour> neighbours = new ArrayList<BranchBoundNeighbour>(students.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                BranchBoundNeighbour neighbour = tasks.get(i).get();
+                if (neighbour != null) neighbours.add(neighbour);
+            } catch (InterruptedException e) {
+                sLog.error("Branch & bound of " + students.get(i).getName() + " interrupted: " + e.getMessage(), e);
+            } catch (ExecutionException e) {
+                sLog.error("Branch & bound of " + students.get(i).getName() + " failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return neighbours;
+    }
+    
+    /**
+     * Check whether a schedule that was computed concurrently can still be assigned. The same checks are done as by the sequential search
+     * (see {@link Selection#inConflict(int, Enrollment)}): none of the enrollments is in a conflict with the current assignment
+     * (see {@link GlobalConstraint#inConflict(Assignment, org.cpsolver.ifs.model.Value)}, e.g., section, configuration, and course limits and reservations),
+     * the linked sections of the student are respected, and none of the (hard) constraints of the requests would unassign an enrollment of a different student.
+     * @param assignment current assignment
+     * @param neighbour schedule of a student
+     * @return true if the schedule can be assigned without unassigning an enrollment of a different student
+     */
+    protected boolean isFeasible(Assignment<Request, Enrollment> assignment, BranchBoundNeighbour neighbour) {
+        final Enrollment[] enrollments = neighbour.getAssignment();
+        Set<Enrollment> conflicts = new HashSet<Enrollment>();
+        for (Enrollment enrollment: enrollments) {
+            if (enrollment == null) continue;
+            for (GlobalConstraint<Request, Enrollment> constraint : iModel.globalConstraints())
+                if (constraint.inConflict(assignment, enrollment))
+                    return false;
+            for (Constraint<Request, Enrollment> constraint : enrollment.variable().constraints())
+                constraint.computeConflicts(assignment, enrollment, conflicts);
+            for (Enrollment conflict: conflicts)
+                if (!conflict.getStudent().equals(neighbour.getStudent()))
+                    return false;
+            conflicts.clear();
+        }
+        LinkedSections.EnrollmentAssignment schedule = new LinkedSections.EnrollmentAssignment() {
+            @Override
+            public Enrollment getEnrollment(Request request, int index) {
+                return enrollments[index];
+            }
+        };
+        for (LinkedSections linkedSections: neighbour.getStudent().getLinkedSections())
+            for (Enrollment enrollment: enrollments)
+                if (enrollment != null && linkedSections.inConflict(enrollment, schedule) != null)
+                    return false;
+        return true;
+    }
+    
+    /**
+     * Make sure that the assignment contexts of the model, its offerings, and its requests exist before the assignment is
+     * read by multiple threads at once (contexts are created lazily otherwise).
+     * @param assignment current assignment
+     */
+    protected void initContexts(Assignment<Request, Enrollment> assignment) {
+        if (iContextsInitialized == assignment) return;
+        iModel.getContext(assignment);
+        for (Offering offering: iModel.getOfferings()) {
+            for (Config config: offering.getConfigs()) {
+                config.getContext(assignment);
+                for (Subpart subpart: config.getSubparts())
+                    for (Section section: subpart.getSections())
+                        section.getContext(assignment);
+            }
+            for (Course course: offering.getCourses()) {
+                course.getContext(assignment);
+                for (RequestGroup group: course.getRequestGroups())
+                    group.getContext(assignment);
+            }
+            for (Reservation reservation: offering.getReservations())
+                reservation.getContext(assignment);
+        }
+        for (Request request: iModel.variables())
+            request.getContext(assignment);
+        if (iDistanceConflict != null)
+            iDistanceConflict.getContext(assignment);
+        if (iTimeOverlaps != null)
+            iTimeOverlaps.getContext(assignment);
+        iContextsInitialized = assignment;
+    }
+    
+    /**
+     * Thread pool used by {@link BranchBoundSelection#selectParallel(Assignment, List)}, created
+     * when needed (daemon threads, the pool is registered with the solver and shut down when the solver stops)
+     * @return thread pool with Neighbour.BranchAndBoundThreads threads
+     */
+    protected synchronized ThreadPool getThreadPool() {
+        if (iThreadPool == null)
+            iThreadPool = new ThreadPool("BranchBound", iNrThreads);
+        return iThreadPool;
+    }
 
     /**
      * Branch &amp; bound selection for a student
@@ -204,6 +403,10 @@ public class BranchBoundSelection implements NeighbourSelection<Request, Enrollm
         protected HashMap<CourseRequest, List<Enrollment>> iValues;
         /** Current assignment */
         protected Assignment<Request, Enrollment> iCurrentAssignment;
+        /** Time occupancy of the enrollments of the other requests, for each depth (request index) */
+        protected long[][] iOccupancy;
+        /** Enrollments of the other requests for which the time occupancy of each depth was computed */
+        protected Enrollment[][] iOccupancyEnrollments;
 
         /**
          * Constructor
@@ -504,11 +707,50 @@ public class BranchBoundSelection implements NeighbourSelection<Request, Enrollm
                     }
                 }) != null) return true;
             }
+            if (enrollment.isAllowOverlap() || !TimeLocation.isOccupancyOverlapping(getOccupancy(idx), enrollment.getOccupancy()))
+                return false;
             for (int i = 0; i < iAssignment.length; i++)
                 if (iAssignment[i] != null && i != idx && iAssignment[i].isOverlapping(enrollment))
                     return true;
             return false;
         }
+        
+        /**
+         * Time occupancy of the enrollments of all the requests except of the given one (bitwise OR of {@link Enrollment#getOccupancy()}
+         * of the enrollments that do not allow for overlaps). An enrollment can only overlap with some of these enrollments when its occupancy
+         * intersects with the returned mask. The mask is kept for each depth of the search and it is only recomputed when the enrollments of the
+         * other requests have changed, so it is shared among all the enrollments that are being considered for the given request.
+         * @param idx index of request
+         * @return time occupancy of the other requests, null if none of them has an enrollment with a time
+         */
+        protected long[] getOccupancy(int idx) {
+            if (iOccupancy == null || iOccupancy.length != iAssignment.length) {
+                iOccupancy = new long[iAssignment.length][];
+                iOccupancyEnrollments = new Enrollment[iAssignment.length][];
+            }
+            Enrollment[] enrollments = iOccupancyEnrollments[idx];
+            if (enrollments == null) {
+                enrollments = new Enrollment[iAssignment.length];
+                iOccupancyEnrollments[idx] = enrollments;
+            } else {
+                boolean changed = false;
+                for (int i = 0; i < iAssignment.length; i++)
+                    if (i != idx && enrollments[i] != iAssignment[i]) { changed = true; break; }
+                if (!changed) return iOccupancy[idx];
+            }
+            long[] occupancy = null;
+            for (int i = 0; i < iAssignment.length; i++) {
+                enrollments[i] = (i == idx ? null : iAssignment[i]);
+                if (enrollments[i] == null || enrollments[i].isAllowOverlap()) continue;
+                long[] o = enrollments[i].getOccupancy();
+                if (o == null) continue;
+                if (occupancy == null) occupancy = new long[o.length];
+                for (int j = 0; j < Math.min(o.length, occupancy.length); j++)
+                    occupancy[j] |= o[j];
+            }
+            iOccupancy[idx] = occupancy;
+            return occupancy;
+        }
 
         /** First conflicting enrollment 
          * @param idx index of request
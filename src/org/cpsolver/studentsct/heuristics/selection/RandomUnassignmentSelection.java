@@ -94,7 +94,7 @@ public class RandomUnassignmentSelection implements NeighbourSelection<Request,
      */
     @Override
     public Neighbour<Request, Enrollment> selectNeighbour(Solution<Request, Enrollment> solution) {
-        if (Math.random() < iRandom) {
+        if (ToolBox.getSecondaryRandom().nextDouble() < iRandom) {
             Student student = ToolBox.random(iStudents);
             return new UnassignStudentNeighbour(student, solution.getAssignment());
         }
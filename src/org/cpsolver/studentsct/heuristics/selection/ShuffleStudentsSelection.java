@@ -143,7 +143,7 @@ public class ShuffleStudentsSelection implements NeighbourSelection<Request, Enr
             }
         }
         // Shuffle the queue
-        Collections.shuffle((LinkedList<Shuffle>)iQueue);
+        Collections.shuffle((LinkedList<Shuffle>)iQueue, ToolBox.getSecondaryRandom());
         // Initialize the backtrack selection, if needed
         if (iBacktrack == null) {
             try {
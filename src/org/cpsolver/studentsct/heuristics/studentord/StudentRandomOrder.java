@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.ifs.util.ToolBox;
 import org.cpsolver.studentsct.model.Student;
 
 
@@ -39,7 +40,7 @@ public class StudentRandomOrder implements StudentOrder {
     @Override
     public List<Student> order(List<Student> students) {
         List<Student> ret = new ArrayList<Student>(students);
-        Collections.shuffle(ret);
+        Collections.shuffle(ret, ToolBox.getSecondaryRandom());
         return ret;
     }
 
@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.ifs.util.ToolBox;
 import org.cpsolver.studentsct.model.Student;
 
 
@@ -53,8 +54,8 @@ public class StudentRandomRealFirstOrder implements StudentOrder {
             else
                 real.add(student);
         }
-        Collections.shuffle(dummy);
-        Collections.shuffle(real);
+        Collections.shuffle(dummy, ToolBox.getSecondaryRandom());
+        Collections.shuffle(real, ToolBox.getSecondaryRandom());
         dummy.addAll(real);
         return dummy;
     }
@@ -2,6 +2,7 @@ package org.cpsolver.studentsct.model;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -55,6 +56,7 @@ public class CourseRequest extends Request {
     private boolean iWaitlist = false;
     private Long iTimeStamp = null;
     private Double iCachedMinPenalty = null, iCachedMaxPenalty = null;
+    private volatile long iEnrollmentCacheEpoch = 0;
     public static boolean sSameTimePrecise = false;
     private Set<RequestGroup> iRequestGroups = new HashSet<RequestGroup>();
 
@@ -414,7 +416,7 @@ public class CourseRequest extends Request {
             }
             if (random || limit > 0) {
                 sectionsThisSubpart = new ArrayList<Section>(sectionsThisSubpart);
-                Collections.shuffle(sectionsThisSubpart);
+                Collections.shuffle(sectionsThisSubpart, ToolBox.getSecondaryRandom());
             }
             int i = 0;
             for (Section section: matchingSectionsThisSubpart) {
@@ -434,6 +436,85 @@ public class CourseRequest extends Request {
      * @return all available enrollments
      **/
     public List<Enrollment> getAvaiableEnrollments(Assignment<Request, Enrollment> assignment) {
+        // with a limited domain size, the computation draws random numbers (see computeEnrollments), do not cache to keep the random sequence
+        if (getModel() == null || !((StudentSectioningModel)getModel()).isEnrollmentCache() || getMaxDomainSize() > 0)
+            return computeAvaiableEnrollments(assignment);
+        StudentSectioningModel model = (StudentSectioningModel)getModel();
+        long epoch = iEnrollmentCacheEpoch;
+        BitSet availability = getAvailability(assignment);
+        RequestContext context = getContext(assignment);
+        List<Enrollment> cached = context.getCachedEnrollments(epoch, availability);
+        if (cached == null) {
+            model.enrollmentCacheMiss();
+            cached = Collections.unmodifiableList(computeAvaiableEnrollments(assignment));
+            context.setCachedEnrollments(epoch, availability, cached);
+        } else {
+            model.enrollmentCacheHit();
+        }
+        // the enrollments are shared, only the list is copied (callers are allowed to sort it)
+        return new ArrayList<Enrollment>(cached);
+    }
+    
+    /**
+     * Availability of the courses, configurations, sections, and reservations of the requested courses for this request. These are the
+     * outcomes of the limit checks made by {@link CourseRequest#computeAvaiableEnrollments(Assignment)} (e.g., whether a section would be
+     * over its limit if this request was enrolled in it, or whether a reservation has enough available space for it) and the order in which
+     * the reservations are tried. The available enrollments can only change when the availability changes (or when the cache is cleared,
+     * see {@link CourseRequest#clearEnrollmentCache()}), so an enrollment of a different student only invalidates the cached enrollments when
+     * it makes a class, a configuration, a course, or a reservation full (or no longer full).
+     * @param assignment current assignment
+     * @return availability signature (one bit for each limit check)
+     */
+    protected BitSet getAvailability(Assignment<Request, Enrollment> assignment) {
+        BitSet availability = new BitSet();
+        int bit = 0;
+        for (Course course: iCourses) {
+            Offering offering = course.getOffering();
+            List<Reservation> reservations = getReservations(course);
+            for (Reservation r: reservations)
+                availability.set(bit++, r.getReservedAvailableSpace(assignment, this) >= getWeight());
+            if (reservations.size() > 1) {
+                int bits = 32 - Integer.numberOfLeadingZeros(reservations.size() - 1);
+                for (Reservation r: getSortedReservations(assignment, course)) {
+                    int index = reservations.indexOf(r);
+                    for (int b = 0; b < bits; b++)
+                        availability.set(bit++, (index & (1 << b)) != 0);
+                }
+            }
+            availability.set(bit++, course.getLimit() < 0 || CourseLimit.getEnrollmentWeight(assignment, course, this) <= course.getLimit());
+            availability.set(bit++, !offering.hasReservations() || offering.getUnreservedSpace(assignment, this) >= getWeight());
+            for (Config config: offering.getConfigs()) {
+                availability.set(bit++, config.getLimit() < 0 || ConfigLimit.getEnrollmentWeight(assignment, config, this) <= config.getLimit());
+                availability.set(bit++, !offering.hasReservations() || config.getUnreservedSpace(assignment, this) >= getWeight());
+                for (Subpart subpart: config.getSubparts())
+                    for (Section section: subpart.getSections()) {
+                        availability.set(bit++, section.getLimit() < 0 || SectionLimit.getEnrollmentWeight(assignment, section, this) <= section.getLimit());
+                        availability.set(bit++, !offering.hasReservations() || section.getUnreservedSpace(assignment, this) >= getWeight());
+                    }
+            }
+        }
+        return availability;
+    }
+    
+    /**
+     * Clear the available enrollments that are cached on this request (see {@link CourseRequest#getAvaiableEnrollments(Assignment)}),
+     * e.g., when the offerings or the reservations of the requested courses are changed.
+     */
+    public void clearEnrollmentCache() {
+        iEnrollmentCacheEpoch ++;
+    }
+    
+    @Override
+    public void setWeight(double weight) {
+        super.setWeight(weight);
+        clearEnrollmentCache();
+    }
+    
+    /** Compute all enrollments that are available (no caching)
+     * @param assignment current assignment
+     * @return all available enrollments
+     **/
+    protected List<Enrollment> computeAvaiableEnrollments(Assignment<Request, Enrollment> assignment) {
         List<Enrollment> ret = new ArrayList<Enrollment>();
         int idx = 0;
         for (Course course : iCourses) {
@@ -794,6 +875,7 @@ public class CourseRequest extends Request {
      */
     public synchronized void clearReservationCache() {
         if (iReservations != null) iReservations.clear();
+        clearEnrollmentCache();
     }
     
     /**
@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
+import org.cpsolver.coursett.model.TimeLocation;
 import org.cpsolver.ifs.assignment.Assignment;
 import org.cpsolver.ifs.model.Value;
 import org.cpsolver.ifs.util.ToolBox;
@@ -53,6 +54,7 @@ public class Enrollment extends Value<Request, Enrollment> {
     private Reservation iReservation = null;
     private Long iTimeStamp = null;
     private String iApproval = null;
+    private volatile long[] iOccupancy = null;
 
     /**
      * Constructor
@@ -189,6 +191,29 @@ public class Enrollment extends Value<Request, Enrollment> {
         return new HashSet<Section>();
     }
 
+    /**
+     * Time occupancy signature of the enrollment, that is a bitwise OR of the occupancy signatures (see {@link TimeLocation#getOccupancy()})
+     * of all the sections (or the free time) that have a time and do not allow for overlaps. It is computed when needed for the first time.
+     * Two enrollments can only overlap when their signatures intersect (see {@link TimeLocation#isOccupancyOverlapping(long[], long[])}).
+     * The returned array must not be modified.
+     * @return time occupancy signature (empty if there are no sections with a time), null if the enrollment has no sections
+     */
+    public long[] getOccupancy() {
+        long[] occupancy = iOccupancy;
+        if (occupancy == null && iAssignments != null) {
+            for (SctAssignment a : getAssignments()) {
+                if (a.isAllowOverlap() || a.getTime() == null) continue;
+                long[] o = a.getTime().getOccupancy();
+                if (occupancy == null) occupancy = new long[o.length];
+                for (int i = 0; i < Math.min(o.length, occupancy.length); i++)
+                    occupancy[i] |= o[i];
+            }
+            if (occupancy == null) occupancy = new long[0];
+            iOccupancy = occupancy;
+        }
+        return occupancy;
+    }
+
     /** True when this enrollment is overlapping with the given enrollment 
      * @param enrl other enrollment
      * @return true if there is an overlap 
@@ -196,6 +221,8 @@ public class Enrollment extends Value<Request, Enrollment> {
     public boolean isOverlapping(Enrollment enrl) {
         if (enrl == null || isAllowOverlap() || enrl.isAllowOverlap())
             return false;
+        if (!TimeLocation.isOccupancyOverlapping(getOccupancy(), enrl.getOccupancy()))
+            return false;
         for (SctAssignment a : getAssignments()) {
             if (a.isOverlapping(enrl.getAssignments()))
                 return true;
@@ -1,5 +1,6 @@
 package org.cpsolver.studentsct.model;
 
+import java.util.BitSet;
 import java.util.List;
 
 import org.cpsolver.ifs.assignment.Assignment;
@@ -234,6 +235,39 @@ public abstract class Request extends VariableWithContext<Request, Enrollment, R
         
         public Double getLastWeight() { return iWeight; }
         public void setLastWeight(Double weight) { iWeight = weight; }
+        
+        private volatile CachedEnrollments iCachedEnrollments = null;
+        
+        /**
+         * Cached available enrollments (see {@link CourseRequest#getAvaiableEnrollments(Assignment)}).
+         * The cache can be read and updated by multiple threads at once (e.g., during a parallel branch &amp; bound search).
+         * @param epoch current epoch of the request (incremented when the cache is cleared)
+         * @param availability current availability of the requested courses (see {@link CourseRequest#getAvailability(Assignment)})
+         * @return cached enrollments, null if there are no cached enrollments for the given epoch and availability
+         */
+        public List<Enrollment> getCachedEnrollments(long epoch, BitSet availability) {
+            CachedEnrollments cached = iCachedEnrollments;
+            return (cached != null && cached.iEpoch == epoch && cached.iAvailability.equals(availability) ? cached.iEnrollments : null);
+        }
+        
+        /**
+         * Cache available enrollments (see {@link CourseRequest#getAvaiableEnrollments(Assignment)})
+         * @param epoch current epoch of the request (incremented when the cache is cleared)
+         * @param availability availability of the requested courses for which the enrollments were computed
+         * @param enrollments available enrollments
+         */
+        public void setCachedEnrollments(long epoch, BitSet availability, List<Enrollment> enrollments) { iCachedEnrollments = new CachedEnrollments(epoch, availability, enrollments); }
+    }
+    
+    /** Available enrollments together with the epoch and the availability for which they were computed, replaced as a whole */
+    private static class CachedEnrollments {
+        private final long iEpoch;
+        private final BitSet iAvailability;
+        private final List<Enrollment> iEnrollments;
+        
+        private CachedEnrollments(long epoch, BitSet availability, List<Enrollment> enrollments) {
+            iEpoch = epoch; iAvailability = availability; iEnrollments = enrollments;
+        }
     }
     
 
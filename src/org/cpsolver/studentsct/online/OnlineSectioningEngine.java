@@ -0,0 +1,412 @@
+package org.cpsolver.studentsct.online;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.DefaultSingleAssignment;
+import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.ifs.util.ThreadPool;
+import org.cpsolver.ifs.util.ToolBox;
+import org.cpsolver.studentsct.heuristics.selection.BranchBoundSelection.BranchBoundNeighbour;
+import org.cpsolver.studentsct.model.Config;
+import org.cpsolver.studentsct.model.Course;
+import org.cpsolver.studentsct.model.CourseRequest;
+import org.cpsolver.studentsct.model.Enrollment;
+import org.cpsolver.studentsct.model.FreeTimeRequest;
+import org.cpsolver.studentsct.model.Offering;
+import org.cpsolver.studentsct.model.Request;
+import org.cpsolver.studentsct.model.Section;
+import org.cpsolver.studentsct.model.Student;
+import org.cpsolver.studentsct.model.Subpart;
+import org.cpsolver.studentsct.online.selection.MultiCriteriaBranchAndBoundSelection;
+import org.cpsolver.studentsct.online.selection.OnlineSectioningSelection;
+import org.cpsolver.studentsct.online.selection.SuggestionSelection;
+import org.cpsolver.studentsct.reservation.Reservation;
+
+/**
+ * Online sectioning request engine. Students are sectioned concurrently on one shared {@link OnlineSectioningModel} and assignment.
+ * Each request only locks the offerings of the courses that the student requested, so students with no course in common
+ * can be sectioned at the same time. The offering locks are striped (parameter OnlineSectioning.OfferingLocks,
+ * defaults to 1024 locks) and always acquired in the same order to avoid deadlocks.
+ * <br><br>
+ * For each student, the schedule is computed by {@link MultiCriteriaBranchAndBoundSelection} (or {@link SuggestionSelection}
+ * when StudentWeights.MultiCriteria is false) while the offerings are locked. The current enrollments of the student are used
+ * as the preferred sections. The schedule is then committed atomically: the enrollments are changed while holding the model
+ * monitor, since the assignment also updates model-wide information (criteria, distance conflicts, etc.). If any of the new
+ * enrollments is in a conflict, the original schedule of the student is restored.
+ * <br><br>
+ * The shared assignment must be a {@link DefaultSingleAssignment}, which is enforced by the constructor. The schedule is computed
+ * outside of the model monitor, reading the assignment while other requests commit into it. This is only safe when the values
+ * are kept in the variables (a read never touches a structure that a concurrent commit changes), not, e.g., in a hash map
+ * like in the {@link org.cpsolver.ifs.assignment.AssignmentMap}. The enrollments of a student's requests are only changed by
+ * the requests of that student, which lock the same offerings and are therefore never processed at the same time.
+ * <br><br>
+ * Requests can be processed by the caller ({@link OnlineSectioningEngine#section(Student)}) or by the engine's thread pool
+ * ({@link OnlineSectioningEngine#submit(Student)}, parameter OnlineSectioning.Threads, defaults to the number of available
+ * processors). The engine keeps the latencies of the last processed requests in a ring buffer (parameter OnlineSectioning.LatencySamples,
+ * defaults to 10000 requests), the throughput (of all the processed requests) and the 50th and 99th percentile of the latency (of the
+ * kept requests) are returned by {@link OnlineSectioningEngine#getInfo()}.
+ *
+ * @version StudentSct 1.3 (Student Sectioning)<br>
+ *          Copyright (C) 2017 Tomas Muller<br>
+ *          <a href="mailto:muller@unitime.org">muller@unitime.org</a><br>
+ *          <a href="http://muller.unitime.org">http://muller.unitime.org</a><br>
+ * <br>
+ *          This library is free software; you can redistribute it and/or modify
+ *          it under the terms of the GNU Lesser General Public License as
+ *          published by the Free Software Foundation; either version 3 of the
+ *          License, or (at your option) any later version. <br>
+ * <br>
+ *          This library is distributed in the hope that it will be useful, but
+ *          WITHOUT ANY WARRANTY; without even the implied warranty of
+ *          MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *          Lesser General Public License for more details. <br>
+ * <br>
+ *          You should have received a copy of the GNU Lesser General Public
+ *          License along with this library; if not see <a href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
+ *
+ */
+public class OnlineSectioningEngine {
+    private static Logger sLog = Logger.getLogger(OnlineSectioningEngine.class);
+    private static DecimalFormat sDF = new DecimalFormat("0.00");
+    private OnlineSectioningModel iModel;
+    private Assignment<Request, Enrollment> iAssignment;
+    private ReentrantLock[] iLocks;
+    private int iNrThreads;
+    private ThreadPool iThreadPool;
+    private AtomicLong iNrRequests = new AtomicLong(0), iNrFailures = new AtomicLong(0);
+    private long[] iLatencies;
+    private long iNrLatencies = 0;
+    private long iFirstStart = -1, iLastEnd = -1;
+
+    /**
+     * Constructor
+     * @param model online sectioning model
+     * @param assignment shared assignment, must be a {@link DefaultSingleAssignment}
+     */
+    public OnlineSectioningEngine(OnlineSectioningModel model, Assignment<Request, Enrollment> assignment) {
+        this(model, assignment, model.getProperties().getPropertyInt("OnlineSectioning.Threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructor
+     * @param model online sectioning model
+     * @param assignment shared assignment, must be a {@link DefaultSingleAssignment}
+     * @param nrThreads number of threads of the engine's thread pool (see {@link OnlineSectioningEngine#submit(Student)})
+     * @throws IllegalArgumentException when the assignment is not a {@link DefaultSingleAssignment}
+     */
+    public OnlineSectioningEngine(OnlineSectioningModel model, Assignment<Request, Enrollment> assignment, int nrThreads) {
+        if (!(assignment instanceof DefaultSingleAssignment))
+            throw new IllegalArgumentException("Online sectioning engine requires a single assignment, " + (assignment == null ? "null" : assignment.getClass().getSimpleName()) + " given.");
+        iModel = model;
+        iAssignment = assignment;
+        DataProperties properties = model.getProperties();
+        iLocks = new ReentrantLock[Math.max(1, properties.getPropertyInt("OnlineSectioning.OfferingLocks", 1024))];
+        for (int i = 0; i < iLocks.length; i++)
+            iLocks[i] = new ReentrantLock();
+        iNrThreads = Math.max(1, nrThreads);
+        iThreadPool = new ThreadPool("OnlineSectioning", iNrThreads);
+        iLatencies = new long[Math.max(1, properties.getPropertyInt("OnlineSectioning.LatencySamples", 10000))];
+        initContexts();
+    }
+
+    /** Online sectioning model
+     * @return online sectioning model
+     **/
+    public OnlineSectioningModel getModel() { return iModel; }
+
+    /** Shared assignment
+     * @return assignment that is being changed by the engine
+     **/
+    public Assignment<Request, Enrollment> getAssignment() { return iAssignment; }
+
+    /**
+     * Make sure that the assignment contexts of the model and its offerings exist before the assignment is
+     * used by multiple threads at once (contexts are created lazily otherwise).
+     */
+    protected void initContexts() {
+        synchronized (iModel) {
+            iModel.getContext(iAssignment);
+            for (Offering offering: iModel.getOfferings()) {
+                for (Config config: offering.getConfigs()) {
+                    config.getContext(iAssignment);
+                    for (Subpart subpart: config.getSubparts())
+                        for (Section section: subpart.getSections())
+                            section.getContext(iAssignment);
+                }
+                for (Course course: offering.getCourses())
+                    course.getContext(iAssignment);
+                for (Reservation reservation: offering.getReservations())
+                    reservation.getContext(iAssignment);
+            }
+            if (iModel.getDistanceConflict() != null)
+                iModel.getDistanceConflict().getContext(iAssignment);
+            if (iModel.getTimeOverlaps() != null)
+                iModel.getTimeOverlaps().getContext(iAssignment);
+        }
+    }
+
+    /**
+     * Offering locks that need to be held while the given student is being sectioned (one lock of each offering of a requested course)
+     * @param student student in question
+     * @return lock indexes, in ascending order
+     */
+    protected TreeSet<Integer> getLockIndexes(Student student) {
+        TreeSet<Integer> indexes = new TreeSet<Integer>();
+        for (Request request: student.getRequests()) {
+            if (request instanceof CourseRequest)
+                for (Course course: ((CourseRequest)request).getCourses())
+                    indexes.add((int)Math.abs(course.getOffering().getId() % iLocks.length));
+        }
+        return indexes;
+    }
+
+    /**
+     * Section the given student in the calling thread
+     * @param student student to section (must be in the model)
+     * @return computed and committed schedule, null if no schedule was found or if it could not be committed
+     */
+    public BranchBoundNeighbour section(Student student) {
+        return section(student, System.currentTimeMillis());
+    }
+
+    /**
+     * Section the given student using the thread pool of the engine
+     * @param student student to section (must be in the model)
+     * @return future of the computed and committed schedule (see {@link OnlineSectioningEngine#section(Student)})
+     */
+    public Future<BranchBoundNeighbour> submit(Student student) {
+        return submit(student, ToolBox.getRandom().nextLong(), 0);
+    }
+
+    /**
+     * Section the given student using the thread pool of the engine, the request draws its random numbers from its own stream
+     * (see {@link ThreadPool#submit(long, int, Callable)})
+     * @param student student to section (must be in the model)
+     * @param seed random seed (drawn from the stream of the calling thread)
+     * @param index request index
+     * @return future of the computed and committed schedule (see {@link OnlineSectioningEngine#section(Student)})
+     */
+    protected Future<BranchBoundNeighbour> submit(final Student student, long seed, int index) {
+        final long t0 = System.currentTimeMillis();
+        return iThreadPool.submit(seed, index, new Callable<BranchBoundNeighbour>() {
+            @Override
+            public BranchBoundNeighbour call() {
+                return section(student, t0);
+            }
+        });
+    }
+
+    /**
+     * Section the given students using the thread pool of the engine, wait for all the requests to be processed
+     * @param students students to section (must be in the model)
+     * @return computed and committed schedules, in the order of the given students (students that failed are skipped)
+     */
+    public List<BranchBoundNeighbour> section(Collection<Student> students) {
+        List<Future<BranchBoundNeighbour>> tasks = new ArrayList<Future<BranchBoundNeighbour>>(students.size());
+        long seed = ToolBox.getRandom().nextLong();
+        for (Student student: students)
+            tasks.add(submit(student, seed, tasks.size()));
+        List<BranchBoundNeighbour> neighbours = new ArrayList<BranchBoundNeighbour>(students.size());
+        for (Future<BranchBoundNeighbour> task: tasks) {
+            try {
+                BranchBoundNeighbour neighbour = task.get();
+                if (neighbour != null) neighbours.add(neighbour);
+            } catch (InterruptedException e) {
+                sLog.error("Online sectioning interrupted: " + e.getMessage(), e);
+            } catch (ExecutionException e) {
+                sLog.error("Online sectioning failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * Section the given student: lock the offerings, compute the schedule, and commit it
+     * @param student student to section
+     * @param t0 time when the request was received (used to compute the latency)
+     * @return committed schedule, null when failed
+     */
+    protected BranchBoundNeighbour section(Student student, long t0) {
+        TreeSet<Integer> indexes = getLockIndexes(student);
+        for (Integer index: indexes)
+            iLocks[index].lock();
+        BranchBoundNeighbour neighbour = null;
+        try {
+            neighbour = getSelection(student).select(iAssignment, student);
+            if (neighbour != null && !commit(student, neighbour))
+                neighbour = null;
+        } catch (Exception e) {
+            sLog.error("Failed to section " + student + ": " + e.getMessage(), e);
+            neighbour = null;
+        } finally {
+            for (Integer index: indexes.descendingSet())
+                iLocks[index].unlock();
+        }
+        iNrRequests.incrementAndGet();
+        if (neighbour == null) iNrFailures.incrementAndGet();
+        addLatency(t0, System.currentTimeMillis());
+        return neighbour;
+    }
+
+    /**
+     * Create the selection that is used to compute the schedule of a student. The current enrollments of the student are used
+     * as the preferred sections.
+     * @param student student in question
+     * @return online sectioning selection
+     */
+    protected OnlineSectioningSelection getSelection(Student student) {
+        OnlineSectioningSelection selection = null;
+        if (iModel.getProperties().getPropertyBoolean("StudentWeights.MultiCriteria", true)) {
+            selection = new MultiCriteriaBranchAndBoundSelection(iModel.getProperties());
+        } else {
+            selection = new SuggestionSelection(iModel.getProperties());
+        }
+        Hashtable<CourseRequest, Set<Section>> preferredSections = new Hashtable<CourseRequest, Set<Section>>();
+        for (Request request: student.getRequests()) {
+            Enrollment enrollment = iAssignment.getValue(request);
+            if (enrollment != null && enrollment.isCourseRequest())
+                preferredSections.put((CourseRequest)request, enrollment.getSections());
+        }
+        selection.setModel(iModel);
+        selection.setPreferredSections(preferredSections);
+        selection.setRequiredSections(new Hashtable<CourseRequest, Set<Section>>());
+        selection.setRequiredFreeTimes(new HashSet<FreeTimeRequest>());
+        return selection;
+    }
+
+    /**
+     * Commit the computed schedule, restore the original schedule of the student when any of the new enrollments is in a conflict
+     * @param student student in question
+     * @param neighbour computed schedule
+     * @return true if the schedule was committed
+     */
+    protected boolean commit(Student student, BranchBoundNeighbour neighbour) {
+        synchronized (iModel) {
+            Enrollment[] original = new Enrollment[student.getRequests().size()];
+            for (int i = 0; i < original.length; i++)
+                original[i] = iAssignment.getValue(student.getRequests().get(i));
+            for (Request request: student.getRequests())
+                if (iAssignment.getValue(request) != null)
+                    iAssignment.unassign(0, request);
+            boolean fail = false;
+            for (Enrollment enrollment: neighbour.getAssignment()) {
+                if (enrollment == null) continue;
+                if (iModel.conflictValues(iAssignment, enrollment).isEmpty()) {
+                    iAssignment.assign(0, enrollment);
+                } else {
+                    fail = true;
+                    break;
+                }
+            }
+            if (fail) {
+                for (Request request: student.getRequests())
+                    if (iAssignment.getValue(request) != null)
+                        iAssignment.unassign(0, request);
+                for (Enrollment enrollment: original)
+                    if (enrollment != null)
+                        iAssignment.assign(0, enrollment);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /** Record latency of a processed request (the oldest latency is overwritten when the ring buffer is full) */
+    private synchronized void addLatency(long start, long end) {
+        iLatencies[(int)(iNrLatencies % iLatencies.length)] = end - start;
+        iNrLatencies++;
+        if (iFirstStart < 0 || start < iFirstStart) iFirstStart = start;
+        if (end > iLastEnd) iLastEnd = end;
+    }
+
+    /**
+     * Latency percentile
+     * @param percentile a number between 0 and 100
+     * @return latency (in milliseconds) of the given percentile of the last processed requests (up to OnlineSectioning.LatencySamples requests),
+     * 0 if there are no processed requests
+     */
+    public synchronized long getLatency(double percentile) {
+        if (iNrLatencies == 0) return 0;
+        int size = (int)Math.min(iNrLatencies, iLatencies.length);
+        long[] latencies = Arrays.copyOf(iLatencies, size);
+        Arrays.sort(latencies);
+        int index = (int)Math.ceil(percentile / 100.0 * size) - 1;
+        return latencies[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    /**
+     * Throughput
+     * @return number of processed requests per second (between the first received and the last processed request)
+     */
+    public synchronized double getThroughput() {
+        if (iNrLatencies == 0) return 0.0;
+        return 1000.0 * iNrLatencies / Math.max(1, iLastEnd - iFirstStart);
+    }
+
+    /**
+     * Number of processed requests
+     * @return number of students that have been sectioned
+     */
+    public long getNrRequests() { return iNrRequests.get(); }
+
+    /**
+     * Number of failed requests
+     * @return number of students for which no schedule was found or committed
+     */
+    public long getNrFailures() { return iNrFailures.get(); }
+
+    /**
+     * Clear the collected statistics (number of requests, latencies, throughput)
+     */
+    public synchronized void clearStatistics() {
+        iNrRequests.set(0); iNrFailures.set(0);
+        iNrLatencies = 0;
+        iFirstStart = -1; iLastEnd = -1;
+    }
+
+    /**
+     * Engine statistics: number of requests and failures, throughput, and the latency percentiles
+     * @return statistics, to be printed
+     */
+    public Map<String, String> getInfo() {
+        Map<String, String> info = new HashMap<String, String>();
+        info.put("Requests", String.valueOf(getNrRequests()));
+        info.put("Failures", String.valueOf(getNrFailures()));
+        info.put("Threads", String.valueOf(iNrThreads));
+        info.put("Throughput", sDF.format(getThroughput()) + " requests/s");
+        info.put("Latency", "p50: " + getLatency(50) + " ms, p99: " + getLatency(99) + " ms, max: " + getLatency(100) + " ms");
+        return info;
+    }
+
+    /**
+     * Thread pool of the engine
+     * @return thread pool used by {@link OnlineSectioningEngine#submit(Student)}
+     */
+    public ThreadPool getThreadPool() {
+        return iThreadPool;
+    }
+
+    /**
+     * Stop the thread pool of the engine (requests that have been submitted are still processed)
+     */
+    public void shutdown() {
+        iThreadPool.shutdown();
+    }
+}
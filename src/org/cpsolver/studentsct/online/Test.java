@@ -85,6 +85,8 @@ import org.cpsolver.studentsct.reservation.Reservation;
  *      <li>-DStudentWeights.PriorityWeighting=priority|equal ... priority or equal weighting (defaults to priority)
  *      <li>-DStudentWeights.MultiCriteria=true|false ... true for multi-criteria (lexicographic ordering), false for a weighted sum (default to true)
  *      <li>-DNeighbour.BranchAndBoundTimeout=M ... time limit for each student in milliseconds (CPU time, defaults to 1000)
+ *      <li>-Dengine=N1,N2,... ... instead of the test above, section all students using the {@link OnlineSectioningEngine}, once for each of the given
+ *      numbers of threads (e.g., 1,2,4,8), and print the throughput and the 50th and 99th percentile of the latency of each run
  * </ul>
  * 
  * @version StudentSct 1.3 (Student Sectioning)<br>
@@ -729,22 +731,32 @@ public class Test {
             }
     }
 
-    public void run() {
-        sLog.info("Input: " + ToolBox.dict2string(model().getExtendedInfo(assignment()), 2));
-
+    /**
+     * Students of the model in the order given by the -Dsort parameter: shuffle (random order, drawn from {@link ToolBox#getRandom()}),
+     * choice (more choices first), or reverse (more choices last)
+     * @return students to section
+     */
+    protected List<Student> getStudents() {
         List<Student> students = new ArrayList<Student>(model().getStudents());
         String sort = System.getProperty("sort", "shuffle");
         if ("shuffle".equals(sort)) {
-            Collections.shuffle(students);
+            Collections.shuffle(students, ToolBox.getRandom());
         } else if ("choice".equals(sort)) {
             StudentChoiceOrder ord = new StudentChoiceOrder(model().getProperties());
             ord.setReverse(false);
             Collections.sort(students, ord);
-        } else if ("referse".equals(sort)) {
+        } else if ("reverse".equals(sort) || "referse".equals(sort)) {
             StudentChoiceOrder ord = new StudentChoiceOrder(model().getProperties());
             ord.setReverse(true);
             Collections.sort(students, ord);
         }
+        return students;
+    }
+
+    public void run() {
+        sLog.info("Input: " + ToolBox.dict2string(model().getExtendedInfo(assignment()), 2));
+
+        List<Student> students = getStudents();
 
         Iterator<Student> iterator = students.iterator();
         int nrThreads = Integer.parseInt(System.getProperty("nrConcurrent", "10"));
@@ -780,6 +792,39 @@ public class Test {
 
     }
 
+    /**
+     * Online sectioning engine test: all students are sectioned by the {@link OnlineSectioningEngine} on the loaded model, once for each of
+     * the given numbers of threads (the assignment is cleared before each run). The throughput and the latency percentiles of each run are printed.
+     * @param nrThreads numbers of threads of the engine
+     */
+    public void runEngine(List<Integer> nrThreads) {
+        sLog.info("Input: " + ToolBox.dict2string(model().getExtendedInfo(assignment()), 2));
+
+        List<Student> students = getStudents();
+
+        long t0 = System.currentTimeMillis();
+        for (Integer threads: nrThreads) {
+            for (Request request: model().variables())
+                if (assignment().getValue(request) != null)
+                    assignment().unassign(0, request);
+            OnlineSectioningEngine engine = new OnlineSectioningEngine(model(), assignment(), threads);
+            try {
+                engine.section(students);
+            } finally {
+                engine.shutdown();
+            }
+            sLog.info("Engine [" + threads + " threads]: " + ToolBox.dict2string(engine.getInfo(), 2));
+            inc("[E] Throughput with " + threads + " threads [req/s]", engine.getThroughput());
+            inc("[E] Latency p50 with " + threads + " threads [ms]", engine.getLatency(50));
+            inc("[E] Latency p99 with " + threads + " threads [ms]", engine.getLatency(99));
+            inc("[E] Failures with " + threads + " threads", engine.getNrFailures());
+        }
+
+        sLog.info("Output: " + ToolBox.dict2string(model().getExtendedInfo(assignment()), 2));
+        long time = System.currentTimeMillis() - t0;
+        inc("[T] Run Time [m]", time / 60000.0);
+    }
+
     public class Executor extends Thread {
         private Iterator<Student> iStudents = null;
 
@@ -931,7 +976,14 @@ public class Test {
             loader.setInputFile(input);
             loader.load();
 
-            test.run();
+            if (System.getProperty("engine") != null) {
+                List<Integer> nrThreads = new ArrayList<Integer>();
+                for (String n: System.getProperty("engine").split(","))
+                    nrThreads.add(Integer.valueOf(n.trim()));
+                test.runEngine(nrThreads);
+            } else {
+                test.run();
+            }
 
             Solver<Request, Enrollment> s = new Solver<Request, Enrollment>(cfg);
             s.setInitalSolution(test.model());
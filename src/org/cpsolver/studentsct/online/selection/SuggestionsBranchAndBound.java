@@ -11,11 +11,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.log4j.Logger;
 import org.cpsolver.coursett.Constants;
 import org.cpsolver.coursett.model.TimeLocation;
 import org.cpsolver.ifs.assignment.Assignment;
+import org.cpsolver.ifs.assignment.AssignmentMap;
 import org.cpsolver.ifs.util.DataProperties;
+import org.cpsolver.ifs.util.ThreadPool;
 import org.cpsolver.ifs.util.ToolBox;
 import org.cpsolver.studentsct.model.Config;
 import org.cpsolver.studentsct.model.Course;
@@ -36,6 +43,12 @@ import org.cpsolver.studentsct.online.selection.MultiCriteriaBranchAndBoundSelec
  * of suggestions is limited by Suggestions.MaxSuggestions parameter (defaults to 20).
  * Time is limited by Suggestions.Timeout (defaults to 5000 ms), search depth is limited
  * by Suggestions.MaxDepth parameter (default to 4).
+ * <br><br>
+ * When Suggestions.Threads is above one, the possible enrollments of the selected request
+ * (the top-level branches of the search) are explored in parallel, each on its own copy of
+ * the current assignment (see {@link SuggestionsBranchAndBound#createAssignment()}). The suggestions
+ * found in each branch are merged at the end. Each branch is stopped when the timeout is reached,
+ * so the best suggestions found so far are returned when the time limit is exceeded.
  * 
  * @version StudentSct 1.3 (Student Sectioning)<br>
  *          Copyright (C) 2014 Tomas Muller<br>
@@ -57,7 +70,8 @@ import org.cpsolver.studentsct.online.selection.MultiCriteriaBranchAndBoundSelec
  *          href='http://www.gnu.org/licenses'>http://www.gnu.org/licenses</a>.
  * 
  */
-public class SuggestionsBranchAndBound {
+public class SuggestionsBranchAndBound implements Cloneable {
+    private static Logger sLog = Logger.getLogger(SuggestionsBranchAndBound.class);
     private Hashtable<CourseRequest, Set<Section>> iRequiredSections = null;
     private Set<FreeTimeRequest> iRequiredFreeTimes = null;
     private Hashtable<CourseRequest, Set<Section>> iPreferredSections = null;
@@ -73,8 +87,10 @@ public class SuggestionsBranchAndBound {
     private int iNrSolutionsSeen = 0;
     private OnlineSectioningModel iModel;
     private Assignment<Request, Enrollment> iAssignment;
-    private Hashtable<Request, List<Enrollment>> iValues = new Hashtable<Request, List<Enrollment>>();
-    private long iLastSuggestionId = 0;
+    private Map<Request, List<Enrollment>> iValues = new HashMap<Request, List<Enrollment>>();
+    private AtomicLong iLastSuggestionId = new AtomicLong(0);
+    private int iNrThreads = 1;
+    private ThreadPool iThreadPool = null;
     private SuggestionFilter iFilter = null;
     protected SelectionComparator iComparator = null;
     protected int iMatched = 0;
@@ -108,27 +124,35 @@ public class SuggestionsBranchAndBound {
         iMaxDepth = properties.getPropertyInt("Suggestions.MaxDepth", iMaxDepth);
         iTimeout = properties.getPropertyLong("Suggestions.Timeout", iTimeout);
         iMaxSuggestions = properties.getPropertyInt("Suggestions.MaxSuggestions", iMaxSuggestions);
+        iNrThreads = properties.getPropertyInt("Suggestions.Threads", iNrThreads);
         iMaxSectionsWithPenalty = maxSectionsWithPenalty;
         iFilter = filter;
-        iComparator = new SelectionComparator() {
-            private HashMap<Enrollment, Double> iValues = new HashMap<Enrollment, Double>();
-
-            private Double value(Enrollment e) {
-                Double value = iValues.get(e);
-                if (value == null) {
-                    value = iModel.getStudentWeights().getWeight(iAssignment, e,
-                            (iModel.getDistanceConflict() == null ? null : iModel.getDistanceConflict().conflicts(e)),
-                            (iModel.getTimeOverlaps() == null ? null : iModel.getTimeOverlaps().conflicts(e)));
-                    iValues.put(e, value);
-                }
-                return value;
+        iComparator = new EnrollmentWeightComparator();
+    }
+    
+    /**
+     * Default comparator of the enrollments of a request (see {@link SuggestionsBranchAndBound#values(Request)}): enrollments with
+     * a higher student weight go first. The weights are cached, so each search (including the workers of the parallel search, see
+     * {@link SuggestionsBranchAndBound#createWorker()}) has its own instance.
+     */
+    protected class EnrollmentWeightComparator implements SelectionComparator {
+        private HashMap<Enrollment, Double> iWeights = new HashMap<Enrollment, Double>();
+
+        private Double value(Enrollment e) {
+            Double value = iWeights.get(e);
+            if (value == null) {
+                value = iModel.getStudentWeights().getWeight(iAssignment, e,
+                        (iModel.getDistanceConflict() == null ? null : iModel.getDistanceConflict().conflicts(e)),
+                        (iModel.getTimeOverlaps() == null ? null : iModel.getTimeOverlaps().conflicts(e)));
+                iWeights.put(e, value);
             }
+            return value;
+        }
 
-            @Override
-            public int compare(Assignment<Request, Enrollment> a, Enrollment e1, Enrollment e2) {
-                return value(e2).compareTo(value(e1));
-            }
-        };
+        @Override
+        public int compare(Assignment<Request, Enrollment> a, Enrollment e1, Enrollment e2) {
+            return value(e2).compareTo(value(e1));
+        }
     }
 
     /**
@@ -186,7 +210,7 @@ public class SuggestionsBranchAndBound {
             if (iAssignment.getValue(request) == null && request instanceof FreeTimeRequest) {
                 FreeTimeRequest ft = (FreeTimeRequest) request;
                 Enrollment enrollment = ft.createEnrollment();
-                if (iModel.conflictValues(iAssignment, enrollment).isEmpty())
+                if (iModel.countConflicts(iAssignment, enrollment) == 0)
                     iAssignment.assign(0, enrollment);
             }
         }
@@ -195,7 +219,10 @@ public class SuggestionsBranchAndBound {
             request.setInitialAssignment(iAssignment.getValue(request));
         }
 
-        backtrack(requests2resolve, altRequests2resolve, 0, iMaxDepth, false);
+        if (iNrThreads > 1)
+            backtrackParallel(requests2resolve, altRequests2resolve, iMaxDepth);
+        else
+            backtrack(requests2resolve, altRequests2resolve, 0, iMaxDepth, false);
 
         iT1 = System.currentTimeMillis();
         return iSuggestions;
@@ -215,6 +242,7 @@ public class SuggestionsBranchAndBound {
             iTimeoutReached = true;
         int nrUnassigned = requests2resolve.size() - idx;
         if (nrUnassigned == 0) {
+            iNrSolutionsSeen++;
             List<FreeTimeRequest> okFreeTimes = new ArrayList<FreeTimeRequest>();
             double sectionsWithPenalty = 0;
             for (Request r : iStudent.getRequests()) {
@@ -226,7 +254,7 @@ public class SuggestionsBranchAndBound {
                 if (e == null && r instanceof FreeTimeRequest) {
                     FreeTimeRequest ft = (FreeTimeRequest) r;
                     Enrollment enrollment = ft.createEnrollment();
-                    if (iModel.conflictValues(iAssignment, enrollment).isEmpty()) {
+                    if (iModel.countConflicts(iAssignment, enrollment) == 0) {
                         iAssignment.assign(0, enrollment);
                         okFreeTimes.add(ft);
                     }
@@ -260,55 +288,203 @@ public class SuggestionsBranchAndBound {
         for (Enrollment enrollment : values(request)) {
             if (!canContinueEvaluation())
                 break;
+            branch(requests2resolve, altRequests2resolve, idx, depth, alt, enrollment);
+        }
+    }
+
+    /**
+     * Assign the given enrollment of the request at the current depth (unassigning conflicting enrollments) and continue
+     * the search with the remaining requests
+     * @param requests2resolve remaining requests to assign
+     * @param altRequests2resolve alternative requests to assign
+     * @param idx current depth
+     * @param depth remaining depth
+     * @param alt can leave a request unassigned
+     * @param enrollment an enrollment of the request at the current depth
+     */
+    protected void branch(ArrayList<Request> requests2resolve, TreeSet<Request> altRequests2resolve, int idx,
+            int depth, boolean alt, Enrollment enrollment) {
+        Request request = requests2resolve.get(idx);
+        if (!isAllowed(enrollment))
+            return;
+        if (enrollment.equals(iAssignment.getValue(request)))
+            return;
+        if (enrollment.getAssignments().isEmpty() && alt)
+            return;
+        Set<Enrollment> conflicts = iModel.conflictValues(iAssignment, enrollment);
+        if (!checkBound(requests2resolve, idx, depth, enrollment, conflicts))
+            return;
+        Enrollment current = iAssignment.getValue(request);
+        ArrayList<Request> newVariables2resolve = new ArrayList<Request>(requests2resolve);
+        for (Iterator<Enrollment> i = conflicts.iterator(); i.hasNext();) {
+            Enrollment conflict = i.next();
+            iAssignment.unassign(0, conflict.variable());
+            if (!newVariables2resolve.contains(conflict.variable()))
+                newVariables2resolve.add(conflict.variable());
+        }
+        if (current != null)
+            iAssignment.unassign(0, current.variable());
+        iAssignment.assign(0, enrollment);
+        if (enrollment.getAssignments().isEmpty()) {
+            if (altRequests2resolve != null && !altRequests2resolve.isEmpty()) {
+                Suggestion lastBefore = (iSuggestions.isEmpty() ? null : iSuggestions.last());
+                int sizeBefore = iSuggestions.size();
+                for (Request r : altRequests2resolve) {
+                    newVariables2resolve.add(r);
+                    backtrack(newVariables2resolve, null, idx + 1, depth, true);
+                    newVariables2resolve.remove(r);
+                }
+                Suggestion lastAfter = (iSuggestions.isEmpty() ? null : iSuggestions.last());
+                int sizeAfter = iSuggestions.size();
+                // did not succeeded with an alternative -> try without it
+                if (sizeBefore == sizeAfter && (sizeAfter < iMaxSuggestions || sizeAfter == 0 || lastAfter.compareTo(lastBefore) == 0))
+                    backtrack(newVariables2resolve, altRequests2resolve, idx + 1, depth - 1, alt);
+            } else {
+                backtrack(newVariables2resolve, altRequests2resolve, idx + 1, depth - 1, alt);
+            }
+        } else {
+            backtrack(newVariables2resolve, altRequests2resolve, idx + 1, depth - 1, alt);
+        }
+        if (current == null)
+            iAssignment.unassign(0, request);
+        else
+            iAssignment.assign(0, current);
+        for (Iterator<Enrollment> i = conflicts.iterator(); i.hasNext();) {
+            Enrollment conflict = i.next();
+            iAssignment.assign(0, conflict);
+        }
+    }
+
+    /**
+     * Branch and bound with the top-level branches (possible enrollments of the selected request) evaluated in parallel.
+     * Each branch is searched by a copy of this search (see {@link SuggestionsBranchAndBound#createWorker()}) with its own
+     * assignment and caches, the found suggestions are merged afterwards. The branches are evaluated by the thread pool that was set by
+     * {@link SuggestionsBranchAndBound#setThreadPool(ThreadPool)}, or by a pool that is created for this search and shut down when it is finished.
+     * @param requests2resolve requests to assign (the selected request goes first)
+     * @param altRequests2resolve alternative requests to assign
+     * @param depth remaining depth
+     */
+    protected void backtrackParallel(final ArrayList<Request> requests2resolve, final TreeSet<Request> altRequests2resolve, final int depth) {
+        if (!canContinue(requests2resolve, 0, depth))
+            return;
+        ThreadPool pool = (iThreadPool != null ? iThreadPool : new ThreadPool("Suggestions", iNrThreads));
+        try {
+            backtrackParallel(pool, requests2resolve, altRequests2resolve, depth);
+        } finally {
+            if (pool != iThreadPool) pool.shutdown();
+        }
+    }
+    
+    /**
+     * Evaluate the top-level branches using the given thread pool, see {@link SuggestionsBranchAndBound#backtrackParallel(ArrayList, TreeSet, int)}.
+     * Each branch draws its random numbers from its own stream, seeded from the stream of the calling thread (see {@link ThreadPool#submit(long, int, Callable)}).
+     * @param pool thread pool of the search
+     * @param requests2resolve requests to assign (the selected request goes first)
+     * @param altRequests2resolve alternative requests to assign
+     * @param depth remaining depth
+     */
+    protected void backtrackParallel(ThreadPool pool, final ArrayList<Request> requests2resolve, final TreeSet<Request> altRequests2resolve, final int depth) {
+        List<Future<SuggestionsBranchAndBound>> tasks = new ArrayList<Future<SuggestionsBranchAndBound>>();
+        long seed = ToolBox.getRandom().nextLong();
+        for (final Enrollment enrollment : values(requests2resolve.get(0))) {
             if (!isAllowed(enrollment))
                 continue;
-            if (enrollment.equals(iAssignment.getValue(request)))
-                continue;
-            if (enrollment.getAssignments().isEmpty() && alt)
-                continue;
-            Set<Enrollment> conflicts = iModel.conflictValues(iAssignment, enrollment);
-            if (!checkBound(requests2resolve, idx, depth, enrollment, conflicts))
-                continue;
-            Enrollment current = iAssignment.getValue(request);
-            ArrayList<Request> newVariables2resolve = new ArrayList<Request>(requests2resolve);
-            for (Iterator<Enrollment> i = conflicts.iterator(); i.hasNext();) {
-                Enrollment conflict = i.next();
-                iAssignment.unassign(0, conflict.variable());
-                if (!newVariables2resolve.contains(conflict.variable()))
-                    newVariables2resolve.add(conflict.variable());
-            }
-            if (current != null)
-                iAssignment.unassign(0, current.variable());
-            iAssignment.assign(0, enrollment);
-            if (enrollment.getAssignments().isEmpty()) {
-                if (altRequests2resolve != null && !altRequests2resolve.isEmpty()) {
-                    Suggestion lastBefore = (iSuggestions.isEmpty() ? null : iSuggestions.last());
-                    int sizeBefore = iSuggestions.size();
-                    for (Request r : altRequests2resolve) {
-                        newVariables2resolve.add(r);
-                        backtrack(newVariables2resolve, null, idx + 1, depth, true);
-                        newVariables2resolve.remove(r);
+            final SuggestionsBranchAndBound worker = createWorker();
+            tasks.add(pool.submit(seed, tasks.size(), new Callable<SuggestionsBranchAndBound>() {
+                @Override
+                public SuggestionsBranchAndBound call() {
+                    if (worker.iTimeout > 0 && System.currentTimeMillis() - worker.iT0 > worker.iTimeout)
+                        worker.iTimeoutReached = true;
+                    if (worker.canContinueEvaluation()) {
+                        worker.iAssignment = createAssignment();
+                        worker.branch(new ArrayList<Request>(requests2resolve), altRequests2resolve, 0, depth, false, enrollment);
                     }
-                    Suggestion lastAfter = (iSuggestions.isEmpty() ? null : iSuggestions.last());
-                    int sizeAfter = iSuggestions.size();
-                    // did not succeeded with an alternative -> try without it
-                    if (sizeBefore == sizeAfter && (sizeAfter < iMaxSuggestions || sizeAfter == 0 || lastAfter.compareTo(lastBefore) == 0))
-                        backtrack(newVariables2resolve, altRequests2resolve, idx + 1, depth - 1, alt);
-                } else {
-                    backtrack(newVariables2resolve, altRequests2resolve, idx + 1, depth - 1, alt);
+                    return worker;
                 }
-            } else {
-                backtrack(newVariables2resolve, altRequests2resolve, idx + 1, depth - 1, alt);
+            }));
+        }
+        for (Future<SuggestionsBranchAndBound> task : tasks) {
+            try {
+                SuggestionsBranchAndBound worker = task.get();
+                if (worker.iTimeoutReached)
+                    iTimeoutReached = true;
+                iNrSolutionsSeen += worker.iNrSolutionsSeen;
+                for (Suggestion s : worker.iSuggestions)
+                    addSuggestion(s);
+            } catch (InterruptedException e) {
+                sLog.error("Suggestions of " + iStudent.getName() + " interrupted: " + e.getMessage(), e);
+            } catch (ExecutionException e) {
+                sLog.error("Suggestions of " + iStudent.getName() + " failed: " + e.getCause().getMessage(), e.getCause());
             }
-            if (current == null)
-                iAssignment.unassign(0, request);
-            else
-                iAssignment.assign(0, current);
-            for (Iterator<Enrollment> i = conflicts.iterator(); i.hasNext();) {
-                Enrollment conflict = i.next();
-                iAssignment.assign(0, conflict);
+        }
+    }
+
+    /**
+     * Merge a suggestion that was found by a worker (see {@link SuggestionsBranchAndBound#backtrackParallel(ArrayList, TreeSet, int)}) into
+     * the suggestions of this search, using the same rules as when a suggestion is found (a limited number of suggestions, only
+     * the best suggestion for each selected section)
+     * @param s a suggestion found by a worker
+     */
+    protected void addSuggestion(Suggestion s) {
+        if (iSuggestions.size() >= iMaxSuggestions && iSuggestions.last().compareTo(s) <= 0)
+            return;
+        if (iMatched != 1) {
+            for (Iterator<Suggestion> i = iSuggestions.iterator(); i.hasNext();) {
+                Suggestion x = i.next();
+                if (x.sameSelectedSection(s.iSelectedRequestEnrollment)) {
+                    if (x.compareTo(s) <= 0) return;
+                    i.remove();
+                }
             }
         }
+        iSuggestions.add(s);
+        if (iSuggestions.size() > iMaxSuggestions)
+            iSuggestions.remove(iSuggestions.last());
+    }
+
+    /**
+     * Create a copy of this search that is used to evaluate one top-level branch in parallel. The copy shares the
+     * configuration and the requirements with this search, but it has its own suggestions, domain cache, and counter of the
+     * solutions seen. Unless a custom comparator is used, it also gets its own {@link EnrollmentWeightComparator} (the comparator caches the weights).
+     * Its assignment is set in the thread that evaluates the branch (see {@link SuggestionsBranchAndBound#createAssignment()}).
+     * @return a copy of this search
+     */
+    protected SuggestionsBranchAndBound createWorker() {
+        try {
+            SuggestionsBranchAndBound worker = (SuggestionsBranchAndBound) clone();
+            worker.iValues = new HashMap<Request, List<Enrollment>>();
+            worker.iSuggestions = new TreeSet<Suggestion>();
+            worker.iTimeoutReached = false;
+            worker.iNrSolutionsSeen = 0;
+            worker.iNrThreads = 1;
+            if (iComparator instanceof EnrollmentWeightComparator)
+                worker.iComparator = worker.new EnrollmentWeightComparator();
+            return worker;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Create a copy of the current assignment, used by the top-level branches that are evaluated in parallel. In online sectioning
+     * the assignment only contains the schedule of the given student (section enrollments are taken from the online model), so the copy is cheap.
+     * @return a new assignment with the same values as the current assignment
+     */
+    protected Assignment<Request, Enrollment> createAssignment() {
+        Assignment<Request, Enrollment> assignment = new AssignmentMap<Request, Enrollment>();
+        for (Enrollment enrollment : iAssignment.assignedValues())
+            assignment.assign(0, enrollment);
+        return assignment;
+    }
+
+    /**
+     * Use the given thread pool for the parallel evaluation of the top-level branches (see {@link SuggestionsBranchAndBound#backtrackParallel(ArrayList, TreeSet, int)}).
+     * The pool is owned by the caller (e.g., an online sectioning engine) that is responsible for its shut down. When no pool is set,
+     * a new pool with Suggestions.Threads threads is created for each search and shut down when the search is finished.
+     * @param pool thread pool to use, null to create a pool for each search
+     */
+    public void setThreadPool(ThreadPool pool) {
+        iThreadPool = pool;
     }
 
     /**
@@ -325,12 +501,20 @@ public class SuggestionsBranchAndBound {
         if (request instanceof CourseRequest) {
             CourseRequest cr = (CourseRequest) request;
             values = (cr.equals(iSelectedRequest) ? cr.getAvaiableEnrollments(iAssignment) : cr.getAvaiableEnrollmentsSkipSameTime(iAssignment));
-            Collections.sort(values, new Comparator<Enrollment>() {
+            Comparator<Enrollment> cmp = new Comparator<Enrollment>() {
                 @Override
                 public int compare(Enrollment e1, Enrollment e2) {
                     return iComparator.compare(iAssignment, e1, e2);
                 }
-            });
+            };
+            if (iComparator instanceof EnrollmentWeightComparator) {
+                Collections.sort(values, cmp);
+            } else {
+                // a custom comparator is shared with the parallel workers (see createWorker)
+                synchronized (iComparator) {
+                    Collections.sort(values, cmp);
+                }
+            }
         } else {
             values = new ArrayList<Enrollment>();
             values.add(((FreeTimeRequest) request).createEnrollment());
@@ -517,8 +701,9 @@ public class SuggestionsBranchAndBound {
         private int iUnassignedPriority = 0;
         private int iNrChanges = 0;
 
-        private long iId = iLastSuggestionId++;
+        private long iId = iLastSuggestionId.getAndIncrement();
         private Enrollment[] iEnrollments;
+        private Enrollment iSelectedRequestEnrollment = null;
         private Section iSelectedEnrollment = null;
         private boolean iSelectedEnrollmentChangeTime = false;
         private TreeSet<Section> iSelectedSections = new TreeSet<Section>(new EnrollmentSectionComparator());
@@ -553,8 +738,10 @@ public class SuggestionsBranchAndBound {
                     }
                 }
             }
+            if (iSelectedRequest != null)
+                iSelectedRequestEnrollment = iAssignment.getValue(iSelectedRequest);
             if (iSelectedRequest != null && iSelectedSection != null) {
-                Enrollment enrollment = iAssignment.getValue(iSelectedRequest);
+                Enrollment enrollment = iSelectedRequestEnrollment;
                 if (enrollment.getAssignments() != null && !enrollment.getAssignments().isEmpty()) {
                     for (Iterator<Section> i = enrollment.getSections().iterator(); i.hasNext();) {
                         Section section = i.next();
@@ -643,8 +830,16 @@ public class SuggestionsBranchAndBound {
          * @return true the same section is selected
          */
         public boolean sameSelectedSection() {
+            return sameSelectedSection(iSelectedRequest == null ? null : iAssignment.getValue(iSelectedRequest));
+        }
+
+        /**
+         * Is the same section selected (as in the given enrollment of the selected request)
+         * @param enrollment an enrollment of the selected request
+         * @return true the same section is selected
+         */
+        public boolean sameSelectedSection(Enrollment enrollment) {
             if (iSelectedRequest != null && iSelectedEnrollment != null) {
-                Enrollment enrollment = iAssignment.getValue(iSelectedRequest);
                 if (enrollment != null && enrollment.getAssignments().contains(iSelectedEnrollment))
                     return true;
                 if (iSelectedEnrollmentChangeTime && iSelectedSection.getSubpart().getSections().size() > iMaxSuggestions) {